@@ -4,19 +4,33 @@ package rikka.shizuku.server.util;
 import android.os.ParcelFileDescriptor;
 import android.util.Log;
 
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Field;
 
 public class ParcelFileDescriptorUtil {
 
+    private static final Logger LOGGER = new Logger("ParcelFileDescriptorUtil");
+
+    private static final Field FILTER_IN = accessibleField(FilterInputStream.class, "in");
+    private static final Field FILTER_OUT = accessibleField(FilterOutputStream.class, "out");
+
     public static ParcelFileDescriptor pipeFrom(InputStream inputStream) throws IOException {
         ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
         ParcelFileDescriptor readSide = pipe[0];
         ParcelFileDescriptor writeSide = pipe[1];
 
-        new TransferThread(inputStream, new ParcelFileDescriptor.AutoCloseOutputStream(writeSide))
-                .start();
+        ParcelFileDescriptor source = detachDescriptor(inputStream);
+        if (source == null || !relay(source, writeSide)) {
+            new TransferThread(inputStream, new ParcelFileDescriptor.AutoCloseOutputStream(writeSide))
+                    .start();
+        }
 
         return readSide;
     }
@@ -26,12 +40,97 @@ public class ParcelFileDescriptorUtil {
         ParcelFileDescriptor readSide = pipe[0];
         ParcelFileDescriptor writeSide = pipe[1];
 
-        new TransferThread(new ParcelFileDescriptor.AutoCloseInputStream(readSide), outputStream)
-                .start();
+        ParcelFileDescriptor sink = detachDescriptor(outputStream);
+        if (sink == null || !relay(readSide, sink)) {
+            new TransferThread(new ParcelFileDescriptor.AutoCloseInputStream(readSide), outputStream)
+                    .start();
+        }
 
         return writeSide;
     }
 
+    private static boolean relay(ParcelFileDescriptor source, ParcelFileDescriptor sink) {
+        try {
+            PipeRelay.getInstance().start(source, sink);
+            return true;
+        } catch (IOException e) {
+            LOGGER.w(e, "failed to start relay, falling back to a transfer thread");
+            return false;
+        }
+    }
+
+    /**
+     * Take over the file descriptor under a process stream so {@link PipeRelay} can poll it.
+     * The stream is closed while holding its lock, which is the lock the process reaper takes
+     * before it drains and closes the pipe, so the reaper leaves the descriptor alone.
+     *
+     * @return a duplicate of the descriptor, or null if the stream is not backed by one, in
+     * which case the stream is untouched
+     */
+    private static ParcelFileDescriptor detachDescriptor(InputStream stream) {
+        if (FILTER_IN == null) {
+            return null;
+        }
+        synchronized (stream) {
+            try {
+                Object inner = stream;
+                while (inner instanceof FilterInputStream) {
+                    inner = FILTER_IN.get(inner);
+                }
+                if (!(inner instanceof FileInputStream)) {
+                    return null;
+                }
+                ParcelFileDescriptor fd = ParcelFileDescriptor.dup(((FileInputStream) inner).getFD());
+                closeQuietly(stream);
+                return fd;
+            } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+                LOGGER.w(e, "failed to detach input stream");
+                return null;
+            }
+        }
+    }
+
+    private static ParcelFileDescriptor detachDescriptor(OutputStream stream) {
+        if (FILTER_OUT == null) {
+            return null;
+        }
+        synchronized (stream) {
+            try {
+                Object inner = stream;
+                while (inner instanceof FilterOutputStream) {
+                    inner = FILTER_OUT.get(inner);
+                }
+                if (!(inner instanceof FileOutputStream)) {
+                    return null;
+                }
+                ParcelFileDescriptor fd = ParcelFileDescriptor.dup(((FileOutputStream) inner).getFD());
+                closeQuietly(stream);
+                return fd;
+            } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+                LOGGER.w(e, "failed to detach output stream");
+                return null;
+            }
+        }
+    }
+
+    private static Field accessibleField(Class<?> cls, String name) {
+        try {
+            Field field = cls.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.w(e, "%s.%s is not accessible", cls.getSimpleName(), name);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     public static class TransferThread extends Thread {
         final InputStream mIn;
         final OutputStream mOut;
@@ -0,0 +1,252 @@
+package rikka.shizuku.server.util;
+
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructPollfd;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies data between pipes on a single thread, so the number of threads the server needs
+ * does not grow with the number of remote processes.
+ * <p>
+ * All pipes are multiplexed with poll(). Descriptors stay blocking: a read after POLLIN
+ * returns what is available, and a write after POLLOUT is kept to {@link #MAX_WRITE} bytes,
+ * which a pipe reporting POLLOUT always accepts without blocking. Each transfer buffers at
+ * most {@link #BUFFER_SIZE} bytes; while its buffer is full the source is not polled, so a
+ * slow reader makes the writer block instead of growing memory.
+ */
+public class PipeRelay {
+
+    private static final Logger LOGGER = new Logger("PipeRelay");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** PIPE_BUF; writes up to this size go into a single free pipe buffer. */
+    private static final int MAX_WRITE = 4096;
+
+    private static final PipeRelay INSTANCE = new PipeRelay();
+
+    public static PipeRelay getInstance() {
+        return INSTANCE;
+    }
+
+    private final Object lock = new Object();
+    private final List<Transfer> pending = new ArrayList<>();
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private FileDescriptor wakeRead;
+    private FileDescriptor wakeWrite;
+    private Thread thread;
+
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+
+    private PipeRelay() {
+    }
+
+    /**
+     * Copy everything from {@code source} to {@code sink} until the source ends or the sink's
+     * reader goes away. The relay owns both descriptors from now on and closes them when done.
+     */
+    public void start(ParcelFileDescriptor source, ParcelFileDescriptor sink) throws IOException {
+        synchronized (lock) {
+            if (thread == null) {
+                try {
+                    FileDescriptor[] wake = Os.pipe();
+                    wakeRead = wake[0];
+                    wakeWrite = wake[1];
+                } catch (ErrnoException e) {
+                    throw new IOException(e);
+                }
+                thread = new Thread(this::loop, "PipeRelay");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            pending.add(new Transfer(source, sink));
+        }
+        startedCount.incrementAndGet();
+        liveCount.incrementAndGet();
+        wake();
+    }
+
+    /** Transfers that are still copying. */
+    public int getLiveCount() {
+        return liveCount.get();
+    }
+
+    /** Transfers started since the server started. */
+    public long getStartedCount() {
+        return startedCount.get();
+    }
+
+    /** Bytes delivered to sinks since the server started. */
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    private void wake() {
+        if (wakePending.compareAndSet(false, true)) {
+            try {
+                Os.write(wakeWrite, new byte[]{1}, 0, 1);
+            } catch (ErrnoException | IOException e) {
+                LOGGER.w(e, "failed to wake relay thread");
+            }
+        }
+    }
+
+    private void loop() {
+        List<Transfer> transfers = new ArrayList<>();
+        List<StructPollfd> polled = new ArrayList<>();
+        byte[] wakeBuffer = new byte[64];
+
+        while (true) {
+            synchronized (lock) {
+                transfers.addAll(pending);
+                pending.clear();
+            }
+
+            polled.clear();
+            polled.add(pollFd(wakeRead, OsConstants.POLLIN, null));
+            for (Transfer transfer : transfers) {
+                if (transfer.wantsRead()) {
+                    polled.add(pollFd(transfer.source.getFileDescriptor(), OsConstants.POLLIN, transfer));
+                }
+                // Polled even with nothing to write so a reader that goes away is noticed.
+                polled.add(pollFd(transfer.sink.getFileDescriptor(),
+                        transfer.hasData() ? OsConstants.POLLOUT : 0, transfer));
+            }
+
+            StructPollfd[] fds = polled.toArray(new StructPollfd[0]);
+            try {
+                Os.poll(fds, -1);
+            } catch (ErrnoException e) {
+                if (e.errno != OsConstants.EINTR) {
+                    LOGGER.e(e, "poll");
+                }
+                continue;
+            }
+
+            try {
+                if (fds[0].revents != 0) {
+                    wakePending.set(false);
+                    Os.read(wakeRead, wakeBuffer, 0, wakeBuffer.length);
+                }
+                for (int i = 1; i < fds.length; i++) {
+                    StructPollfd fd = fds[i];
+                    if (fd.revents == 0) {
+                        continue;
+                    }
+                    Transfer transfer = (Transfer) fd.userData;
+                    if (fd.fd == transfer.source.getFileDescriptor()) {
+                        transfer.read();
+                    } else if ((fd.revents & OsConstants.POLLOUT) != 0) {
+                        transfer.write();
+                    } else {
+                        // POLLERR or POLLNVAL: nobody is reading any more.
+                        transfer.failed = true;
+                    }
+                }
+            } catch (Throwable e) {
+                LOGGER.e(e, "relay loop");
+            }
+
+            Iterator<Transfer> it = transfers.iterator();
+            while (it.hasNext()) {
+                Transfer transfer = it.next();
+                if (transfer.isFinished()) {
+                    it.remove();
+                    transfer.close();
+                    liveCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static StructPollfd pollFd(FileDescriptor fd, int events, Object userData) {
+        StructPollfd pollFd = new StructPollfd();
+        pollFd.fd = fd;
+        pollFd.events = (short) events;
+        pollFd.userData = userData;
+        return pollFd;
+    }
+
+    private final class Transfer {
+        final ParcelFileDescriptor source;
+        final ParcelFileDescriptor sink;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int start;
+        int end;
+        boolean eof;
+        boolean failed;
+
+        Transfer(ParcelFileDescriptor source, ParcelFileDescriptor sink) {
+            this.source = source;
+            this.sink = sink;
+        }
+
+        boolean wantsRead() {
+            return !eof && !failed && end - start < buffer.length;
+        }
+
+        boolean hasData() {
+            return end > start;
+        }
+
+        boolean isFinished() {
+            return failed || (eof && !hasData());
+        }
+
+        void read() {
+            if (end == buffer.length) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            try {
+                int count = Os.read(source.getFileDescriptor(), buffer, end, buffer.length - end);
+                if (count <= 0) {
+                    eof = true;
+                } else {
+                    end += count;
+                }
+            } catch (ErrnoException | IOException e) {
+                eof = true;
+            }
+        }
+
+        void write() {
+            try {
+                int count = Os.write(sink.getFileDescriptor(), buffer, start, Math.min(MAX_WRITE, end - start));
+                start += count;
+                bytesTransferred.addAndGet(count);
+                if (start == end) {
+                    start = 0;
+                    end = 0;
+                }
+            } catch (ErrnoException | IOException e) {
+                // EPIPE: the reader closed its end.
+                failed = true;
+            }
+        }
+
+        void close() {
+            try {
+                source.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                sink.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -487,7 +487,7 @@ public class AgentSelectionFragment extends Fragment {
         }
 
         String currentVersion = BotDropService.getOpenclawVersion();
-        mBotDropService.executeCommand(
+        mBotDropService.executeReadOnlyCommand(
             OpenclawVersionUtils.VERSIONS_COMMAND,
             timeoutSeconds,
             result -> {
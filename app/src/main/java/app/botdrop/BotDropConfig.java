@@ -9,9 +9,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -21,7 +18,9 @@ import java.util.List;
  * Helper class for reading and writing OpenClaw configuration.
  * Handles openclaw.json at ~/.openclaw/openclaw.json
  *
- * Thread-safe: All file operations are synchronized.
+ * Thread-safe: both files are cached by {@link CachedJsonFile}, so getters read a parsed
+ * snapshot without locking or touching the disk unless the file changed, and writes are
+ * serialized and replace the file atomically.
  */
 public class BotDropConfig {
 
@@ -40,81 +39,33 @@ public class BotDropConfig {
     private static final String MODELS_PROVIDER_MODEL_NAME_KEY = "name";
     private static final String MODELS_PROVIDER_MODEL_ID_KEY = "id";
     private static final String MODELS_PROVIDER_DEFAULT_API = "openai-completions";
-    
-    // Lock for thread-safe file operations
-    private static final Object CONFIG_LOCK = new Object();
-    
+    private static final String AUTH_PROFILES_DIR = CONFIG_DIR + "/agents/main/agent";
+    private static final String AUTH_PROFILES_FILE = AUTH_PROFILES_DIR + "/auth-profiles.json";
+
+    private static final CachedJsonFile CONFIG = new CachedJsonFile(new File(CONFIG_FILE));
+    private static final CachedJsonFile AUTH_PROFILES = new CachedJsonFile(new File(AUTH_PROFILES_FILE));
+
     /**
      * Read the current configuration
-     * @return JSONObject of config, or empty config if not found
+     * @return JSONObject of config, or empty config if not found. The caller owns it and may modify it.
      */
     public static JSONObject readConfig() {
-        synchronized (CONFIG_LOCK) {
-            File configFile = new File(CONFIG_FILE);
-            
-            if (!configFile.exists()) {
-                Logger.logDebug(LOG_TAG, "Config file does not exist: " + CONFIG_FILE);
-                return new JSONObject();
-            }
-            
-            try (FileReader reader = new FileReader(configFile)) {
-                StringBuilder sb = new StringBuilder();
-                char[] buffer = new char[1024];
-                int read;
-                while ((read = reader.read(buffer)) != -1) {
-                    sb.append(buffer, 0, read);
-                }
-                
-                JSONObject config = new JSONObject(sb.toString());
-                Logger.logDebug(LOG_TAG, "Config loaded successfully");
-                return config;
-                
-            } catch (IOException | JSONException e) {
-                Logger.logError(LOG_TAG, "Failed to read config: " + e.getMessage());
-                return new JSONObject();
-            }
-        }
+        return CONFIG.copy();
     }
-    
+
     /**
      * Write configuration to file
      * @param config JSONObject to write
      * @return true if successful
      */
     public static boolean writeConfig(JSONObject config) {
-        synchronized (CONFIG_LOCK) {
-            // Create parent directories if needed
-            File configDir = new File(CONFIG_DIR);
-            if (!configDir.exists()) {
-                if (!configDir.mkdirs()) {
-                    Logger.logError(LOG_TAG, "Failed to create config directory: " + CONFIG_DIR);
-                    return false;
-                }
-            }
-            
-            File configFile = new File(CONFIG_FILE);
-            
-            try (FileWriter writer = new FileWriter(configFile)) {
-                // Pretty print JSON with 2-space indent
-                String jsonString = config.toString(2);
-                writer.write(jsonString);
-                
-                // Set file permissions to owner-only (prevent other apps from reading API keys)
-                configFile.setReadable(false, false);
-                configFile.setReadable(true, true);
-                configFile.setWritable(false, false);
-                configFile.setWritable(true, true);
-                
-                Logger.logInfo(LOG_TAG, "Config written successfully");
-                return true;
-                
-            } catch (IOException | JSONException e) {
-                Logger.logError(LOG_TAG, "Failed to write config: " + e.getMessage());
-                return false;
-            }
+        if (!CONFIG.write(config)) {
+            return false;
         }
+        Logger.logInfo(LOG_TAG, "Config written successfully");
+        return true;
     }
-    
+
     /**
      * Set the default AI provider and model
      * @param provider Provider ID (e.g., "anthropic")
@@ -200,10 +151,8 @@ public class BotDropConfig {
         List<String> availableModels,
         String apiKey
     ) {
-        try {
-            String normalizedProvider = normalizeProvider(provider);
-            JSONObject config = readConfig();
-            
+        String normalizedProvider = normalizeProvider(provider);
+        boolean written = CONFIG.update(config -> {
             // Create agents.defaults structure if not exists
             if (!config.has("agents")) {
                 config.put("agents", new JSONObject());
@@ -257,17 +206,13 @@ public class BotDropConfig {
                     return false;
                 }
             }
-
-            return writeConfig(config);
-            
-        } catch (JSONException e) {
-            Logger.logError(LOG_TAG, "Failed to set provider: " + e.getMessage());
-            return false;
+            return true;
+        });
+        if (written) {
+            Logger.logInfo(LOG_TAG, "Config written successfully");
         }
+        return written;
     }
-    
-    private static final String AUTH_PROFILES_DIR = CONFIG_DIR + "/agents/main/agent";
-    private static final String AUTH_PROFILES_FILE = AUTH_PROFILES_DIR + "/auth-profiles.json";
 
     private static boolean syncCustomProviderConfig(
         JSONObject config,
@@ -432,128 +377,59 @@ public class BotDropConfig {
             return false;
         }
 
-        synchronized (CONFIG_LOCK) {
-            try {
-                File dir = new File(AUTH_PROFILES_DIR);
-                if (!dir.exists()) dir.mkdirs();
-
-                // Read existing auth profiles or create new
-                JSONObject authProfiles;
-                File authFile = new File(AUTH_PROFILES_FILE);
-                if (authFile.exists()) {
-                    try (FileReader reader = new FileReader(authFile)) {
-                        StringBuilder sb = new StringBuilder();
-                        char[] buffer = new char[1024];
-                        int read;
-                        while ((read = reader.read(buffer)) != -1) {
-                            sb.append(buffer, 0, read);
-                        }
-                        authProfiles = new JSONObject(sb.toString());
-                    }
-                } else {
-                    authProfiles = new JSONObject();
-                    authProfiles.put("version", 1);
-                    authProfiles.put("profiles", new JSONObject());
-                }
-
-                String normalizedModel = normalizeModel(normalizedProvider, model);
-                String modelProfileId = normalizedProvider + ":" + normalizedModel;
-                String defaultProfileId = normalizedProvider + ":default";
-                String normalizedCredential = credential == null ? "" : credential.trim();
-                String normalizedBaseUrl = normalizeBaseUrl(baseUrl);
-
-                JSONObject profiles = authProfiles.getJSONObject("profiles");
-                JSONObject modelProfile = profiles.optJSONObject(modelProfileId);
-                JSONObject defaultProfile = profiles.optJSONObject(defaultProfileId);
-                JSONObject sourceProfile = modelProfile != null ? modelProfile : defaultProfile;
-                boolean hasExistingKey = sourceProfile != null
-                    && !TextUtils.isEmpty(sourceProfile.optString("key", "").trim());
-
-                if (TextUtils.isEmpty(normalizedCredential) && !hasExistingKey) {
-                    return false;
-                }
-
-                // Add/update profile: model-specific + default fallback
-                JSONObject profile = sourceProfile != null
-                    ? new JSONObject(sourceProfile.toString())
-                    : new JSONObject();
-                profile.put("type", "api_key");
-                profile.put("provider", normalizedProvider);
-                profile.put("model", normalizedModel);
-                if (!TextUtils.isEmpty(normalizedCredential)) {
-                    profile.put("key", normalizedCredential);
-                }
-                if (!TextUtils.isEmpty(normalizedBaseUrl)) {
-                    profile.put("base_url", normalizedBaseUrl);
-                }
-                profiles.put(modelProfileId, profile);
-                profiles.put(defaultProfileId, profile);
+        String normalizedModel = normalizeModel(normalizedProvider, model);
+        String modelProfileId = normalizedProvider + ":" + normalizedModel;
+        String defaultProfileId = normalizedProvider + ":default";
+        String normalizedCredential = credential == null ? "" : credential.trim();
+        String normalizedBaseUrl = normalizeBaseUrl(baseUrl);
 
-                // Write
-                try (FileWriter writer = new FileWriter(authFile)) {
-                    writer.write(authProfiles.toString(2));
-                }
-                authFile.setReadable(false, false);
-                authFile.setReadable(true, true);
-                authFile.setWritable(false, false);
-                authFile.setWritable(true, true);
+        boolean written = AUTH_PROFILES.update(authProfiles -> {
+            if (authProfiles.length() == 0) {
+                authProfiles.put("version", 1);
+                authProfiles.put("profiles", new JSONObject());
+            }
 
-                Logger.logInfo(LOG_TAG, "Auth profile written for " + modelProfileId +
-                    " (and fallback " + defaultProfileId + ")");
-                return true;
+            JSONObject profiles = authProfiles.getJSONObject("profiles");
+            JSONObject modelProfile = profiles.optJSONObject(modelProfileId);
+            JSONObject defaultProfile = profiles.optJSONObject(defaultProfileId);
+            JSONObject sourceProfile = modelProfile != null ? modelProfile : defaultProfile;
+            boolean hasExistingKey = sourceProfile != null
+                && !TextUtils.isEmpty(sourceProfile.optString("key", "").trim());
 
-            } catch (IOException | JSONException e) {
-                Logger.logError(LOG_TAG, "Failed to write auth profile: " + e.getMessage());
+            if (TextUtils.isEmpty(normalizedCredential) && !hasExistingKey) {
                 return false;
             }
+
+            // Add/update profile: model-specific + default fallback
+            JSONObject profile = sourceProfile != null
+                ? CachedJsonFile.deepCopy(sourceProfile)
+                : new JSONObject();
+            profile.put("type", "api_key");
+            profile.put("provider", normalizedProvider);
+            profile.put("model", normalizedModel);
+            if (!TextUtils.isEmpty(normalizedCredential)) {
+                profile.put("key", normalizedCredential);
+            }
+            if (!TextUtils.isEmpty(normalizedBaseUrl)) {
+                profile.put("base_url", normalizedBaseUrl);
+            }
+            profiles.put(modelProfileId, profile);
+            profiles.put(defaultProfileId, profile);
+            return true;
+        });
+
+        if (written) {
+            Logger.logInfo(LOG_TAG, "Auth profile written for " + modelProfileId +
+                " (and fallback " + defaultProfileId + ")");
         }
+        return written;
     }
 
     /**
      * Check whether auth-profiles contains a non-empty API key for provider.
      */
     public static boolean hasApiKey(String provider) {
-        synchronized (CONFIG_LOCK) {
-            String normalizedProvider = normalizeProvider(provider);
-            try {
-                File authFile = new File(AUTH_PROFILES_FILE);
-                if (!authFile.exists()) return false;
-
-                JSONObject authProfiles;
-                try (FileReader reader = new FileReader(authFile)) {
-                    StringBuilder sb = new StringBuilder();
-                    char[] buffer = new char[1024];
-                    int read;
-                    while ((read = reader.read(buffer)) != -1) {
-                        sb.append(buffer, 0, read);
-                    }
-                    authProfiles = new JSONObject(sb.toString());
-                }
-
-                JSONObject profiles = authProfiles.optJSONObject("profiles");
-                if (profiles == null) return false;
-                JSONObject defaultProfile = profiles.optJSONObject(normalizedProvider + ":default");
-                if (defaultProfile != null) {
-                    String key = defaultProfile.optString("key", "").trim();
-                    if (!key.isEmpty()) return true;
-                }
-
-                // Backstop: look for any provider:* entry with provider match.
-                java.util.Iterator<String> keys = profiles.keys();
-                while (keys.hasNext()) {
-                    String id = keys.next();
-                    JSONObject p = profiles.optJSONObject(id);
-                    if (p == null) continue;
-                    if (!isProviderMatch(normalizedProvider, p.optString("provider", ""))) continue;
-                    String key = p.optString("key", "").trim();
-                    if (!key.isEmpty()) return true;
-                }
-                return false;
-            } catch (Exception e) {
-                Logger.logError(LOG_TAG, "Failed to check auth profile: " + e.getMessage());
-                return false;
-            }
-        }
+        return !getApiKey(provider).isEmpty();
     }
 
     /**
@@ -563,48 +439,7 @@ public class BotDropConfig {
      * 2) first matching provider entry
      */
     public static String getApiKey(String provider) {
-        synchronized (CONFIG_LOCK) {
-            String normalizedProvider = normalizeProvider(provider);
-            try {
-                File authFile = new File(AUTH_PROFILES_FILE);
-                if (!authFile.exists()) return "";
-
-                JSONObject authProfiles;
-                try (FileReader reader = new FileReader(authFile)) {
-                    StringBuilder sb = new StringBuilder();
-                    char[] buffer = new char[1024];
-                    int read;
-                    while ((read = reader.read(buffer)) != -1) {
-                        sb.append(buffer, 0, read);
-                    }
-                    authProfiles = new JSONObject(sb.toString());
-                }
-
-                JSONObject profiles = authProfiles.optJSONObject("profiles");
-                if (profiles == null) return "";
-
-                JSONObject defaultProfile = profiles.optJSONObject(normalizedProvider + ":default");
-                if (defaultProfile != null) {
-                    String key = defaultProfile.optString("key", "").trim();
-                    if (!key.isEmpty()) return key;
-                }
-
-                java.util.Iterator<String> keys = profiles.keys();
-                while (keys.hasNext()) {
-                    String id = keys.next();
-                    JSONObject p = profiles.optJSONObject(id);
-                    if (p == null) continue;
-                    if (!isProviderMatch(normalizedProvider, p.optString("provider", ""))) continue;
-                    String key = p.optString("key", "").trim();
-                    if (!key.isEmpty()) return key;
-                }
-
-                return "";
-            } catch (Exception e) {
-                Logger.logError(LOG_TAG, "Failed to read api key from auth profile: " + e.getMessage());
-                return "";
-            }
-        }
+        return findProfileValue(AUTH_PROFILES.snapshot(), normalizeProvider(provider), "key");
     }
 
     /**
@@ -617,90 +452,75 @@ public class BotDropConfig {
         if (provider == null || provider.trim().isEmpty()) {
             return "";
         }
+        return findProfileValue(AUTH_PROFILES.snapshot(), normalizeProvider(provider), "base_url");
+    }
 
-        synchronized (CONFIG_LOCK) {
-            String normalizedProvider = normalizeProvider(provider);
-            try {
-                File authFile = new File(AUTH_PROFILES_FILE);
-                if (!authFile.exists()) return "";
-
-                JSONObject authProfiles;
-                try (FileReader reader = new FileReader(authFile)) {
-                    StringBuilder sb = new StringBuilder();
-                    char[] buffer = new char[1024];
-                    int read;
-                    while ((read = reader.read(buffer)) != -1) {
-                        sb.append(buffer, 0, read);
-                    }
-                    authProfiles = new JSONObject(sb.toString());
-                }
-
-                JSONObject profiles = authProfiles.optJSONObject("profiles");
-                if (profiles == null) return "";
-
-                JSONObject defaultProfile = profiles.optJSONObject(normalizedProvider + ":default");
-                if (defaultProfile != null) {
-                    String baseUrl = defaultProfile.optString("base_url", "").trim();
-                    if (!baseUrl.isEmpty()) return baseUrl;
-                }
-
-                java.util.Iterator<String> keys = profiles.keys();
-                while (keys.hasNext()) {
-                    String id = keys.next();
-                    JSONObject p = profiles.optJSONObject(id);
-                    if (p == null) continue;
-                    if (!isProviderMatch(normalizedProvider, p.optString("provider", ""))) continue;
-                    String baseUrl = p.optString("base_url", "").trim();
-                    if (!baseUrl.isEmpty()) return baseUrl;
-                }
+    /**
+     * The first non-empty {@code field} in the auth profiles of {@code provider}, looking at
+     * provider:default before any other matching entry.
+     */
+    static String findProfileValue(JSONObject authProfiles, String provider, String field) {
+        JSONObject profiles = authProfiles.optJSONObject("profiles");
+        if (profiles == null) return "";
+
+        JSONObject defaultProfile = profiles.optJSONObject(provider + ":default");
+        if (defaultProfile != null) {
+            String value = defaultProfile.optString(field, "").trim();
+            if (!value.isEmpty()) return value;
+        }
 
-                return "";
-            } catch (Exception e) {
-                Logger.logError(LOG_TAG, "Failed to read base URL from auth profile: " + e.getMessage());
-                return "";
-            }
+        java.util.Iterator<String> keys = profiles.keys();
+        while (keys.hasNext()) {
+            String id = keys.next();
+            JSONObject p = profiles.optJSONObject(id);
+            if (p == null) continue;
+            if (!isProviderMatch(provider, p.optString("provider", ""))) continue;
+            String value = p.optString(field, "").trim();
+            if (!value.isEmpty()) return value;
         }
+        return "";
     }
 
     /**
      * Return provider IDs configured in models.providers with a non-empty baseUrl.
      */
     public static List<String> getConfiguredCustomProviders() {
+        return findCustomProviders(CONFIG.snapshot());
+    }
+
+    static List<String> findCustomProviders(JSONObject config) {
         List<String> providers = new ArrayList<>();
 
-        synchronized (CONFIG_LOCK) {
-            try {
-                JSONObject config = readConfig();
-                JSONObject modelsSection = config.optJSONObject(MODELS_BLOCK_KEY);
-                if (modelsSection == null) {
-                    return providers;
-                }
+        try {
+            JSONObject modelsSection = config.optJSONObject(MODELS_BLOCK_KEY);
+            if (modelsSection == null) {
+                return providers;
+            }
 
-                JSONObject providersSection = modelsSection.optJSONObject(MODELS_PROVIDERS_KEY);
-                if (providersSection == null) {
-                    return providers;
-                }
+            JSONObject providersSection = modelsSection.optJSONObject(MODELS_PROVIDERS_KEY);
+            if (providersSection == null) {
+                return providers;
+            }
 
-                java.util.Iterator<String> providerKeys = providersSection.keys();
-                while (providerKeys.hasNext()) {
-                    String providerId = providerKeys.next();
-                    if (TextUtils.isEmpty(providerId)) {
-                        continue;
-                    }
-                    JSONObject providerConfig = providersSection.optJSONObject(providerId);
-                    if (providerConfig == null) {
-                        continue;
-                    }
-                    String baseUrl = providerConfig.optString(MODELS_PROVIDER_BASE_URL_KEY, "").trim();
-                    if (!TextUtils.isEmpty(baseUrl)) {
-                        providers.add(providerId);
-                    }
+            java.util.Iterator<String> providerKeys = providersSection.keys();
+            while (providerKeys.hasNext()) {
+                String providerId = providerKeys.next();
+                if (TextUtils.isEmpty(providerId)) {
+                    continue;
+                }
+                JSONObject providerConfig = providersSection.optJSONObject(providerId);
+                if (providerConfig == null) {
+                    continue;
+                }
+                String baseUrl = providerConfig.optString(MODELS_PROVIDER_BASE_URL_KEY, "").trim();
+                if (!TextUtils.isEmpty(baseUrl)) {
+                    providers.add(providerId);
                 }
-
-                Collections.sort(providers, String::compareToIgnoreCase);
-            } catch (Exception e) {
-                Logger.logError(LOG_TAG, "Failed to read configured custom providers: " + e.getMessage());
             }
+
+            Collections.sort(providers, String::compareToIgnoreCase);
+        } catch (Exception e) {
+            Logger.logError(LOG_TAG, "Failed to read configured custom providers: " + e.getMessage());
         }
 
         return providers;
@@ -745,13 +565,8 @@ public class BotDropConfig {
      * @return true if configured
      */
     public static boolean isConfigured() {
-        File configFile = new File(CONFIG_FILE);
-        if (!configFile.exists()) {
-            return false;
-        }
-        
         try {
-            JSONObject config = readConfig();
+            JSONObject config = CONFIG.snapshot();
             // Check if it has agents.defaults.model.primary set
             if (config.has("agents")) {
                 JSONObject agents = config.getJSONObject("agents");
@@ -778,58 +593,46 @@ public class BotDropConfig {
      * Safe to call repeatedly; writes only when a change is made.
      */
     public static void sanitizeLegacyConfig() {
-        synchronized (CONFIG_LOCK) {
-            try {
-                File configFile = new File(CONFIG_FILE);
-                if (!configFile.exists()) return;
-
-                JSONObject config = readConfig();
-                boolean changed = false;
-
-                JSONObject channels = config.optJSONObject("channels");
-                if (channels != null) {
-                    JSONObject telegram = channels.optJSONObject("telegram");
-                    if (telegram != null) {
-                        JSONObject network = telegram.optJSONObject("network");
-                        if (network != null) {
-                            if (network.has("autoSelectFamilyAttemptTimeout")) {
-                                network.remove("autoSelectFamilyAttemptTimeout");
-                                changed = true;
-                                Logger.logInfo(LOG_TAG, "Removed deprecated key: channels.telegram.network.autoSelectFamilyAttemptTimeout");
-                            }
-
-                            // BotDrop prefers forcing IPv4 via NODE_OPTIONS; leaving OpenClaw's
-                            // autoSelectFamily behavior at its default avoids long first-connect
-                            // delays seen on some Android/proot environments.
-                            if (network.has("autoSelectFamily")) {
-                                network.remove("autoSelectFamily");
-                                changed = true;
-                                Logger.logInfo(LOG_TAG, "Removed key: channels.telegram.network.autoSelectFamily");
-                            }
-
-                            // If network becomes empty, remove it to keep config clean.
-                            if (network.length() == 0) {
-                                telegram.remove("network");
-                                changed = true;
-                            }
+        if (!CONFIG.getFile().exists()) return;
+
+        CONFIG.update(config -> {
+            boolean changed = false;
+
+            JSONObject channels = config.optJSONObject("channels");
+            if (channels != null) {
+                JSONObject telegram = channels.optJSONObject("telegram");
+                if (telegram != null) {
+                    JSONObject network = telegram.optJSONObject("network");
+                    if (network != null) {
+                        if (network.has("autoSelectFamilyAttemptTimeout")) {
+                            network.remove("autoSelectFamilyAttemptTimeout");
+                            changed = true;
+                            Logger.logInfo(LOG_TAG, "Removed deprecated key: channels.telegram.network.autoSelectFamilyAttemptTimeout");
                         }
-                    }
-                }
 
-                if (normalizeProviderModels(config)) {
-                    changed = true;
-                }
+                        // BotDrop prefers forcing IPv4 via NODE_OPTIONS; leaving OpenClaw's
+                        // autoSelectFamily behavior at its default avoids long first-connect
+                        // delays seen on some Android/proot environments.
+                        if (network.has("autoSelectFamily")) {
+                            network.remove("autoSelectFamily");
+                            changed = true;
+                            Logger.logInfo(LOG_TAG, "Removed key: channels.telegram.network.autoSelectFamily");
+                        }
 
-                if (changed) {
-                    boolean ok = writeConfig(config);
-                    if (!ok) {
-                        Logger.logError(LOG_TAG, "Failed to write sanitized config");
+                        // If network becomes empty, remove it to keep config clean.
+                        if (network.length() == 0) {
+                            telegram.remove("network");
+                            changed = true;
+                        }
                     }
                 }
-            } catch (Exception e) {
-                Logger.logError(LOG_TAG, "sanitizeLegacyConfig failed: " + e.getMessage());
             }
-        }
+
+            if (normalizeProviderModels(config)) {
+                changed = true;
+            }
+            return changed;
+        });
     }
 
     /**
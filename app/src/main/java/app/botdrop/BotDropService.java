@@ -22,10 +22,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Locale;
-import java.util.function.Consumer;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Background service for executing BotDrop-related commands and managing gateway lifecycle.
@@ -48,11 +49,36 @@ public class BotDropService extends Service {
     private static final String BOTDROP_SHARED_ROOT = "/data/local/tmp/botdrop_tmp";
     private static final String OPENCLAW_GLOBAL_PACKAGE_JSON =
         TermuxConstants.TERMUX_PREFIX_DIR_PATH + "/lib/node_modules/openclaw/package.json";
+    // Long-lived bash workers replace the per-command temp script + fork for local commands.
+    private static final boolean LOCAL_SHELL_POOL_ENABLED = true;
+    private static final int LOCAL_SHELL_POOL_SIZE = 2;
+    private static final String MODEL_LIST_COMMAND = OpenclawModelListUtils.buildPreferredModelListCommand(true);
+    private static final String MODEL_CATALOG_DIR = "model-catalog";
+    /** Let a freshly started gateway settle before the model list competes with it for CPU. */
+    private static final long MODEL_CATALOG_REVALIDATE_DELAY_MS = 30000L;
 
     private final IBinder mBinder = new LocalBinder();
-    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    // Status probes and log reads; never queued behind installs or updates.
+    private final CommandLane mFastLane = new CommandLane("fast", 1, 1000L);
+    // Gateway start/stop/restart and updateOpenclaw, strictly in submission order.
+    private final CommandLane mMutationLane = new CommandLane("mutation", 1, 5000L);
+    // Installs, plugin installs and config writes, one at a time against the npm prefix and openclaw.json.
+    private final CommandLane mBulkLane = new CommandLane("bulk", 1, 5000L);
+    // Held by bulk lane tasks and updateOpenclaw, so an update never overlaps an install or config write.
+    private final ReentrantLock mPrefixLock = new ReentrantLock();
+    private final Executor mBulkExecutor = task -> mBulkLane.execute(() -> {
+        mPrefixLock.lock();
+        try {
+            task.run();
+        } finally {
+            mPrefixLock.unlock();
+        }
+    });
+    // Read-only version and model-list fetches, which may run alongside each other and the above.
+    private final CommandLane mFetchLane = new CommandLane("fetch", 2, 5000L);
     private final ExecutorService mSharpInstallExecutor = Executors.newSingleThreadExecutor();
     private final ExecutorService mU2SetupExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService mModelCatalogExecutor = Executors.newSingleThreadExecutor();
     private final Handler mHandler = new Handler(Looper.getMainLooper());
     private final ShizukuManager mShizukuManager = ShizukuManager.getInstance();
     private ShizukuShellExecutor mShizukuExecutor;
@@ -60,6 +86,16 @@ public class BotDropService extends Service {
     private final java.util.concurrent.atomic.AtomicBoolean mSharpInstallInProgress =
         new java.util.concurrent.atomic.AtomicBoolean(false);
     private volatile long mLastSharpCheckAttemptMs = 0L;
+    private final Object mLocalShellPoolLock = new Object();
+    private LocalShellPool mLocalShellPool;
+    private boolean mDestroyed = false;
+    // Created in onCreate, once files can be resolved; only used on the main thread.
+    private ModelCatalogRepository mModelCatalogRepository;
+    private final Runnable mRevalidateModelCatalog = () -> {
+        if (mModelCatalogRepository != null && isOpenclawInstalled()) {
+            mModelCatalogRepository.revalidate(getOpenclawVersion());
+        }
+    };
 
     private final ShizukuManager.StatusListener mShizukuStatusListener = status -> {
         if (mShizukuExecutor == null) {
@@ -91,6 +127,16 @@ public class BotDropService extends Service {
         mShizukuManager.init(this);
         mShizukuManager.addStatusListener(mShizukuStatusListener);
         mShizukuExecutor.bind();
+        mModelCatalogRepository = new ModelCatalogRepository(mHandler, mModelCatalogExecutor,
+            this::fetchModelCatalog, new File(getFilesDir(), MODEL_CATALOG_DIR),
+            getSharedPreferences(ModelCatalogRepository.LEGACY_PREFS_NAME, Context.MODE_PRIVATE),
+            ModelCatalogRepository.MAX_AGE_MS);
+        safeExecute(mBulkLane, () -> {
+            LocalShellPool pool = getLocalShellPool();
+            if (pool != null) {
+                pool.prewarm(1);
+            }
+        });
         Logger.logDebug(LOG_TAG, "onCreate");
     }
 
@@ -106,7 +152,7 @@ public class BotDropService extends Service {
      * that occurs when the executor has been shut down (e.g. after onDestroy).
      * Returns true if the task was accepted, false otherwise.
      */
-    private boolean safeExecute(ExecutorService executor, Runnable task) {
+    private boolean safeExecute(Executor executor, Runnable task) {
         try {
             executor.execute(task);
             return true;
@@ -124,8 +170,22 @@ public class BotDropService extends Service {
             mShizukuExecutor.shutdown();
             mShizukuExecutor = null;
         }
-        mExecutor.shutdown();
+        mGatewayStatusBus.shutdown();
+        safeExecute(mFastLane, mGatewayHttpProbe::close);
+        mFastLane.shutdown();
+        mMutationLane.shutdown();
+        mBulkLane.shutdown();
+        mFetchLane.shutdown();
         mSharpInstallExecutor.shutdown();
+        mModelCatalogExecutor.shutdown();
+        mHandler.removeCallbacks(mRevalidateModelCatalog);
+        synchronized (mLocalShellPoolLock) {
+            mDestroyed = true;
+            if (mLocalShellPool != null) {
+                mLocalShellPool.shutdown();
+                mLocalShellPool = null;
+            }
+        }
         Logger.logDebug(LOG_TAG, "onDestroy");
     }
 
@@ -137,12 +197,23 @@ public class BotDropService extends Service {
         public final String stdout;
         public final String stderr;
         public final int exitCode;
+        /**
+         * Output of a local command, or null. For streamed commands {@link #stdout} only holds
+         * the tail; the full text, if retained, is here and must be closed by the caller.
+         */
+        public final CommandOutput output;
 
         public CommandResult(boolean success, String stdout, String stderr, int exitCode) {
+            this(success, stdout, stderr, exitCode, null);
+        }
+
+        public CommandResult(boolean success, String stdout, String stderr, int exitCode,
+                             CommandOutput output) {
             this.success = success;
             this.stdout = stdout;
             this.stderr = stderr;
             this.exitCode = exitCode;
+            this.output = output;
         }
     }
 
@@ -176,8 +247,35 @@ public class BotDropService extends Service {
      * Execute a shell command in the Termux environment
      */
     public void executeCommand(String command, CommandCallback callback) {
-        if (!safeExecute(mExecutor, () -> {
-            CommandResult result = executeCommandSync(command);
+        executeCommandOnLane(mBulkExecutor, command, 60, callback);
+    }
+
+    /**
+     * Execute a shell command in the Termux environment with custom timeout in seconds
+     */
+    public void executeCommand(String command, int timeoutSeconds, CommandCallback callback) {
+        executeCommandOnLane(mBulkExecutor, command, timeoutSeconds, callback);
+    }
+
+    /**
+     * Execute a shell command that only reads, such as an npm version query. Unlike
+     * {@link #executeCommand}, it does not wait for installs or updates to finish.
+     */
+    public void executeReadOnlyCommand(String command, CommandCallback callback) {
+        executeCommandOnLane(mFetchLane, command, 60, callback);
+    }
+
+    /**
+     * {@link #executeReadOnlyCommand(String, CommandCallback)} with custom timeout in seconds
+     */
+    public void executeReadOnlyCommand(String command, int timeoutSeconds, CommandCallback callback) {
+        executeCommandOnLane(mFetchLane, command, timeoutSeconds, callback);
+    }
+
+    private void executeCommandOnLane(Executor lane, String command, int timeoutSeconds,
+                                      CommandCallback callback) {
+        if (!safeExecute(lane, () -> {
+            CommandResult result = executeCommandSync(command, timeoutSeconds);
             mHandler.post(() -> callback.onResult(result));
         })) {
             mHandler.post(() -> callback.onResult(
@@ -186,11 +284,14 @@ public class BotDropService extends Service {
     }
 
     /**
-     * Execute a shell command in the Termux environment with custom timeout in seconds
+     * Execute a read-only shell command, streaming its output into {@code output} as it is
+     * produced instead of collecting it in {@link CommandResult#stdout}. The sink of
+     * {@code output} is called on a fetch lane thread; the result is delivered on the main thread.
      */
-    public void executeCommand(String command, int timeoutSeconds, CommandCallback callback) {
-        if (!safeExecute(mExecutor, () -> {
-            CommandResult result = executeCommandSync(command, timeoutSeconds);
+    public void executeCommandStreaming(String command, int timeoutSeconds, CommandOutput output,
+                                        CommandCallback callback) {
+        if (!safeExecute(mFetchLane, () -> {
+            CommandResult result = executeCommandSync(command, timeoutSeconds, output);
             mHandler.post(() -> callback.onResult(result));
         })) {
             mHandler.post(() -> callback.onResult(
@@ -213,7 +314,7 @@ public class BotDropService extends Service {
     }
 
     /**
-     * Execute a shell command on the dedicated u2 setup executor (does not block mExecutor).
+     * Execute a shell command on the dedicated u2 setup executor (does not block the command lanes).
      */
     public void executeU2SetupCommand(String command, CommandCallback callback) {
         if (!safeExecute(mU2SetupExecutor, () -> {
@@ -304,16 +405,16 @@ public class BotDropService extends Service {
             );
         }
 
-        return executeCommandViaLocal(safeCommand, timeoutSeconds, null);
+        return executeCommandViaLocal(safeCommand, timeoutSeconds, CommandOutput.buffered(null));
     }
 
-    private CommandResult executeCommandSync(String command, int timeoutSeconds, Consumer<String> lineConsumer) {
+    private CommandResult executeCommandSync(String command, int timeoutSeconds, CommandOutput output) {
         String safeCommand = command == null ? "" : command.trim();
         if (safeCommand.isEmpty()) {
             return new CommandResult(false, "", "Command is empty", -1);
         }
 
-        return executeCommandViaLocal(safeCommand, timeoutSeconds, lineConsumer);
+        return executeCommandViaLocal(safeCommand, timeoutSeconds, output);
     }
 
     private boolean shouldExecuteViaShizuku(String command) {
@@ -360,8 +461,15 @@ public class BotDropService extends Service {
         return shizukuUnavailableMessage();
     }
 
-    private CommandResult executeCommandViaLocal(String safeCommand, int timeoutSeconds, Consumer<String> lineConsumer) {
-        StringBuilder stdout = new StringBuilder();
+    private CommandResult executeCommandViaLocal(String safeCommand, int timeoutSeconds, CommandOutput output) {
+        LocalShellPool pool = getLocalShellPool();
+        if (pool != null) {
+            CommandResult pooled = pool.executeInto(safeCommand, timeoutSeconds, output);
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+
         StringBuilder stderr = new StringBuilder();
         int exitCode = -1;
         Process process = null;
@@ -385,16 +493,7 @@ public class BotDropService extends Service {
             ProcessBuilder pb = new ProcessBuilder(
                 TermuxConstants.TERMUX_BIN_PREFIX_DIR_PATH + "/bash", tmpScript.getAbsolutePath());
 
-            pb.environment().put("PREFIX", TermuxConstants.TERMUX_PREFIX_DIR_PATH);
-            pb.environment().put("HOME", TermuxConstants.TERMUX_HOME_DIR_PATH);
-            pb.environment().put("PATH", TermuxConstants.TERMUX_BIN_PREFIX_DIR_PATH + ":" + System.getenv("PATH"));
-            pb.environment().put("TMPDIR", TermuxConstants.TERMUX_TMP_PREFIX_DIR_PATH);
-            // Set SSL_CERT_FILE for Node.js fetch to find CA certificates
-            pb.environment().put("SSL_CERT_FILE", TermuxConstants.TERMUX_PREFIX_DIR_PATH + "/etc/tls/cert.pem");
-            // Ensure Node.js can resolve globally installed native addons (for sharp, etc.)
-            pb.environment().put("NODE_PATH", TermuxConstants.TERMUX_PREFIX_DIR_PATH + "/lib/node_modules");
-            pb.environment().put("NODE_OPTIONS",
-                resolveOpenclawNodeOptions(pb.environment().get("NODE_OPTIONS")));
+            applyLocalShellEnvironment(pb.environment());
 
             pb.redirectErrorStream(true);
 
@@ -409,10 +508,7 @@ public class BotDropService extends Service {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    stdout.append(line).append("\n");
-                    if (lineConsumer != null) {
-                        lineConsumer.accept(line);
-                    }
+                    output.accept(line);
                     if (!isModelListCommand || loggedLines < MAX_VERBOSE_LINES) {
                         Logger.logVerbose(LOG_TAG, "stdout: " + line);
                         loggedLines++;
@@ -425,14 +521,16 @@ public class BotDropService extends Service {
             if (!finished) {
                 process.destroyForcibly();
                 Logger.logError(LOG_TAG, "Command timeout after " + timeoutSeconds + " seconds");
-                return new CommandResult(false, stdout.toString(),
-                    "Command timeout after " + timeoutSeconds + " seconds", -1);
+                output.finish();
+                return new CommandResult(false, output.getResultText(),
+                    "Command timeout after " + timeoutSeconds + " seconds", -1, output);
             }
 
             exitCode = process.exitValue();
             Logger.logDebug(LOG_TAG, "Command exited with code: " + exitCode);
 
-            return new CommandResult(exitCode == 0, stdout.toString(), stderr.toString(), exitCode);
+            output.finish();
+            return new CommandResult(exitCode == 0, output.getResultText(), stderr.toString(), exitCode, output);
 
         } catch (IOException | InterruptedException e) {
             Logger.logError(LOG_TAG, "Command execution failed: " + e.getMessage());
@@ -442,7 +540,8 @@ public class BotDropService extends Service {
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
             }
-            return new CommandResult(false, stdout.toString(), e.getMessage(), -1);
+            output.finish();
+            return new CommandResult(false, output.getResultText(), e.getMessage(), -1, output);
         } finally {
             if (tmpScript != null && tmpScript.exists()) {
                 if (!tmpScript.delete()) {
@@ -452,6 +551,44 @@ public class BotDropService extends Service {
         }
     }
 
+    /**
+     * Environment shared by one-shot command scripts and pooled shell workers.
+     */
+    private void applyLocalShellEnvironment(java.util.Map<String, String> env) {
+        env.put("PREFIX", TermuxConstants.TERMUX_PREFIX_DIR_PATH);
+        env.put("HOME", TermuxConstants.TERMUX_HOME_DIR_PATH);
+        env.put("PATH", TermuxConstants.TERMUX_BIN_PREFIX_DIR_PATH + ":" + System.getenv("PATH"));
+        env.put("TMPDIR", TermuxConstants.TERMUX_TMP_PREFIX_DIR_PATH);
+        // Set SSL_CERT_FILE for Node.js fetch to find CA certificates
+        env.put("SSL_CERT_FILE", TermuxConstants.TERMUX_PREFIX_DIR_PATH + "/etc/tls/cert.pem");
+        // Ensure Node.js can resolve globally installed native addons (for sharp, etc.)
+        env.put("NODE_PATH", TermuxConstants.TERMUX_PREFIX_DIR_PATH + "/lib/node_modules");
+        env.put("NODE_OPTIONS", resolveOpenclawNodeOptions(env.get("NODE_OPTIONS")));
+    }
+
+    /**
+     * Lazily create the pooled shell workers. Returns null until bootstrap has installed bash,
+     * in which case commands keep using the one-shot script path.
+     */
+    private LocalShellPool getLocalShellPool() {
+        if (!LOCAL_SHELL_POOL_ENABLED) {
+            return null;
+        }
+        synchronized (mLocalShellPoolLock) {
+            if (mLocalShellPool != null || mDestroyed) {
+                return mLocalShellPool;
+            }
+            if (!new File(TermuxConstants.TERMUX_BIN_PREFIX_DIR_PATH + "/bash").canExecute()) {
+                return null;
+            }
+            java.util.Map<String, String> env = new java.util.HashMap<>(System.getenv());
+            applyLocalShellEnvironment(env);
+            mLocalShellPool = new LocalShellPool(
+                TermuxConstants.TERMUX_BIN_PREFIX_DIR_PATH + "/bash", env, LOCAL_SHELL_POOL_SIZE);
+            return mLocalShellPool;
+        }
+    }
+
     private void ensureShizukuBridgeConfig() {
         if (new File(SHIZUKU_BRIDGE_CONFIG_PATH).exists()) {
             return;
@@ -538,7 +675,7 @@ public class BotDropService extends Service {
     public void installOpenclaw(InstallProgressCallback callback) {
         final String INSTALL_SCRIPT = TermuxConstants.TERMUX_PREFIX_DIR_PATH + "/share/botdrop/install.sh";
 
-        if (!safeExecute(mExecutor, () -> {
+        if (!safeExecute(mBulkExecutor, () -> {
             TermuxInstaller.createBotDropScripts(this, resolveInstallVersionPreference(this));
             stageBundledOpenclawAssetsIfPresent();
 
@@ -761,10 +898,22 @@ public class BotDropService extends Service {
                "openclaw " + openclawArgs;
     }
 
-    private static final String GATEWAY_PID_FILE = TermuxConstants.TERMUX_HOME_DIR_PATH + "/.openclaw/gateway.pid";
+    static final String GATEWAY_PID_FILE = TermuxConstants.TERMUX_HOME_DIR_PATH + "/.openclaw/gateway.pid";
     private static final String GATEWAY_LOG_FILE = TermuxConstants.TERMUX_HOME_DIR_PATH + "/.openclaw/gateway.log";
+    private final GatewayProbe mGatewayProbe = new GatewayProbe(GATEWAY_PID_FILE);
+    private final GatewayRunState mGatewayRunState = new GatewayRunState();
+    private final GatewayStatusBus mGatewayStatusBus =
+        new GatewayStatusBus(mHandler, mFastLane, this::probeGatewayStatusSync);
+    // Fed by status probes on the fast lane; the classifier's state is read from any thread.
+    private final GatewayLogTailer mGatewayErrorLogTailer =
+        new GatewayLogTailer(new File(GATEWAY_LOG_FILE), GatewayErrorClassifier.RECENT_WINDOW_LINES);
+    private final GatewayErrorClassifier mGatewayErrorClassifier = new GatewayErrorClassifier();
+    // Only used on the fast lane.
+    private final GatewayHttpProbe mGatewayHttpProbe = new GatewayHttpProbe();
 
     public void startGateway(CommandCallback callback) {
+        mGatewayRunState.onStartRequested();
+
         // Ensure legacy config keys are repaired right before starting the gateway.
         // This matters for in-place upgrades where users won't re-run channel setup.
         BotDropConfig.sanitizeLegacyConfig();
@@ -772,9 +921,12 @@ public class BotDropService extends Service {
         // Deploy built-in skills (e.g. botdrop-u2) before starting gateway
         deployBuiltinSkills();
 
-        mExecutor.execute(() -> {
+        mMutationLane.execute(() -> {
             CommandResult startResult = executeGatewayStart();
-            mHandler.post(() -> callback.onResult(startResult));
+            mHandler.post(() -> {
+                mGatewayStatusBus.markStateChanging();
+                callback.onResult(startResult);
+            });
         });
     }
 
@@ -933,6 +1085,11 @@ public class BotDropService extends Service {
     }
 
     public void stopGateway(CommandCallback callback) {
+        mGatewayRunState.onStopRequested();
+        killGateway(callback);
+    }
+
+    private void killGateway(CommandCallback callback) {
         // PID files can be stale and the gateway may spawn children. Use best-effort cleanup to
         // prevent port 18789 conflicts and restart storms.
         String cmd =
@@ -947,24 +1104,169 @@ public class BotDropService extends Service {
             "sleep 1\n" +
             "pkill -9 -f \"openclaw.*gateway\" 2>/dev/null || true\n" +
             "echo stopped\n";
-        executeCommand(cmd, callback);
+        executeCommandOnLane(mMutationLane, cmd, 60, result -> {
+            mGatewayStatusBus.markStateChanging();
+            callback.onResult(result);
+        });
     }
 
     public void restartGateway(CommandCallback callback) {
-        stopGateway(result -> {
+        mGatewayRunState.onRestartBegun();
+        killGateway(result -> {
             // Brief delay to let process fully terminate
-            mHandler.postDelayed(() -> startGateway(callback), 1000);
+            mHandler.postDelayed(() -> startGateway(startResult -> {
+                mGatewayRunState.onRestartEnded();
+                callback.onResult(startResult);
+            }), 1000);
         });
     }
 
+    /**
+     * True between the stop and start halves of {@link #restartGateway}, when the gateway is
+     * down on purpose. Checked by GatewayMonitorService so it does not race the restart.
+     */
+    public boolean isGatewayRestartInProgress() {
+        return mGatewayRunState.isRestartInProgress();
+    }
+
+    /**
+     * True after {@link #stopGateway} until {@link #startGateway} or {@link #updateOpenclaw}, when
+     * the user wants the gateway down. GatewayMonitorService does not restart it meanwhile.
+     */
+    public boolean isGatewayStopRequested() {
+        return mGatewayRunState.isStopRequested();
+    }
+
     public void getGatewayStatus(CommandCallback callback) {
         isGatewayRunning(callback);
     }
 
+    /**
+     * Subscribe to the shared gateway status stream. Must be called on the main thread.
+     *
+     * @param visibleUi true for a visible screen; polling is faster and includes uptime while
+     *                  such a listener is registered
+     */
+    public void addGatewayStatusListener(GatewayStatusBus.Listener listener, boolean visibleUi) {
+        mGatewayStatusBus.addListener(listener, visibleUi);
+    }
+
+    public void removeGatewayStatusListener(GatewayStatusBus.Listener listener) {
+        mGatewayStatusBus.removeListener(listener);
+    }
+
+    /**
+     * Ask the shared status stream for a fresh probe. Concurrent requests share one probe.
+     * Must be called on the main thread.
+     */
+    public void requestGatewayStatusRefresh() {
+        mGatewayStatusBus.requestRefresh();
+    }
+
+    /**
+     * Rolling summary of errors seen in gateway.log, updated with every status probe.
+     * Cheap to call from any thread.
+     */
+    public GatewayErrorClassifier.State getGatewayErrorState() {
+        return mGatewayErrorClassifier.getState();
+    }
+
+    /**
+     * Queue depth and wait-time metrics of the fast, mutation, bulk and fetch command lanes.
+     * Cheap to call from any thread.
+     */
+    public java.util.List<CommandLane.Stats> getCommandLaneStats() {
+        return java.util.Arrays.asList(
+            mFastLane.getStats(), mMutationLane.getStats(), mBulkLane.getStats(), mFetchLane.getStats());
+    }
+
+    /**
+     * HTTP readiness latency (p50/p95/max) and failure streak from recent status probes.
+     * Cheap to call from any thread.
+     */
+    public GatewayHttpProbe.Stats getGatewayReadinessStats() {
+        return mGatewayHttpProbe.getStats();
+    }
+
+    private GatewayStatusBus.Snapshot probeGatewayStatusSync(boolean includeUptime) {
+        consumeGatewayLogSync();
+        GatewayStatusBus.Snapshot snapshot = probeGatewayRunningSync(includeUptime);
+        if (!snapshot.running) {
+            mGatewayHttpProbe.close();
+            return snapshot;
+        }
+        // PID alive is not enough: make sure the event loop still answers HTTP.
+        GatewayHttpProbe.Result readiness = mGatewayHttpProbe.probe();
+        return new GatewayStatusBus.Snapshot(snapshot.running, snapshot.uptime, snapshot.checkedAtMs, readiness);
+    }
+
+    /**
+     * Feed lines appended to gateway.log since the previous probe into the error classifier.
+     */
+    private void consumeGatewayLogSync() {
+        try {
+            GatewayLogTailer.Delta delta = mGatewayErrorLogTailer.poll();
+            if (delta.reset) {
+                mGatewayErrorClassifier.reset();
+            }
+            mGatewayErrorClassifier.consume(delta.lines, System.currentTimeMillis());
+        } catch (IOException e) {
+            Logger.logWarn(LOG_TAG, "Failed to read gateway.log: " + e.getMessage());
+        }
+    }
+
+    private GatewayStatusBus.Snapshot probeGatewayRunningSync(boolean includeUptime) {
+        GatewayProbe.Status status = mGatewayProbe.probe();
+        if (status != null) {
+            String uptime = status.running ? GatewayProbe.formatElapsed(status.uptimeSeconds) : "—";
+            return new GatewayStatusBus.Snapshot(status.running, uptime, android.os.SystemClock.elapsedRealtime());
+        }
+
+        CommandResult runningResult = checkGatewayRunningSync();
+        boolean running = runningResult.success && "running".equals(runningResult.stdout.trim());
+        String uptime = "—";
+        if (running && includeUptime) {
+            CommandResult uptimeResult = getGatewayUptimeSync();
+            if (uptimeResult.success) {
+                uptime = uptimeResult.stdout.trim();
+            }
+        }
+        return new GatewayStatusBus.Snapshot(running, uptime, android.os.SystemClock.elapsedRealtime());
+    }
+
     /**
      * Check if the gateway is currently running using PID file
      */
     public void isGatewayRunning(CommandCallback callback) {
+        if (!safeExecute(mFastLane, () -> {
+            CommandResult result = checkGatewayRunningSync();
+            mHandler.post(() -> callback.onResult(result));
+        })) {
+            mHandler.post(() -> callback.onResult(
+                new CommandResult(false, "", "Service executor is shut down", -1)));
+        }
+    }
+
+    /**
+     * Get gateway uptime in a human-readable format
+     */
+    public void getGatewayUptime(CommandCallback callback) {
+        if (!safeExecute(mFastLane, () -> {
+            CommandResult result = getGatewayUptimeSync();
+            mHandler.post(() -> callback.onResult(result));
+        })) {
+            mHandler.post(() -> callback.onResult(
+                new CommandResult(false, "", "Service executor is shut down", -1)));
+        }
+    }
+
+    private CommandResult checkGatewayRunningSync() {
+        GatewayProbe.Status status = mGatewayProbe.probe();
+        if (status != null) {
+            return new CommandResult(true, status.running ? "running\n" : "stopped\n", "", 0);
+        }
+
+        // /proc is unreadable; fall back to the shell checks.
         // Don't rely only on PID file (can be stale after crashes or upgrades).
         String cmd =
             "if [ -f " + GATEWAY_PID_FILE + " ] && kill -0 $(cat " + GATEWAY_PID_FILE + ") 2>/dev/null; then\n" +
@@ -976,20 +1278,22 @@ public class BotDropService extends Service {
             "else\n" +
             "  echo stopped\n" +
             "fi\n";
-        executeCommand(cmd, callback);
+        return executeCommandSync(cmd);
     }
 
-    /**
-     * Get gateway uptime in a human-readable format
-     */
-    public void getGatewayUptime(CommandCallback callback) {
+    private CommandResult getGatewayUptimeSync() {
+        GatewayProbe.Status status = mGatewayProbe.probe();
+        if (status != null) {
+            return new CommandResult(true, GatewayProbe.formatElapsed(status.uptimeSeconds) + "\n", "", 0);
+        }
+
         String cmd = "if [ -f " + GATEWAY_PID_FILE + " ]; then " +
             "pid=$(cat " + GATEWAY_PID_FILE + "); " +
             "if kill -0 $pid 2>/dev/null; then " +
             "ps -p $pid -o etime= 2>/dev/null || echo '—'; " +
             "else echo '—'; fi; " +
             "else echo '—'; fi";
-        executeCommand(cmd, callback);
+        return executeCommandSync(cmd);
     }
 
     /**
@@ -1005,14 +1309,20 @@ public class BotDropService extends Service {
      * Stops the gateway, runs npm install, recreates the Android-specific wrapper,
      * and restarts the gateway. Reports progress via callback on the main thread.
      *
-     * Must run on mExecutor — calls executeCommandSync directly to avoid deadlock
-     * (the public stopGateway/startGateway methods also post to mExecutor).
+     * Runs on the mutation lane, so start/stop/restart requests made meanwhile wait until the
+     * update has finished, and holds the prefix lock, so it never overlaps bulk lane installs or
+     * config writes. Calls executeCommandSync directly to avoid deadlock (the public
+     * stopGateway/startGateway methods also post to the mutation lane).
      */
     public void updateOpenclaw(String targetVersion, UpdateProgressCallback callback) {
         final String packageVersion = normalizeOpenclawVersion(targetVersion);
         final java.util.concurrent.atomic.AtomicBoolean notified = new java.util.concurrent.atomic.AtomicBoolean(false);
+        // The update ends by starting the gateway, which the supervisor then looks after again.
+        mGatewayRunState.onStartRequested();
 
-        mExecutor.execute(() -> {
+        mMutationLane.execute(() -> {
+            // Wait for installs and config writes already running on the bulk lane.
+            mPrefixLock.lock();
             mUpdateInProgress = true;
             try {
                 // Step 1: Stop gateway
@@ -1037,13 +1347,14 @@ public class BotDropService extends Service {
                     + "export SSL_CERT_FILE=$PREFIX/etc/tls/cert.pem\n"
                     + OpenclawVersionUtils.buildNpmInstallCommand(packageVersion, oldSpaceMb) + " --timing 2>&1\n";
                 final int[] npmPercent = {0};
-                CommandResult npmResult = executeCommandSync(npmCmd, 300, line -> {
+                // npm --timing output can run to megabytes; only the tail is needed for errors.
+                CommandResult npmResult = executeCommandSync(npmCmd, 300, CommandOutput.streaming(line -> {
                     int nextPercent = NpmInstallProgressParser.resolvePercent(line, npmPercent[0]);
                     if (nextPercent > npmPercent[0]) {
                         npmPercent[0] = nextPercent;
                         notifyUpdateStep(callback, "Installing update... " + nextPercent + "%");
                     }
-                });
+                }, 15));
                 if (!npmResult.success) {
                     String tail = extractTail(npmResult.stdout, 15);
                     String error = "npm install failed (exit " + npmResult.exitCode + ")\n" + tail;
@@ -1125,13 +1436,52 @@ public class BotDropService extends Service {
                 notifyUpdateError(callback, notified, "Update failed: " + e.getMessage());
             } finally {
                 mUpdateInProgress = false;
+                mPrefixLock.unlock();
+                mHandler.post(mGatewayStatusBus::markStateChanging);
             }
         });
     }
 
     private CommandResult executeGatewayStart() {
         scheduleSilentSharpInstallationCheck();
-        return executeCommandSync(buildStartGatewayScript());
+        // A new gateway process gets a fresh readiness history and connection.
+        safeExecute(mFastLane, () -> {
+            mGatewayHttpProbe.close();
+            mGatewayHttpProbe.reset();
+        });
+        CommandResult result = executeCommandSync(buildStartGatewayScript());
+        if (result.success) {
+            // Covers start, restart and the end of an OpenClaw update.
+            mHandler.removeCallbacks(mRevalidateModelCatalog);
+            mHandler.postDelayed(mRevalidateModelCatalog, MODEL_CATALOG_REVALIDATE_DELAY_MS);
+        }
+        return result;
+    }
+
+    /**
+     * The shared model catalog cache. Only use it on the main thread.
+     */
+    ModelCatalogRepository getModelCatalogRepository() {
+        return mModelCatalogRepository;
+    }
+
+    private void fetchModelCatalog(ModelCatalogRepository.FetchCallback callback) {
+        // Filled on a fetch lane thread; read on the main thread once the result is posted.
+        final java.util.List<String> fullNames = new java.util.ArrayList<>();
+        CommandOutput output = CommandOutput.streaming(line -> {
+            String token = OpenclawModelListUtils.parseModelLine(line);
+            if (token != null) {
+                fullNames.add(token);
+            }
+        }, 20);
+        executeCommandStreaming(MODEL_LIST_COMMAND, 60, output, result -> {
+            if (!result.success) {
+                Logger.logWarn(LOG_TAG, "Model list command failed: exit " + result.exitCode);
+                callback.onFetched(null);
+                return;
+            }
+            callback.onFetched(fullNames);
+        });
     }
 
     /**
@@ -1160,7 +1510,7 @@ public class BotDropService extends Service {
 
     /**
      * Build the stop-gateway shell script (same logic as stopGateway but returns the string
-     * instead of executing it, so it can be used from within updateOpenclaw on mExecutor).
+     * instead of executing it, so it can be used from within updateOpenclaw on the mutation lane).
      */
     private String buildStopGatewayScript() {
         return "PID=''\n" +
@@ -1259,7 +1609,7 @@ public class BotDropService extends Service {
     /**
      * Ensure sharp native addon is installed (idempotent, non-fatal).
      * For upgrade users whose install.sh already ran before sharp support was added.
-     * Must be called on mExecutor thread (not the main thread).
+     * Must be called off the main thread.
      */
     private void ensureSharpInstalled() {
         String cmd =
@@ -1375,7 +1725,7 @@ public class BotDropService extends Service {
 
     /**
      * Build the start-gateway shell script (same logic as startGateway but returns the string
-     * instead of executing it, so it can be used from within updateOpenclaw on mExecutor).
+     * instead of executing it, so it can be used from within updateOpenclaw on the mutation lane).
      */
     private String buildStartGatewayScript() {
         String logDir = TermuxConstants.TERMUX_HOME_DIR_PATH + "/.openclaw";
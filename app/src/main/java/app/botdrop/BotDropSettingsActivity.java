@@ -327,7 +327,7 @@ public class BotDropSettingsActivity extends Activity {
         }
         String currentVersion = BotDropService.getOpenclawVersion();
 
-        mBotDropService.executeCommand(
+        mBotDropService.executeReadOnlyCommand(
             OpenclawVersionUtils.VERSIONS_COMMAND,
             OPENCLAW_VERSION_FETCH_TIMEOUT_SECONDS,
             result -> {
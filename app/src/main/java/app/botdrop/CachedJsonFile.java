@@ -0,0 +1,203 @@
+package app.botdrop;
+
+import com.termux.shared.logger.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * A JSON object file parsed once and kept as a snapshot until the file's modification time or
+ * size changes, so edits made outside the app, such as by OpenClaw itself, are still picked up.
+ * <p>
+ * Reads take no lock: {@link #snapshot()} costs two stat calls when nothing changed. The
+ * snapshot is never handed out for writing; {@link #copy()} gives a private deep copy and
+ * {@link #update(Update)} applies a change to one under the write lock. Writes go to a
+ * temporary file that is renamed over the original, so a crash leaves either the old or the
+ * new content, never a truncated file.
+ */
+final class CachedJsonFile {
+
+    private static final String LOG_TAG = "CachedJsonFile";
+
+    interface Update {
+        /**
+         * Change {@code json} in place.
+         *
+         * @return false to leave the file as it is
+         */
+        boolean apply(JSONObject json) throws JSONException;
+    }
+
+    private static final class Snapshot {
+        final JSONObject json;
+        final long lastModified;
+        final long length;
+
+        Snapshot(JSONObject json, long lastModified, long length) {
+            this.json = json;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private final File mFile;
+    private final Object mLoadLock = new Object();
+    private final Object mWriteLock = new Object();
+    private volatile Snapshot mSnapshot;
+
+    CachedJsonFile(File file) {
+        mFile = file;
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * The current content, or an empty object if the file is missing or unreadable. Shared
+     * between callers, so it must not be modified.
+     */
+    JSONObject snapshot() {
+        long lastModified = mFile.lastModified();
+        long length = mFile.length();
+        Snapshot snapshot = mSnapshot;
+        if (snapshot != null && snapshot.lastModified == lastModified && snapshot.length == length) {
+            return snapshot.json;
+        }
+        synchronized (mLoadLock) {
+            snapshot = mSnapshot;
+            if (snapshot != null && snapshot.lastModified == lastModified && snapshot.length == length) {
+                return snapshot.json;
+            }
+            // Stat before reading: if the file changes in between, the next call reloads.
+            snapshot = new Snapshot(load(), lastModified, length);
+            mSnapshot = snapshot;
+            return snapshot.json;
+        }
+    }
+
+    /** A deep copy of the current content that the caller may modify. */
+    JSONObject copy() {
+        return deepCopy(snapshot());
+    }
+
+    /**
+     * Apply {@code update} to a copy of the current content and write the result, unless the
+     * update declines. Updates to the same file run one at a time.
+     *
+     * @return true if the update was applied and written
+     */
+    boolean update(Update update) {
+        synchronized (mWriteLock) {
+            JSONObject json = copy();
+            try {
+                if (!update.apply(json)) {
+                    return false;
+                }
+            } catch (JSONException e) {
+                Logger.logError(LOG_TAG, "Failed to update " + mFile.getName() + ": " + e.getMessage());
+                return false;
+            }
+            return writeLocked(json);
+        }
+    }
+
+    /** Replace the content with {@code json}. */
+    boolean write(JSONObject json) {
+        synchronized (mWriteLock) {
+            return writeLocked(json);
+        }
+    }
+
+    private boolean writeLocked(JSONObject json) {
+        File dir = mFile.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            Logger.logError(LOG_TAG, "Failed to create directory: " + dir.getAbsolutePath());
+            return false;
+        }
+
+        File temp = new File(mFile.getPath() + ".tmp");
+        try {
+            // Pretty print JSON with 2-space indent
+            byte[] bytes = json.toString(2).getBytes(StandardCharsets.UTF_8);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                // Owner-only before any content lands, since the files hold API keys
+                temp.setReadable(false, false);
+                temp.setReadable(true, true);
+                temp.setWritable(false, false);
+                temp.setWritable(true, true);
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(mFile)) {
+                throw new IOException("Failed to rename " + temp.getName() + " to " + mFile.getName());
+            }
+            mSnapshot = new Snapshot(deepCopy(json), mFile.lastModified(), mFile.length());
+            return true;
+        } catch (IOException | JSONException e) {
+            Logger.logError(LOG_TAG, "Failed to write " + mFile.getAbsolutePath() + ": " + e.getMessage());
+            temp.delete();
+            return false;
+        }
+    }
+
+    private JSONObject load() {
+        if (!mFile.exists()) {
+            return new JSONObject();
+        }
+        try (InputStream in = new FileInputStream(mFile)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(0, Math.min(mFile.length(), 1 << 20)));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            JSONObject json = new JSONObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+            Logger.logDebug(LOG_TAG, "Loaded " + mFile.getName());
+            return json;
+        } catch (IOException | JSONException e) {
+            Logger.logError(LOG_TAG, "Failed to read " + mFile.getAbsolutePath() + ": " + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    static JSONObject deepCopy(JSONObject json) {
+        JSONObject copy = new JSONObject();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            try {
+                copy.put(key, copyValue(json.opt(key)));
+            } catch (JSONException e) {
+                // Only non-finite numbers are rejected, and parsed JSON has none.
+                throw new IllegalStateException(e);
+            }
+        }
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof JSONObject) {
+            return deepCopy((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray copy = new JSONArray();
+            for (int i = 0; i < array.length(); i++) {
+                copy.put(copyValue(array.opt(i)));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
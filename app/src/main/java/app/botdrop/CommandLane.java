@@ -0,0 +1,167 @@
+package app.botdrop;
+
+import com.termux.shared.logger.Logger;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Named executor for one class of {@link BotDropService} work, with queue depth and wait time
+ * metrics.
+ *
+ * A single-thread lane runs its tasks strictly in submission order, which is what gateway
+ * start/stop/restart rely on. Wait time is measured from {@link #execute} to the moment a
+ * thread picks the task up, so a lane that is starved by long tasks shows up in
+ * {@link #getStats()} instead of only as a frozen UI.
+ */
+class CommandLane implements Executor {
+
+    private static final String LOG_TAG = "CommandLane";
+
+    static final int WINDOW_SIZE = 128;
+
+    /**
+     * Immutable snapshot of a lane's metrics.
+     */
+    static class Stats {
+        final String name;
+        /** Tasks waiting for a thread right now. */
+        final int queueDepth;
+        final int peakQueueDepth;
+        final int running;
+        final long completed;
+        /** Wait-time percentiles over the last {@link #WINDOW_SIZE} tasks, or -1 with none. */
+        final long p50WaitMs;
+        final long p95WaitMs;
+        final long maxWaitMs;
+
+        Stats(String name, int queueDepth, int peakQueueDepth, int running, long completed,
+              long p50WaitMs, long p95WaitMs, long maxWaitMs) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.peakQueueDepth = peakQueueDepth;
+            this.running = running;
+            this.completed = completed;
+            this.p50WaitMs = p50WaitMs;
+            this.p95WaitMs = p95WaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        /**
+         * e.g. "fast: queued 0 (peak 3), running 1, done 120, wait p50 0 ms · p95 4 ms · max 9 ms"
+         */
+        String describe() {
+            return String.format(Locale.ROOT,
+                "%s: queued %d (peak %d), running %d, done %d, wait p50 %d ms · p95 %d ms · max %d ms",
+                name, queueDepth, peakQueueDepth, running, completed, p50WaitMs, p95WaitMs, maxWaitMs);
+        }
+    }
+
+    private final String mName;
+    private final long mSlowWaitMs;
+    private final ThreadPoolExecutor mExecutor;
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicInteger mRunning = new AtomicInteger();
+
+    // Guarded by this.
+    private final long[] mWaitWindow = new long[WINDOW_SIZE];
+    private int mWaitNext = 0;
+    private int mWaitCount = 0;
+    private long mCompleted = 0;
+    private int mPeakQueueDepth = 0;
+
+    /**
+     * @param slowWaitMs waits longer than this are logged
+     */
+    CommandLane(String name, int threads, long slowWaitMs) {
+        mName = name;
+        mSlowWaitMs = slowWaitMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        mExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "BotDrop-" + name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    /**
+     * @throws RejectedExecutionException after {@link #shutdown()}
+     */
+    @Override
+    public void execute(Runnable task) {
+        final long enqueuedAt = System.nanoTime();
+        int depth = mQueueDepth.incrementAndGet();
+        synchronized (this) {
+            mPeakQueueDepth = Math.max(mPeakQueueDepth, depth);
+        }
+        try {
+            mExecutor.execute(() -> {
+                mQueueDepth.decrementAndGet();
+                recordWait((System.nanoTime() - enqueuedAt) / 1_000_000L);
+                mRunning.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    mRunning.decrementAndGet();
+                    synchronized (CommandLane.this) {
+                        mCompleted++;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mQueueDepth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Stop accepting tasks; already queued tasks still run.
+     */
+    void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    Stats getStats() {
+        long[] sorted;
+        long completed;
+        int peak;
+        synchronized (this) {
+            sorted = Arrays.copyOf(mWaitWindow, mWaitCount);
+            completed = mCompleted;
+            peak = mPeakQueueDepth;
+        }
+        long p50 = -1;
+        long p95 = -1;
+        long max = -1;
+        if (sorted.length > 0) {
+            Arrays.sort(sorted);
+            p50 = PercentileUtils.percentile(sorted, 50);
+            p95 = PercentileUtils.percentile(sorted, 95);
+            max = sorted[sorted.length - 1];
+        }
+        return new Stats(mName, mQueueDepth.get(), peak, mRunning.get(), completed, p50, p95, max);
+    }
+
+    private void recordWait(long waitMs) {
+        synchronized (this) {
+            mWaitWindow[mWaitNext] = waitMs;
+            mWaitNext = (mWaitNext + 1) % WINDOW_SIZE;
+            mWaitCount = Math.min(mWaitCount + 1, WINDOW_SIZE);
+        }
+        if (waitMs > mSlowWaitMs) {
+            Logger.logWarn(LOG_TAG, "Task waited " + waitMs + " ms on the " + mName + " lane ("
+                + mQueueDepth.get() + " still queued)");
+        }
+    }
+}
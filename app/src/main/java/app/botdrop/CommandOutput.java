@@ -0,0 +1,274 @@
+package app.botdrop;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Destination for the merged stdout/stderr lines of a command run by {@link BotDropService}.
+ *
+ * A {@link #buffered} output keeps everything in memory, which is what {@link
+ * BotDropService.CommandResult#stdout} has always held. A {@link #streaming} output hands each
+ * line to a sink and keeps only the last few lines, so commands that print tens of megabytes
+ * (npm installs, model catalogs) never materialize their output on the heap. A {@link #spilling}
+ * output does the same but also retains the full text: in memory up to a threshold, then in a
+ * temp file that is deleted by {@link #close()}.
+ *
+ * Lines are delivered synchronously on the thread reading the command's output. A slow sink
+ * therefore slows the reader down and the command blocks on a full pipe, instead of output
+ * piling up in a buffer.
+ */
+public class CommandOutput implements Closeable {
+
+    private static final String LOG_TAG = "CommandOutput";
+
+    public static final int DEFAULT_TAIL_LINES = 200;
+    public static final long DEFAULT_SPILL_THRESHOLD_CHARS = 256 * 1024;
+
+    private final Consumer<String> mSink;
+    private final boolean mRetainFull;
+    private final long mSpillThresholdChars;
+    private final File mSpillDir;
+    private final LogLineRingBuffer mTail;
+
+    private StringBuilder mBuffer;
+    private String mText;
+    private File mSpillFile;
+    private Writer mSpillWriter;
+    private boolean mSpillFailed = false;
+    private long mLineCount = 0;
+    private long mCharCount = 0;
+
+    private CommandOutput(Consumer<String> sink, boolean retainFull, int tailLines,
+                          long spillThresholdChars, File spillDir) {
+        mSink = sink;
+        mRetainFull = retainFull;
+        mSpillThresholdChars = spillThresholdChars;
+        mSpillDir = spillDir;
+        mTail = tailLines > 0 ? new LogLineRingBuffer(tailLines) : null;
+        mBuffer = retainFull ? new StringBuilder() : null;
+    }
+
+    /**
+     * Keep the full output in memory, as {@code executeCommand} always has.
+     */
+    public static CommandOutput buffered(Consumer<String> sink) {
+        return new CommandOutput(sink, true, 0, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Stream lines to {@code sink} and keep only the last {@code tailLines} of them.
+     */
+    public static CommandOutput streaming(Consumer<String> sink, int tailLines) {
+        return new CommandOutput(sink, false, tailLines, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Stream lines to {@code sink}, keep the last {@code tailLines}, and retain the full output,
+     * moving it to a temp file in {@code spillDir} once it exceeds {@code spillThresholdChars}.
+     */
+    public static CommandOutput spilling(Consumer<String> sink, int tailLines,
+                                         long spillThresholdChars, File spillDir) {
+        return new CommandOutput(sink, true, tailLines, spillThresholdChars, spillDir);
+    }
+
+    /**
+     * Record one output line, without its terminating newline.
+     */
+    public void accept(String line) {
+        mLineCount++;
+        mCharCount += line.length() + 1;
+        if (mTail != null) {
+            mTail.add(line);
+        }
+        if (mBuffer != null) {
+            mBuffer.append(line).append('\n');
+            if (mBuffer.length() > mSpillThresholdChars) {
+                spill();
+            }
+        } else if (mSpillWriter != null) {
+            try {
+                mSpillWriter.write(line);
+                mSpillWriter.write('\n');
+            } catch (IOException e) {
+                abandonSpill(e);
+            }
+        }
+        if (mSink != null) {
+            mSink.accept(line);
+        }
+    }
+
+    /**
+     * Called once the command has finished writing; flushes any spill file.
+     */
+    public void finish() {
+        if (mBuffer != null) {
+            mText = mBuffer.toString();
+            mBuffer = null;
+        }
+        if (mSpillWriter != null) {
+            try {
+                mSpillWriter.close();
+            } catch (IOException e) {
+                abandonSpill(e);
+            }
+            mSpillWriter = null;
+        }
+    }
+
+    public long getLineCount() {
+        return mLineCount;
+    }
+
+    /** Characters seen, counting one per line terminator. */
+    public long getCharCount() {
+        return mCharCount;
+    }
+
+    public boolean isSpilled() {
+        return mSpillFile != null;
+    }
+
+    /** Whether {@link #readFully()} and {@link #openReader()} can return the whole output. */
+    public boolean hasFullOutput() {
+        return mRetainFull && !mSpillFailed;
+    }
+
+    /**
+     * The last lines of output, each followed by a newline. For buffered output this is the
+     * whole output.
+     */
+    public String getTail() {
+        if (mTail == null) {
+            return getText();
+        }
+        return mTail.join();
+    }
+
+    /**
+     * Text for {@link BotDropService.CommandResult#stdout}: everything if it is still in memory,
+     * otherwise the tail.
+     */
+    String getResultText() {
+        if (mTail == null || (hasFullOutput() && !isSpilled())) {
+            return getText();
+        }
+        return getTail();
+    }
+
+    /**
+     * Materialize the full output. Only call this when the caller really needs it as one string.
+     *
+     * @throws IllegalStateException if the full output was not retained
+     */
+    public String readFully() throws IOException {
+        if (!isSpilled()) {
+            requireFullOutput();
+            return getText();
+        }
+        StringBuilder builder = new StringBuilder((int) Math.min(Integer.MAX_VALUE, mCharCount));
+        try (Reader reader = openReader()) {
+            char[] chunk = new char[8192];
+            int n;
+            while ((n = reader.read(chunk)) > 0) {
+                builder.append(chunk, 0, n);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Read the full output without materializing it.
+     *
+     * @throws IllegalStateException if the full output was not retained
+     */
+    public Reader openReader() throws IOException {
+        requireFullOutput();
+        if (!isSpilled()) {
+            return new StringReader(getText());
+        }
+        if (mSpillWriter != null) {
+            mSpillWriter.flush();
+        }
+        return new InputStreamReader(new FileInputStream(mSpillFile), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Delete the spill file, if any.
+     */
+    @Override
+    public void close() {
+        if (mSpillWriter != null) {
+            try {
+                mSpillWriter.close();
+            } catch (IOException ignored) {
+            }
+            mSpillWriter = null;
+        }
+        deleteSpillFile();
+    }
+
+    private String getText() {
+        if (mText != null) {
+            return mText;
+        }
+        return mBuffer == null ? "" : mBuffer.toString();
+    }
+
+    private void requireFullOutput() {
+        if (!hasFullOutput()) {
+            throw new IllegalStateException("Full command output was not retained");
+        }
+    }
+
+    private void spill() {
+        if (mSpillDir == null) {
+            return;
+        }
+        try {
+            if (!mSpillDir.isDirectory() && !mSpillDir.mkdirs()) {
+                throw new IOException("Cannot create " + mSpillDir.getAbsolutePath());
+            }
+            mSpillFile = File.createTempFile("cmd_out_", ".log", mSpillDir);
+            mSpillWriter = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(mSpillFile), StandardCharsets.UTF_8), 64 * 1024);
+            mSpillWriter.append(mBuffer);
+            mBuffer = null;
+        } catch (IOException e) {
+            abandonSpill(e);
+        }
+    }
+
+    private void abandonSpill(IOException e) {
+        Logger.logWarn(LOG_TAG, "Dropping full command output, spill failed: " + e.getMessage());
+        mSpillFailed = true;
+        mBuffer = null;
+        if (mSpillWriter != null) {
+            try {
+                mSpillWriter.close();
+            } catch (IOException ignored) {
+            }
+            mSpillWriter = null;
+        }
+        deleteSpillFile();
+    }
+
+    private void deleteSpillFile() {
+        if (mSpillFile != null && mSpillFile.exists() && !mSpillFile.delete()) {
+            Logger.logWarn(LOG_TAG, "Failed to delete command output file: " + mSpillFile.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package app.botdrop;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the model list of an OpenAI-compatible provider from the base URL the user pasted.
+ * <p>
+ * Users paste base URLs both with and without {@code /v1}, so every plausible
+ * {@code .../models} endpoint is requested at once. The URL as given wins if it answers with at
+ * least one model; a guessed sibling is only used when the ones before it failed or came back
+ * empty, and only if it answers with JSON, so a catch-all HTML page cannot pass for a model list.
+ * Responses are parsed as they stream in rather than buffered, and results are cached per base
+ * URL and API key for {@link #CACHE_TTL_MS}.
+ * <p>
+ * {@link #probe} blocks, so it must not be called on the main thread.
+ */
+final class CustomModelsProbe {
+
+    private static final String LOG_TAG = "CustomModelsProbe";
+
+    static final long CACHE_TTL_MS = 5 * 60 * 1000L;
+    private static final int MAX_CACHE_ENTRIES = 8;
+    private static final String MODELS_PATH_SUFFIX = "/models";
+    private static final String VERSION_PATH_SUFFIX = "/v1";
+    // How far past leading whitespace we look to tell JSON from a plain text list.
+    private static final int SNIFF_LIMIT = 4096;
+
+    /** A model list and the endpoint that served it. */
+    static final class Result {
+        final String endpoint;
+        final List<String> modelIds;
+        /** Whether the endpoint is a sibling of the URL the user gave, which then did not work. */
+        final boolean guessed;
+        final boolean fromCache;
+
+        Result(String endpoint, List<String> modelIds, boolean guessed, boolean fromCache) {
+            this.endpoint = endpoint;
+            this.modelIds = modelIds;
+            this.guessed = guessed;
+            this.fromCache = fromCache;
+        }
+
+        /** The base URL of {@link #endpoint}, to save instead of the given one if it was {@link #guessed}. */
+        String baseUrl() {
+            return endpoint.endsWith(MODELS_PATH_SUFFIX)
+                ? endpoint.substring(0, endpoint.length() - MODELS_PATH_SUFFIX.length()) : endpoint;
+        }
+    }
+
+    private static final class CacheEntry {
+        final Result result;
+        final long expiresAtMs;
+
+        CacheEntry(Result result, long expiresAtMs) {
+            this.result = result;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    /** One endpoint request, which the winner can disconnect from another thread. */
+    private final class Attempt {
+        final String endpoint;
+        /** Whether the endpoint was derived from the URL rather than typed by the user. */
+        final boolean guessed;
+        private volatile HttpURLConnection mConnection;
+        private volatile boolean mCancelled;
+
+        Attempt(String endpoint, boolean guessed) {
+            this.endpoint = endpoint;
+            this.guessed = guessed;
+        }
+
+        List<String> run(String apiKey) throws IOException {
+            HttpURLConnection conn = (HttpURLConnection) new URL(endpoint).openConnection();
+            mConnection = conn;
+            if (mCancelled) {
+                conn.disconnect();
+                return null;
+            }
+            try {
+                conn.setRequestMethod("GET");
+                conn.setConnectTimeout(mConnectTimeoutMs);
+                conn.setReadTimeout(mReadTimeoutMs);
+                conn.setRequestProperty("Accept", "application/json");
+                conn.setRequestProperty("Authorization", "Bearer " + apiKey);
+
+                int responseCode = conn.getResponseCode();
+                if (responseCode < 200 || responseCode >= 300) {
+                    Logger.logDebug(LOG_TAG, "HTTP " + responseCode + " from " + endpoint);
+                    return null;
+                }
+                String contentType = conn.getContentType();
+                if (guessed && contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/html")) {
+                    Logger.logDebug(LOG_TAG, "Ignoring " + contentType + " from " + endpoint);
+                    return null;
+                }
+                try (InputStream stream = conn.getInputStream()) {
+                    return parseModelIds(stream, !guessed);
+                }
+            } finally {
+                conn.disconnect();
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            HttpURLConnection conn = mConnection;
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private final int mConnectTimeoutMs;
+    private final int mReadTimeoutMs;
+    private final long mTtlMs;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "CustomModelsProbe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, CacheEntry> mCache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+
+    CustomModelsProbe(int connectTimeoutMs, int readTimeoutMs, long ttlMs) {
+        mConnectTimeoutMs = connectTimeoutMs;
+        mReadTimeoutMs = readTimeoutMs;
+        mTtlMs = ttlMs;
+    }
+
+    /**
+     * Request all candidate endpoints of {@code baseUrl} and return the model list of the most
+     * likely one that has any.
+     *
+     * @return the models, or null if the URL is invalid or no endpoint returned any
+     */
+    Result probe(String baseUrl, String apiKey) {
+        List<String> endpoints = candidateEndpoints(baseUrl);
+        if (endpoints.isEmpty() || TextUtils.isEmpty(apiKey)) {
+            return null;
+        }
+
+        String cacheKey = endpoints.get(0) + '\n' + apiKey;
+        synchronized (mCache) {
+            CacheEntry entry = mCache.get(cacheKey);
+            if (entry != null && SystemClock.elapsedRealtime() < entry.expiresAtMs) {
+                return new Result(entry.result.endpoint, entry.result.modelIds, entry.result.guessed, true);
+            }
+            mCache.remove(cacheKey);
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        Result result = race(endpoints, apiKey);
+        if (result == null) {
+            Logger.logWarn(LOG_TAG, "No models from " + endpoints + " after "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+            return null;
+        }
+        Logger.logDebug(LOG_TAG, result.modelIds.size() + " models from " + result.endpoint + " in "
+            + (SystemClock.elapsedRealtime() - start) + " ms");
+        if (mTtlMs > 0) {
+            synchronized (mCache) {
+                mCache.put(cacheKey, new CacheEntry(result, SystemClock.elapsedRealtime() + mTtlMs));
+            }
+        }
+        return result;
+    }
+
+    private Result race(List<String> endpoints, String apiKey) {
+        CompletionService<List<String>> completion = new ExecutorCompletionService<>(mExecutor);
+        Map<Future<List<String>>, Attempt> byFuture = new LinkedHashMap<>();
+        List<Future<List<String>>> inOrder = new ArrayList<>(endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            Attempt attempt = new Attempt(endpoints.get(i), i > 0);
+            Future<List<String>> future = completion.submit(() -> attempt.run(apiKey));
+            byFuture.put(future, attempt);
+            inOrder.add(future);
+        }
+
+        // Read timeouts apply per read, so also bound the whole race.
+        long deadline = SystemClock.elapsedRealtime() + mConnectTimeoutMs + mReadTimeoutMs;
+        try {
+            // Answers arrive in any order, but the first endpoint with models wins, so only
+            // settle once every endpoint before it has failed or come back empty.
+            int next = 0;
+            while (next < inOrder.size()) {
+                Future<List<String>> future = inOrder.get(next);
+                if (!future.isDone()) {
+                    long remaining = deadline - SystemClock.elapsedRealtime();
+                    if (remaining <= 0 || completion.poll(remaining, TimeUnit.MILLISECONDS) == null) {
+                        Logger.logWarn(LOG_TAG, "Timed out waiting for " + endpoints);
+                        return null;
+                    }
+                    continue;
+                }
+                Attempt attempt = byFuture.get(future);
+                try {
+                    List<String> modelIds = future.get();
+                    if (modelIds != null && !modelIds.isEmpty()) {
+                        return new Result(attempt.endpoint, Collections.unmodifiableList(modelIds), attempt.guessed, false);
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    Logger.logDebug(LOG_TAG, attempt.endpoint + " failed: " + cause.getMessage());
+                }
+                next++;
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Map.Entry<Future<List<String>>, Attempt> entry : byFuture.entrySet()) {
+                if (!entry.getKey().isDone()) {
+                    entry.getValue().cancel();
+                    entry.getKey().cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * The {@code .../models} endpoints worth trying for a base URL, most likely first: the URL
+     * as given, then with {@code /v1} added or removed. Empty if it is not an http(s) URL.
+     */
+    static List<String> candidateEndpoints(String baseUrl) {
+        List<String> endpoints = new ArrayList<>(2);
+        if (TextUtils.isEmpty(baseUrl)) {
+            return endpoints;
+        }
+        String normalized = baseUrl.trim();
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (!normalized.startsWith("http://") && !normalized.startsWith("https://")) {
+            return endpoints;
+        }
+        if (normalized.endsWith(MODELS_PATH_SUFFIX)) {
+            endpoints.add(normalized);
+            return endpoints;
+        }
+        endpoints.add(normalized + MODELS_PATH_SUFFIX);
+        if (normalized.endsWith(VERSION_PATH_SUFFIX)) {
+            String root = normalized.substring(0, normalized.length() - VERSION_PATH_SUFFIX.length());
+            if (root.indexOf("://") + 3 < root.length()) {
+                endpoints.add(root + MODELS_PATH_SUFFIX);
+            }
+        } else {
+            endpoints.add(normalized + VERSION_PATH_SUFFIX + MODELS_PATH_SUFFIX);
+        }
+        return endpoints;
+    }
+
+    /**
+     * Read model ids from a models response as it streams in. Understands the OpenAI shape
+     * ({@code {"data": [{"id": ...}]}}), a {@code "models"} array, a bare array of strings or
+     * objects, and a plain text list with one model per line.
+     */
+    static List<String> parseModelIds(InputStream stream) throws IOException {
+        return parseModelIds(stream, true);
+    }
+
+    /**
+     * Like {@link #parseModelIds(InputStream)}, but with {@code allowPlainText} false a body that
+     * is not JSON reads as no models.
+     */
+    static List<String> parseModelIds(InputStream stream, boolean allowPlainText) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        List<String> modelIds = new ArrayList<>();
+        reader.mark(SNIFF_LIMIT);
+        int first;
+        int read = 0;
+        do {
+            first = reader.read();
+            read++;
+        } while (first >= 0 && Character.isWhitespace(first) && read < SNIFF_LIMIT);
+        reader.reset();
+
+        if (first == '{' || first == '[') {
+            JsonReader json = new JsonReader(reader);
+            if (first == '[') {
+                readEntries(json, modelIds);
+            } else {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    if (!"data".equals(name) && !"models".equals(name)) {
+                        json.skipValue();
+                    } else if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                        readEntries(json, modelIds);
+                    } else {
+                        addIfPresent(modelIds, readString(json));
+                    }
+                }
+                json.endObject();
+            }
+            return modelIds;
+        }
+        if (!allowPlainText) {
+            return modelIds;
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            addIfPresent(modelIds, parseModelIdLine(line));
+        }
+        return modelIds;
+    }
+
+    private static void readEntries(JsonReader json, List<String> modelIds) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            JsonToken token = json.peek();
+            if (token == JsonToken.STRING) {
+                addIfPresent(modelIds, json.nextString().trim());
+                continue;
+            }
+            if (token != JsonToken.BEGIN_OBJECT) {
+                json.skipValue();
+                continue;
+            }
+            String id = "";
+            String model = "";
+            String name = "";
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "id":
+                        id = readString(json);
+                        break;
+                    case "model":
+                        model = readString(json);
+                        break;
+                    case "name":
+                        name = readString(json);
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+            json.endObject();
+            addIfPresent(modelIds, !id.isEmpty() ? id : !model.isEmpty() ? model : name);
+        }
+        json.endArray();
+    }
+
+    /** A string or number value, trimmed; anything else is skipped and reads as empty. */
+    private static String readString(JsonReader json) throws IOException {
+        JsonToken token = json.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return json.nextString().trim();
+        }
+        json.skipValue();
+        return "";
+    }
+
+    /** The model id on one line of a plain text list, or empty for headers and blank lines. */
+    static String parseModelIdLine(String line) {
+        String trimmed = line == null ? "" : line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("{") || trimmed.startsWith("[")
+            || trimmed.startsWith("#") || trimmed.startsWith("Model ")) {
+            return "";
+        }
+        String token = trimmed;
+        if (trimmed.contains(" ")) {
+            token = trimmed.split("\\s+")[0];
+        }
+        if (token.startsWith("\"") && token.endsWith("\"") && token.length() > 1) {
+            token = token.substring(1, token.length() - 1);
+        }
+        return token;
+    }
+
+    private static void addIfPresent(List<String> modelIds, String modelId) {
+        if (!TextUtils.isEmpty(modelId)) {
+            modelIds.add(modelId);
+        }
+    }
+}
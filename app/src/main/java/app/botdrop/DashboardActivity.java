@@ -19,7 +19,6 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.text.TextUtils;
-import android.text.method.ScrollingMovementMethod;
 import android.view.LayoutInflater;
 import android.view.KeyEvent;
 import android.view.View;
@@ -29,9 +28,7 @@ import android.window.OnBackInvokedCallback;
 import android.window.OnBackInvokedDispatcher;
 import android.widget.Button;
 import android.widget.ImageButton;
-import android.widget.ScrollView;
 import android.widget.ImageView;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -49,7 +46,6 @@ import com.termux.shared.termux.TermuxConstants;
 import moe.shizuku.manager.MainActivity;
 import com.google.android.material.tabs.TabLayout;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
@@ -70,7 +66,6 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
@@ -83,26 +78,23 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.widget.ViewPager2;
 
 /**
  * Dashboard activity - main screen after setup is complete.
  * Shows gateway status, connected channels, and control buttons.
- * Auto-refreshes status every 5 seconds.
+ * Status updates come from BotDropService's shared gateway status stream.
  */
 public class DashboardActivity extends Activity {
 
     private static final String LOG_TAG = "DashboardActivity";
     public static final String NOTIFICATION_CHANNEL_ID = "botdrop_gateway";
-    private static final int STATUS_REFRESH_INTERVAL_MS = 5000; // 5 seconds
-    private static final int ERROR_CHECK_INTERVAL_MS = 15000; // 15 seconds
-    private static final String MODEL_LIST_COMMAND = OpenclawModelListUtils.buildPreferredModelListCommand(true);
-    private static final String MODEL_PREFS_NAME = "openclaw_model_cache_v1";
-    private static final String MODEL_CACHE_KEY_PREFIX = "models_by_version_";
     private static final int GATEWAY_LOG_TAIL_LINES = 300;
     private static final long OPENCLAW_LOG_TAIL_POLL_INTERVAL_MS = 2500L;
     private static final int GATEWAY_DEBUG_LOG_TAIL_LINES = 120;
+    private static final int OPENCLAW_LOG_MAX_LINES = 2000;
     private static final int OPENCLAW_WEB_UI_REACHABILITY_RETRY_COUNT = 8;
     private static final int OPENCLAW_WEB_UI_REACHABILITY_RETRY_DELAY_MS = 700;
     // Version management constants moved to OpenclawVersionUtils
@@ -141,16 +133,10 @@ public class DashboardActivity extends Activity {
             Pattern.compile("(?i)\\b(127\\.0\\.0\\.1|localhost|0\\.0\\.0\\.0|\\[[0-9a-f:]+\\]|[a-z0-9._-]+):(\\d{2,5})\\b");
     private static final Pattern GATEWAY_TOKEN_QUERY_PATTERN =
             Pattern.compile("(?i)token=([^\\s\"'`<>\\)\\]}&]+)");
-    private static String getOpenclawLogTailCommand(String logFile, int tailLines) {
-        return "if [ -f " + logFile + " ]; then\n" +
-                "  tail -n " + tailLines + " " + logFile + "\n" +
-                "else\n" +
-                "  echo 'No log file at " + logFile + "'\n" +
-                "fi\n";
-    }
 
     private TextView mStatusText;
     private TextView mUptimeText;
+    private TextView mProbeLatencyText;
     private View mStatusIndicator;
     private TextView mTelegramStatus;
     private TextView mDiscordStatus;
@@ -197,8 +183,8 @@ public class DashboardActivity extends Activity {
     private BotDropService mBotDropService;
     private boolean mBound = false;
     private Handler mHandler = new Handler(Looper.getMainLooper());
-    private Runnable mStatusRefreshRunnable;
-    private long mLastErrorCheckAtMs = 0L;
+    private boolean mStatusSubscribed = false;
+    private final GatewayStatusBus.Listener mGatewayStatusListener = this::onGatewayStatus;
     private String mLastErrorMessage;
     private Runnable mPendingOpenclawStorageAction;
     private Runnable mPendingOpenclawStorageDeniedAction;
@@ -248,6 +234,7 @@ public class DashboardActivity extends Activity {
         public void onServiceDisconnected(ComponentName name) {
             mBound = false;
             mBotDropService = null;
+            mStatusSubscribed = false;
             Logger.logDebug(LOG_TAG, "Service disconnected");
         }
     };
@@ -266,6 +253,7 @@ public class DashboardActivity extends Activity {
         // Initialize views
         mStatusText = findViewById(R.id.status_text);
         mUptimeText = findViewById(R.id.uptime_text);
+        mProbeLatencyText = findViewById(R.id.probe_latency_text);
         mStatusIndicator = findViewById(R.id.status_indicator);
         mTelegramStatus = findViewById(R.id.telegram_status);
         mDiscordStatus = findViewById(R.id.discord_status);
@@ -487,7 +475,7 @@ public class DashboardActivity extends Activity {
         
         // Cancel all pending callbacks to prevent memory leak
         mHandler.removeCallbacksAndMessages(null);
-        mStatusRefreshRunnable = null;
+        stopStatusRefresh();
 
         dismissOpenclawUpdateDialog();
         if (mOpenclawVersionManagerDialog != null && mOpenclawVersionManagerDialog.isShowing()) {
@@ -524,7 +512,6 @@ public class DashboardActivity extends Activity {
         mUiVisible = true;
         if (mBound) {
             startStatusRefresh();
-            refreshStatus();
         }
         loadChannelInfo();
     }
@@ -567,10 +554,10 @@ public class DashboardActivity extends Activity {
     }
 
     private void stopStatusRefresh() {
-        if (mStatusRefreshRunnable != null) {
-            mHandler.removeCallbacks(mStatusRefreshRunnable);
-            mStatusRefreshRunnable = null;
+        if (mStatusSubscribed && mBotDropService != null) {
+            mBotDropService.removeGatewayStatusListener(mGatewayStatusListener);
         }
+        mStatusSubscribed = false;
     }
 
     private void setOpenclawWebUiButtonState(boolean opening, String statusText) {
@@ -1340,26 +1327,18 @@ public class DashboardActivity extends Activity {
     }
 
     /**
-     * Start periodic status refresh
+     * Subscribe to the shared gateway status stream published by BotDropService
      */
     private void startStatusRefresh() {
-        if (!mUiVisible) {
+        if (!mUiVisible || !mBound || mBotDropService == null || mStatusSubscribed) {
             return;
         }
-        mStatusRefreshRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (mUiVisible) {
-                    refreshStatus();
-                    mHandler.postDelayed(this, STATUS_REFRESH_INTERVAL_MS);
-                }
-            }
-        };
-        mHandler.post(mStatusRefreshRunnable);
+        mStatusSubscribed = true;
+        mBotDropService.addGatewayStatusListener(mGatewayStatusListener, true);
     }
 
     /**
-     * Refresh gateway status and uptime
+     * Request an immediate status refresh (shared with other subscribers)
      */
     private void refreshStatus() {
         if (!mUiVisible) {
@@ -1368,33 +1347,52 @@ public class DashboardActivity extends Activity {
         if (!mBound || mBotDropService == null) {
             return;
         }
+        mBotDropService.requestGatewayStatusRefresh();
+    }
 
-        // Check if gateway is running
-        mBotDropService.isGatewayRunning(result -> {
-            if (!mUiVisible) {
-                return;
-            }
-            boolean isRunning = result.success && result.stdout.trim().equals("running");
-            updateStatusUI(isRunning);
-            checkGatewayErrors(isRunning);
+    private void onGatewayStatus(GatewayStatusBus.Snapshot snapshot) {
+        if (!mUiVisible) {
+            return;
+        }
+        boolean isRunning = snapshot.running;
+        updateStatusUI(isRunning);
+        checkGatewayErrors(isRunning);
 
-            // Get uptime if running
-            if (isRunning) {
-                mBotDropService.getGatewayUptime(uptimeResult -> {
-                    if (!mUiVisible) {
-                        return;
-                    }
-                    if (uptimeResult.success) {
-                        String uptime = uptimeResult.stdout.trim();
-                        if (!uptime.equals("—")) {
-                            mUptimeText.setText(getString(R.string.botdrop_uptime, uptime));
-                        } else {
-                            mUptimeText.setText("—");
-                        }
-                    }
-                });
+        if (isRunning) {
+            if (!snapshot.uptime.equals("—")) {
+                mUptimeText.setText(getString(R.string.botdrop_uptime, snapshot.uptime));
+            } else {
+                mUptimeText.setText("—");
             }
-        });
+        }
+        updateProbeLatencyUI(snapshot);
+    }
+
+    /**
+     * Show HTTP readiness latency so event-loop saturation is visible, or how long the gateway
+     * has not been answering.
+     */
+    private void updateProbeLatencyUI(GatewayStatusBus.Snapshot snapshot) {
+        if (mProbeLatencyText == null) {
+            return;
+        }
+        if (!snapshot.running || snapshot.readiness == null || !mBound || mBotDropService == null) {
+            mProbeLatencyText.setVisibility(View.GONE);
+            return;
+        }
+        GatewayHttpProbe.Stats stats = mBotDropService.getGatewayReadinessStats();
+        if (!snapshot.readiness.ok) {
+            long failingForMs = stats.failingForMs(android.os.SystemClock.elapsedRealtime());
+            mProbeLatencyText.setText(getString(R.string.botdrop_probe_not_responding,
+                GatewaySupervisor.formatDuration(failingForMs)));
+        } else if (stats.samples > 0) {
+            mProbeLatencyText.setText(getString(R.string.botdrop_probe_latency,
+                stats.p50Ms, stats.p95Ms, stats.maxMs));
+        } else {
+            mProbeLatencyText.setVisibility(View.GONE);
+            return;
+        }
+        mProbeLatencyText.setVisibility(View.VISIBLE);
     }
 
     /**
@@ -2565,11 +2563,20 @@ public class DashboardActivity extends Activity {
             return;
         }
 
-        final String[] logContents = {
-            "Loading " + GATEWAY_LOG_LABEL + "...",
-            "Loading " + GATEWAY_DEBUG_LOG_LABEL + "..."
+        final OpenclawLogPage[] logPages = {
+            new OpenclawLogPage(GATEWAY_LOG_LABEL,
+                new GatewayLogTailer(new File(GATEWAY_LOG_FILE), GATEWAY_LOG_TAIL_LINES),
+                "Loading " + GATEWAY_LOG_LABEL + "..."),
+            new OpenclawLogPage(GATEWAY_DEBUG_LOG_LABEL,
+                new GatewayLogTailer(new File(GATEWAY_DEBUG_LOG_FILE), GATEWAY_DEBUG_LOG_TAIL_LINES),
+                "Loading " + GATEWAY_DEBUG_LOG_LABEL + "...")
         };
+        final String[] logFiles = {GATEWAY_LOG_FILE, GATEWAY_DEBUG_LOG_FILE};
         final String noLogOutputText = getString(R.string.botdrop_no_log_output_available);
+        final String failedToReadText = getString(R.string.botdrop_failed_to_read_openclaw_logs);
+        // Tailers only read appended bytes; keep file I/O off the main thread.
+        final java.util.concurrent.ExecutorService logExecutor =
+            java.util.concurrent.Executors.newSingleThreadExecutor();
 
         RecyclerView.Adapter<OpenclawLogPageViewHolder> pagerAdapter = new RecyclerView.Adapter<OpenclawLogPageViewHolder>() {
             @NonNull
@@ -2583,16 +2590,12 @@ public class DashboardActivity extends Activity {
 
             @Override
             public void onBindViewHolder(@NonNull OpenclawLogPageViewHolder holder, int position) {
-                String text = logContents[position];
-                if (TextUtils.isEmpty(text)) {
-                    text = noLogOutputText;
-                }
-                holder.bind(text);
+                holder.bind(logPages[position]);
             }
 
             @Override
             public int getItemCount() {
-                return logContents.length;
+                return logPages.length;
             }
         };
 
@@ -2604,53 +2607,50 @@ public class DashboardActivity extends Activity {
             .create();
 
         final boolean[] isLogDialogOpen = {true};
-        final int[] pollBatchPending = {0};
-        final int[] remainingFirstLoadCallbacks = {2};
+        final boolean[] firstLoadPending = {true};
         Runnable refreshLogs = new Runnable() {
             @Override
             public void run() {
-                if (!isLogDialogOpen[0] || mBotDropService == null) {
+                if (!isLogDialogOpen[0]) {
                     return;
                 }
 
-                pollBatchPending[0] = 2;
-
-                Runnable onPollCompleted = () -> {
-                    int remaining = --pollBatchPending[0];
-                    if (remainingFirstLoadCallbacks[0] > 0) {
-                        int firstLoadRemaining = --remainingFirstLoadCallbacks[0];
-                        if (firstLoadRemaining <= 0 && mOpenclawLogButton != null) {
-                            mOpenclawLogButton.setEnabled(true);
+                try {
+                    logExecutor.execute(() -> {
+                        GatewayLogTailer.Delta[] deltas = new GatewayLogTailer.Delta[logPages.length];
+                        String[] errors = new String[logPages.length];
+                        for (int i = 0; i < logPages.length; i++) {
+                            try {
+                                deltas[i] = logPages[i].tailer.poll();
+                            } catch (IOException e) {
+                                errors[i] = e.getMessage();
+                            }
                         }
-                    }
-                    if (remaining <= 0) {
-                        if (isLogDialogOpen[0] && !isFinishing()) {
-                            mHandler.postDelayed(this, OPENCLAW_LOG_TAIL_POLL_INTERVAL_MS);
-                        }
-                    }
-                };
-
-                mBotDropService.executeCommand(getOpenclawLogTailCommand(GATEWAY_LOG_FILE, GATEWAY_LOG_TAIL_LINES), result -> {
-                    if (isFinishing() || !isLogDialogOpen[0]) {
-                        onPollCompleted.run();
-                        return;
-                    }
-                    String logText = getFormattedLogResult(result, GATEWAY_LOG_LABEL);
-                    logContents[0] = logText;
-                    pagerAdapter.notifyItemChanged(0);
-                    onPollCompleted.run();
-                });
 
-                mBotDropService.executeCommand(getOpenclawLogTailCommand(GATEWAY_DEBUG_LOG_FILE, GATEWAY_DEBUG_LOG_TAIL_LINES), result -> {
-                    if (isFinishing() || !isLogDialogOpen[0]) {
-                        onPollCompleted.run();
-                        return;
-                    }
-                    String logText = getFormattedLogResult(result, GATEWAY_DEBUG_LOG_LABEL);
-                    logContents[1] = logText;
-                    pagerAdapter.notifyItemChanged(1);
-                    onPollCompleted.run();
-                });
+                        mHandler.post(() -> {
+                            if (isFinishing() || !isLogDialogOpen[0]) {
+                                return;
+                            }
+                            for (int i = 0; i < logPages.length; i++) {
+                                if (deltas[i] != null) {
+                                    logPages[i].applyDelta(deltas[i], "No log file at " + logFiles[i], noLogOutputText);
+                                } else {
+                                    Logger.logWarn(LOG_TAG, "Failed to read " + logPages[i].label + ": " + errors[i]);
+                                    logPages[i].showMessage(failedToReadText);
+                                }
+                            }
+                            if (firstLoadPending[0]) {
+                                firstLoadPending[0] = false;
+                                if (mOpenclawLogButton != null) {
+                                    mOpenclawLogButton.setEnabled(true);
+                                }
+                            }
+                            mHandler.postDelayed(this, OPENCLAW_LOG_TAIL_POLL_INTERVAL_MS);
+                        });
+                    });
+                } catch (java.util.concurrent.RejectedExecutionException e) {
+                    Logger.logDebug(LOG_TAG, "Log tail executor already shut down");
+                }
             }
         };
 
@@ -2667,8 +2667,8 @@ public class DashboardActivity extends Activity {
         copyButton.setOnClickListener(v -> {
             int currentItem = logViewPager.getCurrentItem();
             String copyTarget = noLogOutputText;
-            if (currentItem >= 0 && currentItem < logContents.length) {
-                copyTarget = logContents[currentItem];
+            if (currentItem >= 0 && currentItem < logPages.length) {
+                copyTarget = logPages[currentItem].getCopyText();
             }
             if (TextUtils.isEmpty(copyTarget)) {
                 copyTarget = noLogOutputText;
@@ -2680,6 +2680,7 @@ public class DashboardActivity extends Activity {
         dialog.setOnDismissListener(d -> {
             isLogDialogOpen[0] = false;
             mHandler.removeCallbacks(refreshLogs);
+            logExecutor.shutdownNow();
             if (mOpenclawLogButton != null) {
                 mOpenclawLogButton.setEnabled(true);
             }
@@ -2689,106 +2690,148 @@ public class DashboardActivity extends Activity {
         BotDropDialogStyler.applyTransparentCardWindow(dialog);
     }
 
-    private static class OpenclawLogPageViewHolder extends RecyclerView.ViewHolder {
-        private final ScrollView mLogScrollView;
-        private final TextView mLogTextView;
-        private View.OnLayoutChangeListener mPendingScrollRestoreListener;
-
-        OpenclawLogPageViewHolder(@NonNull View itemView) {
-            super(itemView);
-            mLogScrollView = itemView instanceof ScrollView ? (ScrollView) itemView : null;
-            mLogTextView = itemView.findViewById(R.id.openclaw_log_page_text);
-            if (mLogTextView != null) {
-                mLogTextView.setMovementMethod(ScrollingMovementMethod.getInstance());
+    /**
+     * One tab of the log dialog: an incremental tailer feeding a bounded line buffer that backs
+     * a RecyclerView, so new output only binds the appended rows.
+     */
+    static class OpenclawLogPage {
+        final String label;
+        /** Only used on the log executor thread. */
+        final GatewayLogTailer tailer;
+        final LogLineRingBuffer lines = new LogLineRingBuffer(OPENCLAW_LOG_MAX_LINES);
+        final LogLineAdapter adapter = new LogLineAdapter(lines);
+        private boolean mShowingMessage;
+        private RecyclerView mAttachedList;
+
+        OpenclawLogPage(String label, GatewayLogTailer tailer, String initialMessage) {
+            this.label = label;
+            this.tailer = tailer;
+            showMessage(initialMessage);
+        }
+
+        void attach(@NonNull RecyclerView list) {
+            mAttachedList = list;
+            if (list.getAdapter() != adapter) {
+                list.setAdapter(adapter);
+            }
+            scrollToBottom();
+        }
+
+        /**
+         * Apply lines read by the tailer. Stays pinned to the bottom if the reader was there.
+         */
+        void applyDelta(@NonNull GatewayLogTailer.Delta delta, String missingFileText, String emptyText) {
+            if (!delta.exists) {
+                if (delta.reset || lines.size() == 0) {
+                    showMessage(missingFileText);
+                }
+                return;
             }
-        }
 
-        void bind(String text) {
-            if (mLogTextView != null) {
-                setLogTextPreservingScroll(text == null ? "" : text);
+            if (delta.reset || (mShowingMessage && !delta.lines.isEmpty())) {
+                lines.clear();
+                mShowingMessage = false;
+                lines.addAll(delta.lines);
+                if (lines.size() == 0) {
+                    lines.addAll(java.util.Collections.singletonList(emptyText));
+                    mShowingMessage = true;
+                }
+                adapter.notifyDataSetChanged();
+                scrollToBottom();
+                return;
             }
-        }
 
-        private void setLogTextPreservingScroll(@NonNull String text) {
-            if (mLogScrollView == null) {
-                mLogTextView.setText(text);
+            if (delta.lines.isEmpty()) {
                 return;
             }
+            boolean stickToBottom = isAtBottom();
+            int before = lines.size();
+            int evicted = lines.addAll(delta.lines);
+            if (evicted > 0) {
+                adapter.notifyItemRangeRemoved(0, evicted);
+            }
+            int kept = before - evicted;
+            adapter.notifyItemRangeInserted(kept, lines.size() - kept);
+            if (stickToBottom) {
+                scrollToBottom();
+            }
+        }
 
-            int previousScrollY = mLogScrollView.getScrollY();
-            boolean wasAtBottom = isScrolledToBottom(mLogScrollView);
+        void showMessage(String message) {
+            lines.clear();
+            lines.addAll(java.util.Collections.singletonList(message == null ? "" : message));
+            mShowingMessage = true;
+            adapter.notifyDataSetChanged();
+        }
 
-            if (mPendingScrollRestoreListener != null) {
-                mLogTextView.removeOnLayoutChangeListener(mPendingScrollRestoreListener);
-            }
+        String getCopyText() {
+            return label + "\n" + lines.join();
+        }
 
-            mPendingScrollRestoreListener = new View.OnLayoutChangeListener() {
-                @Override
-                public void onLayoutChange(View v, int left, int top, int right, int bottom,
-                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
-                    mLogTextView.removeOnLayoutChangeListener(this);
-                    if (mPendingScrollRestoreListener == this) {
-                        mPendingScrollRestoreListener = null;
-                    }
-                    mLogScrollView.post(() -> {
-                        int targetScrollY = wasAtBottom
-                            ? getScrollBottom(mLogScrollView)
-                            : Math.min(previousScrollY, getScrollBottom(mLogScrollView));
-                        mLogScrollView.scrollTo(0, targetScrollY);
-                    });
-                }
-            };
+        private boolean isAttached() {
+            return mAttachedList != null && mAttachedList.getAdapter() == adapter;
+        }
 
-            mLogTextView.addOnLayoutChangeListener(mPendingScrollRestoreListener);
-            mLogTextView.setText(text);
+        private boolean isAtBottom() {
+            return !isAttached() || !mAttachedList.canScrollVertically(1);
         }
-    }
 
-    private static boolean isScrolledToBottom(@NonNull ScrollView scrollView) {
-        return scrollView.getScrollY() >= getScrollBottom(scrollView);
+        private void scrollToBottom() {
+            if (isAttached() && lines.size() > 0) {
+                mAttachedList.scrollToPosition(lines.size() - 1);
+            }
+        }
     }
 
-    private static int getScrollBottom(@NonNull ScrollView scrollView) {
-        View child = scrollView.getChildAt(0);
-        if (child == null) {
-            return 0;
+    static class LogLineAdapter extends RecyclerView.Adapter<LogLineAdapter.LineViewHolder> {
+        private final LogLineRingBuffer mLines;
+
+        LogLineAdapter(LogLineRingBuffer lines) {
+            mLines = lines;
         }
-        return Math.max(0, child.getBottom() - scrollView.getHeight());
-    }
 
-    private String getFormattedLogResult(@Nullable BotDropService.CommandResult result, String logLabel) {
-        String logText = null;
-        if (result == null) {
-            logText = getString(R.string.botdrop_failed_to_read_openclaw_logs);
+        @NonNull
+        @Override
+        public LineViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            TextView view = (TextView) LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_openclaw_log_line, parent, false);
+            return new LineViewHolder(view);
         }
-        if (logText == null) {
-            if (!result.success) {
-                StringBuilder fallback = new StringBuilder();
-                if (!TextUtils.isEmpty(result.stderr)) {
-                    fallback.append(result.stderr.trim());
-                }
-                if (!TextUtils.isEmpty(result.stdout)) {
-                    if (fallback.length() > 0) {
-                        fallback.append("\n\n");
-                    }
-                    fallback.append(result.stdout.trim());
-                }
-                logText = fallback.toString();
-                if (TextUtils.isEmpty(logText)) {
-                    logText = getString(R.string.botdrop_failed_to_read_openclaw_logs_exit_code, result.exitCode);
-                }
-            } else {
-                logText = result.stdout;
-            }
-            if (TextUtils.isEmpty(logText)) {
-                logText = getString(R.string.botdrop_failed_to_read_openclaw_logs_exit_code, result.exitCode);
+
+        @Override
+        public void onBindViewHolder(@NonNull LineViewHolder holder, int position) {
+            holder.text.setText(mLines.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return mLines.size();
+        }
+
+        static class LineViewHolder extends RecyclerView.ViewHolder {
+            final TextView text;
+
+            LineViewHolder(@NonNull TextView itemView) {
+                super(itemView);
+                text = itemView;
             }
         }
+    }
+
+    static class OpenclawLogPageViewHolder extends RecyclerView.ViewHolder {
+        private final RecyclerView mLogList;
+
+        OpenclawLogPageViewHolder(@NonNull View itemView) {
+            super(itemView);
+            mLogList = itemView.findViewById(R.id.openclaw_log_page_list);
+            mLogList.setLayoutManager(new LinearLayoutManager(itemView.getContext()));
+            // Appends happen every poll; skip change animations.
+            mLogList.setItemAnimator(null);
+        }
 
-        if (TextUtils.isEmpty(logText)) {
-            logText = getString(R.string.botdrop_no_log_output_available);
+        void bind(OpenclawLogPage page) {
+            page.attach(mLogList);
         }
-        return logLabel + "\n" + logText;
     }
 
     private void copyToClipboard(String content) {
@@ -2929,7 +2972,7 @@ public class DashboardActivity extends Activity {
         }
         String currentVersion = BotDropService.getOpenclawVersion();
 
-        mBotDropService.executeCommand(
+        mBotDropService.executeReadOnlyCommand(
             OpenclawVersionUtils.VERSIONS_COMMAND,
             OPENCLAW_VERSION_FETCH_TIMEOUT_SECONDS,
             result -> {
@@ -3267,163 +3310,31 @@ public class DashboardActivity extends Activity {
     private void prefetchModelsForUpdate(String openclawVersion, ModelListPrefetchCallback callback) {
         final ModelListPrefetchCallback finalCallback = callback == null ? (ModelListPrefetchCallback) success -> {} : callback;
 
-        if (mBotDropService == null) {
+        ModelCatalogRepository repository = mBotDropService != null ? mBotDropService.getModelCatalogRepository() : null;
+        if (repository == null) {
             finalCallback.onFinished(false);
             return;
         }
 
-        final String normalizedVersion = normalizeModelCacheKey(openclawVersion);
-        mBotDropService.executeCommand(MODEL_LIST_COMMAND, result -> {
-            if (!result.success) {
-                Logger.logWarn(LOG_TAG, "Model list prefetch failed for v" + openclawVersion + ": exit " + result.exitCode);
-                finalCallback.onFinished(false);
-                return;
-            }
-
-            List<ModelInfo> models = parseModelListForUpdate(result.stdout);
-            if (models.isEmpty()) {
-                Logger.logWarn(LOG_TAG, "Model list prefetch returned empty output for v" + openclawVersion);
+        repository.get(openclawVersion, false, (catalog, fromCache) -> {
+            if (catalog == null) {
+                Logger.logWarn(LOG_TAG, "Model list prefetch failed for v" + openclawVersion);
                 finalCallback.onFinished(false);
                 return;
             }
-
-            Collections.sort(models, (a, b) -> {
-                if (a == null || b == null || a.fullName == null || b.fullName == null) return 0;
-                return b.fullName.compareToIgnoreCase(a.fullName);
-            });
-
-            cacheModelsForUpdate(normalizedVersion, models);
             finalCallback.onFinished(true);
-            Logger.logInfo(LOG_TAG, "Prefetched " + models.size() + " models for OpenClaw v" + openclawVersion);
+            Logger.logInfo(LOG_TAG, "Prefetched " + catalog.size() + " models for OpenClaw v" + openclawVersion);
         });
     }
 
-    private List<ModelInfo> parseModelListForUpdate(String output) {
-        List<ModelInfo> models = new ArrayList<>();
-        if (TextUtils.isEmpty(output)) {
-            return models;
-        }
-
-        try {
-            String[] lines = output.split("\\r?\\n");
-            for (String line : lines) {
-                String trimmed = line == null ? "" : line.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
-                }
-                if (trimmed.startsWith("#") || trimmed.startsWith("Model ")) {
-                    continue;
-                }
-
-                String token = trimmed;
-                if (trimmed.contains(" ")) {
-                    token = trimmed.split("\\s+")[0];
-                }
-
-                if (isModelTokenForUpdate(token)) {
-                    models.add(new ModelInfo(token));
-                }
-            }
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to parse model list output: " + e.getMessage());
-        }
-        return models;
-    }
-
-    private void cacheModelsForUpdate(String version, List<ModelInfo> models) {
-        if (TextUtils.isEmpty(version) || models == null || models.isEmpty()) return;
-
-        try {
-            JSONArray list = new JSONArray();
-            for (ModelInfo model : models) {
-                if (model != null && !TextUtils.isEmpty(model.fullName)) {
-                    list.put(model.fullName);
-                }
-            }
-
-            JSONObject root = new JSONObject();
-            root.put("version", version);
-            root.put("updated_at", System.currentTimeMillis());
-            root.put("models", list);
-
-            getSharedPreferences(MODEL_PREFS_NAME, MODE_PRIVATE)
-                .edit()
-                .putString(modelCacheKey(version), root.toString())
-                .apply();
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to cache prefetched model list: " + e.getMessage());
-        }
-    }
-
-    private String modelCacheKey(String version) {
-        return MODEL_CACHE_KEY_PREFIX + normalizeModelCacheKey(version);
-    }
-
-    private String normalizeModelCacheKey(String version) {
-        if (TextUtils.isEmpty(version)) {
-            return "unknown";
-        }
-        return version.trim().replaceAll("[^A-Za-z0-9._-]", "_");
-    }
-
-    private boolean isModelTokenForUpdate(String token) {
-        if (token == null || token.isEmpty()) return false;
-        if (!token.contains("/")) return false;
-        return token.matches("[A-Za-z0-9._-]+/[A-Za-z0-9._:/-]+");
-    }
-
     private void checkGatewayErrors(boolean isRunning) {
         if (!mBound || mBotDropService == null || !isRunning) {
             showGatewayError(null);
             return;
         }
 
-        long now = System.currentTimeMillis();
-        if (now - mLastErrorCheckAtMs < ERROR_CHECK_INTERVAL_MS) {
-            return;
-        }
-        mLastErrorCheckAtMs = now;
-
-        mBotDropService.executeCommand(
-            "if [ -f ~/.openclaw/gateway.log ]; then tail -n 120 ~/.openclaw/gateway.log; fi",
-            result -> {
-                if (!result.success) {
-                    Logger.logWarn(LOG_TAG, "Failed to read gateway.log: " + result.stderr);
-                    return;
-                }
-                String errorLine = extractRecentGatewayError(result.stdout);
-                showGatewayError(errorLine);
-            }
-        );
-    }
-
-    private String extractRecentGatewayError(String logText) {
-        if (TextUtils.isEmpty(logText)) return null;
-
-        String[] lines = logText.split("\\r?\\n");
-        for (int i = lines.length - 1; i >= 0; i--) {
-            String raw = lines[i];
-            if (raw == null) continue;
-            String line = raw.trim();
-            if (line.isEmpty()) continue;
-
-            String lower = line.toLowerCase();
-            boolean looksLikeError =
-                lower.contains(" sendmessage failed") ||
-                lower.contains(" sendchataction failed") ||
-                lower.contains(" fetch failed") ||
-                lower.contains("error:") ||
-                lower.contains("exception") ||
-                lower.contains("unhandled rejection") ||
-                lower.contains("network request for");
-            if (looksLikeError) {
-                if (line.length() > 180) {
-                    line = line.substring(0, 180) + "...";
-                }
-                return line;
-            }
-        }
-        return null;
+        // The service classifies gateway.log lines as they are appended; just read the summary.
+        showGatewayError(mBotDropService.getGatewayErrorState().getRecentError());
     }
 
     private void showGatewayError(String message) {
@@ -0,0 +1,204 @@
+package app.botdrop;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming classifier for gateway log lines.
+ *
+ * Lines are fed once, as the log tailer reads them, and folded into a small rolling state: the
+ * last error line, and a count plus first/last seen time per {@link ErrorClass}. After each batch
+ * an immutable {@link State} is published, so the dashboard banner and the monitor notification
+ * read it in O(1) without touching the log.
+ *
+ * {@link #consume} and {@link #reset} must be called from one thread; {@link #getState()} may be
+ * called from any thread.
+ */
+class GatewayErrorClassifier {
+
+    /** An error stays "recent" until this many lines were logged after it (the old tail window). */
+    static final int RECENT_WINDOW_LINES = 120;
+    static final int MAX_ERROR_LINE_CHARS = 180;
+
+    /**
+     * Error kinds, in match priority order.
+     */
+    enum ErrorClass {
+        SEND_MESSAGE("sendMessage failed", " sendmessage failed"),
+        SEND_CHAT_ACTION("sendChatAction failed", " sendchataction failed"),
+        NETWORK("Network error", " fetch failed", "network request for"),
+        UNHANDLED_REJECTION("Unhandled rejection", "unhandled rejection"),
+        EXCEPTION("Exception", "exception"),
+        ERROR("Error", "error:");
+
+        final String label;
+        private final String[] mNeedles;
+
+        ErrorClass(String label, String... needles) {
+            this.label = label;
+            mNeedles = needles;
+        }
+    }
+
+    private static final ErrorClass[] CLASSES = ErrorClass.values();
+
+    /**
+     * Immutable view of the rolling state.
+     */
+    static class State {
+        static final State EMPTY = new State(null, null, 0L, Long.MAX_VALUE, 0L,
+            new int[CLASSES.length], new long[CLASSES.length], new long[CLASSES.length]);
+
+        /** Last error line, trimmed and shortened for display; null if none since the last reset. */
+        final String lastErrorLine;
+        final ErrorClass lastErrorClass;
+        final long lastErrorAtMs;
+        /** Lines logged after the last error. */
+        final long linesSinceLastError;
+        final long totalLines;
+        private final int[] mCounts;
+        private final long[] mFirstSeenMs;
+        private final long[] mLastSeenMs;
+
+        private State(String lastErrorLine, ErrorClass lastErrorClass, long lastErrorAtMs,
+                      long linesSinceLastError, long totalLines,
+                      int[] counts, long[] firstSeenMs, long[] lastSeenMs) {
+            this.lastErrorLine = lastErrorLine;
+            this.lastErrorClass = lastErrorClass;
+            this.lastErrorAtMs = lastErrorAtMs;
+            this.linesSinceLastError = linesSinceLastError;
+            this.totalLines = totalLines;
+            mCounts = counts;
+            mFirstSeenMs = firstSeenMs;
+            mLastSeenMs = lastSeenMs;
+        }
+
+        /**
+         * @return the last error line if it is still within {@link #RECENT_WINDOW_LINES}, else null
+         */
+        String getRecentError() {
+            return lastErrorLine != null && linesSinceLastError < RECENT_WINDOW_LINES ? lastErrorLine : null;
+        }
+
+        int getCount(ErrorClass errorClass) {
+            return mCounts[errorClass.ordinal()];
+        }
+
+        int getTotalErrorCount() {
+            int total = 0;
+            for (int count : mCounts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /** @return wall-clock time the class was first seen, or 0 if never */
+        long getFirstSeenMs(ErrorClass errorClass) {
+            return mFirstSeenMs[errorClass.ordinal()];
+        }
+
+        /** @return wall-clock time the class was last seen, or 0 if never */
+        long getLastSeenMs(ErrorClass errorClass) {
+            return mLastSeenMs[errorClass.ordinal()];
+        }
+    }
+
+    private final int[] mCounts = new int[CLASSES.length];
+    private final long[] mFirstSeenMs = new long[CLASSES.length];
+    private final long[] mLastSeenMs = new long[CLASSES.length];
+    private String mLastErrorLine;
+    private ErrorClass mLastErrorClass;
+    private long mLastErrorAtMs;
+    private long mLinesSinceLastError = Long.MAX_VALUE;
+    private long mTotalLines;
+
+    private volatile State mState = State.EMPTY;
+
+    /**
+     * Classify a single line. Returns null for lines that are not errors.
+     */
+    static ErrorClass classify(String line) {
+        if (line == null || line.isEmpty()) {
+            return null;
+        }
+        String lower = line.toLowerCase(Locale.ROOT);
+        for (ErrorClass errorClass : CLASSES) {
+            for (String needle : errorClass.mNeedles) {
+                if (lower.contains(needle)) {
+                    return errorClass;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fold a batch of newly read lines into the state and publish it.
+     *
+     * @param nowMs wall-clock time used for first/last seen
+     */
+    void consume(List<String> lines, long nowMs) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        for (int i = 0, n = lines.size(); i < n; i++) {
+            consumeLine(lines.get(i), nowMs);
+        }
+        publish();
+    }
+
+    /**
+     * Forget everything, e.g. after the log was truncated by a gateway restart.
+     */
+    void reset() {
+        for (int i = 0; i < CLASSES.length; i++) {
+            mCounts[i] = 0;
+            mFirstSeenMs[i] = 0L;
+            mLastSeenMs[i] = 0L;
+        }
+        mLastErrorLine = null;
+        mLastErrorClass = null;
+        mLastErrorAtMs = 0L;
+        mLinesSinceLastError = Long.MAX_VALUE;
+        mTotalLines = 0L;
+        mState = State.EMPTY;
+    }
+
+    State getState() {
+        return mState;
+    }
+
+    private void consumeLine(String raw, long nowMs) {
+        String line = raw == null ? "" : raw.trim();
+        if (line.isEmpty()) {
+            // The old tail scan skipped blank lines entirely.
+            return;
+        }
+        mTotalLines++;
+        ErrorClass errorClass = classify(line);
+        if (errorClass == null) {
+            if (mLinesSinceLastError != Long.MAX_VALUE) {
+                mLinesSinceLastError++;
+            }
+            return;
+        }
+
+        int index = errorClass.ordinal();
+        mCounts[index]++;
+        if (mFirstSeenMs[index] == 0L) {
+            mFirstSeenMs[index] = nowMs;
+        }
+        mLastSeenMs[index] = nowMs;
+        mLastErrorClass = errorClass;
+        mLastErrorAtMs = nowMs;
+        mLinesSinceLastError = 0;
+        mLastErrorLine = line.length() > MAX_ERROR_LINE_CHARS
+            ? line.substring(0, MAX_ERROR_LINE_CHARS) + "..."
+            : line;
+    }
+
+    private void publish() {
+        mState = new State(mLastErrorLine, mLastErrorClass, mLastErrorAtMs, mLinesSinceLastError, mTotalLines,
+            mCounts.clone(), mFirstSeenMs.clone(), mLastSeenMs.clone());
+    }
+}
@@ -0,0 +1,87 @@
+package app.botdrop;
+
+import android.os.Handler;
+
+import com.termux.shared.logger.Logger;
+
+/**
+ * Notices the gateway process exiting within about a second.
+ *
+ * The gateway is started from a detached shell and is not our child, so there is no process to
+ * wait on and Android's Java APIs do not expose pidfds. Instead a daemon thread watches the PID
+ * file's process through /proc, which costs one small read per tick.
+ */
+class GatewayExitWatcher {
+
+    private static final String LOG_TAG = "GatewayExitWatcher";
+    static final long POLL_INTERVAL_MS = 1000L;
+
+    interface Listener {
+        /** Called on the handler's thread. */
+        void onGatewayExited(int pid);
+    }
+
+    private final GatewayProbe mProbe;
+    private final Handler mHandler;
+    private final Listener mListener;
+    private final Object mLock = new Object();
+    private Thread mThread;
+    private int mWatchedPid = -1;
+
+    GatewayExitWatcher(GatewayProbe probe, Handler handler, Listener listener) {
+        mProbe = probe;
+        mHandler = handler;
+        mListener = listener;
+    }
+
+    void start() {
+        synchronized (mLock) {
+            if (mThread != null) {
+                return;
+            }
+            mThread = new Thread(this::runLoop, "GatewayExitWatcher");
+            mThread.setDaemon(true);
+            mThread.start();
+        }
+    }
+
+    void stop() {
+        synchronized (mLock) {
+            if (mThread != null) {
+                mThread.interrupt();
+                mThread = null;
+            }
+        }
+    }
+
+    /**
+     * One watch step. Reports the previously watched PID if it is gone, then starts watching
+     * whatever live process the PID file names now.
+     */
+    void checkOnce() {
+        int previous = mWatchedPid;
+        if (previous > 0 && !mProbe.isProcessAlive(previous)) {
+            mWatchedPid = -1;
+            mHandler.post(() -> mListener.onGatewayExited(previous));
+        }
+        int current = mProbe.readGatewayPid();
+        if (current > 0 && current != mWatchedPid && mProbe.isProcessAlive(current)) {
+            mWatchedPid = current;
+        }
+    }
+
+    private void runLoop() {
+        if (!mProbe.isProcReadable()) {
+            Logger.logWarn(LOG_TAG, "/proc is not readable, relying on status polling");
+            return;
+        }
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                checkOnce();
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
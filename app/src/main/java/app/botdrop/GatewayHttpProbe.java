@@ -0,0 +1,289 @@
+package app.botdrop;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * HTTP readiness probe for the gateway's local port.
+ *
+ * A live PID says nothing about a Node event loop that stopped responding, so this sends a tiny
+ * {@code HEAD /} over a kept-alive loopback socket and records how long the reply takes. Latency
+ * percentiles over the last {@link #WINDOW_SIZE} probes are published as an immutable
+ * {@link Stats} that any thread can read.
+ *
+ * {@link #probe()} must be called from a single thread.
+ */
+class GatewayHttpProbe {
+
+    private static final String LOG_TAG = "GatewayHttpProbe";
+
+    static final String DEFAULT_HOST = "127.0.0.1";
+    static final int DEFAULT_PORT = 18789;
+    static final int WINDOW_SIZE = 64;
+    private static final int CONNECT_TIMEOUT_MS = 1500;
+    private static final int READ_TIMEOUT_MS = 2000;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    /**
+     * Outcome of a single probe.
+     */
+    static class Result {
+        final boolean ok;
+        /** HTTP status code, or -1 on failure. */
+        final int statusCode;
+        final long latencyMs;
+        final String error;
+
+        Result(boolean ok, int statusCode, long latencyMs, String error) {
+            this.ok = ok;
+            this.statusCode = statusCode;
+            this.latencyMs = latencyMs;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Latency percentiles over the sliding window, plus the current failure streak.
+     */
+    static class Stats {
+        static final Stats EMPTY = new Stats(0, -1, -1, -1, 0, -1, null);
+
+        /** Successful probes in the window. */
+        final int samples;
+        final long p50Ms;
+        final long p95Ms;
+        final long maxMs;
+        final int consecutiveFailures;
+        /** Clock time of the first failure in the current streak, or -1 when not failing. */
+        final long failingSinceMs;
+        final Result last;
+
+        Stats(int samples, long p50Ms, long p95Ms, long maxMs,
+              int consecutiveFailures, long failingSinceMs, Result last) {
+            this.samples = samples;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.maxMs = maxMs;
+            this.consecutiveFailures = consecutiveFailures;
+            this.failingSinceMs = failingSinceMs;
+            this.last = last;
+        }
+
+        long failingForMs(long nowMs) {
+            return failingSinceMs < 0 ? 0 : nowMs - failingSinceMs;
+        }
+    }
+
+    interface Clock {
+        long nowMs();
+    }
+
+    private final String mHost;
+    private final int mPort;
+    private final Clock mClock;
+    private final byte[] mRequest;
+    private final long[] mWindow = new long[WINDOW_SIZE];
+    private int mWindowNext = 0;
+    private int mWindowCount = 0;
+    private int mConsecutiveFailures = 0;
+    private long mFailingSinceMs = -1;
+    private Socket mSocket;
+    private InputStream mIn;
+    private OutputStream mOut;
+    private long mConnectCount = 0;
+
+    private volatile Stats mStats = Stats.EMPTY;
+
+    GatewayHttpProbe() {
+        this(DEFAULT_HOST, DEFAULT_PORT, android.os.SystemClock::elapsedRealtime);
+    }
+
+    GatewayHttpProbe(String host, int port, Clock clock) {
+        mHost = host;
+        mPort = port;
+        mClock = clock;
+        mRequest = ("HEAD / HTTP/1.1\r\n" +
+            "Host: " + host + ":" + port + "\r\n" +
+            "User-Agent: BotDrop-Probe\r\n" +
+            "Connection: keep-alive\r\n" +
+            "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Probe once and fold the result into the window. Any HTTP response counts as ready.
+     */
+    Result probe() {
+        long start = System.nanoTime();
+        Result result;
+        try {
+            int status;
+            boolean reused = mSocket != null;
+            try {
+                status = exchange();
+            } catch (IOException e) {
+                closeConnection();
+                if (!reused || e instanceof SocketTimeoutException) {
+                    throw e;
+                }
+                // The server may have closed an idle keep-alive connection (Node's default is
+                // 5 s); that says nothing about its health, so retry once on a fresh socket.
+                start = System.nanoTime();
+                status = exchange();
+            }
+            result = new Result(true, status, (System.nanoTime() - start) / 1_000_000L, null);
+        } catch (IOException e) {
+            closeConnection();
+            result = new Result(false, -1, (System.nanoTime() - start) / 1_000_000L,
+                e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        record(result);
+        return result;
+    }
+
+    Stats getStats() {
+        return mStats;
+    }
+
+    long getConnectCount() {
+        return mConnectCount;
+    }
+
+    /**
+     * Forget history, e.g. after a deliberate restart.
+     */
+    void reset() {
+        mWindowNext = 0;
+        mWindowCount = 0;
+        mConsecutiveFailures = 0;
+        mFailingSinceMs = -1;
+        mStats = Stats.EMPTY;
+    }
+
+    void close() {
+        closeConnection();
+    }
+
+    private int exchange() throws IOException {
+        if (mSocket == null) {
+            Socket socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            socket.connect(new InetSocketAddress(mHost, mPort), CONNECT_TIMEOUT_MS);
+            mSocket = socket;
+            mIn = new BufferedInputStream(socket.getInputStream(), 1024);
+            mOut = socket.getOutputStream();
+            mConnectCount++;
+        }
+        mOut.write(mRequest);
+        mOut.flush();
+
+        String statusLine = readLine();
+        int status = parseStatusCode(statusLine);
+        boolean close = false;
+        int headerBytes = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IOException("Response headers too large");
+            }
+            String lower = line.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("connection:") && lower.contains("close")) {
+                close = true;
+            }
+        }
+        // A HEAD response never has a body, so the connection is ready for the next probe.
+        if (close || statusLine.startsWith("HTTP/1.0")) {
+            closeConnection();
+        }
+        return status;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        while (true) {
+            int b = mIn.read();
+            if (b < 0) {
+                throw new EOFException("Connection closed by gateway");
+            }
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_HEADER_BYTES) {
+                throw new IOException("Response line too long");
+            }
+            line.append((char) b);
+        }
+    }
+
+    static int parseStatusCode(String statusLine) throws IOException {
+        // "HTTP/1.1 200 OK"
+        if (statusLine == null || !statusLine.startsWith("HTTP/")) {
+            throw new IOException("Not an HTTP response: " + statusLine);
+        }
+        int space = statusLine.indexOf(' ');
+        if (space < 0 || space + 4 > statusLine.length()) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(statusLine.substring(space + 1, space + 4));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+    }
+
+    private void record(Result result) {
+        if (result.ok) {
+            mWindow[mWindowNext] = result.latencyMs;
+            mWindowNext = (mWindowNext + 1) % WINDOW_SIZE;
+            mWindowCount = Math.min(mWindowCount + 1, WINDOW_SIZE);
+            mConsecutiveFailures = 0;
+            mFailingSinceMs = -1;
+        } else {
+            if (mConsecutiveFailures == 0) {
+                mFailingSinceMs = mClock.nowMs();
+            }
+            mConsecutiveFailures++;
+            Logger.logDebug(LOG_TAG, "Gateway HTTP probe failed: " + result.error);
+        }
+
+        long p50 = -1;
+        long p95 = -1;
+        long max = -1;
+        if (mWindowCount > 0) {
+            long[] sorted = Arrays.copyOf(mWindow, mWindowCount);
+            Arrays.sort(sorted);
+            p50 = PercentileUtils.percentile(sorted, 50);
+            p95 = PercentileUtils.percentile(sorted, 95);
+            max = sorted[sorted.length - 1];
+        }
+        mStats = new Stats(mWindowCount, p50, p95, max, mConsecutiveFailures, mFailingSinceMs, result);
+    }
+
+    private void closeConnection() {
+        if (mSocket != null) {
+            try {
+                mSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        mSocket = null;
+        mIn = null;
+        mOut = null;
+    }
+}
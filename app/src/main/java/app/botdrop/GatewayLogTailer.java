@@ -0,0 +1,217 @@
+package app.botdrop;
+
+import android.system.Os;
+import android.system.StructStat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental follower for a log file such as gateway.log.
+ *
+ * Remembers the byte offset, inode and a fingerprint of the file head, and on each {@link #poll()}
+ * reads only the bytes appended since the previous call through a {@link FileChannel}. Truncation
+ * (e.g. {@code echo '' > gateway.log} in the start script) and replacement are detected and
+ * reported as a reset, after which the tail of the new file is read again.
+ *
+ * Not thread-safe; use from a single background thread.
+ */
+class GatewayLogTailer {
+
+    /** Bytes read from the end of the file when (re)starting, to find the last lines. */
+    static final int INITIAL_WINDOW_BYTES = 128 * 1024;
+    /** Upper bound for a single line without a newline before it is emitted as-is. */
+    static final int MAX_PENDING_LINE_BYTES = 64 * 1024;
+    private static final int READ_CHUNK_BYTES = 16 * 1024;
+    private static final int HEAD_FINGERPRINT_BYTES = 64;
+
+    /**
+     * Lines read by one poll.
+     */
+    static class Delta {
+        /** True when previously returned lines no longer belong to the file and must be dropped. */
+        final boolean reset;
+        /** False when the file does not exist (or cannot be read). */
+        final boolean exists;
+        final List<String> lines;
+
+        Delta(boolean reset, boolean exists, List<String> lines) {
+            this.reset = reset;
+            this.exists = exists;
+            this.lines = lines;
+        }
+
+        boolean isEmpty() {
+            return !reset && lines.isEmpty();
+        }
+    }
+
+    private final File mFile;
+    private final int mInitialTailLines;
+
+    private boolean mStarted = false;
+    private boolean mExisted = false;
+    private long mOffset = 0;
+    private long mInode = -1;
+    private byte[] mHeadFingerprint = new byte[0];
+    private final ByteArrayOutputStream mPendingLine = new ByteArrayOutputStream();
+    private final ByteBuffer mReadBuffer = ByteBuffer.allocate(READ_CHUNK_BYTES);
+
+    GatewayLogTailer(File file, int initialTailLines) {
+        mFile = file;
+        mInitialTailLines = Math.max(1, initialTailLines);
+    }
+
+    long getOffset() {
+        return mOffset;
+    }
+
+    /**
+     * Read whatever was appended since the previous poll. The first poll (and the first poll
+     * after a reset) returns at most {@code initialTailLines} lines from the end of the file.
+     */
+    Delta poll() throws IOException {
+        if (!mFile.isFile()) {
+            boolean reset = !mStarted || mExisted;
+            mStarted = true;
+            mExisted = false;
+            clearPosition();
+            return new Delta(reset, false, new ArrayList<>());
+        }
+
+        try (FileInputStream in = new FileInputStream(mFile)) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            long inode = readInode();
+
+            if (!mStarted || !mExisted || isReplacedOrTruncated(channel, size, inode)) {
+                mStarted = true;
+                mExisted = true;
+                clearPosition();
+                mInode = inode;
+                return new Delta(true, true, readTail(channel, size));
+            }
+
+            if (size == mOffset) {
+                return new Delta(false, true, new ArrayList<>());
+            }
+            List<String> lines = new ArrayList<>();
+            readRange(channel, mOffset, size, lines);
+            mOffset = size;
+            refreshHeadFingerprint(channel, size);
+            return new Delta(false, true, lines);
+        }
+    }
+
+    private boolean isReplacedOrTruncated(FileChannel channel, long size, long inode) throws IOException {
+        if (inode != -1 && mInode != -1 && inode != mInode) {
+            return true;
+        }
+        if (size < mOffset) {
+            return true;
+        }
+        // Truncate-then-rewrite past the old offset keeps inode and size plausible; the head of
+        // the file still changes, so compare it with what we saw before.
+        if (mHeadFingerprint.length > 0) {
+            byte[] head = readHead(channel, Math.min(size, mHeadFingerprint.length));
+            return !Arrays.equals(head, mHeadFingerprint);
+        }
+        return false;
+    }
+
+    private List<String> readTail(FileChannel channel, long size) throws IOException {
+        mPendingLine.reset();
+        long start = Math.max(0, size - INITIAL_WINDOW_BYTES);
+        List<String> lines = new ArrayList<>();
+        readRange(channel, start, size, lines);
+        if (start > 0 && !lines.isEmpty()) {
+            // The window most likely began mid-line.
+            lines.remove(0);
+        }
+        mOffset = size;
+        refreshHeadFingerprint(channel, size);
+        if (lines.size() > mInitialTailLines) {
+            return new ArrayList<>(lines.subList(lines.size() - mInitialTailLines, lines.size()));
+        }
+        return lines;
+    }
+
+    private void readRange(FileChannel channel, long from, long to, List<String> out) throws IOException {
+        long position = from;
+        while (position < to) {
+            mReadBuffer.clear();
+            int limit = (int) Math.min(mReadBuffer.capacity(), to - position);
+            mReadBuffer.limit(limit);
+            int read = channel.read(mReadBuffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            byte[] data = mReadBuffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (data[i] == '\n') {
+                    mPendingLine.write(data, lineStart, i - lineStart);
+                    out.add(takePendingLine());
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < read) {
+                mPendingLine.write(data, lineStart, read - lineStart);
+                if (mPendingLine.size() > MAX_PENDING_LINE_BYTES) {
+                    out.add(takePendingLine());
+                }
+            }
+        }
+    }
+
+    private String takePendingLine() {
+        byte[] bytes = mPendingLine.toByteArray();
+        mPendingLine.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void refreshHeadFingerprint(FileChannel channel, long size) throws IOException {
+        if (mHeadFingerprint.length < HEAD_FINGERPRINT_BYTES) {
+            mHeadFingerprint = readHead(channel, Math.min(size, HEAD_FINGERPRINT_BYTES));
+        }
+    }
+
+    private static byte[] readHead(FileChannel channel, long length) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate((int) length);
+        while (head.hasRemaining()) {
+            if (channel.read(head, head.position()) <= 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(head.array(), head.position());
+    }
+
+    private long readInode() {
+        try {
+            StructStat stat = Os.stat(mFile.getAbsolutePath());
+            return stat.st_ino;
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+
+    private void clearPosition() {
+        mOffset = 0;
+        mInode = -1;
+        mHeadFingerprint = new byte[0];
+        mPendingLine.reset();
+    }
+}
@@ -17,6 +17,7 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import androidx.annotation.Nullable;
@@ -25,15 +26,18 @@ import androidx.core.app.NotificationCompat;
 import com.termux.R;
 import com.termux.shared.logger.Logger;
 
+import java.util.Random;
+
 /**
  * Foreground service that monitors and keeps the OpenClaw gateway alive.
  *
  * Features:
  * - Runs as a foreground service with persistent notification
  * - Starts gateway if not running
- * - Monitors gateway process and restarts if it dies
+ * - Notices the gateway process exiting within about a second and restarts it with
+ *   jittered exponential backoff (never giving up)
  * - Handles Android Doze mode with partial wake lock
- * - Shows gateway status in notification
+ * - Shows gateway status and a rolling health score in notification
  */
 public class GatewayMonitorService extends Service {
 
@@ -41,8 +45,10 @@ public class GatewayMonitorService extends Service {
     private static final int NOTIFICATION_ID = 1001;
     private static final int APP_UPDATE_NOTIFICATION_ID = 1002;
     private static final int MONITOR_INTERVAL_MS = 30000; // 30 seconds
-    private static final int RESTART_DELAY_MS = 5000; // 5 seconds
-    private static final int MAX_RESTART_ATTEMPTS = 5;
+    // The gateway counts as wedged once its HTTP port has not answered for this long, across at
+    // least WEDGED_MIN_PROBE_FAILURES probes. Generous enough to cover a slow cold start.
+    private static final long WEDGED_AFTER_MS = 2 * 60 * 1000L;
+    private static final int WEDGED_MIN_PROBE_FAILURES = 3;
     private static final long WAKELOCK_TIMEOUT_MS = 15 * 60 * 1000; // 15 minutes
     private static final long WAKELOCK_REACQUIRE_INTERVAL_MS = 10 * 60 * 1000; // 10 minutes
     private static final long APP_UPDATE_CHECK_INTERVAL_MS = 6 * 60 * 60 * 1000L; // 6 hours
@@ -61,9 +67,17 @@ public class GatewayMonitorService extends Service {
     private boolean mBotDropServiceBound = false;
     private boolean mIsMonitoring = false;
     private String mCurrentStatus = "Starting...";
-    private int mRestartAttempts = 0;
     private boolean mRestartInFlight = false;
+    private boolean mRestartScheduled = false;
+    private final GatewaySupervisor mSupervisor = new GatewaySupervisor(new Random(), SystemClock.elapsedRealtime());
+    private final Runnable mRestartRunnable = () -> {
+        mRestartScheduled = false;
+        restartGateway();
+    };
+    private GatewayExitWatcher mExitWatcher;
     private boolean mRebindScheduled = false;
+    private boolean mStatusSubscribed = false;
+    private final GatewayStatusBus.Listener mGatewayStatusListener = this::onGatewayStatus;
 
     /**
      * Service connection for binding to BotDropService
@@ -80,12 +94,14 @@ public class GatewayMonitorService extends Service {
             if (!mIsMonitoring) {
                 startMonitoring();
             }
+            subscribeToGatewayStatus();
         }
 
         @Override
         public void onServiceDisconnected(ComponentName name) {
             mBotDropService = null;
             mBotDropServiceBound = false;
+            mStatusSubscribed = false;
             Logger.logInfo(LOG_TAG, "Disconnected from BotDropService");
 
             // In the background the bound service may be reclaimed. Keep trying to rebind
@@ -182,6 +198,7 @@ public class GatewayMonitorService extends Service {
         mHandler.removeCallbacksAndMessages(null);
 
         // Unbind from BotDropService
+        unsubscribeFromGatewayStatus();
         if (mBotDropServiceBound) {
             try {
                 unbindService(mBotDropServiceConnection);
@@ -226,8 +243,9 @@ public class GatewayMonitorService extends Service {
                     // Re-acquire WakeLock periodically to prevent timeout
                     reacquireWakeLockIfNeeded();
 
-                    // Check gateway status
-                    checkAndRestartGateway();
+                    // Gateway status arrives through the shared status stream; only make sure
+                    // we are still bound to it here.
+                    ensureBotDropServiceBound();
                     maybeCheckForAppUpdate();
 
                     if (mIsMonitoring) {
@@ -238,6 +256,12 @@ public class GatewayMonitorService extends Service {
 
         // Start immediately, then repeat at intervals
         mHandler.post(mMonitorRunnable);
+
+        if (mExitWatcher == null) {
+            mExitWatcher = new GatewayExitWatcher(
+                new GatewayProbe(BotDropService.GATEWAY_PID_FILE), mHandler, this::onGatewayExited);
+        }
+        mExitWatcher.start();
     }
 
     /**
@@ -248,6 +272,11 @@ public class GatewayMonitorService extends Service {
         if (mMonitorRunnable != null) {
             mHandler.removeCallbacks(mMonitorRunnable);
         }
+        mHandler.removeCallbacks(mRestartRunnable);
+        mRestartScheduled = false;
+        if (mExitWatcher != null) {
+            mExitWatcher.stop();
+        }
     }
 
     private void maybeCheckForAppUpdate() {
@@ -333,14 +362,48 @@ public class GatewayMonitorService extends Service {
         manager.createNotificationChannel(updateChannel);
     }
 
-    /**
-     * Check if gateway is running and restart if needed
-     */
-    private void checkAndRestartGateway() {
-        // Only proceed if service is bound
+    private void ensureBotDropServiceBound() {
         if (!mBotDropServiceBound || mBotDropService == null) {
             Logger.logDebug(LOG_TAG, "BotDropService not bound yet, scheduling rebind");
             scheduleRebind();
+        }
+    }
+
+    /**
+     * Subscribe to BotDropService's shared gateway status stream. The stream polls at the
+     * background interval unless a visible screen is also subscribed.
+     */
+    private void subscribeToGatewayStatus() {
+        if (mStatusSubscribed || !mBotDropServiceBound || mBotDropService == null) {
+            return;
+        }
+        mStatusSubscribed = true;
+        mBotDropService.addGatewayStatusListener(mGatewayStatusListener, false);
+    }
+
+    private void unsubscribeFromGatewayStatus() {
+        if (mStatusSubscribed && mBotDropService != null) {
+            mBotDropService.removeGatewayStatusListener(mGatewayStatusListener);
+        }
+        mStatusSubscribed = false;
+    }
+
+    /**
+     * The watched gateway process is gone. Confirm through the status stream, which triggers the
+     * restart path, instead of waiting for the next poll.
+     */
+    private void onGatewayExited(int pid) {
+        Logger.logInfo(LOG_TAG, "Gateway process " + pid + " exited");
+        if (mBotDropServiceBound && mBotDropService != null) {
+            mBotDropService.requestGatewayStatusRefresh();
+        }
+    }
+
+    /**
+     * React to a published gateway status and restart the gateway if needed
+     */
+    private void onGatewayStatus(GatewayStatusBus.Snapshot snapshot) {
+        if (!mBotDropServiceBound || mBotDropService == null) {
             return;
         }
 
@@ -351,34 +414,92 @@ public class GatewayMonitorService extends Service {
             return;
         }
 
+        // Stopped from the dashboard: leave it down until it is started again.
+        if (mBotDropService.isGatewayStopRequested()) {
+            mHandler.removeCallbacks(mRestartRunnable);
+            mRestartScheduled = false;
+            updateStatus(snapshot.running ? "Stopping..." : "Stopped");
+            return;
+        }
+
         // Avoid restart storms while a (re)start is already running.
-        if (mRestartInFlight) {
+        if (mRestartInFlight || mBotDropService.isGatewayRestartInProgress()) {
             Logger.logDebug(LOG_TAG, "Restart already in-flight, skipping check");
             return;
         }
 
         try {
-            mBotDropService.isGatewayRunning(result -> {
-                try {
-                    boolean isRunning = result.success && result.stdout.trim().equals("running");
-
-                    if (isRunning) {
-                        // Gateway is running - reset restart counter and update status
-                        mRestartAttempts = 0;
-                        updateStatus("Running");
-                    } else {
-                        // Gateway is not running - restart it
-                        Logger.logInfo(LOG_TAG, "Gateway is not running, attempting restart");
-                        updateStatus("Restarting...");
-                        restartGateway();
-                    }
-                } catch (Exception e) {
-                    Logger.logError(LOG_TAG, "Error in gateway check callback: " + e.getMessage());
+            long now = SystemClock.elapsedRealtime();
+            if (snapshot.running && isGatewayWedged(now)) {
+                // Process alive but the event loop is not answering: treat as a crash.
+                if (mSupervisor.onDown(now)) {
+                    Logger.logWarn(LOG_TAG, "Gateway is not answering HTTP, scheduling restart");
+                    logCommandLaneStats();
                 }
-            });
+                scheduleRestart();
+            } else if (snapshot.running) {
+                mSupervisor.onHealthy(now);
+                mHandler.removeCallbacks(mRestartRunnable);
+                mRestartScheduled = false;
+                updateStatus(describeRunningStatus());
+            } else {
+                if (mSupervisor.onDown(now)) {
+                    Logger.logInfo(LOG_TAG, "Gateway is not running, scheduling restart");
+                    logCommandLaneStats();
+                }
+                scheduleRestart();
+            }
         } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Error checking gateway status: " + e.getMessage());
+            Logger.logError(LOG_TAG, "Error in gateway status callback: " + e.getMessage());
+        }
+    }
+
+    private boolean isGatewayWedged(long nowMs) {
+        GatewayHttpProbe.Stats readiness = mBotDropService.getGatewayReadinessStats();
+        return readiness.consecutiveFailures >= WEDGED_MIN_PROBE_FAILURES
+            && readiness.failingForMs(nowMs) >= WEDGED_AFTER_MS;
+    }
+
+    /**
+     * "Running", plus the most recent gateway error class and its count if there is one
+     */
+    private String describeRunningStatus() {
+        GatewayErrorClassifier.State errors = mBotDropService.getGatewayErrorState();
+        if (errors.getRecentError() == null || errors.lastErrorClass == null) {
+            return "Running";
+        }
+        return "Running, " + errors.lastErrorClass.label + " (" + errors.getCount(errors.lastErrorClass) + "x)";
+    }
+
+    /**
+     * Record lane backlog next to an outage, so a probe starved by long commands is easy to tell
+     * apart from a real crash.
+     */
+    private void logCommandLaneStats() {
+        if (mBotDropService == null) {
+            return;
+        }
+        for (CommandLane.Stats stats : mBotDropService.getCommandLaneStats()) {
+            Logger.logInfo(LOG_TAG, "Command lane " + stats.describe());
+        }
+    }
+
+    /**
+     * Schedule the next restart attempt after the supervisor's backoff delay
+     */
+    private void scheduleRestart() {
+        if (mRestartScheduled || mRestartInFlight) {
+            return;
         }
+        long delayMs = mSupervisor.nextRestartDelayMs();
+        mRestartScheduled = true;
+        mHandler.postDelayed(mRestartRunnable, delayMs);
+        Logger.logInfo(LOG_TAG, "Restart in " + delayMs + " ms (consecutive failures: "
+            + mSupervisor.getConsecutiveFailures() + ")");
+        updateStatus(mSupervisor.getConsecutiveFailures() > 1
+            ? "Restarting in " + GatewaySupervisor.formatDuration(delayMs)
+                + " (failure " + mSupervisor.getConsecutiveFailures() + ")"
+            : "Restarting...");
     }
 
     /**
@@ -396,16 +517,14 @@ public class GatewayMonitorService extends Service {
             return;
         }
 
-        // Check if we've exceeded max restart attempts
-        if (mRestartAttempts >= MAX_RESTART_ATTEMPTS) {
-            Logger.logError(LOG_TAG, "Max restart attempts (" + MAX_RESTART_ATTEMPTS + ") reached");
-            updateStatus("Failed - manual restart required");
+        if (mBotDropService.isGatewayStopRequested()) {
+            Logger.logInfo(LOG_TAG, "Gateway was stopped on purpose, not restarting");
             return;
         }
 
-        mRestartAttempts++;
         mRestartInFlight = true;
-        Logger.logInfo(LOG_TAG, "Restart attempt " + mRestartAttempts + "/" + MAX_RESTART_ATTEMPTS);
+        mSupervisor.onRestartRequested(SystemClock.elapsedRealtime());
+        Logger.logInfo(LOG_TAG, "Restart attempt after " + mSupervisor.getConsecutiveFailures() + " consecutive failure(s)");
 
         try {
             mBotDropService.startGateway(result -> {
@@ -413,16 +532,12 @@ public class GatewayMonitorService extends Service {
                     mRestartInFlight = false;
                     if (result.success) {
                         Logger.logInfo(LOG_TAG, "Gateway started successfully");
-                        mRestartAttempts = 0; // Reset on success
-                        mHandler.postDelayed(() -> updateStatus("Running"), RESTART_DELAY_MS);
+                        // The outage ends, and time to healthy is recorded, when the status
+                        // stream confirms it is running.
                     } else {
                         Logger.logError(LOG_TAG, "Failed to start gateway: " + result.stderr);
-                        updateStatus("Failed (attempt " + mRestartAttempts + "/" + MAX_RESTART_ATTEMPTS + ")");
-                        
-                        // Try again after delay if we haven't hit the limit
-                        if (mRestartAttempts < MAX_RESTART_ATTEMPTS) {
-                            mHandler.postDelayed(this::restartGateway, RESTART_DELAY_MS);
-                        }
+                        mSupervisor.onRestartFailed(SystemClock.elapsedRealtime());
+                        scheduleRestart();
                     }
                 } catch (Exception e) {
                     mRestartInFlight = false;
@@ -432,6 +547,8 @@ public class GatewayMonitorService extends Service {
         } catch (Exception e) {
             mRestartInFlight = false;
             Logger.logError(LOG_TAG, "Error executing gateway start: " + e.getMessage());
+            mSupervisor.onRestartFailed(SystemClock.elapsedRealtime());
+            scheduleRestart();
         }
     }
 
@@ -440,7 +557,9 @@ public class GatewayMonitorService extends Service {
      */
     private void updateStatus(String status) {
         mCurrentStatus = status;
-        Notification notification = buildNotification("Gateway: " + status);
+        GatewaySupervisor.Health health = mSupervisor.getHealth(SystemClock.elapsedRealtime());
+        Notification notification = buildNotification(
+            "Gateway: " + status + " · Health " + health.score + "/100", health.describe());
         
         NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         if (manager != null) {
@@ -452,6 +571,13 @@ public class GatewayMonitorService extends Service {
      * Build notification for foreground service
      */
     private Notification buildNotification(String contentText) {
+        return buildNotification(contentText, null);
+    }
+
+    /**
+     * @param detailText optional second line shown when the notification is expanded
+     */
+    private Notification buildNotification(String contentText, @Nullable String detailText) {
         // Intent to open DashboardActivity when notification is tapped
         Intent notificationIntent = new Intent(this, DashboardActivity.class);
         notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -475,6 +601,9 @@ public class GatewayMonitorService extends Service {
             .setOngoing(true) // Cannot be dismissed
             .setPriority(NotificationCompat.PRIORITY_LOW)
             .setShowWhen(false);
+        if (!TextUtils.isEmpty(detailText)) {
+            builder.setStyle(new NotificationCompat.BigTextStyle().bigText(contentText + "\n" + detailText));
+        }
 
         // For Android 14+, specify foreground service type
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
@@ -0,0 +1,242 @@
+package app.botdrop;
+
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * In-process gateway liveness probe.
+ *
+ * Mirrors the shell checks BotDropService used to run ({@code cat gateway.pid}, {@code kill -0},
+ * {@code pgrep -f "openclaw.*gateway"} and {@code ps -o etime=}) by reading the PID file and
+ * {@code /proc} directly, so status polling does not spawn any process.
+ */
+class GatewayProbe {
+
+    private static final String LOG_TAG = "GatewayProbe";
+    private static final Pattern GATEWAY_CMDLINE_PATTERN = Pattern.compile("openclaw.*gateway");
+    private static final long DEFAULT_CLOCK_TICKS_PER_SECOND = 100L;
+    // Index of starttime in /proc/<pid>/stat, counted from the state field (field 3).
+    private static final int STAT_STARTTIME_INDEX = 22 - 3;
+
+    /**
+     * Snapshot of the gateway process state.
+     */
+    static class Status {
+        final boolean running;
+        /** PID from the PID file when that process is alive, otherwise -1. */
+        final int pid;
+        /** Seconds since the PID file process started, or -1 when unknown. */
+        final long uptimeSeconds;
+
+        Status(boolean running, int pid, long uptimeSeconds) {
+            this.running = running;
+            this.pid = pid;
+            this.uptimeSeconds = uptimeSeconds;
+        }
+    }
+
+    private final File mProcRoot;
+    private final File mPidFile;
+    private final long mClockTicksPerSecond;
+
+    GatewayProbe(String pidFilePath) {
+        this(new File("/proc"), new File(pidFilePath), getClockTicksPerSecond());
+    }
+
+    GatewayProbe(File procRoot, File pidFile, long clockTicksPerSecond) {
+        mProcRoot = procRoot;
+        mPidFile = pidFile;
+        mClockTicksPerSecond = clockTicksPerSecond > 0 ? clockTicksPerSecond : DEFAULT_CLOCK_TICKS_PER_SECOND;
+    }
+
+    /**
+     * Whether /proc can be used at all. When false, callers should fall back to the shell checks.
+     */
+    boolean isProcReadable() {
+        return new File(mProcRoot, "self/stat").canRead() || new File(mProcRoot, "uptime").canRead();
+    }
+
+    /**
+     * Probe the gateway. Returns null if /proc is unreadable.
+     */
+    Status probe() {
+        if (!isProcReadable()) {
+            return null;
+        }
+
+        int pid = readPidFile();
+        if (pid > 0) {
+            String[] stat = readStatFields(pid);
+            if (stat != null && !isZombie(stat)) {
+                return new Status(true, pid, computeUptimeSeconds(stat));
+            }
+        }
+
+        return new Status(findGatewayProcess() > 0, -1, -1);
+    }
+
+    /**
+     * PID recorded in the PID file, or -1 when there is none.
+     */
+    int readGatewayPid() {
+        return readPidFile();
+    }
+
+    /**
+     * Whether {@code pid} exists and is not a zombie. Costs a single small /proc read.
+     */
+    boolean isProcessAlive(int pid) {
+        if (pid <= 0) {
+            return false;
+        }
+        String[] stat = readStatFields(pid);
+        return stat != null && !isZombie(stat);
+    }
+
+    /**
+     * Format seconds the way {@code ps -o etime=} does: {@code [[dd-]hh:]mm:ss}.
+     */
+    static String formatElapsed(long seconds) {
+        if (seconds < 0) {
+            return "—";
+        }
+        long days = seconds / 86400;
+        long hours = (seconds / 3600) % 24;
+        long minutes = (seconds / 60) % 60;
+        long secs = seconds % 60;
+        if (days > 0) {
+            return String.format(Locale.ROOT, "%d-%02d:%02d:%02d", days, hours, minutes, secs);
+        }
+        if (hours > 0) {
+            return String.format(Locale.ROOT, "%02d:%02d:%02d", hours, minutes, secs);
+        }
+        return String.format(Locale.ROOT, "%02d:%02d", minutes, secs);
+    }
+
+    private int readPidFile() {
+        if (!mPidFile.isFile()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(readSmallFile(mPidFile).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Equivalent of {@code pgrep -f "openclaw.*gateway"}: scan live processes' command lines.
+     */
+    private int findGatewayProcess() {
+        File[] entries = mProcRoot.listFiles();
+        if (entries == null) {
+            return -1;
+        }
+        for (File entry : entries) {
+            int pid = parsePid(entry.getName());
+            if (pid <= 0) {
+                continue;
+            }
+            String cmdline = readCmdline(entry);
+            if (cmdline == null || !GATEWAY_CMDLINE_PATTERN.matcher(cmdline).find()) {
+                continue;
+            }
+            String[] stat = readStatFields(pid);
+            if (stat != null && !isZombie(stat)) {
+                return pid;
+            }
+        }
+        return -1;
+    }
+
+    private String readCmdline(File procEntry) {
+        try {
+            // Arguments are NUL separated; pgrep -f matches them joined with spaces.
+            return readSmallFile(new File(procEntry, "cmdline")).replace('\0', ' ').trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read /proc/<pid>/stat and return the fields after the parenthesised command name, starting
+     * with the state field.
+     */
+    private String[] readStatFields(int pid) {
+        try {
+            String stat = readSmallFile(new File(mProcRoot, pid + "/stat"));
+            int commEnd = stat.lastIndexOf(')');
+            if (commEnd < 0 || commEnd + 2 > stat.length()) {
+                return null;
+            }
+            return stat.substring(commEnd + 2).trim().split(" ");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isZombie(String[] statFields) {
+        return statFields.length == 0 || "Z".equals(statFields[0]) || "X".equals(statFields[0]);
+    }
+
+    private long computeUptimeSeconds(String[] statFields) {
+        if (statFields.length <= STAT_STARTTIME_INDEX) {
+            return -1;
+        }
+        try {
+            long startTicks = Long.parseLong(statFields[STAT_STARTTIME_INDEX]);
+            String uptime = readSmallFile(new File(mProcRoot, "uptime")).trim();
+            int space = uptime.indexOf(' ');
+            double secondsSinceBoot = Double.parseDouble(space > 0 ? uptime.substring(0, space) : uptime);
+            long elapsed = (long) secondsSinceBoot - startTicks / mClockTicksPerSecond;
+            return Math.max(0, elapsed);
+        } catch (IOException | NumberFormatException e) {
+            Logger.logDebug(LOG_TAG, "Failed to compute gateway uptime: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static long getClockTicksPerSecond() {
+        try {
+            long ticks = Os.sysconf(OsConstants._SC_CLK_TCK);
+            return ticks > 0 ? ticks : DEFAULT_CLOCK_TICKS_PER_SECOND;
+        } catch (Throwable e) {
+            return DEFAULT_CLOCK_TICKS_PER_SECOND;
+        }
+    }
+
+    private static int parsePid(String name) {
+        if (name.isEmpty() || name.length() > 10) {
+            return -1;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(name);
+    }
+
+    private static String readSmallFile(File file) throws IOException {
+        // /proc files report a size of 0, so read until EOF instead of trusting length().
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[512];
+            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package app.botdrop;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Whether the gateway is down on purpose, as far as {@link GatewayMonitorService} is concerned.
+ *
+ * Requests are recorded when they are made rather than when they run on the mutation lane, so the
+ * most recent start or stop wins even while earlier ones are still queued. Thread-safe.
+ */
+class GatewayRunState {
+
+    private volatile boolean mStopRequested = false;
+    private final AtomicInteger mRestartsInProgress = new AtomicInteger();
+
+    /**
+     * The user stopped the gateway; it stays down until something starts it again.
+     */
+    void onStopRequested() {
+        mStopRequested = true;
+    }
+
+    /**
+     * A start was requested: by the user, the supervisor, a restart or an OpenClaw update.
+     */
+    void onStartRequested() {
+        mStopRequested = false;
+    }
+
+    void onRestartBegun() {
+        mRestartsInProgress.incrementAndGet();
+    }
+
+    void onRestartEnded() {
+        mRestartsInProgress.decrementAndGet();
+    }
+
+    boolean isStopRequested() {
+        return mStopRequested;
+    }
+
+    boolean isRestartInProgress() {
+        return mRestartsInProgress.get() > 0;
+    }
+}
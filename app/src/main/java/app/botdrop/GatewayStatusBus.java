@@ -0,0 +1,241 @@
+package app.botdrop;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.termux.shared.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Single source of gateway status shared by the dashboard and the monitor service.
+ *
+ * Subscribers receive every published snapshot. Refresh requests that arrive while a probe is
+ * running are coalesced into at most one follow-up probe, and the poll interval adapts to whether
+ * any visible UI is subscribed and to how recently the gateway changed state.
+ *
+ * All methods must be called on the handler's thread; probes run on the supplied executor.
+ */
+class GatewayStatusBus {
+
+    private static final String LOG_TAG = "GatewayStatusBus";
+
+    static final long VISIBLE_INTERVAL_MS = 5000L;
+    static final long BACKGROUND_INTERVAL_MS = 30000L;
+    /** Poll interval used shortly after the running state flipped, to settle quickly. */
+    static final long STATE_CHANGE_INTERVAL_MS = 2000L;
+    static final long STATE_CHANGE_WINDOW_MS = 20000L;
+
+    /**
+     * Immutable gateway status snapshot.
+     */
+    static class Snapshot {
+        final boolean running;
+        /** ps-style uptime, or "—" when unknown or not running. */
+        final String uptime;
+        /** {@link SystemClock#elapsedRealtime()} at which the probe completed. */
+        final long checkedAtMs;
+        /** HTTP readiness probe result, or null when the gateway is not running or it was skipped. */
+        final GatewayHttpProbe.Result readiness;
+
+        Snapshot(boolean running, String uptime, long checkedAtMs) {
+            this(running, uptime, checkedAtMs, null);
+        }
+
+        Snapshot(boolean running, String uptime, long checkedAtMs, GatewayHttpProbe.Result readiness) {
+            this.running = running;
+            this.uptime = uptime == null || uptime.isEmpty() ? "—" : uptime;
+            this.checkedAtMs = checkedAtMs;
+            this.readiness = readiness;
+        }
+    }
+
+    interface Listener {
+        void onGatewayStatus(Snapshot snapshot);
+    }
+
+    interface Prober {
+        /**
+         * Probe the gateway synchronously. Called on the executor thread.
+         *
+         * @param includeUptime whether a visible UI needs the uptime string
+         */
+        Snapshot probe(boolean includeUptime);
+    }
+
+    private final Handler mHandler;
+    private final Executor mExecutor;
+    private final Prober mProber;
+    // Listener -> whether it belongs to visible UI
+    private final Map<Listener, Boolean> mListeners = new LinkedHashMap<>();
+    private final Runnable mPollRunnable = this::requestRefresh;
+
+    private Snapshot mLastSnapshot;
+    private long mLastStateChangeAtMs = -STATE_CHANGE_WINDOW_MS;
+    private boolean mProbeInFlight = false;
+    private boolean mRefreshPending = false;
+    private long mProbeCount = 0;
+    private long mCoalescedCount = 0;
+
+    GatewayStatusBus(Handler handler, Executor executor, Prober prober) {
+        mHandler = handler;
+        mExecutor = executor;
+        mProber = prober;
+    }
+
+    /**
+     * Subscribe to status updates. The last known snapshot, if any, is delivered immediately.
+     *
+     * @param visibleUi true for foreground UI that wants fast refreshes and uptime
+     */
+    void addListener(Listener listener, boolean visibleUi) {
+        if (listener == null) {
+            return;
+        }
+        mListeners.put(listener, visibleUi);
+        if (mLastSnapshot != null) {
+            listener.onGatewayStatus(mLastSnapshot);
+        }
+        if (mProbeInFlight) {
+            // The running probe's result will be delivered to this listener as well.
+            return;
+        }
+        if (mLastSnapshot == null
+            || SystemClock.elapsedRealtime() - mLastSnapshot.checkedAtMs >= currentIntervalMs()) {
+            requestRefresh();
+        } else {
+            scheduleNextPoll();
+        }
+    }
+
+    void removeListener(Listener listener) {
+        mListeners.remove(listener);
+        if (mListeners.isEmpty()) {
+            mHandler.removeCallbacks(mPollRunnable);
+        } else {
+            scheduleNextPoll();
+        }
+    }
+
+    /**
+     * Ask for a fresh probe. Coalesced with a running probe if there is one.
+     */
+    void requestRefresh() {
+        mHandler.removeCallbacks(mPollRunnable);
+        if (mProbeInFlight) {
+            if (mRefreshPending) {
+                mCoalescedCount++;
+            }
+            mRefreshPending = true;
+            return;
+        }
+        if (mListeners.isEmpty()) {
+            return;
+        }
+
+        mProbeInFlight = true;
+        mProbeCount++;
+        final boolean includeUptime = hasVisibleListener();
+        try {
+            mExecutor.execute(() -> {
+                Snapshot snapshot;
+                try {
+                    snapshot = mProber.probe(includeUptime);
+                } catch (Throwable e) {
+                    Logger.logWarn(LOG_TAG, "Gateway probe failed: " + e.getMessage());
+                    snapshot = null;
+                }
+                final Snapshot result = snapshot;
+                mHandler.post(() -> onProbeComplete(result));
+            });
+        } catch (RejectedExecutionException e) {
+            mProbeInFlight = false;
+            Logger.logWarn(LOG_TAG, "Gateway probe rejected: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Note that the gateway was just started/stopped so polling tightens even before the next
+     * probe observes the change.
+     */
+    void markStateChanging() {
+        mLastStateChangeAtMs = SystemClock.elapsedRealtime();
+        requestRefresh();
+    }
+
+    Snapshot getLastSnapshot() {
+        return mLastSnapshot;
+    }
+
+    long getProbeCount() {
+        return mProbeCount;
+    }
+
+    long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    void shutdown() {
+        mListeners.clear();
+        mHandler.removeCallbacks(mPollRunnable);
+    }
+
+    long currentIntervalMs() {
+        long interval = hasVisibleListener() ? VISIBLE_INTERVAL_MS : BACKGROUND_INTERVAL_MS;
+        if (SystemClock.elapsedRealtime() - mLastStateChangeAtMs < STATE_CHANGE_WINDOW_MS) {
+            interval = Math.min(interval, STATE_CHANGE_INTERVAL_MS);
+        }
+        return interval;
+    }
+
+    private void onProbeComplete(Snapshot snapshot) {
+        mProbeInFlight = false;
+        if (snapshot != null) {
+            if (mLastSnapshot != null && mLastSnapshot.running != snapshot.running) {
+                mLastStateChangeAtMs = SystemClock.elapsedRealtime();
+            }
+            mLastSnapshot = snapshot;
+            // Copy so listeners may unsubscribe from inside the callback.
+            for (Listener listener : new ArrayList<>(mListeners.keySet())) {
+                try {
+                    listener.onGatewayStatus(snapshot);
+                } catch (Throwable e) {
+                    Logger.logWarn(LOG_TAG, "Gateway status listener failed: " + e.getMessage());
+                }
+            }
+        }
+
+        if (mRefreshPending) {
+            mRefreshPending = false;
+            requestRefresh();
+        } else {
+            scheduleNextPoll();
+        }
+    }
+
+    private void scheduleNextPoll() {
+        mHandler.removeCallbacks(mPollRunnable);
+        if (mListeners.isEmpty() || mProbeInFlight) {
+            return;
+        }
+        long delay = currentIntervalMs();
+        if (mLastSnapshot != null) {
+            long age = SystemClock.elapsedRealtime() - mLastSnapshot.checkedAtMs;
+            delay = Math.max(0, delay - age);
+        }
+        mHandler.postDelayed(mPollRunnable, delay);
+    }
+
+    private boolean hasVisibleListener() {
+        for (Boolean visible : mListeners.values()) {
+            if (Boolean.TRUE.equals(visible)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,176 @@
+package app.botdrop;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Restart policy and health bookkeeping for the gateway supervisor in
+ * {@link GatewayMonitorService}.
+ *
+ * Restarts back off exponentially with jitter while the gateway keeps failing and never give up;
+ * the backoff starts over once the gateway has stayed healthy for {@link #STABLE_AFTER_MS}.
+ * Health over the last {@link #HEALTH_WINDOW_MS} is summarised as restart count, mean time
+ * between failures and time from restart to first healthy probe.
+ *
+ * Not thread-safe; call from the main thread. Times are {@code SystemClock.elapsedRealtime()}.
+ */
+class GatewaySupervisor {
+
+    static final long BASE_BACKOFF_MS = 1000L;
+    static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+    /** Delays are spread by up to this fraction either way so devices don't retry in lockstep. */
+    static final double JITTER_FRACTION = 0.2;
+    static final long STABLE_AFTER_MS = 2 * 60 * 1000L;
+    static final long HEALTH_WINDOW_MS = 60 * 60 * 1000L;
+
+    /**
+     * Immutable health summary.
+     */
+    static class Health {
+        /** 0..100; 100 means no failures in the window. */
+        final int score;
+        final int failuresInWindow;
+        final long totalRestarts;
+        final int consecutiveFailures;
+        /** Mean time between failures over the window, or -1 with no failures. */
+        final long mtbfMs;
+        /** Time from the last restart to the first healthy probe, or -1 if not measured yet. */
+        final long timeToHealthyMs;
+
+        Health(int score, int failuresInWindow, long totalRestarts, int consecutiveFailures,
+               long mtbfMs, long timeToHealthyMs) {
+            this.score = score;
+            this.failuresInWindow = failuresInWindow;
+            this.totalRestarts = totalRestarts;
+            this.consecutiveFailures = consecutiveFailures;
+            this.mtbfMs = mtbfMs;
+            this.timeToHealthyMs = timeToHealthyMs;
+        }
+
+        /**
+         * e.g. "Restarts (1h): 2 · MTBF: 30m · Ready in: 4s"
+         */
+        String describe() {
+            return "Restarts (1h): " + failuresInWindow
+                + " · MTBF: " + (mtbfMs < 0 ? "—" : formatDuration(mtbfMs))
+                + " · Ready in: " + (timeToHealthyMs < 0 ? "—" : formatDuration(timeToHealthyMs));
+        }
+    }
+
+    private final Random mRandom;
+    private final long mStartedAtMs;
+    private final ArrayDeque<Long> mFailureTimes = new ArrayDeque<>();
+    private int mConsecutiveFailures = 0;
+    private long mTotalRestarts = 0;
+    private boolean mDown = false;
+    private long mHealthySinceMs = -1;
+    private long mRestartRequestedAtMs = -1;
+    private long mTimeToHealthyMs = -1;
+
+    GatewaySupervisor(Random random, long nowMs) {
+        mRandom = random;
+        mStartedAtMs = nowMs;
+    }
+
+    /**
+     * A probe saw the gateway running.
+     */
+    void onHealthy(long nowMs) {
+        mDown = false;
+        if (mRestartRequestedAtMs >= 0) {
+            mTimeToHealthyMs = nowMs - mRestartRequestedAtMs;
+            mRestartRequestedAtMs = -1;
+        }
+        if (mHealthySinceMs < 0) {
+            mHealthySinceMs = nowMs;
+        }
+        if (nowMs - mHealthySinceMs >= STABLE_AFTER_MS) {
+            mConsecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * A probe saw the gateway not running. Repeated observations of the same outage count once;
+     * the outage lasts until {@link #onHealthy}, so a restart that dies before a probe sees it
+     * running is not a new one.
+     *
+     * @return true if this starts a new outage
+     */
+    boolean onDown(long nowMs) {
+        if (mDown) {
+            return false;
+        }
+        mDown = true;
+        recordFailure(nowMs);
+        return true;
+    }
+
+    void onRestartRequested(long nowMs) {
+        mTotalRestarts++;
+        if (mRestartRequestedAtMs < 0) {
+            mRestartRequestedAtMs = nowMs;
+        }
+    }
+
+    void onRestartFailed(long nowMs) {
+        mDown = true;
+        recordFailure(nowMs);
+    }
+
+    /**
+     * Delay before the next restart attempt: {@link #BASE_BACKOFF_MS} doubled per consecutive
+     * failure, capped at {@link #MAX_BACKOFF_MS}, with ±{@link #JITTER_FRACTION} jitter.
+     */
+    long nextRestartDelayMs() {
+        int exponent = Math.max(0, Math.min(mConsecutiveFailures - 1, 20));
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << exponent);
+        double jitter = 1.0 + JITTER_FRACTION * (2 * mRandom.nextDouble() - 1);
+        return Math.max(0L, Math.round(delay * jitter));
+    }
+
+    int getConsecutiveFailures() {
+        return mConsecutiveFailures;
+    }
+
+    Health getHealth(long nowMs) {
+        pruneFailures(nowMs);
+        int failures = mFailureTimes.size();
+        long mtbf = -1;
+        if (failures > 0) {
+            long observed = nowMs - Math.max(mStartedAtMs, nowMs - HEALTH_WINDOW_MS);
+            mtbf = observed / failures;
+        }
+        int score = 100 - 10 * failures - 10 * mConsecutiveFailures;
+        return new Health(Math.max(0, Math.min(100, score)), failures, mTotalRestarts,
+            mConsecutiveFailures, mtbf, mTimeToHealthyMs);
+    }
+
+    /**
+     * Compact duration such as "45s", "12m" or "3h 5m".
+     */
+    static String formatDuration(long ms) {
+        long seconds = Math.max(0, ms) / 1000;
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        long minutes = seconds / 60;
+        if (minutes < 60) {
+            return minutes + "m";
+        }
+        return String.format(Locale.ROOT, "%dh %dm", minutes / 60, minutes % 60);
+    }
+
+    private void recordFailure(long nowMs) {
+        mConsecutiveFailures++;
+        mHealthySinceMs = -1;
+        mFailureTimes.addLast(nowMs);
+        pruneFailures(nowMs);
+    }
+
+    private void pruneFailures(long nowMs) {
+        while (!mFailureTimes.isEmpty() && nowMs - mFailureTimes.peekFirst() > HEALTH_WINDOW_MS) {
+            mFailureTimes.removeFirst();
+        }
+    }
+}
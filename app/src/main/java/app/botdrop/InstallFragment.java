@@ -4,7 +4,6 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.IBinder;
 import android.view.LayoutInflater;
@@ -12,7 +11,6 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
-import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -22,12 +20,6 @@ import com.termux.R;
 import com.termux.app.AnalyticsManager;
 import com.termux.shared.logger.Logger;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -41,9 +33,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class InstallFragment extends Fragment {
 
     private static final String LOG_TAG = "InstallFragment";
-    private static final String MODEL_LIST_COMMAND = OpenclawModelListUtils.buildPreferredModelListCommand(true);
-    private static final String PREFS_NAME = "openclaw_model_cache_v1";
-    private static final String CACHE_KEY_PREFIX = "models_by_version_";
 
     // Step indicators
     private TextView mStep0Icon, mStep0Text;
@@ -250,150 +239,28 @@ public class InstallFragment extends Fragment {
     }
 
     private void prefetchModelList(String openclawVersion, ModelListPrefetchCallback callback) {
-        if (mService == null || getContext() == null) {
+        ModelCatalogRepository repository = mService != null ? mService.getModelCatalogRepository() : null;
+        if (repository == null) {
             if (callback != null) {
                 callback.onFinished();
             }
             return;
         }
 
-        final String normalizedVersion = normalizeCacheKey(openclawVersion);
-        if (!TextUtils.isEmpty(normalizedVersion) && hasCachedModelList(normalizedVersion)) {
-            Logger.logInfo(LOG_TAG, "Using cached model list for OpenClaw v" + openclawVersion);
-            if (callback != null) {
-                callback.onFinished();
+        repository.get(openclawVersion, false, (catalog, fromCache) -> {
+            if (catalog == null) {
+                Logger.logWarn(LOG_TAG, "Model list prefetch failed for v" + openclawVersion);
+            } else if (fromCache) {
+                Logger.logInfo(LOG_TAG, "Using cached model list for OpenClaw v" + openclawVersion);
+            } else {
+                Logger.logInfo(LOG_TAG, "Prefetched " + catalog.size() + " models for OpenClaw v" + openclawVersion);
             }
-            return;
-        }
-
-        mService.executeCommand(MODEL_LIST_COMMAND, result -> {
-            if (!result.success) {
-                Logger.logWarn(LOG_TAG, "Model list prefetch failed for v" + openclawVersion + ": exit " + result.exitCode);
-                if (callback != null) {
-                    callback.onFinished();
-                }
-                return;
-            }
-
-            List<ModelInfo> models = parseModelList(result.stdout);
-            if (models.isEmpty()) {
-                Logger.logWarn(LOG_TAG, "Model list prefetch returned empty output for v" + openclawVersion);
-                if (callback != null) {
-                    callback.onFinished();
-                }
-                return;
-            }
-
-            Collections.sort(models, (a, b) -> {
-                if (a == null || b == null || a.fullName == null || b.fullName == null) return 0;
-                return b.fullName.compareToIgnoreCase(a.fullName);
-            });
-
-            cacheModels(normalizedVersion, models);
-            Logger.logInfo(LOG_TAG, "Prefetched " + models.size() + " models for OpenClaw v" + openclawVersion);
             if (callback != null) {
                 callback.onFinished();
             }
         });
     }
 
-    private boolean hasCachedModelList(String version) {
-        if (TextUtils.isEmpty(version)) {
-            return false;
-        }
-
-        try {
-            SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String raw = prefs.getString(cacheKey(version), null);
-            if (TextUtils.isEmpty(raw)) return false;
-
-            JSONObject root = new JSONObject(raw);
-            String cachedVersion = root.optString("version", "");
-            if (!TextUtils.equals(cachedVersion, version)) return false;
-
-            JSONArray list = root.optJSONArray("models");
-            return list != null && list.length() > 0;
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to check cached model list: " + e.getMessage());
-        }
-        return false;
-    }
-
-    private List<ModelInfo> parseModelList(String output) {
-        List<ModelInfo> models = new ArrayList<>();
-        if (TextUtils.isEmpty(output)) {
-            return models;
-        }
-
-        try {
-            String[] lines = output.split("\\r?\\n");
-            for (String line : lines) {
-                String trimmed = line == null ? "" : line.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
-                }
-                if (trimmed.startsWith("#") || trimmed.startsWith("Model ")) {
-                    continue;
-                }
-
-                String token = trimmed;
-                if (trimmed.contains(" ")) {
-                    token = trimmed.split("\\s+")[0];
-                }
-
-                if (isModelToken(token)) {
-                    models.add(new ModelInfo(token));
-                }
-            }
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to parse prefetched model list: " + e.getMessage());
-        }
-
-        return models;
-    }
-
-    private void cacheModels(String version, List<ModelInfo> models) {
-        if (TextUtils.isEmpty(version) || models == null || models.isEmpty() || getContext() == null) {
-            return;
-        }
-
-        try {
-            JSONArray list = new JSONArray();
-            for (ModelInfo model : models) {
-                if (model != null && !TextUtils.isEmpty(model.fullName)) {
-                    list.put(model.fullName);
-                }
-            }
-
-            JSONObject root = new JSONObject();
-            root.put("version", version);
-            root.put("updated_at", System.currentTimeMillis());
-            root.put("models", list);
-
-            SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            prefs.edit().putString(cacheKey(version), root.toString()).apply();
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to cache prefetched model list: " + e.getMessage());
-        }
-    }
-
-    private String cacheKey(String version) {
-        return CACHE_KEY_PREFIX + normalizeCacheKey(version);
-    }
-
-    private String normalizeCacheKey(String version) {
-        if (TextUtils.isEmpty(version)) {
-            return "unknown";
-        }
-        return version.trim().replaceAll("[^A-Za-z0-9._-]", "_");
-    }
-
-    private boolean isModelToken(String token) {
-        if (token == null || token.isEmpty()) return false;
-        if (!token.contains("/")) return false;
-        return token.matches("[A-Za-z0-9._-]+/[A-Za-z0-9._:/-]+");
-    }
-
     private void updateStep(int step, String icon, String text, boolean complete) {
         TextView iconView = null;
         TextView textView = null;
@@ -0,0 +1,374 @@
+package app.botdrop;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Small pool of long-lived bash workers used by {@link BotDropService} to run commands without
+ * writing a temp script and forking a freshly initialized shell for every call.
+ *
+ * Commands are framed over the worker's stdin as a byte-length line followed by the script body.
+ * The worker evaluates each script in its own subshell (so {@code exit}, {@code cd}, {@code exec}
+ * and {@code set -x} behave exactly as they did in a standalone script), reports the subshell pid
+ * on stderr and terminates the output with a sentinel line carrying the exit status.
+ *
+ * {@link #execute} returns null whenever the pool cannot take the command (closed, all workers
+ * busy, or a worker could not be spawned); callers are expected to fall back to the one-shot path.
+ */
+class LocalShellPool {
+
+    private static final String LOG_TAG = "LocalShellPool";
+
+    private static final Object EOF = new Object();
+    /**
+     * Lines read ahead of the caller. Once full the reader thread stops draining the pipe, so a
+     * slow consumer pauses the command instead of buffering its output without limit.
+     */
+    private static final int LINE_QUEUE_CAPACITY = 1024;
+
+    private final String mShellPath;
+    private final Map<String, String> mEnvironment;
+    private final int mMaxWorkers;
+    private final String mSentinel;
+    private final String mWorkerScript;
+
+    private final ArrayDeque<Worker> mIdleWorkers = new ArrayDeque<>();
+    private int mWorkerCount = 0;
+    private boolean mClosed = false;
+
+    private final AtomicLong mSpawnCount = new AtomicLong();
+    private final AtomicLong mCommandCount = new AtomicLong();
+
+    LocalShellPool(String shellPath, Map<String, String> environment, int maxWorkers) {
+        mShellPath = shellPath;
+        mEnvironment = environment == null ? new HashMap<>() : new HashMap<>(environment);
+        mMaxWorkers = Math.max(1, maxWorkers);
+        mSentinel = "__BOTDROP_CMD_DONE_" + UUID.randomUUID().toString().replace("-", "");
+        mWorkerScript =
+            "__bd_s='" + mSentinel + "'\n" +
+            "while IFS= read -r __bd_n; do\n" +
+            "  LC_ALL=C IFS= read -r -N \"$__bd_n\" __bd_c || break\n" +
+            "  ( eval \"$__bd_c\" ) </dev/null 2>&1 &\n" +
+            "  __bd_p=$!\n" +
+            "  printf '%s\\n' \"$__bd_p\" >&2\n" +
+            "  wait \"$__bd_p\"\n" +
+            "  printf '%s:%s\\n' \"$__bd_s\" \"$?\"\n" +
+            "done\n";
+    }
+
+    /**
+     * Spawn idle workers up to {@code count} so the first commands do not pay the startup cost.
+     */
+    void prewarm(int count) {
+        int target = Math.min(count, mMaxWorkers);
+        while (true) {
+            synchronized (this) {
+                if (mClosed || mWorkerCount >= target) {
+                    return;
+                }
+                mWorkerCount++;
+            }
+            Worker worker = spawnWorker();
+            synchronized (this) {
+                if (worker == null) {
+                    mWorkerCount--;
+                    return;
+                }
+                if (mClosed) {
+                    mWorkerCount--;
+                    worker.destroy();
+                    return;
+                }
+                mIdleWorkers.push(worker);
+            }
+        }
+    }
+
+    /**
+     * Run a script on an idle worker. Output lines (stdout and stderr merged) are streamed to
+     * {@code lineConsumer} as they arrive.
+     *
+     * @return the command result, or null if no worker was available and the caller should run
+     * the command through another path.
+     */
+    BotDropService.CommandResult execute(String script, int timeoutSeconds, Consumer<String> lineConsumer) {
+        return executeInto(script, timeoutSeconds, CommandOutput.buffered(lineConsumer));
+    }
+
+    /**
+     * Run a script on an idle worker, recording output lines into {@code output}.
+     *
+     * @return the command result, or null if no worker was available. Nothing has been written
+     * to {@code output} in that case, so it can be handed to another path.
+     */
+    BotDropService.CommandResult executeInto(String script, int timeoutSeconds, CommandOutput output) {
+        Worker worker = acquire();
+        if (worker == null) {
+            return null;
+        }
+
+        byte[] body = script.getBytes(StandardCharsets.UTF_8);
+        try {
+            worker.stdin.write((body.length + "\n").getBytes(StandardCharsets.UTF_8));
+            worker.stdin.write(body);
+            worker.stdin.flush();
+        } catch (IOException e) {
+            // Nothing ran yet, so it is safe to let the caller retry on the one-shot path.
+            Logger.logWarn(LOG_TAG, "Shell worker rejected command: " + e.getMessage());
+            discard(worker);
+            return null;
+        }
+
+        mCommandCount.incrementAndGet();
+        long timeoutMs = TimeUnit.SECONDS.toMillis(timeoutSeconds > 0 ? timeoutSeconds : 60);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        try {
+            while (true) {
+                long remainingNs = deadline - System.nanoTime();
+                Object next = remainingNs > 0 ? worker.lines.poll(remainingNs, TimeUnit.NANOSECONDS) : null;
+                if (next == null) {
+                    Logger.logError(LOG_TAG, "Command timeout after " + timeoutSeconds + " seconds");
+                    killRunningCommand(worker);
+                    discard(worker);
+                    return result(output, false, "Command timeout after " + timeoutSeconds + " seconds", -1);
+                }
+                if (next == EOF) {
+                    discard(worker);
+                    return result(output, false, "Shell worker exited unexpectedly", -1);
+                }
+
+                String line = (String) next;
+                int marker = line.lastIndexOf(mSentinel + ":");
+                int exitCode = marker >= 0 ? parseExitCode(line, marker) : Integer.MIN_VALUE;
+                if (exitCode != Integer.MIN_VALUE) {
+                    if (marker > 0) {
+                        // Output did not end with a newline; keep it as the last line.
+                        output.accept(line.substring(0, marker));
+                    }
+                    consumePidLine(worker);
+                    release(worker);
+                    return result(output, exitCode == 0, "", exitCode);
+                }
+                output.accept(line);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            killRunningCommand(worker);
+            discard(worker);
+            return result(output, false, e.getMessage(), -1);
+        }
+    }
+
+    /**
+     * Destroy all workers. Commands already running finish on their own worker, which is then
+     * destroyed instead of being returned to the pool.
+     */
+    void shutdown() {
+        synchronized (this) {
+            mClosed = true;
+            while (!mIdleWorkers.isEmpty()) {
+                mIdleWorkers.pop().destroy();
+                mWorkerCount--;
+            }
+        }
+    }
+
+    /** Number of worker processes spawned since the pool was created. */
+    long getSpawnCount() {
+        return mSpawnCount.get();
+    }
+
+    /** Number of commands handled by pooled workers. */
+    long getCommandCount() {
+        return mCommandCount.get();
+    }
+
+    synchronized int getWorkerCount() {
+        return mWorkerCount;
+    }
+
+    private Worker acquire() {
+        synchronized (this) {
+            if (mClosed) {
+                return null;
+            }
+            while (!mIdleWorkers.isEmpty()) {
+                Worker worker = mIdleWorkers.pop();
+                if (worker.isAlive()) {
+                    return worker;
+                }
+                worker.destroy();
+                mWorkerCount--;
+            }
+            if (mWorkerCount >= mMaxWorkers) {
+                return null;
+            }
+            mWorkerCount++;
+        }
+
+        Worker worker = spawnWorker();
+        if (worker == null) {
+            synchronized (this) {
+                mWorkerCount--;
+            }
+        }
+        return worker;
+    }
+
+    private void release(Worker worker) {
+        synchronized (this) {
+            if (!mClosed && worker.isAlive()) {
+                mIdleWorkers.push(worker);
+                return;
+            }
+            mWorkerCount--;
+        }
+        worker.destroy();
+    }
+
+    private void discard(Worker worker) {
+        synchronized (this) {
+            mWorkerCount--;
+        }
+        worker.destroy();
+    }
+
+    private Worker spawnWorker() {
+        try {
+            ProcessBuilder pb = new ProcessBuilder(mShellPath, "--noprofile", "--norc", "-c", mWorkerScript);
+            pb.environment().putAll(mEnvironment);
+            Process process = pb.start();
+            mSpawnCount.incrementAndGet();
+            return new Worker(process);
+        } catch (IOException e) {
+            Logger.logWarn(LOG_TAG, "Failed to spawn shell worker: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void killRunningCommand(Worker worker) {
+        try {
+            if (worker.stderr.ready()) {
+                String pidLine = worker.stderr.readLine();
+                if (pidLine != null) {
+                    android.os.Process.sendSignal(Integer.parseInt(pidLine.trim()), android.os.Process.SIGNAL_KILL);
+                }
+            }
+        } catch (Throwable e) {
+            Logger.logWarn(LOG_TAG, "Failed to kill timed out command: " + e.getMessage());
+        }
+    }
+
+    private void consumePidLine(Worker worker) {
+        // The worker prints the subshell pid before waiting for it, so the line is already
+        // buffered once the sentinel has been seen. Drain it to keep the stderr pipe empty.
+        try {
+            worker.stderr.readLine();
+        } catch (IOException e) {
+            Logger.logWarn(LOG_TAG, "Failed to read shell worker pid: " + e.getMessage());
+        }
+    }
+
+    private int parseExitCode(String line, int marker) {
+        String value = line.substring(marker + mSentinel.length() + 1).trim();
+        if (value.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static BotDropService.CommandResult result(CommandOutput output, boolean success,
+                                                      String stderr, int exitCode) {
+        output.finish();
+        return new BotDropService.CommandResult(success, output.getResultText(), stderr, exitCode, output);
+    }
+
+    private static final class Worker {
+        final Process process;
+        final OutputStream stdin;
+        final BufferedReader stderr;
+        final BlockingQueue<Object> lines = new LinkedBlockingQueue<>(LINE_QUEUE_CAPACITY);
+        private volatile boolean mDestroyed = false;
+
+        Worker(Process process) {
+            this.process = process;
+            this.stdin = process.getOutputStream();
+            this.stderr = new BufferedReader(
+                new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8));
+
+            Thread reader = new Thread(() -> {
+                try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        if (!enqueue(line)) {
+                            return;
+                        }
+                    }
+                } catch (IOException e) {
+                    Logger.logDebug(LOG_TAG, "Shell worker stdout closed: " + e.getMessage());
+                } finally {
+                    enqueue(EOF);
+                }
+            }, String.format(Locale.ROOT, "LocalShellPool-%x", System.identityHashCode(process)));
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Block until the caller has room for {@code item}; gives up once the worker has been
+         * destroyed, since nobody will drain the queue after that.
+         */
+        private boolean enqueue(Object item) {
+            try {
+                while (!lines.offer(item, 200, TimeUnit.MILLISECONDS)) {
+                    if (mDestroyed) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        boolean isAlive() {
+            try {
+                process.exitValue();
+                return false;
+            } catch (IllegalThreadStateException e) {
+                return true;
+            }
+        }
+
+        void destroy() {
+            mDestroyed = true;
+            try {
+                stdin.close();
+            } catch (IOException ignored) {
+            }
+            process.destroy();
+        }
+    }
+}
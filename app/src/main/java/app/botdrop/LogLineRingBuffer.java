@@ -0,0 +1,90 @@
+package app.botdrop;
+
+import java.util.List;
+
+/**
+ * Fixed-capacity FIFO of log lines. Appending past capacity evicts the oldest lines, so memory
+ * stays bounded no matter how long a log view stays open.
+ */
+class LogLineRingBuffer {
+
+    private final String[] mLines;
+    private int mHead = 0;
+    private int mSize = 0;
+
+    LogLineRingBuffer(int capacity) {
+        mLines = new String[Math.max(1, capacity)];
+    }
+
+    int capacity() {
+        return mLines.length;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @param index 0 for the oldest retained line
+     */
+    String get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        return mLines[(mHead + index) % mLines.length];
+    }
+
+    /**
+     * Append one line, evicting the oldest one when full.
+     */
+    void add(String line) {
+        if (mSize == mLines.length) {
+            mLines[mHead] = line;
+            mHead = (mHead + 1) % mLines.length;
+        } else {
+            mLines[(mHead + mSize) % mLines.length] = line;
+            mSize++;
+        }
+    }
+
+    /**
+     * Append lines, evicting the oldest ones when full.
+     *
+     * @return number of previously retained lines that were evicted
+     */
+    int addAll(List<String> lines) {
+        int initialSize = mSize;
+        int evicted = 0;
+        for (String line : lines) {
+            if (mSize == mLines.length) {
+                mLines[mHead] = line;
+                mHead = (mHead + 1) % mLines.length;
+                evicted++;
+            } else {
+                mLines[(mHead + mSize) % mLines.length] = line;
+                mSize++;
+            }
+        }
+        // Lines appended and evicted within the same call were never visible.
+        return Math.min(evicted, initialSize);
+    }
+
+    void clear() {
+        for (int i = 0; i < mLines.length; i++) {
+            mLines[i] = null;
+        }
+        mHead = 0;
+        mSize = 0;
+    }
+
+    /**
+     * Join all retained lines with '\n', each line followed by a newline.
+     */
+    String join() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mSize; i++) {
+            builder.append(get(i)).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,484 @@
+package app.botdrop;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The OpenClaw model catalog as the model selector searches it. Models are grouped into
+ * provider buckets, each already in display order, and the rows, their lowercase names and a
+ * trigram index are built once per catalog instead of on every keystroke.
+ * <p>
+ * A model matches a query when its lowercase full name contains the lowercase query, as the
+ * linear filter did. Queries of three or more characters only check the models on the shortest
+ * posting list among their trigrams; shorter ones scan the bucket's precomputed names.
+ * <p>
+ * {@link #writeTo(File)} stores the catalog with its index in a compact binary file, so the
+ * next start loads it in a few milliseconds without parsing JSON or rebuilding the index.
+ */
+final class ModelCatalogIndex {
+
+    private static final int MAGIC = 0x42444d43; // "BDMC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+    private static final long MAX_FILE_SIZE = 16 * 1024 * 1024;
+
+    interface Cancellation {
+        boolean isCancelled();
+    }
+
+    private final String mKey;
+    /** All models, bucket by bucket; providers in case-insensitive order, models descending. */
+    private final ModelInfo[] mModels;
+    private final String[] mLowerNames;
+    private final List<String> mProviders;
+    /** Bucket {@code i} is {@code mModels[mBucketStart[i] .. mBucketStart[i + 1])}. */
+    private final int[] mBucketStart;
+    private final Map<String, Integer> mBucketByProvider;
+    /** Sorted trigram keys, see {@link #trigram(String, int)}. */
+    private final long[] mTrigrams;
+    /** Ascending model indices for each trigram. */
+    private final int[][] mPostings;
+
+    private ModelCatalogIndex(String key, String[] providers, int[] bucketStart, String[] modelIds,
+                              long[] trigrams, int[][] postings) {
+        mKey = key;
+        mProviders = Collections.unmodifiableList(Arrays.asList(providers));
+        mBucketStart = bucketStart;
+        mBucketByProvider = new HashMap<>(providers.length * 2);
+        mModels = new ModelInfo[modelIds.length];
+        mLowerNames = new String[modelIds.length];
+        for (int bucket = 0; bucket < providers.length; bucket++) {
+            String provider = providers[bucket];
+            mBucketByProvider.put(provider, bucket);
+            for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+                String fullName = provider + "/" + modelIds[i];
+                mModels[i] = new ModelInfo(fullName, provider, modelIds[i]);
+                mLowerNames[i] = fullName.toLowerCase(Locale.ROOT);
+            }
+        }
+        if (trigrams == null) {
+            TreeMap<Long, int[]> index = buildTrigrams(mLowerNames);
+            trigrams = new long[index.size()];
+            postings = new int[index.size()][];
+            int i = 0;
+            for (Map.Entry<Long, int[]> entry : index.entrySet()) {
+                trigrams[i] = entry.getKey();
+                postings[i] = trimPostings(entry.getValue());
+                i++;
+            }
+        }
+        mTrigrams = trigrams;
+        mPostings = postings;
+    }
+
+    /**
+     * Index the models named by {@code fullNames} ("provider/model"). Names without a provider
+     * and duplicates are dropped.
+     *
+     * @param key what the catalog belongs to, such as the normalized OpenClaw version
+     */
+    static ModelCatalogIndex build(String key, Collection<String> fullNames) {
+        Map<String, List<String>> buckets = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (String fullName : fullNames) {
+            if (fullName == null || !seen.add(fullName)) {
+                continue;
+            }
+            int slash = fullName.indexOf('/');
+            if (slash <= 0 || slash == fullName.length() - 1) {
+                continue;
+            }
+            String provider = fullName.substring(0, slash);
+            List<String> bucket = buckets.get(provider);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.put(provider, bucket);
+            }
+            bucket.add(fullName.substring(slash + 1));
+        }
+
+        String[] providers = buckets.keySet().toArray(new String[0]);
+        Arrays.sort(providers, (a, b) -> {
+            int result = a.compareToIgnoreCase(b);
+            return result != 0 ? result : a.compareTo(b);
+        });
+        int[] bucketStart = new int[providers.length + 1];
+        List<String> modelIds = new ArrayList<>(seen.size());
+        for (int i = 0; i < providers.length; i++) {
+            List<String> bucket = buckets.get(providers[i]);
+            // Same order as sorting the full names descending, since they share the prefix.
+            Collections.sort(bucket, (a, b) -> b.compareToIgnoreCase(a));
+            bucketStart[i] = modelIds.size();
+            modelIds.addAll(bucket);
+        }
+        bucketStart[providers.length] = modelIds.size();
+        return new ModelCatalogIndex(key, providers, bucketStart, modelIds.toArray(new String[0]), null, null);
+    }
+
+    String getKey() {
+        return mKey;
+    }
+
+    int size() {
+        return mModels.length;
+    }
+
+    /** Providers in case-insensitive order. */
+    List<String> getProviders() {
+        return mProviders;
+    }
+
+    /** The models of {@code provider} in display order, or an empty list. The rows are shared. */
+    List<ModelInfo> getModels(String provider) {
+        Integer bucket = mBucketByProvider.get(provider);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(
+            Arrays.asList(mModels).subList(mBucketStart[bucket], mBucketStart[bucket + 1]));
+    }
+
+    /** Full names of every model, bucket by bucket. */
+    List<String> getFullNames() {
+        List<String> names = new ArrayList<>(mModels.length);
+        for (ModelInfo model : mModels) {
+            names.add(model.fullName);
+        }
+        return names;
+    }
+
+    /**
+     * Models of {@code provider}, or of every provider if it is null, whose full name contains
+     * {@code query} ignoring case, in display order.
+     *
+     * @return the matches, or null if {@code cancellation} fired first
+     */
+    List<ModelInfo> search(String provider, String query, Cancellation cancellation) {
+        int from = 0;
+        int to = mModels.length;
+        if (provider != null) {
+            Integer bucket = mBucketByProvider.get(provider);
+            if (bucket == null) {
+                return Collections.emptyList();
+            }
+            from = mBucketStart[bucket];
+            to = mBucketStart[bucket + 1];
+        }
+        if (query == null || query.isEmpty()) {
+            return Collections.unmodifiableList(Arrays.asList(mModels).subList(from, to));
+        }
+
+        String lower = query.toLowerCase(Locale.ROOT);
+        List<ModelInfo> matches = new ArrayList<>();
+        if (lower.length() < 3) {
+            for (int i = from; i < to; i++) {
+                if ((i - from) % CANCELLATION_CHECK_INTERVAL == 0 && isCancelled(cancellation)) {
+                    return null;
+                }
+                if (mLowerNames[i].contains(lower)) {
+                    matches.add(mModels[i]);
+                }
+            }
+            return matches;
+        }
+
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            int slot = Arrays.binarySearch(mTrigrams, trigram(lower, i));
+            if (slot < 0) {
+                return matches;
+            }
+            if (candidates == null || mPostings[slot].length < candidates.length) {
+                candidates = mPostings[slot];
+            }
+        }
+        int start = Arrays.binarySearch(candidates, from);
+        for (int i = start < 0 ? -start - 1 : start; i < candidates.length && candidates[i] < to; i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0 && isCancelled(cancellation)) {
+                return null;
+            }
+            if (mLowerNames[candidates[i]].contains(lower)) {
+                matches.add(mModels[candidates[i]]);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isCancelled(Cancellation cancellation) {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /** Write the catalog to {@code file} through a temporary file, so readers never see half of it. */
+    void writeTo(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Failed to create directory " + dir.getAbsolutePath());
+        }
+
+        Writer out = new Writer(64 * 1024);
+        out.int32(MAGIC);
+        out.int32(FORMAT_VERSION);
+        out.string(mKey == null ? "" : mKey);
+        out.varint(mProviders.size());
+        for (int bucket = 0; bucket < mProviders.size(); bucket++) {
+            out.string(mProviders.get(bucket));
+            out.varint(mBucketStart[bucket + 1] - mBucketStart[bucket]);
+            for (int i = mBucketStart[bucket]; i < mBucketStart[bucket + 1]; i++) {
+                out.string(mModels[i].model);
+            }
+        }
+        out.varint(mTrigrams.length);
+        long previousTrigram = 0;
+        for (int i = 0; i < mTrigrams.length; i++) {
+            out.varlong(mTrigrams[i] - previousTrigram);
+            previousTrigram = mTrigrams[i];
+            int[] postings = mPostings[i];
+            out.varint(postings.length);
+            int previous = 0;
+            for (int model : postings) {
+                out.varint(model - previous);
+                previous = model;
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            fileOut.write(out.mBuffer, 0, out.mLength);
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to rename " + temp.getName() + " to " + file.getName());
+        }
+    }
+
+    /**
+     * Read a catalog written by {@link #writeTo(File)}.
+     *
+     * @return the catalog, or null if the file is missing, from another format version or for
+     * another key than {@code expectedKey}
+     */
+    static ModelCatalogIndex readFrom(File file, String expectedKey) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        Reader in = new Reader(readFully(file));
+        if (in.int32() != MAGIC || in.int32() != FORMAT_VERSION) {
+            return null;
+        }
+        String key = in.string();
+        if (expectedKey != null && !expectedKey.equals(key)) {
+            return null;
+        }
+
+        int providerCount = in.count();
+        String[] providers = new String[providerCount];
+        int[] bucketStart = new int[providerCount + 1];
+        List<String> modelIds = new ArrayList<>();
+        for (int bucket = 0; bucket < providerCount; bucket++) {
+            providers[bucket] = in.string();
+            bucketStart[bucket] = modelIds.size();
+            int count = in.count();
+            for (int i = 0; i < count; i++) {
+                modelIds.add(in.string());
+            }
+        }
+        bucketStart[providerCount] = modelIds.size();
+
+        int trigramCount = in.count();
+        long[] trigrams = new long[trigramCount];
+        int[][] postings = new int[trigramCount][];
+        long trigram = 0;
+        for (int i = 0; i < trigramCount; i++) {
+            trigram += in.varlong();
+            trigrams[i] = trigram;
+            int[] list = new int[in.count()];
+            int model = 0;
+            for (int j = 0; j < list.length; j++) {
+                model += in.varint();
+                if (model < 0 || model >= modelIds.size()) {
+                    throw new IOException("Corrupt model catalog " + file.getName());
+                }
+                list[j] = model;
+            }
+            postings[i] = list;
+        }
+        return new ModelCatalogIndex(key, providers, bucketStart, modelIds.toArray(new String[0]),
+            trigrams, postings);
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        long length = file.length();
+        if (length > MAX_FILE_SIZE) {
+            throw new IOException("Model catalog " + file.getName() + " is too large");
+        }
+        byte[] bytes = new byte[(int) length];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            if (offset < bytes.length) {
+                throw new IOException("Model catalog " + file.getName() + " changed while reading");
+            }
+        }
+        return bytes;
+    }
+
+    /** The three chars of {@code s} at {@code offset}, packed 16 bits each. */
+    private static long trigram(String s, int offset) {
+        return ((long) s.charAt(offset) << 32) | ((long) s.charAt(offset + 1) << 16) | s.charAt(offset + 2);
+    }
+
+    /** Posting lists as {@code [size, index...]} arrays that grow by doubling. */
+    private static TreeMap<Long, int[]> buildTrigrams(String[] lowerNames) {
+        HashMap<Long, int[]> index = new HashMap<>();
+        for (int model = 0; model < lowerNames.length; model++) {
+            String name = lowerNames[model];
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                Long key = trigram(name, i);
+                int[] postings = index.get(key);
+                if (postings == null) {
+                    postings = new int[4];
+                    index.put(key, postings);
+                } else if (postings[0] > 0 && postings[postings[0]] == model) {
+                    // Trigram repeats within this name.
+                    continue;
+                }
+                if (postings[0] + 1 == postings.length) {
+                    postings = Arrays.copyOf(postings, postings.length * 2);
+                    index.put(key, postings);
+                }
+                postings[++postings[0]] = model;
+            }
+        }
+        return new TreeMap<>(index);
+    }
+
+    private static int[] trimPostings(int[] postings) {
+        return Arrays.copyOfRange(postings, 1, postings[0] + 1);
+    }
+
+    /** Little-endian ints, unsigned LEB128 varints and length-prefixed UTF-8 strings. */
+    private static final class Writer {
+        byte[] mBuffer;
+        int mLength;
+
+        Writer(int capacity) {
+            mBuffer = new byte[capacity];
+        }
+
+        void int32(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                mBuffer[mLength++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void varint(int value) {
+            varlong(value & 0xffffffffL);
+        }
+
+        void varlong(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                mBuffer[mLength++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mLength++] = (byte) value;
+        }
+
+        void string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, mBuffer, mLength, bytes.length);
+            mLength += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (mLength + extra > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mLength + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] mBuffer;
+        private int mPosition;
+
+        Reader(byte[] buffer) {
+            mBuffer = buffer;
+        }
+
+        int int32() throws IOException {
+            need(4);
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (mBuffer[mPosition++] & 0xff) << (8 * i);
+            }
+            return value;
+        }
+
+        int varint() throws IOException {
+            long value = varlong();
+            if ((value & ~0xffffffffL) != 0) {
+                throw new IOException("Malformed model catalog");
+            }
+            return (int) value;
+        }
+
+        long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                need(1);
+                byte b = mBuffer[mPosition++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed model catalog");
+        }
+
+        /** A count of following items, each at least one byte long. */
+        int count() throws IOException {
+            int count = varint();
+            if (count < 0 || count > mBuffer.length - mPosition) {
+                throw new IOException("Malformed model catalog");
+            }
+            return count;
+        }
+
+        String string() throws IOException {
+            int length = count();
+            String value = new String(mBuffer, mPosition, length, StandardCharsets.UTF_8);
+            mPosition += length;
+            return value;
+        }
+
+        private void need(int bytes) throws IOException {
+            if (mPosition + bytes > mBuffer.length) {
+                throw new IOException("Truncated model catalog");
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package app.botdrop;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import com.termux.shared.logger.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * The one model catalog cache, shared by the model selector, the setup flow and the dashboard.
+ * <p>
+ * Catalogs are kept per OpenClaw version, in memory and as a {@link ModelCatalogIndex} file.
+ * A cached catalog is served immediately, even when it is older than the maximum age; a stale
+ * one is then refreshed in the background for the next caller (stale-while-revalidate). Only a
+ * version with nothing cached makes the caller wait for {@code openclaw models list}. Callers
+ * asking for a version that is already being fetched or loaded share that work.
+ * <p>
+ * All methods must be called on the handler's thread, and callbacks run on it. Disk access and
+ * indexing run on the supplied executor; fetches go through the {@link Fetcher}.
+ */
+final class ModelCatalogRepository {
+
+    private static final String LOG_TAG = "ModelCatalogRepository";
+
+    /** How old a cached catalog may get before it is refreshed in the background. */
+    static final long MAX_AGE_MS = 6 * 60 * 60 * 1000L;
+
+    // The JSON lists that used to be written here are migrated on first read.
+    static final String LEGACY_PREFS_NAME = "openclaw_model_cache_v1";
+    private static final String LEGACY_KEY_PREFIX = "models_by_version_";
+
+    interface Fetcher {
+        /**
+         * Fetch the catalog of the installed OpenClaw.
+         *
+         * @param callback called on the handler's thread with the model names, or null on failure
+         */
+        void fetch(FetchCallback callback);
+    }
+
+    interface FetchCallback {
+        void onFetched(List<String> fullNames);
+    }
+
+    interface Callback {
+        /**
+         * @param catalog   the catalog, or null if nothing is cached and it could not be fetched
+         * @param fromCache whether it was cached rather than fetched for this request
+         */
+        void onCatalog(ModelCatalogIndex catalog, boolean fromCache);
+    }
+
+    /** Counters since the repository was created. */
+    static final class Metrics {
+        final int memoryHits;
+        final int diskHits;
+        final int misses;
+        final int fetches;
+        /** Requests that joined a fetch already in flight instead of starting one. */
+        final int sharedFetches;
+        final int failedFetches;
+        final long lastFetchMs;
+        final long totalFetchMs;
+
+        Metrics(int memoryHits, int diskHits, int misses, int fetches, int sharedFetches, int failedFetches,
+                long lastFetchMs, long totalFetchMs) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.fetches = fetches;
+            this.sharedFetches = sharedFetches;
+            this.failedFetches = failedFetches;
+            this.lastFetchMs = lastFetchMs;
+            this.totalFetchMs = totalFetchMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "hits %d memory / %d disk, %d misses, %d fetches (%d shared, %d failed), last %d ms, total %d ms",
+                memoryHits, diskHits, misses, fetches, sharedFetches, failedFetches, lastFetchMs, totalFetchMs);
+        }
+    }
+
+    private static final class Loaded {
+        final ModelCatalogIndex catalog;
+        final long fetchedAtMs;
+
+        Loaded(ModelCatalogIndex catalog, long fetchedAtMs) {
+            this.catalog = catalog;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+    }
+
+    private final Handler mHandler;
+    private final Executor mExecutor;
+    private final Fetcher mFetcher;
+    private final File mDir;
+    private final SharedPreferences mLegacyPrefs;
+    private final long mMaxAgeMs;
+
+    private ModelCatalogIndex mCatalog;
+    private long mFetchedAtMs;
+    // Version key -> callbacks waiting for a disk load or a fetch of it
+    private final Map<String, List<Callback>> mLoads = new HashMap<>();
+    private final Map<String, List<Callback>> mFetches = new HashMap<>();
+
+    private int mMemoryHits;
+    private int mDiskHits;
+    private int mMisses;
+    private int mFetchCount;
+    private int mSharedFetches;
+    private int mFailedFetches;
+    private long mLastFetchMs;
+    private long mTotalFetchMs;
+
+    /**
+     * @param dir         where the catalog files live; other files must not be kept there
+     * @param legacyPrefs the old JSON cache to migrate from, or null
+     */
+    ModelCatalogRepository(Handler handler, Executor executor, Fetcher fetcher, File dir,
+                           SharedPreferences legacyPrefs, long maxAgeMs) {
+        mHandler = handler;
+        mExecutor = executor;
+        mFetcher = fetcher;
+        mDir = dir;
+        mLegacyPrefs = legacyPrefs;
+        mMaxAgeMs = maxAgeMs;
+    }
+
+    /** The cache key for an OpenClaw version, also used as the catalog file name. */
+    static String versionKey(String openclawVersion) {
+        if (TextUtils.isEmpty(openclawVersion) || TextUtils.isEmpty(openclawVersion.trim())) {
+            return "unknown";
+        }
+        return openclawVersion.trim().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Get the catalog for {@code openclawVersion}: from memory right away, from disk, or by
+     * fetching it if nothing is cached. With {@code forceRefresh} it is always fetched, and the
+     * cached one is only returned if that fails.
+     */
+    void get(String openclawVersion, boolean forceRefresh, Callback callback) {
+        String key = versionKey(openclawVersion);
+        if (forceRefresh) {
+            fetch(key, callback);
+            return;
+        }
+        if (isInMemory(key)) {
+            mMemoryHits++;
+            callback.onCatalog(mCatalog, true);
+            revalidateIfStale(key);
+            return;
+        }
+        load(key, callback);
+    }
+
+    /**
+     * Make sure a fresh catalog for {@code openclawVersion} gets cached, without anyone waiting
+     * for it. Called after the gateway starts and after OpenClaw is updated.
+     */
+    void revalidate(String openclawVersion) {
+        String key = versionKey(openclawVersion);
+        if (isInMemory(key)) {
+            revalidateIfStale(key);
+        } else {
+            load(key, null);
+        }
+    }
+
+    Metrics getMetrics() {
+        return new Metrics(mMemoryHits, mDiskHits, mMisses, mFetchCount, mSharedFetches, mFailedFetches,
+            mLastFetchMs, mTotalFetchMs);
+    }
+
+    private boolean isInMemory(String key) {
+        return mCatalog != null && key.equals(mCatalog.getKey());
+    }
+
+    private void revalidateIfStale(String key) {
+        if (System.currentTimeMillis() - mFetchedAtMs >= mMaxAgeMs) {
+            Logger.logInfo(LOG_TAG, "Model catalog for " + key + " is stale, refreshing in the background");
+            fetch(key, null);
+        }
+    }
+
+    private void load(String key, Callback callback) {
+        List<Callback> waiting = mLoads.get(key);
+        if (waiting != null) {
+            add(waiting, callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        add(waiting, callback);
+        mLoads.put(key, waiting);
+        mExecutor.execute(() -> {
+            Loaded loaded = readFromDisk(key);
+            mHandler.post(() -> onLoaded(key, loaded));
+        });
+    }
+
+    private void onLoaded(String key, Loaded loaded) {
+        List<Callback> waiting = mLoads.remove(key);
+        if (isInMemory(key) && (loaded == null || mFetchedAtMs >= loaded.fetchedAtMs)) {
+            // A fetch finished while the file was being read.
+            loaded = new Loaded(mCatalog, mFetchedAtMs);
+        }
+        if (loaded == null) {
+            mMisses++;
+            fetchAll(key, waiting);
+            return;
+        }
+
+        mDiskHits++;
+        mCatalog = loaded.catalog;
+        mFetchedAtMs = loaded.fetchedAtMs;
+        for (Callback callback : waiting) {
+            callback.onCatalog(loaded.catalog, true);
+        }
+        revalidateIfStale(key);
+    }
+
+    private void fetch(String key, Callback callback) {
+        List<Callback> callbacks = new ArrayList<>(1);
+        add(callbacks, callback);
+        fetchAll(key, callbacks);
+    }
+
+    private void fetchAll(String key, List<Callback> callbacks) {
+        List<Callback> waiting = mFetches.get(key);
+        if (waiting != null) {
+            mSharedFetches++;
+            waiting.addAll(callbacks);
+            return;
+        }
+        mFetches.put(key, new ArrayList<>(callbacks));
+
+        long startMs = SystemClock.elapsedRealtime();
+        mFetcher.fetch(fullNames -> {
+            long elapsedMs = SystemClock.elapsedRealtime() - startMs;
+            mFetchCount++;
+            mLastFetchMs = elapsedMs;
+            mTotalFetchMs += elapsedMs;
+            if (fullNames == null || fullNames.isEmpty()) {
+                mFailedFetches++;
+                Logger.logWarn(LOG_TAG, "Model catalog fetch for " + key + " failed after " + elapsedMs + " ms");
+                onFetched(key, null);
+                return;
+            }
+            long fetchedAtMs = System.currentTimeMillis();
+            mExecutor.execute(() -> {
+                ModelCatalogIndex catalog = ModelCatalogIndex.build(key, fullNames);
+                writeToDisk(catalog, fetchedAtMs);
+                mHandler.post(() -> {
+                    if (catalog.size() == 0) {
+                        mFailedFetches++;
+                        onFetched(key, null);
+                        return;
+                    }
+                    Logger.logInfo(LOG_TAG, "Fetched " + catalog.size() + " models for " + key + " in "
+                        + elapsedMs + " ms; " + getMetrics());
+                    onFetched(key, new Loaded(catalog, fetchedAtMs));
+                });
+            });
+        });
+    }
+
+    private void onFetched(String key, Loaded fetched) {
+        List<Callback> waiting = mFetches.remove(key);
+        if (fetched != null) {
+            mCatalog = fetched.catalog;
+            mFetchedAtMs = fetched.fetchedAtMs;
+        }
+        ModelCatalogIndex catalog = fetched != null ? fetched.catalog : (isInMemory(key) ? mCatalog : null);
+        for (Callback callback : waiting) {
+            callback.onCatalog(catalog, fetched == null);
+        }
+    }
+
+    private static void add(List<Callback> waiting, Callback callback) {
+        if (callback != null) {
+            waiting.add(callback);
+        }
+    }
+
+    private File catalogFile(String key) {
+        return new File(mDir, key + ".idx");
+    }
+
+    /** Runs on the executor. */
+    private Loaded readFromDisk(String key) {
+        File file = catalogFile(key);
+        try {
+            ModelCatalogIndex catalog = ModelCatalogIndex.readFrom(file, key);
+            if (catalog != null && catalog.size() > 0) {
+                return new Loaded(catalog, file.lastModified());
+            }
+        } catch (IOException e) {
+            Logger.logError(LOG_TAG, "Failed to read " + file.getAbsolutePath() + ": " + e.getMessage());
+            file.delete();
+        }
+        return readLegacy(key);
+    }
+
+    /** Runs on the executor. */
+    private Loaded readLegacy(String key) {
+        if (mLegacyPrefs == null) {
+            return null;
+        }
+        String raw = mLegacyPrefs.getString(LEGACY_KEY_PREFIX + key, null);
+        if (TextUtils.isEmpty(raw)) {
+            return null;
+        }
+        mLegacyPrefs.edit().remove(LEGACY_KEY_PREFIX + key).apply();
+        try {
+            JSONObject root = new JSONObject(raw);
+            JSONArray list = root.optJSONArray("models");
+            if (!TextUtils.equals(root.optString("version", ""), key) || list == null) {
+                return null;
+            }
+            List<String> fullNames = new ArrayList<>(list.length());
+            for (int i = 0; i < list.length(); i++) {
+                fullNames.add(list.optString(i, ""));
+            }
+            ModelCatalogIndex catalog = ModelCatalogIndex.build(key, fullNames);
+            if (catalog.size() == 0) {
+                return null;
+            }
+            long fetchedAtMs = root.optLong("updated_at", 0L);
+            writeToDisk(catalog, fetchedAtMs);
+            Logger.logInfo(LOG_TAG, "Migrated cached model list for " + key);
+            return new Loaded(catalog, fetchedAtMs);
+        } catch (Exception e) {
+            Logger.logError(LOG_TAG, "Failed to migrate cached model list: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Runs on the executor. Keeps only the newest version's file. */
+    private void writeToDisk(ModelCatalogIndex catalog, long fetchedAtMs) {
+        if (catalog.size() == 0) {
+            return;
+        }
+        File file = catalogFile(catalog.getKey());
+        try {
+            catalog.writeTo(file);
+            if (fetchedAtMs > 0) {
+                file.setLastModified(fetchedAtMs);
+            }
+        } catch (IOException e) {
+            Logger.logError(LOG_TAG, "Failed to write " + file.getAbsolutePath() + ": " + e.getMessage());
+            return;
+        }
+        File[] others = mDir.listFiles();
+        if (others != null) {
+            for (File other : others) {
+                if (!other.getName().equals(file.getName())) {
+                    other.delete();
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
@@ -35,16 +36,17 @@ import org.json.JSONObject;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Dialog for selecting a model with search capability.
@@ -53,16 +55,13 @@ import java.util.stream.Collectors;
 public class ModelSelectorDialog extends Dialog {
 
     private static final String LOG_TAG = "ModelSelectorDialog";
-    private static final String PREFS_NAME = "openclaw_model_cache_v1";
     private static final String KEY_CACHE_PREFS_NAME = "openclaw_model_key_cache_v1";
     private static final String STATIC_MODELS_ASSET = "openclaw-models-all.keys";
-    private static final String CACHE_KEY_PREFIX = "models_by_version_";
     private static final String KEY_CACHE_PREFIX = "recent_keys_by_provider_";
     private static final String KEY_CACHE_PREFIX_LEGACY = "recent_keys_by_model_";
     private static final int MAX_CACHED_KEYS_PER_MODEL = 8;
     private static final int MODEL_REQUEST_CONNECT_TIMEOUT_MS = 12000;
     private static final int MODEL_REQUEST_READ_TIMEOUT_MS = 15000;
-    private static final String MODELS_PATH_SUFFIX = "/models";
     private static final String CUSTOM_PROVIDER_ID = BotDropConfig.CUSTOM_PROVIDER_ID;
     private static final int CUSTOM_PROVIDER_DISPLAY_NAME_RES = R.string.botdrop_custom_provider;
     private static final int PROVIDER_SECTION_CONFIGURED_RES = R.string.botdrop_provider_section_configured;
@@ -70,9 +69,18 @@ public class ModelSelectorDialog extends Dialog {
     private static final int PROVIDER_STATUS_CONFIGURED_RES = R.string.botdrop_provider_status_configured;
     private static final int PROVIDER_STATUS_UNCONFIGURED_RES = R.string.botdrop_provider_status_unconfigured;
 
-    // Cached in-memory for the currently active OpenClaw version.
-    private static List<ModelInfo> sCachedAllModels;
-    private static String sCachedVersion;
+    private static final long FILTER_DEBOUNCE_MS = 120;
+
+    // Searches, one at a time and off the main thread.
+    private static final ExecutorService CATALOG_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ModelCatalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Shared so its per-URL cache outlives the dialog.
+    private static final CustomModelsProbe CUSTOM_MODELS_PROBE = new CustomModelsProbe(
+        MODEL_REQUEST_CONNECT_TIMEOUT_MS, MODEL_REQUEST_READ_TIMEOUT_MS, CustomModelsProbe.CACHE_TTL_MS);
 
     private final BotDropService mService;
     private final boolean mPromptForApiKey;
@@ -86,8 +94,13 @@ public class ModelSelectorDialog extends Dialog {
     private Button mRetryButton;
 
     private ModelListAdapter mAdapter;
-    private List<ModelInfo> mAllModels = new ArrayList<>();
+    private ModelCatalogIndex mCatalog;
     private List<ModelInfo> mCurrentItems = new ArrayList<>();
+    // Whether mCurrentItems is mCatalog's bucket for mCurrentProvider, so searches can use the index.
+    private boolean mCurrentItemsFromCatalog;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger mFilterGeneration = new AtomicInteger();
+    private Runnable mPendingFilter;
     private boolean mSelectingProvider = true;
     private String mCurrentProvider;
     private String mPendingProvider;
@@ -223,7 +236,7 @@ public class ModelSelectorDialog extends Dialog {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterModels(s.toString());
+                scheduleFilter(s.toString());
             }
 
             @Override
@@ -287,53 +300,25 @@ public class ModelSelectorDialog extends Dialog {
     private void loadModels(boolean forceRefresh) {
         showLoading();
 
-        String openclawVersion = BotDropService.getOpenclawVersion();
-        if (TextUtils.isEmpty(openclawVersion)) {
-            openclawVersion = "unknown";
-        }
-        String normalizedVersion = normalizeCacheKey(openclawVersion);
-        final String versionForLog = openclawVersion;
-
-        if (!forceRefresh && TextUtils.equals(normalizedVersion, sCachedVersion) && sCachedAllModels != null && !sCachedAllModels.isEmpty()) {
-            showModelsFromCache(sCachedAllModels, true);
-            return;
-        }
-
-        if (!forceRefresh) {
-            List<ModelInfo> cached = loadCachedModels(normalizedVersion);
-            if (!cached.isEmpty()) {
-                sCachedVersion = normalizedVersion;
-                sCachedAllModels = cached;
-                showModelsFromCache(cached, true);
-                return;
-            }
-        }
-
-        if (mService == null) {
+        ModelCatalogRepository repository = mService != null ? mService.getModelCatalogRepository() : null;
+        if (repository == null) {
             List<ModelInfo> models = readModelsFromAsset();
             if (!models.isEmpty()) {
-                showModelsFromList(getDialogText(R.string.botdrop_fallback_to_bundled_catalog), models);
+                showModelsFromList(getDialogText(R.string.botdrop_fallback_to_bundled_catalog), buildCatalog(models));
                 return;
             }
             showError(getDialogText(R.string.botdrop_failed_to_load_model_catalog));
             return;
         }
 
-        mService.executeCommand(OpenclawModelListUtils.buildPreferredModelListCommand(true), result -> {
-            if (!result.success) {
-                Logger.logError(LOG_TAG, "Failed to load models from OpenClaw: exit " + result.exitCode);
-                List<ModelInfo> cached = loadCachedModels(normalizedVersion);
-                if (!cached.isEmpty()) {
-                    sCachedVersion = normalizedVersion;
-                    sCachedAllModels = cached;
-                    showModelsFromCache(cached, true);
-                    return;
-                }
+        // Served from cache right away when possible; a cold cache waits for openclaw models list.
+        repository.get(BotDropService.getOpenclawVersion(), forceRefresh, (catalog, fromCache) -> {
+            if (catalog == null) {
                 List<ModelInfo> fallback = readModelsFromAsset();
                 if (!fallback.isEmpty()) {
                     showModelsFromList(
                         getDialogText(R.string.botdrop_failed_to_load_from_openclaw_using_bundled_catalog),
-                        fallback
+                        buildCatalog(fallback)
                     );
                     return;
                 }
@@ -341,80 +326,27 @@ public class ModelSelectorDialog extends Dialog {
                 return;
             }
 
-            List<ModelInfo> models = parseModelList(result.stdout);
-            if (models.isEmpty()) {
-                Logger.logError(LOG_TAG, "Model list command returned empty output");
-                List<ModelInfo> fallback = readModelsFromAsset();
-                if (!fallback.isEmpty()) {
-                    showModelsFromList(
-                        getDialogText(R.string.botdrop_failed_to_parse_openclaw_output_using_bundled_catalog),
-                        fallback
-                    );
-                    return;
-                }
-                showError(getDialogText(R.string.botdrop_no_model_list_available));
-                return;
+            if (fromCache) {
+                showModelsFromCache(catalog, true);
+            } else {
+                showModelsFromList(
+                    getDialogText(R.string.botdrop_loaded_models_from_openclaw, catalog.size()),
+                    catalog
+                );
             }
-
-            Collections.sort(models,
-                (a, b) -> {
-                    if (a == null || b == null || a.fullName == null || b.fullName == null) return 0;
-                    return b.fullName.compareToIgnoreCase(a.fullName);
-                }
-            );
-            cacheModels(normalizedVersion, models);
-            sCachedVersion = normalizedVersion;
-            sCachedAllModels = models;
-            Logger.logInfo(LOG_TAG, "Loaded " + models.size() + " models for OpenClaw v" + versionForLog);
-            showModelsFromList(
-                getDialogText(R.string.botdrop_loaded_models_from_openclaw, models.size()),
-                models
-            );
         });
     }
 
-    private List<ModelInfo> parseModelList(String output) {
-        List<ModelInfo> models = new ArrayList<>();
-        if (TextUtils.isEmpty(output)) {
-            return models;
-        }
-
-        try {
-            String[] lines = output.split("\\r?\\n");
-            for (String line : lines) {
-                String trimmed = line == null ? "" : line.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
-                }
-                if (trimmed.startsWith("#") || trimmed.startsWith("Model ")) {
-                    continue;
-                }
-
-                String token = trimmed;
-                if (trimmed.contains(" ")) {
-                    token = trimmed.split("\\s+")[0];
-                }
-
-                if (isModelToken(token)) {
-                    models.add(new ModelInfo(token));
-                }
-            }
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to parse model list output: " + e.getMessage());
-        }
-        return models;
-    }
-
-    private void showModelsFromCache(List<ModelInfo> models, boolean fromCache) {
-        mAllModels = new ArrayList<>(models);
+    private void showModelsFromCache(ModelCatalogIndex catalog, boolean fromCache) {
+        mCatalog = catalog;
         if (fromCache) {
-            Logger.logInfo(LOG_TAG, "Using cached model list (" + models.size() + ")");
+            Logger.logInfo(LOG_TAG, "Using cached model list (" + catalog.size() + ")");
         }
         showProviderSelection();
     }
 
-    private void showModelsFromList(String sourceMessage, List<ModelInfo> models) {
-        if (models.isEmpty()) {
+    private void showModelsFromList(String sourceMessage, ModelCatalogIndex catalog) {
+        if (catalog.size() == 0) {
             showError(
                 TextUtils.isEmpty(sourceMessage)
                     ? getDialogText(R.string.botdrop_no_model_list_available)
@@ -426,7 +358,7 @@ public class ModelSelectorDialog extends Dialog {
         if (!TextUtils.isEmpty(sourceMessage)) {
             Logger.logInfo(LOG_TAG, sourceMessage);
         }
-        mAllModels = new ArrayList<>(models);
+        mCatalog = catalog;
         showProviderSelection();
     }
 
@@ -666,7 +598,8 @@ public class ModelSelectorDialog extends Dialog {
         }
 
         new Thread(() -> {
-            List<ModelInfo> models = fetchModelsFromCustomUrl(provider, baseUrl, apiKey);
+            CustomModelsProbe.Result probed = CUSTOM_MODELS_PROBE.probe(baseUrl, apiKey);
+            List<ModelInfo> models = toCustomModels(provider, probed);
             new Handler(Looper.getMainLooper()).post(() -> {
                 if (!isShowing()) {
                     return;
@@ -691,208 +624,35 @@ public class ModelSelectorDialog extends Dialog {
                     }
                 );
                 mPendingAvailableModels = extractAvailableModelIds(models);
+                if (probed.guessed) {
+                    // The URL as typed has no model list; save the one that answered, since the
+                    // gateway sends chat requests to the same base URL.
+                    mPendingBaseUrl = probed.baseUrl();
+                    Toast.makeText(getContext(), getDialogText(R.string.botdrop_using_base_url, mPendingBaseUrl),
+                        Toast.LENGTH_LONG).show();
+                }
                 showModelSelection(provider, models);
             });
         }).start();
     }
 
-    private List<ModelInfo> fetchModelsFromCustomUrl(String provider, String baseUrl, String apiKey) {
+    private List<ModelInfo> toCustomModels(String provider, CustomModelsProbe.Result probed) {
         List<ModelInfo> result = new ArrayList<>();
-        String endpoint = buildCustomModelsEndpoint(baseUrl);
-        if (TextUtils.isEmpty(endpoint) || TextUtils.isEmpty(apiKey)) {
+        if (probed == null) {
             return result;
         }
 
-        HttpURLConnection conn = null;
-        InputStream stream = null;
-        try {
-            URL url = new URL(endpoint);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(MODEL_REQUEST_CONNECT_TIMEOUT_MS);
-            conn.setReadTimeout(MODEL_REQUEST_READ_TIMEOUT_MS);
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode < 200 || responseCode >= 300) {
-                Logger.logWarn(LOG_TAG, "Custom model request failed: HTTP " + responseCode + " (" + endpoint + ")");
-                return result;
-            }
-
-            stream = conn.getInputStream();
-            String body = readStreamAsUtf8(stream);
-            if (TextUtils.isEmpty(body)) {
-                return result;
-            }
-
-            List<String> modelIds = parseModelIdsFromResponse(body);
-            List<String> deduped = new ArrayList<>();
-            for (String modelId : modelIds) {
-                String normalized = normalizeCustomModelId(provider, modelId);
-                if (TextUtils.isEmpty(normalized) || deduped.contains(normalized)) {
-                    continue;
-                }
+        Set<String> deduped = new LinkedHashSet<>();
+        for (String modelId : probed.modelIds) {
+            String normalized = normalizeCustomModelId(provider, modelId);
+            if (!TextUtils.isEmpty(normalized)) {
                 deduped.add(normalized);
             }
-
-            for (String modelId : deduped) {
-                result.add(new ModelInfo(provider + "/" + modelId, provider, modelId));
-            }
-        } catch (Exception e) {
-            Logger.logWarn(LOG_TAG, "Failed to fetch models from custom URL: " + e.getMessage());
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException ignored) {
-                }
-            }
-            if (conn != null) {
-                conn.disconnect();
-            }
-        }
-
-        return result;
-    }
-
-    private String buildCustomModelsEndpoint(String baseUrl) {
-        if (TextUtils.isEmpty(baseUrl)) {
-            return "";
-        }
-        String normalized = baseUrl.trim();
-        if (normalized.endsWith("/")) {
-            normalized = normalized.substring(0, normalized.length() - 1);
-        }
-        if (normalized.endsWith(MODELS_PATH_SUFFIX)) {
-            return normalized;
-        }
-        if (TextUtils.isEmpty(normalized) || (!normalized.startsWith("http://") && !normalized.startsWith("https://"))) {
-            return "";
-        }
-        return normalized + MODELS_PATH_SUFFIX;
-    }
-
-    private List<String> parseModelIdsFromResponse(String response) {
-        List<String> modelIds = new ArrayList<>();
-        if (TextUtils.isEmpty(response)) {
-            return modelIds;
-        }
-
-        String trimmed = response.trim();
-        try {
-            if (trimmed.startsWith("{")) {
-                JSONObject root = new JSONObject(trimmed);
-
-                JSONArray data = root.optJSONArray("data");
-                if (data != null) {
-                    extractModelIdsFromArray(data, modelIds);
-                }
-
-                JSONArray models = root.optJSONArray("models");
-                if (models != null) {
-                    extractModelIdsFromArray(models, modelIds);
-                }
-
-                if (modelIds.isEmpty()) {
-                    String directData = root.optString("data", "");
-                    if (!TextUtils.isEmpty(directData)) {
-                        modelIds.add(directData);
-                    } else {
-                        String directModels = root.optString("models", "");
-                        if (!TextUtils.isEmpty(directModels)) {
-                            modelIds.add(directModels);
-                        }
-                    }
-                }
-
-                if (modelIds.isEmpty()) {
-                    String textFallback = root.toString();
-                    if (!TextUtils.isEmpty(textFallback)) {
-                        modelIds.addAll(parseModelIdsFromText(textFallback));
-                    }
-                }
-            } else if (trimmed.startsWith("[")) {
-                extractModelIdsFromArray(new JSONArray(trimmed), modelIds);
-                if (modelIds.isEmpty()) {
-                    modelIds.addAll(parseModelIdsFromText(trimmed));
-                }
-            } else {
-                modelIds.addAll(parseModelIdsFromText(response));
-            }
-        } catch (Exception e) {
-            Logger.logWarn(LOG_TAG, "Failed to parse custom models response, fallback to plain text: " + e.getMessage());
-            modelIds.addAll(parseModelIdsFromText(response));
-        }
-
-        return modelIds;
-    }
-
-    private void extractModelIdsFromArray(JSONArray array, List<String> modelIds) {
-        if (array == null || modelIds == null) {
-            return;
-        }
-
-        for (int i = 0; i < array.length(); i++) {
-            Object entry = array.opt(i);
-            if (entry == null) {
-                continue;
-            }
-            if (entry instanceof String) {
-                String value = ((String) entry).trim();
-                if (!TextUtils.isEmpty(value)) {
-                    modelIds.add(value);
-                }
-                continue;
-            }
-            if (!(entry instanceof JSONObject)) {
-                continue;
-            }
-            JSONObject obj = (JSONObject) entry;
-            String id = obj.optString("id", "").trim();
-            if (TextUtils.isEmpty(id)) {
-                id = obj.optString("model", "").trim();
-            }
-            if (TextUtils.isEmpty(id)) {
-                id = obj.optString("name", "").trim();
-            }
-            if (!TextUtils.isEmpty(id)) {
-                modelIds.add(id);
-            }
         }
-    }
-
-    private List<String> parseModelIdsFromText(String response) {
-        List<String> modelIds = new ArrayList<>();
-        if (TextUtils.isEmpty(response)) {
-            return modelIds;
+        for (String modelId : deduped) {
+            result.add(new ModelInfo(provider + "/" + modelId, provider, modelId));
         }
-
-        String[] lines = response.split("\\r?\\n");
-        for (String line : lines) {
-            String trimmed = line == null ? "" : line.trim();
-            if (trimmed.isEmpty()) {
-                continue;
-            }
-            if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
-                continue;
-            }
-            if (trimmed.startsWith("#") || trimmed.startsWith("Model ")) {
-                continue;
-            }
-            String token = trimmed;
-            if (trimmed.contains(" ")) {
-                token = trimmed.split("\\s+")[0];
-            }
-            if (token.startsWith("\"") && token.endsWith("\"") && token.length() > 1) {
-                token = token.substring(1, token.length() - 1);
-            }
-            if (!TextUtils.isEmpty(token)) {
-                modelIds.add(token);
-            }
-        }
-
-        return modelIds;
+        return result;
     }
 
     private String normalizeCustomModelId(String provider, String modelId) {
@@ -930,16 +690,6 @@ public class ModelSelectorDialog extends Dialog {
         return modelIds;
     }
 
-    private String readStreamAsUtf8(InputStream stream) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            sb.append(line);
-        }
-        return sb.toString();
-    }
-
     private void setPendingCredentials(String provider, String apiKey, String baseUrl, List<String> availableModels) {
         mPendingProvider = provider;
         mPendingApiKey = apiKey;
@@ -1398,14 +1148,11 @@ public class ModelSelectorDialog extends Dialog {
         mSelectingProvider = true;
         mCurrentProvider = null;
         mCurrentItems = new ArrayList<>();
+        mCurrentItemsFromCatalog = false;
+        cancelPendingFilter();
         ModelInfo customProviderItem = null;
 
-        List<String> providers = new ArrayList<>();
-        for (ModelInfo model : mAllModels) {
-            if (model != null && !TextUtils.isEmpty(model.provider) && !providers.contains(model.provider)) {
-                providers.add(model.provider);
-            }
-        }
+        List<String> providers = mCatalog != null ? new ArrayList<>(mCatalog.getProviders()) : new ArrayList<>();
 
         if (mPromptForApiKey) {
             customProviderItem = new ModelInfo(getDialogText(CUSTOM_PROVIDER_DISPLAY_NAME_RES), CUSTOM_PROVIDER_ID, "");
@@ -1508,13 +1255,12 @@ public class ModelSelectorDialog extends Dialog {
             return true;
         }
 
-        for (ModelInfo model : mAllModels) {
-            if (model == null || TextUtils.isEmpty(model.provider)) {
-                continue;
-            }
-            String normalizedExisting = sanitizeProviderIdentifier(model.provider);
-            if (!TextUtils.isEmpty(normalizedExisting) && TextUtils.equals(normalizedExisting, normalizedProvider)) {
-                return true;
+        if (mCatalog != null) {
+            for (String provider : mCatalog.getProviders()) {
+                String normalizedExisting = sanitizeProviderIdentifier(provider);
+                if (!TextUtils.isEmpty(normalizedExisting) && TextUtils.equals(normalizedExisting, normalizedProvider)) {
+                    return true;
+                }
             }
         }
 
@@ -1541,9 +1287,14 @@ public class ModelSelectorDialog extends Dialog {
 
         mSelectingProvider = false;
         mCurrentProvider = provider;
+        cancelPendingFilter();
 
-        List<ModelInfo> models = new ArrayList<>();
-        if (modelsForProvider != null) {
+        if (modelsForProvider == null) {
+            // Already grouped and in display order.
+            mCurrentItems = mCatalog != null ? mCatalog.getModels(provider) : new ArrayList<>();
+            mCurrentItemsFromCatalog = mCatalog != null;
+        } else {
+            List<ModelInfo> models = new ArrayList<>();
             for (ModelInfo model : modelsForProvider) {
                 if (model == null || TextUtils.isEmpty(model.model)) {
                     continue;
@@ -1554,17 +1305,11 @@ public class ModelSelectorDialog extends Dialog {
                     models.add(new ModelInfo(model.fullName, provider, model.model));
                 }
             }
-        } else {
-            for (ModelInfo model : mAllModels) {
-                if (model != null && TextUtils.equals(provider, model.provider)) {
-                    models.add(model);
-                }
-            }
+            Collections.sort(models, Comparator.comparing((ModelInfo m) -> m.fullName == null ? "" : m.fullName, String::compareToIgnoreCase).reversed());
+            mCurrentItems = models;
+            mCurrentItemsFromCatalog = false;
         }
 
-        Collections.sort(models, Comparator.comparing((ModelInfo m) -> m.fullName == null ? "" : m.fullName, String::compareToIgnoreCase).reversed());
-
-        mCurrentItems = new ArrayList<>(models);
         mSearchBox.setText("");
         mSearchBox.setHint(getDialogText(R.string.botdrop_search_model));
         mBackButton.setVisibility(View.VISIBLE);
@@ -1599,69 +1344,14 @@ public class ModelSelectorDialog extends Dialog {
         return models;
     }
 
-    private List<ModelInfo> loadCachedModels(String version) {
-        List<ModelInfo> models = new ArrayList<>();
-        if (TextUtils.isEmpty(version)) {
-            return models;
-        }
-
-        try {
-            SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String raw = prefs.getString(cacheKey(version), null);
-            if (TextUtils.isEmpty(raw)) return models;
-
-            JSONObject root = new JSONObject(raw);
-            String cachedVersion = root.optString("version", "");
-            if (!TextUtils.equals(cachedVersion, version)) return models;
-
-            JSONArray list = root.optJSONArray("models");
-            if (list == null || list.length() == 0) return models;
-
-            for (int i = 0; i < list.length(); i++) {
-                String modelName = list.optString(i, "");
-                if (isModelToken(modelName)) {
-                    models.add(new ModelInfo(modelName));
-                }
+    private static ModelCatalogIndex buildCatalog(List<ModelInfo> models) {
+        List<String> names = new ArrayList<>(models.size());
+        for (ModelInfo model : models) {
+            if (model != null && !TextUtils.isEmpty(model.fullName)) {
+                names.add(model.fullName);
             }
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to read cached model list: " + e.getMessage());
         }
-
-        return models;
-    }
-
-    private void cacheModels(String version, List<ModelInfo> models) {
-        if (TextUtils.isEmpty(version) || models == null || models.isEmpty()) return;
-
-        try {
-            JSONArray list = new JSONArray();
-            for (ModelInfo model : models) {
-                if (model != null && !TextUtils.isEmpty(model.fullName)) {
-                    list.put(model.fullName);
-                }
-            }
-
-            JSONObject root = new JSONObject();
-            root.put("version", version);
-            root.put("updated_at", System.currentTimeMillis());
-            root.put("models", list);
-
-            SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            prefs.edit().putString(cacheKey(version), root.toString()).apply();
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "Failed to cache model list: " + e.getMessage());
-        }
-    }
-
-    private String cacheKey(String version) {
-        return CACHE_KEY_PREFIX + normalizeCacheKey(version);
-    }
-
-    private String normalizeCacheKey(String version) {
-        if (TextUtils.isEmpty(version)) {
-            return "unknown";
-        }
-        return version.trim().replaceAll("[^A-Za-z0-9._-]", "_");
+        return ModelCatalogIndex.build(null, names);
     }
 
     private boolean isModelToken(String token) {
@@ -1670,25 +1360,78 @@ public class ModelSelectorDialog extends Dialog {
         return token.matches("[A-Za-z0-9._-]+/[A-Za-z0-9._:/-]+");
     }
 
-    private void filterModels(String query) {
+    /**
+     * Filter the current list for {@code query} once typing pauses. The search runs on
+     * {@link #CATALOG_EXECUTOR} and is abandoned as soon as the query or the list changes.
+     */
+    private void scheduleFilter(String query) {
+        cancelPendingFilter();
         if (query == null || query.isEmpty()) {
             mAdapter.updateList(mCurrentItems);
             return;
         }
 
-        String lower = query.toLowerCase();
-        List<ModelInfo> filtered = mCurrentItems.stream()
-            .filter(m -> {
-                if (mSelectingProvider) {
-                    return !TextUtils.isEmpty(m.provider) && m.provider.toLowerCase().contains(lower);
+        final int generation = mFilterGeneration.get();
+        final List<ModelInfo> items = mCurrentItems;
+        final ModelCatalogIndex catalog = mCurrentItemsFromCatalog ? mCatalog : null;
+        final String provider = mCurrentProvider;
+        final boolean selectingProvider = mSelectingProvider;
+        final ModelCatalogIndex.Cancellation cancellation = () -> mFilterGeneration.get() != generation;
+        mPendingFilter = () -> {
+            mPendingFilter = null;
+            CATALOG_EXECUTOR.execute(() -> {
+                List<ModelInfo> filtered = catalog != null
+                    ? catalog.search(provider, query, cancellation)
+                    : filterItems(items, query, selectingProvider, cancellation);
+                if (filtered == null) {
+                    return;
                 }
+                mHandler.post(() -> {
+                    if (!cancellation.isCancelled()) {
+                        mAdapter.updateList(filtered);
+                    }
+                });
+            });
+        };
+        mHandler.postDelayed(mPendingFilter, FILTER_DEBOUNCE_MS);
+    }
 
-                return (!TextUtils.isEmpty(m.fullName) && m.fullName.toLowerCase().contains(lower))
-                    || (!TextUtils.isEmpty(m.model) && m.model.toLowerCase().contains(lower));
-            })
-            .collect(Collectors.toList());
+    /** Drop a filter still waiting for its debounce and make a running one discard its result. */
+    private void cancelPendingFilter() {
+        mFilterGeneration.incrementAndGet();
+        if (mPendingFilter != null) {
+            mHandler.removeCallbacks(mPendingFilter);
+            mPendingFilter = null;
+        }
+    }
 
-        mAdapter.updateList(filtered);
+    /** The linear filter for lists the catalog does not cover: providers and custom endpoint models. */
+    private static List<ModelInfo> filterItems(List<ModelInfo> items, String query, boolean selectingProvider,
+                                               ModelCatalogIndex.Cancellation cancellation) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        List<ModelInfo> filtered = new ArrayList<>();
+        for (ModelInfo m : items) {
+            if (cancellation.isCancelled()) {
+                return null;
+            }
+            boolean matches;
+            if (selectingProvider) {
+                matches = !TextUtils.isEmpty(m.provider) && m.provider.toLowerCase(Locale.ROOT).contains(lower);
+            } else {
+                matches = (!TextUtils.isEmpty(m.fullName) && m.fullName.toLowerCase(Locale.ROOT).contains(lower))
+                    || (!TextUtils.isEmpty(m.model) && m.model.toLowerCase(Locale.ROOT).contains(lower));
+            }
+            if (matches) {
+                filtered.add(m);
+            }
+        }
+        return filtered;
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        cancelPendingFilter();
     }
 
     private void showLoading() {
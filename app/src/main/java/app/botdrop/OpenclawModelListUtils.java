@@ -1,7 +1,7 @@
 package app.botdrop;
 
 /**
- * Builds the preferred model-list command.
+ * Builds the preferred model-list command and parses its output.
  *
  * Fast path: load models through pi-coding-agent's ModelRegistry without starting the full
  * OpenClaw CLI bundle. If that path fails for any reason, fall back to the standard OpenClaw
@@ -15,6 +15,33 @@ public final class OpenclawModelListUtils {
 
     private OpenclawModelListUtils() {}
 
+    /**
+     * Extract the model id from one line of model-list output, e.g. "openai/gpt-4o" from
+     * "openai/gpt-4o  text  128k". Returns null for headers, comments and anything that is not a
+     * provider/model token, so callers can parse the output line by line as it streams in.
+     */
+    public static String parseModelLine(String line) {
+        String trimmed = line == null ? "" : line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("Model ")) {
+            return null;
+        }
+        int space = indexOfWhitespace(trimmed);
+        String token = space < 0 ? trimmed : trimmed.substring(0, space);
+        if (!token.contains("/") || !token.matches("[A-Za-z0-9._-]+/[A-Za-z0-9._:/-]+")) {
+            return null;
+        }
+        return token;
+    }
+
+    private static int indexOfWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public static String buildPreferredModelListCommand() {
         return buildPreferredModelListCommand(false);
     }
@@ -0,0 +1,17 @@
+package app.botdrop;
+
+public final class PercentileUtils {
+
+    private PercentileUtils() {}
+
+    /**
+     * Nearest-rank percentile of an ascending array, or -1 if it is empty.
+     */
+    public static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,228 @@
+package app.botdrop.shizuku;
+
+import app.botdrop.PercentileUtils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Admission control for Shizuku commands: at most a fixed number run at once, and the rest wait
+ * in per-caller queues that are served round-robin, so one caller issuing many commands cannot
+ * starve the others. When a caller's queue or the total queue is full the command is rejected
+ * immediately instead of waiting.
+ */
+final class CommandScheduler {
+
+    static final int WINDOW_SIZE = 256;
+
+    /**
+     * Held while a command runs; {@link #close()} frees the slot for the next caller.
+     */
+    final class Permit implements AutoCloseable {
+        private final long mGrantedAt = System.nanoTime();
+        private boolean mClosed;
+
+        @Override
+        public void close() {
+            synchronized (CommandScheduler.this) {
+                if (mClosed) {
+                    return;
+                }
+                mClosed = true;
+                mInFlight--;
+                mCompleted++;
+                recordRun((System.nanoTime() - mGrantedAt) / 1_000_000L);
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Immutable snapshot of the scheduler's counters.
+     */
+    static final class Stats {
+        final int maxInFlight;
+        final int inFlight;
+        final int queued;
+        final long completed;
+        final long rejected;
+        /** Queue wait and run time percentiles over the last {@link #WINDOW_SIZE} commands, or -1. */
+        final long p50WaitMs;
+        final long p95WaitMs;
+        final long p50RunMs;
+        final long p95RunMs;
+        final long p99RunMs;
+
+        Stats(int maxInFlight, int inFlight, int queued, long completed, long rejected,
+              long p50WaitMs, long p95WaitMs, long p50RunMs, long p95RunMs, long p99RunMs) {
+            this.maxInFlight = maxInFlight;
+            this.inFlight = inFlight;
+            this.queued = queued;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.p50WaitMs = p50WaitMs;
+            this.p95WaitMs = p95WaitMs;
+            this.p50RunMs = p50RunMs;
+            this.p95RunMs = p95RunMs;
+            this.p99RunMs = p99RunMs;
+        }
+
+        String describe() {
+            return String.format(Locale.ROOT,
+                "in flight %d/%d, queued %d, done %d, rejected %d, wait p50 %d ms · p95 %d ms, run p50 %d ms · p95 %d ms · p99 %d ms",
+                inFlight, maxInFlight, queued, completed, rejected, p50WaitMs, p95WaitMs, p50RunMs, p95RunMs, p99RunMs);
+        }
+    }
+
+    private static final class Waiter {
+        final long enqueuedAt = System.nanoTime();
+        boolean granted;
+    }
+
+    private final int mMaxInFlight;
+    private final int mMaxQueuedPerCaller;
+    private final int mMaxQueued;
+
+    // Guarded by this.
+    /** Callers with waiting commands, in the order they will next be served. */
+    private final LinkedHashMap<String, ArrayDeque<Waiter>> mQueues = new LinkedHashMap<>();
+    private int mInFlight;
+    private int mQueued;
+    private long mCompleted;
+    private long mRejected;
+    private final long[] mWaitWindow = new long[WINDOW_SIZE];
+    private int mWaitNext;
+    private int mWaitCount;
+    private final long[] mRunWindow = new long[WINDOW_SIZE];
+    private int mRunNext;
+    private int mRunCount;
+
+    CommandScheduler(int maxInFlight, int maxQueuedPerCaller, int maxQueued) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        mMaxInFlight = maxInFlight;
+        mMaxQueuedPerCaller = Math.max(0, maxQueuedPerCaller);
+        mMaxQueued = Math.max(0, maxQueued);
+    }
+
+    /**
+     * Wait for a slot to run a command.
+     *
+     * @return the permit to close when the command finishes, or null when the queue is full or
+     * no slot freed up within maxWaitMs
+     */
+    synchronized Permit acquire(String caller, long maxWaitMs) throws InterruptedException {
+        String key = caller == null ? "" : caller;
+        if (mInFlight < mMaxInFlight && mQueued == 0) {
+            mInFlight++;
+            recordWait(0);
+            return new Permit();
+        }
+
+        ArrayDeque<Waiter> queue = mQueues.get(key);
+        if (mQueued >= mMaxQueued || (queue != null && queue.size() >= mMaxQueuedPerCaller)
+            || (queue == null && mMaxQueuedPerCaller == 0)) {
+            mRejected++;
+            return null;
+        }
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            mQueues.put(key, queue);
+        }
+        Waiter waiter = new Waiter();
+        queue.addLast(waiter);
+        mQueued++;
+
+        long deadline = System.nanoTime() + maxWaitMs * 1_000_000L;
+        try {
+            while (!waiter.granted) {
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remainingMs <= 0) {
+                    break;
+                }
+                wait(remainingMs);
+            }
+        } catch (InterruptedException e) {
+            if (!waiter.granted) {
+                removeWaiter(key, waiter);
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        if (!waiter.granted) {
+            removeWaiter(key, waiter);
+            mRejected++;
+            return null;
+        }
+        recordWait((System.nanoTime() - waiter.enqueuedAt) / 1_000_000L);
+        return new Permit();
+    }
+
+    synchronized Stats getStats() {
+        long[] waits = sorted(mWaitWindow, mWaitCount);
+        long[] runs = sorted(mRunWindow, mRunCount);
+        return new Stats(mMaxInFlight, mInFlight, mQueued, mCompleted, mRejected,
+            PercentileUtils.percentile(waits, 50), PercentileUtils.percentile(waits, 95),
+            PercentileUtils.percentile(runs, 50), PercentileUtils.percentile(runs, 95), PercentileUtils.percentile(runs, 99));
+    }
+
+    /**
+     * Hand free slots to waiting callers, one command per caller per turn.
+     */
+    private void dispatch() {
+        boolean granted = false;
+        while (mInFlight < mMaxInFlight && mQueued > 0) {
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> it = mQueues.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Waiter>> next = it.next();
+            String caller = next.getKey();
+            ArrayDeque<Waiter> queue = next.getValue();
+            it.remove();
+            Waiter waiter = queue.pollFirst();
+            if (!queue.isEmpty()) {
+                // Back of the line until every other caller has had a turn.
+                mQueues.put(caller, queue);
+            }
+            mQueued--;
+            mInFlight++;
+            waiter.granted = true;
+            granted = true;
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    private void removeWaiter(String key, Waiter waiter) {
+        ArrayDeque<Waiter> queue = mQueues.get(key);
+        if (queue != null && queue.remove(waiter)) {
+            mQueued--;
+            if (queue.isEmpty()) {
+                mQueues.remove(key);
+            }
+        }
+    }
+
+    private void recordWait(long waitMs) {
+        mWaitWindow[mWaitNext] = waitMs;
+        mWaitNext = (mWaitNext + 1) % WINDOW_SIZE;
+        mWaitCount = Math.min(mWaitCount + 1, WINDOW_SIZE);
+    }
+
+    private void recordRun(long runMs) {
+        mRunWindow[mRunNext] = runMs;
+        mRunNext = (mRunNext + 1) % WINDOW_SIZE;
+        mRunCount = Math.min(mRunCount + 1, WINDOW_SIZE);
+    }
+
+    private static long[] sorted(long[] window, int count) {
+        long[] copy = Arrays.copyOf(window, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -4,19 +4,56 @@ import android.os.Binder;
 import android.os.IBinder;
 import android.os.IInterface;
 import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
 import android.os.Parcelable;
 import android.os.RemoteException;
 
 public interface IShellService extends IInterface {
     String DESCRIPTOR = "app.botdrop.shizuku.IShellService";
 
+    /** Reported by {@link #waitForExit} when the service killed the command at its timeout. */
+    int EXIT_CODE_TIMED_OUT = Integer.MIN_VALUE;
+    /** Reported by {@link #waitForExit} for an unknown id or a command still running. */
+    int EXIT_CODE_UNKNOWN = Integer.MIN_VALUE + 1;
+
+    /**
+     * A command started by {@link #startCommand}. The caller owns both descriptors.
+     */
+    final class RemoteCommand {
+        public final int id;
+        public final ParcelFileDescriptor stdout;
+        public final ParcelFileDescriptor stderr;
+
+        public RemoteCommand(int id, ParcelFileDescriptor stdout, ParcelFileDescriptor stderr) {
+            this.id = id;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
     String executeCommand(String command, int timeoutMs) throws RemoteException;
 
     void destroy() throws RemoteException;
 
+    /**
+     * Start a command and return the read ends of its stdout and stderr pipes, or null when
+     * Shizuku cannot run it. The output never passes through a binder transaction, so its size
+     * is not limited by the transaction buffer. The exit code must be collected with
+     * {@link #waitForExit}; it is dropped a minute or so after the command finished.
+     */
+    RemoteCommand startCommand(String command, int timeoutMs) throws RemoteException;
+
+    /**
+     * Block up to timeoutMs for a command started by {@link #startCommand} and return its exit
+     * code, {@link #EXIT_CODE_TIMED_OUT} or {@link #EXIT_CODE_UNKNOWN}.
+     */
+    int waitForExit(int commandId, int timeoutMs) throws RemoteException;
+
     abstract class Stub extends Binder implements IShellService {
         static final int TRANSACTION_executeCommand = IBinder.FIRST_CALL_TRANSACTION + 0;
         static final int TRANSACTION_destroy = IBinder.FIRST_CALL_TRANSACTION + 1;
+        static final int TRANSACTION_startCommand = IBinder.FIRST_CALL_TRANSACTION + 2;
+        static final int TRANSACTION_waitForExit = IBinder.FIRST_CALL_TRANSACTION + 3;
 
         public Stub() {
             attachInterface(this, DESCRIPTOR);
@@ -57,6 +94,32 @@ public interface IShellService extends IInterface {
                     destroy();
                     reply.writeNoException();
                     return true;
+                case TRANSACTION_startCommand: {
+                    data.enforceInterface(DESCRIPTOR);
+                    String startCommand = data.readString();
+                    int startTimeoutMs = data.readInt();
+                    RemoteCommand started = startCommand(startCommand, startTimeoutMs);
+                    reply.writeNoException();
+                    if (started == null) {
+                        reply.writeInt(0);
+                    } else {
+                        reply.writeInt(1);
+                        reply.writeInt(started.id);
+                        // Closes this side's copies once they are written.
+                        started.stdout.writeToParcel(reply, Parcelable.PARCELABLE_WRITE_RETURN_VALUE);
+                        started.stderr.writeToParcel(reply, Parcelable.PARCELABLE_WRITE_RETURN_VALUE);
+                    }
+                    return true;
+                }
+                case TRANSACTION_waitForExit: {
+                    data.enforceInterface(DESCRIPTOR);
+                    int commandId = data.readInt();
+                    int waitTimeoutMs = data.readInt();
+                    int exitCode = waitForExit(commandId, waitTimeoutMs);
+                    reply.writeNoException();
+                    reply.writeInt(exitCode);
+                    return true;
+                }
                 default:
                     return super.onTransact(code, data, reply, flags);
             }
@@ -104,6 +167,46 @@ public interface IShellService extends IInterface {
                     data.recycle();
                 }
             }
+
+            @Override
+            public RemoteCommand startCommand(String command, int timeoutMs) throws RemoteException {
+                Parcel data = Parcel.obtain();
+                Parcel reply = Parcel.obtain();
+                try {
+                    data.writeInterfaceToken(DESCRIPTOR);
+                    data.writeString(command);
+                    data.writeInt(timeoutMs);
+                    mRemote.transact(TRANSACTION_startCommand, data, reply, 0);
+                    reply.readException();
+                    if (reply.readInt() == 0) {
+                        return null;
+                    }
+                    int id = reply.readInt();
+                    ParcelFileDescriptor stdout = ParcelFileDescriptor.CREATOR.createFromParcel(reply);
+                    ParcelFileDescriptor stderr = ParcelFileDescriptor.CREATOR.createFromParcel(reply);
+                    return new RemoteCommand(id, stdout, stderr);
+                } finally {
+                    reply.recycle();
+                    data.recycle();
+                }
+            }
+
+            @Override
+            public int waitForExit(int commandId, int timeoutMs) throws RemoteException {
+                Parcel data = Parcel.obtain();
+                Parcel reply = Parcel.obtain();
+                try {
+                    data.writeInterfaceToken(DESCRIPTOR);
+                    data.writeInt(commandId);
+                    data.writeInt(timeoutMs);
+                    mRemote.transact(TRANSACTION_waitForExit, data, reply, 0);
+                    reply.readException();
+                    return reply.readInt();
+                } finally {
+                    reply.recycle();
+                    data.recycle();
+                }
+            }
         }
     }
 }
@@ -5,6 +5,8 @@ import android.app.Service;
 import android.content.Intent;
 import android.os.IBinder;
 import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 
 import com.termux.shared.logger.Logger;
 
@@ -15,6 +17,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -23,6 +26,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -33,7 +37,8 @@ import rikka.shizuku.ShizukuRemoteProcess;
 
 /**
  * Embedded Binder shell service entry point.
- * Executes commands and returns JSON results for the local bridge path.
+ * Executes commands and returns JSON results for the local bridge path, or hands out the
+ * process output pipes directly with {@link IShellService#startCommand}.
  */
 public class ShellService extends Service {
 
@@ -43,8 +48,20 @@ public class ShellService extends Service {
     private static final String FALLBACK_TERMUX_HOME = "/data/data/app.botdrop/files/home";
     private static final int SHIZUKU_STARTUP_RETRY_COUNT = 3;
     private static final long SHIZUKU_STARTUP_RETRY_DELAY_MS = 300L;
+    /** Bind extra: how many persistent {@code sh} sessions to keep for {@link IShellService#startCommand}. */
+    public static final String EXTRA_SESSION_POOL_SIZE = "app.botdrop.shizuku.extra.SESSION_POOL_SIZE";
+    public static final int DEFAULT_SESSION_POOL_SIZE = 4;
+    /** How long the exit code of a finished command is kept for a client that has not collected it. */
+    private static final long EXIT_CODE_RETENTION_MS = 60000L;
 
     private final ExecutorService mStreamExecutor = Executors.newCachedThreadPool();
+    private final StartedCommands mStartedCommands = new StartedCommands(EXIT_CODE_RETENTION_MS);
+    private final ScheduledExecutorService mEvictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ShellService-eviction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ShizukuSessionPool mSessionPool;
 
     private final IShellService.Stub mBinder = new IShellService.Stub() {
         @Override
@@ -57,22 +74,52 @@ public class ShellService extends Service {
             Logger.logInfo(LOG_TAG, "Destroy requested by binder client");
             stopSelf();
         }
+
+        @Override
+        public IShellService.RemoteCommand startCommand(String command, int timeoutMs) {
+            return ShellService.this.startCommandInternal(command, timeoutMs);
+        }
+
+        @Override
+        public int waitForExit(int commandId, int timeoutMs) {
+            return ShellService.this.waitForExitInternal(commandId, timeoutMs);
+        }
     };
 
     @Override
     public IBinder onBind(Intent intent) {
+        int poolSize = intent == null ? DEFAULT_SESSION_POOL_SIZE
+            : intent.getIntExtra(EXTRA_SESSION_POOL_SIZE, DEFAULT_SESSION_POOL_SIZE);
+        synchronized (this) {
+            if (mSessionPool == null && poolSize > 0) {
+                mSessionPool = new ShizukuSessionPool(this::openSession, poolSize);
+            }
+        }
         return mBinder;
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        mEvictionExecutor.scheduleWithFixedDelay(() -> {
+            int evicted = mStartedCommands.evictFinished(SystemClock.elapsedRealtime());
+            if (evicted > 0) {
+                Logger.logDebug(LOG_TAG, "Dropped " + evicted + " uncollected exit code(s)");
+            }
+        }, EXIT_CODE_RETENTION_MS, EXIT_CODE_RETENTION_MS, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        synchronized (this) {
+            if (mSessionPool != null) {
+                mSessionPool.shutdown();
+                mSessionPool = null;
+            }
+        }
         mStreamExecutor.shutdownNow();
+        mEvictionExecutor.shutdownNow();
     }
 
     private String executeCommandInternal(String command, int timeoutMs) {
@@ -145,6 +192,151 @@ public class ShellService extends Service {
         return result.toString();
     }
 
+    private IShellService.RemoteCommand startCommandInternal(String command, int timeoutMs) {
+        int effectiveTimeout = timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS;
+        IShellService.RemoteCommand pooled = startPooledCommand(command, effectiveTimeout);
+        if (pooled != null) {
+            return pooled;
+        }
+
+        IRemoteProcess remoteProcess = createShizukuRemoteProcessWithRetry(command == null ? "" : command);
+        if (remoteProcess == null) {
+            return null;
+        }
+
+        ParcelFileDescriptor stdout = null;
+        ParcelFileDescriptor stderr = null;
+        try {
+            // These are the Shizuku server's pipes; output is read from them by the client
+            // without being copied through this service.
+            stdout = remoteProcess.getInputStream();
+            stderr = remoteProcess.getErrorStream();
+            if (stdout == null || stderr == null) {
+                throw new IOException("process streams unavailable");
+            }
+        } catch (Exception e) {
+            Logger.logWarn(LOG_TAG, "Failed to open process streams: " + e.getMessage());
+            closeQuietly(stdout);
+            closeQuietly(stderr);
+            destroyQuietly(remoteProcess);
+            return null;
+        }
+
+        int id = mStartedCommands.add(mStreamExecutor.submit(() -> awaitExit(remoteProcess, effectiveTimeout)));
+        return new IShellService.RemoteCommand(id, stdout, stderr);
+    }
+
+    /**
+     * Run the command on a persistent session, relaying its output into fresh pipes.
+     *
+     * @return null if no session is free or Shizuku cannot start one
+     */
+    private IShellService.RemoteCommand startPooledCommand(String command, int timeoutMs) {
+        ShizukuSessionPool pool;
+        synchronized (this) {
+            pool = mSessionPool;
+        }
+        if (pool == null) {
+            return null;
+        }
+
+        ParcelFileDescriptor[] stdout = null;
+        ParcelFileDescriptor[] stderr = null;
+        try {
+            stdout = ParcelFileDescriptor.createPipe();
+            stderr = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            Logger.logWarn(LOG_TAG, "Failed to create command pipes: " + e.getMessage());
+            closePipe(stdout);
+            return null;
+        }
+
+        Future<Integer> exit = pool.submit(command == null ? "" : command, timeoutMs,
+            new ParcelFileDescriptor.AutoCloseOutputStream(stdout[1]),
+            new ParcelFileDescriptor.AutoCloseOutputStream(stderr[1]));
+        if (exit == null) {
+            closePipe(stdout);
+            closePipe(stderr);
+            return null;
+        }
+        int id = mStartedCommands.add(exit);
+        return new IShellService.RemoteCommand(id, stdout[0], stderr[0]);
+    }
+
+    private ShizukuSessionPool.Session openSession() {
+        // Exported variables and the working directory carry over to every command, and
+        // each command runs in its own subshell.
+        IRemoteProcess remoteProcess = createShizukuRemoteProcess("exec /system/bin/sh");
+        if (remoteProcess == null) {
+            return null;
+        }
+        try {
+            return new RemoteSession(remoteProcess);
+        } catch (Exception e) {
+            Logger.logWarn(LOG_TAG, "Failed to open shell session streams: " + e.getMessage());
+            destroyQuietly(remoteProcess);
+            return null;
+        }
+    }
+
+    private void closePipe(ParcelFileDescriptor[] pipe) {
+        if (pipe != null) {
+            closeQuietly(pipe[0]);
+            closeQuietly(pipe[1]);
+        }
+    }
+
+    private int awaitExit(IRemoteProcess remoteProcess, int timeoutMs) {
+        try {
+            if (!remoteProcess.waitForTimeout(timeoutMs, TimeUnit.MILLISECONDS.toString())) {
+                destroyQuietly(remoteProcess);
+                return IShellService.EXIT_CODE_TIMED_OUT;
+            }
+            return remoteProcess.exitValue();
+        } catch (Exception e) {
+            Logger.logWarn(LOG_TAG, "Waiting for remote process failed: " + e.getMessage());
+            destroyQuietly(remoteProcess);
+            return -1;
+        }
+    }
+
+    private int waitForExitInternal(int commandId, int timeoutMs) {
+        Future<Integer> exit = mStartedCommands.get(commandId);
+        if (exit == null) {
+            return IShellService.EXIT_CODE_UNKNOWN;
+        }
+        try {
+            int exitCode = exit.get(Math.max(timeoutMs, 0), TimeUnit.MILLISECONDS);
+            mStartedCommands.remove(commandId);
+            return exitCode;
+        } catch (TimeoutException e) {
+            return IShellService.EXIT_CODE_UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return IShellService.EXIT_CODE_UNKNOWN;
+        } catch (ExecutionException e) {
+            mStartedCommands.remove(commandId);
+            return -1;
+        }
+    }
+
+    private void destroyQuietly(IRemoteProcess remoteProcess) {
+        try {
+            remoteProcess.destroy();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void closeQuietly(ParcelFileDescriptor descriptor) {
+        if (descriptor == null) {
+            return;
+        }
+        try {
+            descriptor.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     private String buildJsonResult(int exitCode, String stdout, String stderr) {
         JSONObject result = new JSONObject();
         try {
@@ -159,14 +351,14 @@ public class ShellService extends Service {
     }
 
     private Process createProcess(String command) {
-        Process shizukuProcess = createShizukuProcessWithRetry(command);
-        if (shizukuProcess != null) {
-            return shizukuProcess;
+        IRemoteProcess remoteProcess = createShizukuRemoteProcessWithRetry(command);
+        if (remoteProcess == null) {
+            return null;
         }
-        return null;
+        return createWrappedShizukuRemoteProcess(remoteProcess);
     }
 
-    private Process createShizukuProcess(String command) {
+    private IRemoteProcess createShizukuRemoteProcess(String command) {
         if (!Shizuku.pingBinder()) {
             return null;
         }
@@ -189,8 +381,7 @@ public class ShellService extends Service {
             if (service == null) {
                 return null;
             }
-            IRemoteProcess remoteProcess = service.newProcess(selectCommand(command), getShizukuEnv(), null);
-            return createWrappedShizukuRemoteProcess(remoteProcess);
+            return service.newProcess(selectCommand(command), getShizukuEnv(), null);
         } catch (SecurityException e) {
             Logger.logWarn(LOG_TAG, "Shizuku security denied: " + e.getMessage());
             return null;
@@ -200,7 +391,7 @@ public class ShellService extends Service {
         }
     }
 
-    private Process createShizukuProcessWithRetry(String command) {
+    private IRemoteProcess createShizukuRemoteProcessWithRetry(String command) {
         for (int attempt = 0; attempt < SHIZUKU_STARTUP_RETRY_COUNT; attempt++) {
             if (!Shizuku.pingBinder()) {
                 if (attempt == SHIZUKU_STARTUP_RETRY_COUNT - 1) {
@@ -211,7 +402,7 @@ public class ShellService extends Service {
                 continue;
             }
 
-            Process process = createShizukuProcess(command);
+            IRemoteProcess process = createShizukuRemoteProcess(command);
             if (process != null) {
                 return process;
             }
@@ -359,4 +550,71 @@ public class ShellService extends Service {
         throws ExecutionException, InterruptedException, TimeoutException {
         return future.get(timeoutMs, TimeUnit.MILLISECONDS);
     }
+
+    /**
+     * A persistent {@code sh} started through Shizuku.
+     */
+    private final class RemoteSession implements ShizukuSessionPool.Session {
+        private final IRemoteProcess mProcess;
+        private final OutputStream mStdin;
+        private final InputStream mStdout;
+        private final InputStream mStderr;
+
+        RemoteSession(IRemoteProcess process) throws Exception {
+            mProcess = process;
+            mStdin = new ParcelFileDescriptor.AutoCloseOutputStream(process.getOutputStream());
+            mStdout = new ParcelFileDescriptor.AutoCloseInputStream(process.getInputStream());
+            mStderr = new ParcelFileDescriptor.AutoCloseInputStream(process.getErrorStream());
+        }
+
+        @Override
+        public OutputStream getStdin() {
+            return mStdin;
+        }
+
+        @Override
+        public InputStream getStdout() {
+            return mStdout;
+        }
+
+        @Override
+        public InputStream getStderr() {
+            return mStderr;
+        }
+
+        @Override
+        public boolean isAlive() {
+            try {
+                return mProcess.alive();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void destroy(int shellPid) {
+            if (shellPid > 0) {
+                // Destroying the session only kills the shell; take its running command too.
+                IRemoteProcess killer = createShizukuRemoteProcess(
+                    ShizukuSessionPool.killDescendantsScript(shellPid));
+                if (killer != null) {
+                    // Must finish before the shell dies and its children are reparented.
+                    awaitExit(killer, 5000);
+                }
+            }
+            destroyQuietly(mProcess);
+            try {
+                mStdin.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                mStdout.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                mStderr.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
 }
@@ -5,7 +5,10 @@ import com.termux.shared.logger.Logger;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -17,9 +20,27 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback HTTP/1.1 server that lets OpenClaw skills run shell commands through Shizuku.
+ *
+ * Connections are kept alive unless the client asks otherwise, and requests may be pipelined:
+ * they are answered in order on the same socket, and responses to back-to-back requests are
+ * flushed together. An exec request with {@code "stream": true} gets a chunked
+ * {@code application/x-ndjson} response: one {@code {"stdout": ...}} event per output chunk
+ * while the command runs, then a final event with {@code "done": true} carrying the exit code
+ * and stderr.
+ *
+ * Commands are queued per caller, named by the optional {@code "caller"} field or else by the
+ * connection. A caller whose queue is full gets {@code "busy": true} straight away.
+ */
 public final class ShizukuBridgeServer {
 
     public interface StatusProvider {
@@ -27,29 +48,70 @@ public final class ShizukuBridgeServer {
         boolean isShellServiceBound();
     }
 
+    /**
+     * Receives stdout while a command runs.
+     */
+    interface OutputSink {
+        void onStdout(String chunk) throws IOException;
+    }
+
+    /**
+     * Runs bridge commands. Output passed to the sink is not repeated in the result's stdout.
+     */
+    interface CommandRunner {
+        boolean isBound();
+
+        /**
+         * @param caller client the command is scheduled for, so clients get fair turns
+         */
+        ShizukuShellExecutor.Result execute(String caller, String command, int timeoutMs, OutputSink sink)
+            throws IOException;
+
+        /**
+         * @return scheduling counters, or null if the runner does not schedule
+         */
+        CommandScheduler.Stats getStats();
+    }
+
     private static final String LOG_TAG = "ShizukuBridgeServer";
     private static final int MAX_REQUEST_BYTES = 10 * 1024 * 1024;
     private static final int MAX_RESPONSE_BYTES = 10 * 1024 * 1024;
+    private static final int MAX_HEADER_LINE_BYTES = 16 * 1024;
+    /** Idle time allowed between requests on a kept-alive connection. */
     private static final int SOCKET_TIMEOUT_MS = 30000;
+    private static final int MIN_WORKERS = 4;
+    /** Each open connection holds a worker, so this also caps concurrent connections. */
+    private static final int MAX_CONNECTIONS = 16;
     private static final String DEFAULT_HOST = "127.0.0.1";
     public static final int DEFAULT_PORT = 18790;
 
     private final int mPort;
     private final String mAuthToken;
-    private final ShizukuShellExecutor mExecutor;
+    private final CommandRunner mRunner;
     private final StatusProvider mStatusProvider;
+    private final Set<Socket> mConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong mConnectionCount = new AtomicLong();
+    private final AtomicLong mRequestCount = new AtomicLong();
 
     private ServerSocket mServerSocket;
-    private ExecutorService mWorkers;
+    private ThreadPoolExecutor mWorkers;
     private Thread mAcceptThread;
     private volatile boolean mRunning;
 
     public ShizukuBridgeServer(String host, int port, String authToken,
                               ShizukuShellExecutor executor,
                               StatusProvider statusProvider) {
-        mPort = port <= 0 ? DEFAULT_PORT : port;
+        this(port <= 0 ? DEFAULT_PORT : port, authToken,
+            executor == null ? null : new ExecutorRunner(executor), statusProvider);
+    }
+
+    /**
+     * @param port port to bind, or 0 for any free port
+     */
+    ShizukuBridgeServer(int port, String authToken, CommandRunner runner, StatusProvider statusProvider) {
+        mPort = port;
         mAuthToken = authToken == null ? "" : authToken;
-        mExecutor = executor;
+        mRunner = runner;
         mStatusProvider = statusProvider;
     }
 
@@ -57,6 +119,13 @@ public final class ShizukuBridgeServer {
         return mRunning;
     }
 
+    /**
+     * Port the server is bound to, or -1 when not running.
+     */
+    synchronized int getLocalPort() {
+        return mServerSocket == null ? -1 : mServerSocket.getLocalPort();
+    }
+
     public synchronized boolean start() {
         if (mRunning) {
             return true;
@@ -66,11 +135,12 @@ public final class ShizukuBridgeServer {
             mServerSocket = new ServerSocket();
             mServerSocket.bind(new InetSocketAddress(DEFAULT_HOST, mPort));
             mServerSocket.setSoTimeout(SOCKET_TIMEOUT_MS);
-            mWorkers = Executors.newFixedThreadPool(4);
+            mWorkers = new ThreadPoolExecutor(MIN_WORKERS, MAX_CONNECTIONS, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
             mRunning = true;
             mAcceptThread = new Thread(this::acceptLoop, "ShizukuBridgeServer");
             mAcceptThread.start();
-            Logger.logInfo(LOG_TAG, "Bridge server started on " + DEFAULT_HOST + ":" + mPort);
+            Logger.logInfo(LOG_TAG, "Bridge server started on " + DEFAULT_HOST + ":" + mServerSocket.getLocalPort());
             return true;
         } catch (IOException e) {
             Logger.logError(LOG_TAG, "Unable to start bridge server: " + e.getMessage());
@@ -89,6 +159,10 @@ public final class ShizukuBridgeServer {
             mAcceptThread.interrupt();
             mAcceptThread = null;
         }
+        // Idle keep-alive connections sit in a blocking read that interrupts do not end.
+        for (Socket socket : mConnections) {
+            closeQuietly(socket);
+        }
         if (mWorkers != null) {
             mWorkers.shutdownNow();
             mWorkers = null;
@@ -101,8 +175,17 @@ public final class ShizukuBridgeServer {
             try {
                 Socket socket = mServerSocket.accept();
                 socket.setSoTimeout(SOCKET_TIMEOUT_MS);
-                if (mWorkers != null) {
-                    mWorkers.execute(() -> handleClient(socket));
+                socket.setTcpNoDelay(true);
+                ThreadPoolExecutor workers = mWorkers;
+                if (workers == null) {
+                    closeQuietly(socket);
+                    continue;
+                }
+                try {
+                    workers.execute(() -> handleConnection(socket));
+                } catch (RejectedExecutionException e) {
+                    Logger.logWarn(LOG_TAG, "Too many bridge connections, rejecting");
+                    rejectBusy(socket);
                 }
             } catch (SocketTimeoutException e) {
                 continue;
@@ -121,128 +204,237 @@ public final class ShizukuBridgeServer {
         }
     }
 
-    private void handleClient(Socket socket) {
+    private void rejectBusy(Socket socket) {
         try {
-            InputStream input = socket.getInputStream();
+            HttpConnection connection = new HttpConnection(socket, 0);
+            connection.writeResponse(503, "", buildError("Too many connections"), false);
+            connection.flush();
+        } catch (IOException e) {
+            Logger.logWarn(LOG_TAG, "Failed to write response: " + e.getMessage());
+        } finally {
+            closeQuietly(socket);
+        }
+    }
 
-            String requestLine = readLine(input);
-            if (requestLine == null) {
-                writeResponse(socket, 400, "", buildError("Bad request"));
-                return;
+    private void handleConnection(Socket socket) {
+        mConnections.add(socket);
+        long connectionId = mConnectionCount.incrementAndGet();
+        try {
+            HttpConnection connection = new HttpConnection(socket, connectionId);
+            boolean keepAlive = true;
+            while (keepAlive && mRunning) {
+                keepAlive = handleRequest(connection);
+                // Answer a burst of pipelined requests with a single write.
+                if (!keepAlive || connection.in.available() == 0) {
+                    connection.flush();
+                }
             }
-
-            String[] requestParts = requestLine.split(" ");
-            if (requestParts.length < 2) {
-                writeResponse(socket, 400, "", buildError("Invalid request line"));
-                return;
+        } catch (SocketTimeoutException | EOFException e) {
+            // Idle keep-alive connection or client went away between requests.
+        } catch (IOException e) {
+            if (mRunning) {
+                Logger.logDebug(LOG_TAG, "Bridge connection closed: " + e.getMessage());
             }
+        } finally {
+            mConnections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
 
-            String method = requestParts[0].toUpperCase(Locale.ROOT);
-            String path = requestParts[1];
+    /**
+     * Read and answer one request.
+     *
+     * @return whether the connection can carry another request
+     * @throws EOFException if the client closed the connection before sending a request
+     */
+    private boolean handleRequest(HttpConnection connection) throws IOException {
+        String requestLine = connection.readLine();
+        if (requestLine == null) {
+            throw new EOFException();
+        }
+        if (requestLine.isEmpty()) {
+            // Tolerate a stray CRLF between pipelined requests.
+            return true;
+        }
+        mRequestCount.incrementAndGet();
 
-            Map<String, String> headers = new HashMap<>();
-            int contentLength = 0;
+        String[] requestParts = requestLine.split(" ");
+        if (requestParts.length < 2) {
+            connection.writeResponse(400, "", buildError("Invalid request line"), false);
+            return false;
+        }
 
-            String line;
-            while ((line = readLine(input)) != null) {
-                if (line.isEmpty()) {
-                    break;
-                }
-                int sep = line.indexOf(':');
-                if (sep > 0 && sep < line.length() - 1) {
-                    String key = line.substring(0, sep).trim().toLowerCase(Locale.ROOT);
-                    String value = line.substring(sep + 1).trim();
-                    headers.put(key, value);
-
-                    if ("content-length".equals(key)) {
-                        try {
-                            contentLength = Integer.parseInt(value);
-                        } catch (NumberFormatException ignored) {
-                            contentLength = 0;
-                        }
+        String method = requestParts[0].toUpperCase(Locale.ROOT);
+        String path = requestParts[1];
+        boolean http11 = requestParts.length < 3 || !"HTTP/1.0".equalsIgnoreCase(requestParts[2]);
+
+        Map<String, String> headers = new HashMap<>();
+        int contentLength = 0;
+
+        String line;
+        while ((line = connection.readLine()) != null) {
+            if (line.isEmpty()) {
+                break;
+            }
+            int sep = line.indexOf(':');
+            if (sep > 0 && sep < line.length() - 1) {
+                String key = line.substring(0, sep).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(sep + 1).trim();
+                headers.put(key, value);
+
+                if ("content-length".equals(key)) {
+                    try {
+                        contentLength = Integer.parseInt(value);
+                    } catch (NumberFormatException ignored) {
+                        contentLength = 0;
                     }
                 }
             }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed in request headers");
+        }
 
-            String response;
+        String connectionHeader = headers.get("connection");
+        boolean keepAlive = http11
+            ? !"close".equalsIgnoreCase(connectionHeader)
+            : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+        if (contentLength > MAX_REQUEST_BYTES) {
+            // The body cannot be skipped cheaply, so the connection is not reusable.
+            connection.writeResponse(413, "", buildError("Payload too large"), false);
+            return false;
+        }
+        // Always consume the body so the next pipelined request starts at the right byte.
+        String body = connection.readBody(contentLength);
+
+        try {
             if ("GET".equals(method) && "/shizuku/status".equals(path)) {
                 if (!authorize(headers)) {
-                    writeResponse(socket, 401, "", buildError("Unauthorized"));
-                    return;
+                    connection.writeResponse(401, "", buildError("Unauthorized"), keepAlive);
+                    return keepAlive;
                 }
-                response = buildStatusPayload();
-                writeResponse(socket, 200, "application/json", response);
-                return;
+                connection.writeResponse(200, "application/json", buildStatusPayload(), keepAlive);
+                return keepAlive;
             }
 
             if (!"POST".equals(method) || !"/shizuku/exec".equals(path)) {
-                writeResponse(socket, 404, "", buildError("Not found"));
-                return;
+                connection.writeResponse(404, "", buildError("Not found"), keepAlive);
+                return keepAlive;
             }
 
             if (!authorize(headers)) {
-                writeResponse(socket, 401, "", buildError("Unauthorized"));
-                return;
+                connection.writeResponse(401, "", buildError("Unauthorized"), keepAlive);
+                return keepAlive;
             }
 
-            if (contentLength > MAX_REQUEST_BYTES) {
-                writeResponse(socket, 413, "", buildError("Payload too large"));
-                return;
-            }
-
-            String body = readBody(input, contentLength);
-            response = handleExec(body);
-            writeResponse(socket, 200, "application/json", response);
+            handleExec(connection, body, keepAlive);
+            return keepAlive;
+        } catch (IOException e) {
+            throw e;
         } catch (Throwable e) {
             Logger.logWarn(LOG_TAG, "Request handling error: " + e.getMessage());
-            writeResponse(socket, 500, "", buildError("Internal server error"));
-        } finally {
-            closeQuietly(socket);
+            connection.writeResponse(500, "", buildError("Internal server error"), false);
+            return false;
         }
     }
 
-    private String handleExec(String body) {
+    private void handleExec(HttpConnection connection, String body, boolean keepAlive) throws IOException {
         if (body == null || body.isEmpty()) {
-            return buildError("Missing request body");
+            connection.writeResponse(200, "application/json", buildError("Missing request body"), keepAlive);
+            return;
         }
 
+        String command;
+        int timeout;
+        boolean stream;
+        String caller;
         try {
             JSONObject req = new JSONObject(body);
-            String command = req.optString("command", "").trim();
-            if (command.isEmpty()) {
-                return buildError("command missing");
+            command = req.optString("command", "").trim();
+            timeout = req.optInt("timeoutMs", 30000);
+            stream = req.optBoolean("stream", false);
+            // Clients that open several connections can name themselves to share one queue.
+            caller = req.optString("caller", "").trim();
+            if (caller.isEmpty()) {
+                caller = "connection-" + connection.id;
             }
+        } catch (JSONException e) {
+            connection.writeResponse(200, "application/json", buildError("Invalid JSON body"), keepAlive);
+            return;
+        }
+        if (command.isEmpty()) {
+            connection.writeResponse(200, "application/json", buildError("command missing"), keepAlive);
+            return;
+        }
 
-            int timeout = req.optInt("timeoutMs", 30000);
+        if (mRunner == null) {
+            connection.writeResponse(200, "application/json", buildUnavailableResponse("executor missing"), keepAlive);
+            return;
+        }
+        if (!mRunner.isBound()) {
+            Logger.logWarn(LOG_TAG, "Shizuku shell service not bound");
+            connection.writeResponse(200, "application/json", buildUnavailableResponse("shizuku not bound"), keepAlive);
+            return;
+        }
 
-            if (mExecutor == null) {
-                return buildUnavailableResponse("executor missing");
-            }
-            if (mExecutor.isBound()) {
-                ShizukuShellExecutor.Result result = mExecutor.executeSync(command, timeout);
-                if (result != null && result.success) {
-                    return toJsonResponse(result, "shizuku", false).toString();
-                }
-                if (result != null && isShizukuUnavailable(result)) {
-                    Logger.logWarn(LOG_TAG, "Shizuku unavailable: " + result.stderr);
-                    return buildUnavailableResponse(result.stderr == null ? "shizuku unavailable" : result.stderr);
-                }
-                if (result == null) {
-                    Logger.logWarn(LOG_TAG, "Shizuku executor returned null");
-                    return buildUnavailableResponse("executor unavailable");
-                }
+        if (stream) {
+            streamExec(connection, caller, command, timeout, keepAlive);
+            return;
+        }
 
-                // keep Shizuku result on normal command failures (e.g. command syntax)
-                return toJsonResponse(result, "shizuku", false).toString();
+        StringBuilder streamed = new StringBuilder();
+        String response;
+        try {
+            ShizukuShellExecutor.Result result = mRunner.execute(caller, command, timeout, streamed::append);
+            if (result != null && streamed.length() > 0) {
+                result = new ShizukuShellExecutor.Result(result.success,
+                    streamed + (result.stdout == null ? "" : result.stdout), result.stderr, result.exitCode);
             }
+            response = buildExecResponse(result);
+        } catch (Exception e) {
+            response = buildError("Execution failed: " + e.getMessage());
+        }
+        connection.writeResponse(200, "application/json", response, keepAlive);
+    }
 
-            Logger.logWarn(LOG_TAG, "Shizuku shell service not bound");
-            return buildUnavailableResponse("shizuku not bound");
-        } catch (JSONException e) {
-            return buildError("Invalid JSON body");
+    private void streamExec(HttpConnection connection, String caller, String command, int timeout,
+                            boolean keepAlive)
+        throws IOException {
+        connection.beginChunked(200, "application/x-ndjson", keepAlive);
+        String last;
+        try {
+            ShizukuShellExecutor.Result result = mRunner.execute(caller, command, timeout, chunk -> {
+                if (chunk != null && !chunk.isEmpty()) {
+                    connection.writeChunk(buildStdoutEvent(chunk));
+                    connection.flush();
+                }
+            });
+            if (result != null && result.stdout != null && !result.stdout.isEmpty()) {
+                connection.writeChunk(buildStdoutEvent(result.stdout));
+            }
+            last = buildExecResponse(result);
+        } catch (IOException e) {
+            // Writing to the client failed; nothing more can be sent.
+            throw e;
         } catch (Exception e) {
-            return buildError("Execution failed: " + e.getMessage());
+            last = buildError("Execution failed: " + e.getMessage());
+        }
+        connection.writeChunk(buildDoneEvent(last));
+        connection.endChunked();
+    }
+
+    private String buildExecResponse(ShizukuShellExecutor.Result result) {
+        if (result == null) {
+            Logger.logWarn(LOG_TAG, "Shizuku executor returned null");
+            return buildUnavailableResponse("executor unavailable");
+        }
+        if (!result.success && isShizukuUnavailable(result)) {
+            Logger.logWarn(LOG_TAG, "Shizuku unavailable: " + result.stderr);
+            return buildUnavailableResponse(result.stderr == null ? "shizuku unavailable" : result.stderr);
         }
+        // keep Shizuku result on normal command failures (e.g. command syntax)
+        return toJsonResponse(result, "shizuku", false).toString();
     }
 
     private boolean isShizukuUnavailable(ShizukuShellExecutor.Result result) {
@@ -285,16 +477,57 @@ public final class ShizukuBridgeServer {
             response.put("stderr", result.stderr == null ? "" : result.stderr);
             response.put("mode", mode);
             response.put("fallback", fallback);
+            response.put("busy", result.busy);
         } catch (JSONException ignored) {
         }
         return response;
     }
 
+    private String buildStdoutEvent(String chunk) {
+        try {
+            return new JSONObject().put("stdout", chunk).toString() + "\n";
+        } catch (JSONException e) {
+            return "{\"stdout\":\"" + escape(chunk) + "\"}\n";
+        }
+    }
+
+    /**
+     * Final streamed event: the usual exec response, with stdout already sent, plus done=true.
+     */
+    private String buildDoneEvent(String response) {
+        try {
+            JSONObject event = new JSONObject(response);
+            event.put("stdout", "");
+            event.put("done", true);
+            return event.toString() + "\n";
+        } catch (JSONException e) {
+            return "{\"ok\":false,\"done\":true}\n";
+        }
+    }
+
     private String buildStatusPayload() {
         try {
             JSONObject response = new JSONObject();
             response.put("status", mStatusProvider == null ? "UNKNOWN" : mStatusProvider.getStatus());
             response.put("serviceBound", mStatusProvider != null && mStatusProvider.isShellServiceBound());
+            response.put("openConnections", mConnections.size());
+            response.put("connectionsAccepted", mConnectionCount.get());
+            response.put("requestsServed", mRequestCount.get());
+            CommandScheduler.Stats stats = mRunner == null ? null : mRunner.getStats();
+            if (stats != null) {
+                JSONObject executor = new JSONObject();
+                executor.put("maxInFlight", stats.maxInFlight);
+                executor.put("inFlight", stats.inFlight);
+                executor.put("queued", stats.queued);
+                executor.put("completed", stats.completed);
+                executor.put("rejected", stats.rejected);
+                executor.put("p50WaitMs", stats.p50WaitMs);
+                executor.put("p95WaitMs", stats.p95WaitMs);
+                executor.put("p50Ms", stats.p50RunMs);
+                executor.put("p95Ms", stats.p95RunMs);
+                executor.put("p99Ms", stats.p99RunMs);
+                response.put("executor", executor);
+            }
             return response.toString();
         } catch (JSONException e) {
             return buildError("Failed to build status");
@@ -343,50 +576,96 @@ public final class ShizukuBridgeServer {
         return mAuthToken.equals(trimmedAuth);
     }
 
-    private String readBody(InputStream input, int contentLength) throws IOException {
-        if (contentLength <= 0) {
-            return "";
+    private static String reasonPhrase(int code) {
+        switch (code) {
+            case 200: return "OK";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 404: return "Not Found";
+            case 413: return "Payload Too Large";
+            case 503: return "Service Unavailable";
+            default: return "Internal Server Error";
         }
+    }
 
-        byte[] body = new byte[contentLength];
-        int readTotal = 0;
-        while (readTotal < contentLength) {
-            int read = input.read(body, readTotal, contentLength - readTotal);
-            if (read <= 0) {
-                break;
-            }
-            readTotal += read;
+    private void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
         }
-        if (readTotal <= 0) {
+    }
+
+    private String escape(String input) {
+        if (input == null) {
             return "";
         }
-        return new String(body, 0, readTotal, StandardCharsets.UTF_8);
+        try {
+            return input.replace("\\", "\\\\").replace("\"", "\\\"");
+        } catch (Exception ignored) {
+            return input;
+        }
     }
 
-    private String readLine(InputStream input) throws IOException {
-        ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(128);
-        int b;
-        while ((b = input.read()) != -1) {
-            if (b == '\n') {
-                break;
-            }
-            lineBuffer.write(b);
+    /**
+     * Buffered request/response framing for one client socket.
+     */
+    private final class HttpConnection {
+        final long id;
+        final InputStream in;
+        final OutputStream out;
+
+        HttpConnection(Socket socket, long id) throws IOException {
+            this.id = id;
+            in = new BufferedInputStream(socket.getInputStream(), 8192);
+            out = new BufferedOutputStream(socket.getOutputStream(), 8192);
         }
 
-        if (b == -1 && lineBuffer.size() == 0) {
-            return null;
+        String readLine() throws IOException {
+            ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(128);
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    break;
+                }
+                if (lineBuffer.size() >= MAX_HEADER_LINE_BYTES) {
+                    throw new IOException("Request line too long");
+                }
+                lineBuffer.write(b);
+            }
+
+            if (b == -1 && lineBuffer.size() == 0) {
+                return null;
+            }
+
+            byte[] raw = lineBuffer.toByteArray();
+            int len = raw.length;
+            if (len > 0 && raw[len - 1] == '\r') {
+                len -= 1;
+            }
+            return new String(raw, 0, len, StandardCharsets.UTF_8);
         }
 
-        byte[] raw = lineBuffer.toByteArray();
-        int len = raw.length;
-        if (len > 0 && raw[len - 1] == '\r') {
-            len -= 1;
+        String readBody(int contentLength) throws IOException {
+            if (contentLength <= 0) {
+                return "";
+            }
+
+            byte[] body = new byte[contentLength];
+            int readTotal = 0;
+            while (readTotal < contentLength) {
+                int read = in.read(body, readTotal, contentLength - readTotal);
+                if (read <= 0) {
+                    throw new EOFException("Connection closed in request body");
+                }
+                readTotal += read;
+            }
+            return new String(body, 0, readTotal, StandardCharsets.UTF_8);
         }
-        return new String(raw, 0, len, StandardCharsets.UTF_8);
-    }
 
-    private void writeResponse(Socket socket, int code, String contentType, String body) {
-        try {
+        void writeResponse(int code, String contentType, String body, boolean keepAlive) throws IOException {
             if (contentType == null || contentType.isEmpty()) {
                 contentType = "application/json";
             }
@@ -400,38 +679,74 @@ public final class ShizukuBridgeServer {
                 payload = buildError("Response too large").getBytes(StandardCharsets.UTF_8);
             }
 
-            OutputStream out = socket.getOutputStream();
-            String statusLine = "HTTP/1.1 " + code + "\r\n";
-            String headers = "Content-Type: " + contentType + "; charset=utf-8\r\n"
+            String head = "HTTP/1.1 " + code + " " + reasonPhrase(code) + "\r\n"
+                + "Content-Type: " + contentType + "; charset=utf-8\r\n"
                 + "Content-Length: " + payload.length + "\r\n"
-                + "Connection: close\r\n\r\n";
-            out.write(statusLine.getBytes(StandardCharsets.UTF_8));
-            out.write(headers.getBytes(StandardCharsets.UTF_8));
+                + connectionHeaders(keepAlive) + "\r\n";
+            out.write(head.getBytes(StandardCharsets.UTF_8));
             out.write(payload);
+        }
+
+        void beginChunked(int code, String contentType, boolean keepAlive) throws IOException {
+            String head = "HTTP/1.1 " + code + " " + reasonPhrase(code) + "\r\n"
+                + "Content-Type: " + contentType + "; charset=utf-8\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + connectionHeaders(keepAlive) + "\r\n";
+            out.write(head.getBytes(StandardCharsets.UTF_8));
             out.flush();
-        } catch (IOException e) {
-            Logger.logWarn(LOG_TAG, "Failed to write response: " + e.getMessage());
         }
-    }
 
-    private void closeQuietly(AutoCloseable closeable) {
-        if (closeable == null) {
-            return;
+        void writeChunk(String text) throws IOException {
+            byte[] data = text.getBytes(StandardCharsets.UTF_8);
+            if (data.length == 0) {
+                return;
+            }
+            out.write((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(data);
+            out.write('\r');
+            out.write('\n');
         }
-        try {
-            closeable.close();
-        } catch (Exception ignored) {
+
+        void endChunked() throws IOException {
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        private String connectionHeaders(boolean keepAlive) {
+            return keepAlive
+                ? "Connection: keep-alive\r\nKeep-Alive: timeout=" + (SOCKET_TIMEOUT_MS / 1000) + "\r\n"
+                : "Connection: close\r\n";
         }
     }
 
-    private String escape(String input) {
-        if (input == null) {
-            return "";
+    /**
+     * Runs commands on the bound Shizuku shell service, relaying stdout from the process pipe
+     * to the sink as it is read.
+     */
+    private static final class ExecutorRunner implements CommandRunner {
+        private final ShizukuShellExecutor mExecutor;
+
+        ExecutorRunner(ShizukuShellExecutor executor) {
+            mExecutor = executor;
         }
-        try {
-            return input.replace("\\", "\\\\").replace("\"", "\\\"");
-        } catch (Exception ignored) {
-            return input;
+
+        @Override
+        public boolean isBound() {
+            return mExecutor.isBound();
+        }
+
+        @Override
+        public ShizukuShellExecutor.Result execute(String caller, String command, int timeoutMs, OutputSink sink)
+            throws IOException {
+            return mExecutor.executeStreaming(caller, command, timeoutMs, sink::onStdout);
+        }
+
+        @Override
+        public CommandScheduler.Stats getStats() {
+            return mExecutor.getSchedulerStats();
         }
     }
 }
@@ -0,0 +1,491 @@
+package app.botdrop.shizuku;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of long-lived {@code sh} sessions running under the Shizuku uid, so a burst of short
+ * commands does not pay for a {@code newProcess} call, a fork and the server's per-stream
+ * transfer threads every time.
+ *
+ * Each command is written to the session's stdin as {@code ( eval '<script>' ) </dev/null} and
+ * followed by a sentinel line carrying its exit status on both stdout and stderr. The
+ * subshell keeps {@code cd}, {@code exit} and variables from leaking into later commands.
+ * Output is relayed byte for byte up to the sentinel, so binary output such as
+ * {@code screencap -p} survives. A session whose command times out, or whose stream breaks,
+ * is killed and replaced.
+ *
+ * {@link #submit} returns null when no session can take the command, and callers fall back to
+ * a one-shot process.
+ */
+final class ShizukuSessionPool {
+
+    private static final String LOG_TAG = "ShizukuSessionPool";
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * A running {@code sh} reading commands from stdin.
+     */
+    interface Session {
+        OutputStream getStdin();
+
+        InputStream getStdout();
+
+        InputStream getStderr();
+
+        boolean isAlive();
+
+        /**
+         * Kill the session and anything it is running.
+         *
+         * @param shellPid pid of the session shell, or -1 if unknown
+         */
+        void destroy(int shellPid);
+    }
+
+    interface SessionFactory {
+        /**
+         * @return a new session, or null if none can be started right now
+         */
+        Session open() throws IOException;
+    }
+
+    private final SessionFactory mFactory;
+    private final int mMaxSessions;
+    private final byte[] mSentinel;
+    private final ExecutorService mRelayExecutor;
+    private final ScheduledExecutorService mTimeoutExecutor;
+
+    private final ArrayDeque<PooledSession> mIdle = new ArrayDeque<>();
+    private int mSessionCount = 0;
+    private boolean mClosed = false;
+
+    private final AtomicLong mSpawnCount = new AtomicLong();
+    private final AtomicLong mCommandCount = new AtomicLong();
+    private final AtomicLong mRecycleCount = new AtomicLong();
+
+    ShizukuSessionPool(SessionFactory factory, int maxSessions) {
+        mFactory = factory;
+        mMaxSessions = Math.max(1, maxSessions);
+        mSentinel = ("__BOTDROP_SH_DONE_" + UUID.randomUUID().toString().replace("-", ""))
+            .getBytes(StandardCharsets.US_ASCII);
+        AtomicInteger threadCount = new AtomicInteger();
+        mRelayExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ShizukuSession-relay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        mTimeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ShizukuSession-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a script on an idle session, relaying its stdout and stderr into the given streams,
+     * which are closed once the command has finished.
+     *
+     * @return the exit code, {@link IShellService#EXIT_CODE_TIMED_OUT} if the session was
+     * killed at the timeout, or -1 if it died; null if no session could take the command, in
+     * which case nothing has been written and the streams are still open
+     */
+    Future<Integer> submit(String script, long timeoutMs, OutputStream stdout, OutputStream stderr) {
+        PooledSession session = acquire();
+        if (session == null) {
+            return null;
+        }
+
+        try {
+            session.session.getStdin().write(frame(script));
+            session.session.getStdin().flush();
+        } catch (IOException e) {
+            // Nothing ran yet, so the caller can still use the one-shot path.
+            Logger.logWarn(LOG_TAG, "Shell session rejected command: " + e.getMessage());
+            discard(session);
+            return null;
+        }
+        mCommandCount.incrementAndGet();
+        return new Run(session, stdout, stderr, timeoutMs).start();
+    }
+
+    /**
+     * Destroy idle sessions; running ones are destroyed when their command finishes.
+     */
+    void shutdown() {
+        synchronized (this) {
+            mClosed = true;
+            while (!mIdle.isEmpty()) {
+                PooledSession session = mIdle.pop();
+                session.destroy();
+                mSessionCount--;
+            }
+        }
+        mTimeoutExecutor.shutdownNow();
+        mRelayExecutor.shutdown();
+    }
+
+    /** Sessions started since the pool was created. */
+    long getSpawnCount() {
+        return mSpawnCount.get();
+    }
+
+    /** Commands handled by pooled sessions. */
+    long getCommandCount() {
+        return mCommandCount.get();
+    }
+
+    /** Sessions killed because a command timed out or a stream broke. */
+    long getRecycleCount() {
+        return mRecycleCount.get();
+    }
+
+    synchronized int getSessionCount() {
+        return mSessionCount;
+    }
+
+    /**
+     * Shell script that kills everything a session shell has started, grandchildren included,
+     * while leaving the shell itself alone. Each process is stopped before its children are
+     * listed so it cannot fork new ones in between.
+     */
+    static String killDescendantsScript(int shellPid) {
+        return "k() { kill -STOP $1 2>/dev/null; for c in $(pgrep -P $1); do k $c; done; kill -9 $1 2>/dev/null; }; "
+            + "for c in $(pgrep -P " + shellPid + "); do k $c; done";
+    }
+
+    private byte[] frame(String script) {
+        String quoted = "'" + (script == null ? "" : script).replace("'", "'\\''") + "'";
+        String sentinel = new String(mSentinel, StandardCharsets.US_ASCII);
+        return ("( eval " + quoted + " ) </dev/null\n"
+            + "__bd_rc=$?\n"
+            + "printf '%s:%s\\n' '" + sentinel + "' \"$__bd_rc\"\n"
+            + "printf '%s:%s\\n' '" + sentinel + "' \"$__bd_rc\" >&2\n")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private PooledSession acquire() {
+        synchronized (this) {
+            if (mClosed) {
+                return null;
+            }
+            while (!mIdle.isEmpty()) {
+                PooledSession session = mIdle.pop();
+                if (session.session.isAlive()) {
+                    return session;
+                }
+                session.destroy();
+                mSessionCount--;
+            }
+            if (mSessionCount >= mMaxSessions) {
+                return null;
+            }
+            mSessionCount++;
+        }
+
+        PooledSession session = spawn();
+        if (session == null) {
+            synchronized (this) {
+                mSessionCount--;
+            }
+        }
+        return session;
+    }
+
+    private PooledSession spawn() {
+        Session session = null;
+        try {
+            session = mFactory.open();
+            if (session == null) {
+                return null;
+            }
+            // Learn the shell's pid so a hung command's children can be killed with it.
+            session.getStdin().write("printf '%s\\n' \"$$\"\n".getBytes(StandardCharsets.UTF_8));
+            session.getStdin().flush();
+            PooledSession pooled = new PooledSession(session);
+            pooled.shellPid = pooled.stdout.readPidLine();
+            mSpawnCount.incrementAndGet();
+            return pooled;
+        } catch (IOException | RuntimeException e) {
+            Logger.logWarn(LOG_TAG, "Failed to start shell session: " + e.getMessage());
+            if (session != null) {
+                session.destroy(-1);
+            }
+            return null;
+        }
+    }
+
+    private void release(PooledSession session) {
+        synchronized (this) {
+            if (!mClosed && session.session.isAlive()) {
+                mIdle.push(session);
+                return;
+            }
+            mSessionCount--;
+        }
+        session.destroy();
+    }
+
+    private void discard(PooledSession session) {
+        synchronized (this) {
+            mSessionCount--;
+        }
+        session.destroy();
+    }
+
+    private static void closeQuietly(OutputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private final class PooledSession {
+        final Session session;
+        final FramedStream stdout;
+        final FramedStream stderr;
+        int shellPid = -1;
+
+        PooledSession(Session session) {
+            this.session = session;
+            stdout = new FramedStream(session.getStdout());
+            stderr = new FramedStream(session.getStderr());
+        }
+
+        void destroy() {
+            session.destroy(shellPid);
+        }
+    }
+
+    /**
+     * One command on one session: relays both streams up to their sentinels, then returns
+     * the session to the pool, or kills it if the timeout fires first.
+     */
+    private final class Run {
+        private static final int RUNNING = 0;
+        private static final int TIMED_OUT = 1;
+        private static final int FINISHED = 2;
+
+        private final PooledSession mSession;
+        private final OutputStream mStdout;
+        private final OutputStream mStderr;
+        private final long mTimeoutMs;
+        private final CompletableFuture<Integer> mExitCode = new CompletableFuture<>();
+        private final AtomicInteger mPendingStreams = new AtomicInteger(2);
+        private final AtomicInteger mState = new AtomicInteger(RUNNING);
+        private volatile boolean mBroken;
+        private volatile int mCode = -1;
+        private ScheduledFuture<?> mTimeout;
+
+        Run(PooledSession session, OutputStream stdout, OutputStream stderr, long timeoutMs) {
+            mSession = session;
+            mStdout = stdout;
+            mStderr = stderr;
+            mTimeoutMs = timeoutMs;
+        }
+
+        Future<Integer> start() {
+            mTimeout = mTimeoutExecutor.schedule(this::onTimeout, mTimeoutMs, TimeUnit.MILLISECONDS);
+            mRelayExecutor.execute(() -> relay(mSession.stdout, mStdout, true));
+            mRelayExecutor.execute(() -> relay(mSession.stderr, mStderr, false));
+            return mExitCode;
+        }
+
+        private void relay(FramedStream from, OutputStream to, boolean reportsExitCode) {
+            try {
+                int code = from.relayFrame(to, mSentinel);
+                if (reportsExitCode) {
+                    mCode = code;
+                }
+            } catch (IOException e) {
+                mBroken = true;
+            } finally {
+                closeQuietly(to);
+                if (mPendingStreams.decrementAndGet() == 0) {
+                    finish();
+                }
+            }
+        }
+
+        private void onTimeout() {
+            if (mState.compareAndSet(RUNNING, TIMED_OUT)) {
+                Logger.logWarn(LOG_TAG, "Command timeout after " + mTimeoutMs + " ms, recycling session");
+                mRecycleCount.incrementAndGet();
+                // Normally ends both relays with EOF, but a process that escaped the kill can
+                // hold the pipes open, so neither the caller nor the pool waits for that.
+                discard(mSession);
+                closeQuietly(mStdout);
+                closeQuietly(mStderr);
+                mExitCode.complete(IShellService.EXIT_CODE_TIMED_OUT);
+            }
+        }
+
+        private void finish() {
+            mTimeout.cancel(false);
+            if (!mState.compareAndSet(RUNNING, FINISHED)) {
+                // The timeout won and has already dropped the session.
+                return;
+            }
+            if (mBroken) {
+                mRecycleCount.incrementAndGet();
+                discard(mSession);
+                mExitCode.complete(-1);
+                return;
+            }
+            release(mSession);
+            mExitCode.complete(mCode);
+        }
+    }
+
+    /**
+     * Buffered reader over one of a session's output pipes that stops exactly after each
+     * sentinel line, keeping any bytes after it for the next command.
+     */
+    static final class FramedStream {
+        private final InputStream mIn;
+        private final byte[] mBuffer = new byte[STREAM_BUFFER_BYTES];
+        private int mPos = 0;
+        private int mLimit = 0;
+
+        FramedStream(InputStream in) {
+            mIn = in;
+        }
+
+        /**
+         * Copy bytes to {@code out} up to the next {@code sentinel:<code>\n} line. If
+         * {@code out} fails, the rest of the frame is read and dropped so the session stays in
+         * step.
+         *
+         * @return the code after the sentinel, or -1 if it is not a number
+         * @throws EOFException if the stream ends before the sentinel
+         */
+        int relayFrame(OutputStream out, byte[] sentinel) throws IOException {
+            OutputStream target = out;
+            while (true) {
+                int found = indexOf(sentinel);
+                if (found >= 0) {
+                    target = write(target, mPos, found - mPos);
+                    mPos = found + sentinel.length;
+                    return readCodeLine();
+                }
+                // Hold back a possible partial sentinel at the end of the buffer.
+                int safe = partialMatchStart(sentinel);
+                target = write(target, mPos, safe - mPos);
+                mPos = safe;
+                if (!fill()) {
+                    throw new EOFException("Session stream ended before command finished");
+                }
+            }
+        }
+
+        int readPidLine() throws IOException {
+            return parseCode(readLine());
+        }
+
+        private int readCodeLine() throws IOException {
+            String line = readLine();
+            return parseCode(line.startsWith(":") ? line.substring(1) : line);
+        }
+
+        private String readLine() throws IOException {
+            while (true) {
+                for (int i = mPos; i < mLimit; i++) {
+                    if (mBuffer[i] == '\n') {
+                        String line = new String(mBuffer, mPos, i - mPos, StandardCharsets.US_ASCII);
+                        mPos = i + 1;
+                        return line;
+                    }
+                }
+                if (mLimit - mPos >= mBuffer.length || !fill()) {
+                    throw new EOFException("Session stream ended mid-line");
+                }
+            }
+        }
+
+        private static int parseCode(String value) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private OutputStream write(OutputStream target, int offset, int length) {
+            if (target == null || length <= 0) {
+                return target;
+            }
+            try {
+                target.write(mBuffer, offset, length);
+                return target;
+            } catch (IOException e) {
+                // The reader went away; keep draining so the next frame starts in the right place.
+                return null;
+            }
+        }
+
+        private int indexOf(byte[] pattern) {
+            int last = mLimit - pattern.length;
+            outer:
+            for (int i = mPos; i <= last; i++) {
+                for (int j = 0; j < pattern.length; j++) {
+                    if (mBuffer[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        /**
+         * @return where the longest tail of the buffer that is a prefix of the pattern starts,
+         * or the end of the buffer if there is none
+         */
+        private int partialMatchStart(byte[] pattern) {
+            for (int start = Math.max(mPos, mLimit - (pattern.length - 1)); start < mLimit; start++) {
+                int length = mLimit - start;
+                int j = 0;
+                while (j < length && mBuffer[start + j] == pattern[j]) {
+                    j++;
+                }
+                if (j == length) {
+                    return start;
+                }
+            }
+            return mLimit;
+        }
+
+        /**
+         * @return false at end of stream
+         */
+        private boolean fill() throws IOException {
+            if (mPos > 0) {
+                System.arraycopy(mBuffer, mPos, mBuffer, 0, mLimit - mPos);
+                mLimit -= mPos;
+                mPos = 0;
+            }
+            int read = mIn.read(mBuffer, mLimit, mBuffer.length - mLimit);
+            if (read < 0) {
+                return false;
+            }
+            mLimit += read;
+            return true;
+        }
+    }
+}
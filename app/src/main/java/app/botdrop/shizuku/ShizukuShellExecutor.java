@@ -7,28 +7,51 @@ import android.content.ServiceConnection;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 
 import com.termux.shared.logger.Logger;
 
-import org.json.JSONObject;
-
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public final class ShizukuShellExecutor {
 
     private static final String LOG_TAG = "ShizukuShellExecutor";
     private static final int DEFAULT_TIMEOUT_MS = 30000;
+    /** Extra time allowed after the command timeout for the pipes to drain and the exit code to arrive. */
+    private static final int STREAM_GRACE_MS = 2000;
+    private static final int READ_BUFFER_CHARS = 8192;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    public static final int DEFAULT_MAX_QUEUED_PER_CALLER = 8;
+    public static final int DEFAULT_MAX_QUEUED = 32;
+    /** Caller name for commands issued by the app itself. */
+    public static final String DEFAULT_CALLER = "app";
 
     public interface ResultCallback {
         void onResult(Result result);
     }
 
+    /**
+     * Receives stdout while a command runs, in chunks of up to {@value #READ_BUFFER_CHARS} chars.
+     */
+    public interface StdoutListener {
+        void onStdout(String chunk) throws IOException;
+    }
+
     public interface ConnectionListener {
         void onServiceConnected();
         void onServiceDisconnected();
@@ -39,18 +62,67 @@ public final class ShizukuShellExecutor {
         public final String stdout;
         public final String stderr;
         public final int exitCode;
+        /** True when the command was rejected without running because too many were queued. */
+        public final boolean busy;
 
         public Result(boolean success, String stdout, String stderr, int exitCode) {
+            this(success, stdout, stderr, exitCode, false);
+        }
+
+        public Result(boolean success, String stdout, String stderr, int exitCode, boolean busy) {
             this.success = success;
             this.stdout = stdout;
             this.stderr = stderr;
             this.exitCode = exitCode;
+            this.busy = busy;
+        }
+    }
+
+    /**
+     * A command started with {@link #start}. Its stdout and stderr are read straight from the
+     * process pipes; close it to release them.
+     */
+    public static final class Execution implements Closeable {
+        private final InputStream mStdout;
+        private final InputStream mStderr;
+        private final Future<Integer> mExitCode;
+
+        Execution(InputStream stdout, InputStream stderr, Future<Integer> exitCode) {
+            mStdout = stdout;
+            mStderr = stderr;
+            mExitCode = exitCode;
+        }
+
+        public InputStream getStdout() {
+            return mStdout;
+        }
+
+        public InputStream getStderr() {
+            return mStderr;
+        }
+
+        /**
+         * Completes with the exit code, {@link IShellService#EXIT_CODE_TIMED_OUT} or
+         * {@link IShellService#EXIT_CODE_UNKNOWN}.
+         */
+        public Future<Integer> getExitCode() {
+            return mExitCode;
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(mStdout);
+            closeQuietly(mStderr);
         }
     }
 
     private final Context mContext;
     private final Handler mHandler;
-    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    /** Runs {@link #execute} calls; how many run at once is up to {@link #mScheduler}. */
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final CommandScheduler mScheduler;
+    /** Drains output pipes and waits for exit codes. */
+    private final ExecutorService mStreamExecutor = Executors.newCachedThreadPool();
     private final List<ConnectionListener> mListeners = new CopyOnWriteArrayList<>();
     private final Intent mShellServiceIntent;
 
@@ -88,11 +160,23 @@ public final class ShizukuShellExecutor {
     };
 
     public ShizukuShellExecutor(Context context) {
+        this(context, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_QUEUED_PER_CALLER, DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * @param maxInFlight commands allowed to run at once
+     * @param maxQueuedPerCaller commands one caller may have waiting before it gets busy results
+     * @param maxQueued commands all callers together may have waiting
+     */
+    public ShizukuShellExecutor(Context context, int maxInFlight, int maxQueuedPerCaller, int maxQueued) {
+        mScheduler = new CommandScheduler(maxInFlight, maxQueuedPerCaller, maxQueued);
         mContext = context == null ? null : context.getApplicationContext();
         mHandler = new Handler(Looper.getMainLooper());
 
         if (mContext != null) {
             mShellServiceIntent = new Intent(mContext, ShellService.class);
+            // One persistent shell session per command that may run at once.
+            mShellServiceIntent.putExtra(ShellService.EXTRA_SESSION_POOL_SIZE, maxInFlight);
         } else {
             mShellServiceIntent = null;
         }
@@ -160,6 +244,7 @@ public final class ShizukuShellExecutor {
     public void shutdown() {
         unbind();
         mExecutor.shutdown();
+        mStreamExecutor.shutdown();
     }
 
     public void execute(String command, int timeoutMs, ResultCallback callback) {
@@ -172,28 +257,213 @@ public final class ShizukuShellExecutor {
     }
 
     public Result executeSync(String command, int timeoutMs) {
+        try {
+            return executeStreaming(DEFAULT_CALLER, command, timeoutMs, null);
+        } catch (IOException e) {
+            // Only a listener can throw, and there is none.
+            return new Result(false, "", "Execute failed: " + e.getMessage(), -1);
+        }
+    }
+
+    /**
+     * Like {@link #executeSync}, but stdout is passed to the listener as it arrives instead of
+     * being collected into the result. The command waits its turn with the caller's other
+     * commands; if that queue is full, or no slot frees up within the timeout, the result is
+     * {@link Result#busy} at once. Otherwise the command runs for what is left of the timeout.
+     *
+     * @param caller groups commands for fair scheduling, e.g. one name per client
+     * @throws IOException only when the listener throws
+     */
+    public Result executeStreaming(String caller, String command, int timeoutMs, StdoutListener listener)
+        throws IOException {
+        int timeout = timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS;
+        long queuedAt = System.nanoTime();
+        CommandScheduler.Permit permit;
+        try {
+            permit = mScheduler.acquire(caller, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(false, "", "Interrupted while queued", -1);
+        }
+        if (permit == null) {
+            return new Result(false, "", "Shizuku executor busy: " + mScheduler.getStats().describe(), -1, true);
+        }
+
+        try (CommandScheduler.Permit ignored = permit) {
+            // The timeout covers the wait for a slot too.
+            long waitedMs = (System.nanoTime() - queuedAt) / 1_000_000L;
+            int remaining = (int) Math.max(1, timeout - waitedMs);
+            Execution execution;
+            try {
+                execution = start(command, remaining);
+            } catch (IOException e) {
+                return new Result(false, "", e.getMessage(), -1);
+            } catch (Exception e) {
+                Logger.logError(LOG_TAG, "executeStreaming failed: " + e.getMessage());
+                return new Result(false, "", "Execute failed: " + e.getMessage(), -1);
+            }
+
+            try (Execution running = execution) {
+                return collect(running, remaining, listener, mStreamExecutor);
+            }
+        }
+    }
+
+    CommandScheduler.Stats getSchedulerStats() {
+        return mScheduler.getStats();
+    }
+
+    /**
+     * Start a command and return its output pipes without reading them, for callers that relay
+     * raw bytes. The caller must close the returned execution.
+     *
+     * @throws IOException when the shell service is not available or cannot run the command
+     */
+    public Execution start(String command, int timeoutMs) throws IOException {
         if (mContext == null) {
-            return new Result(false, "", "ShizukuShellExecutor not initialized", -1);
+            throw new IOException("ShizukuShellExecutor not initialized");
         }
         if (!isBound()) {
-            return new Result(false, "", "ShellService not bound", -1);
+            throw new IOException("ShellService not bound");
         }
 
         IShellService remote = mService;
         if (remote == null || !remote.asBinder().pingBinder()) {
-            return new Result(false, "", "ShellService binder invalid", -1);
+            throw new IOException("ShellService binder invalid");
         }
 
         int timeout = timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS;
+        IShellService.RemoteCommand started;
         try {
-            String json = remote.executeCommand(command, timeout);
-            return parseResult(json);
+            started = remote.startCommand(command, timeout);
         } catch (RemoteException e) {
-            Logger.logWarn(LOG_TAG, "executeSync remote failed: " + e.getMessage());
-            return new Result(false, "", "IPC failed: " + e.getMessage(), -1);
-        } catch (Exception e) {
-            Logger.logError(LOG_TAG, "executeSync failed: " + e.getMessage());
-            return new Result(false, "", "Execute failed: " + e.getMessage(), -1);
+            Logger.logWarn(LOG_TAG, "start remote failed: " + e.getMessage());
+            throw new IOException("IPC failed: " + e.getMessage(), e);
+        }
+        if (started == null) {
+            throw new IOException("Shizuku execution unavailable");
+        }
+
+        Future<Integer> exitCode = mStreamExecutor.submit(
+            () -> remote.waitForExit(started.id, timeout + STREAM_GRACE_MS));
+        return new Execution(new ParcelFileDescriptor.AutoCloseInputStream(started.stdout),
+            new ParcelFileDescriptor.AutoCloseInputStream(started.stderr), exitCode);
+    }
+
+    /**
+     * Drain an execution into a result. Stdout goes to the listener, or into the result when
+     * there is none. Gives up timeoutMs plus a short grace period after the call, which also
+     * covers background children that keep the pipes open after the shell exits.
+     */
+    static Result collect(Execution execution, int timeoutMs, StdoutListener listener,
+                          ExecutorService pool) throws IOException {
+        StringBuilder collected = listener == null ? new StringBuilder() : null;
+        GatedListener stdoutListener = new GatedListener(listener != null ? listener : collected::append);
+        Future<?> stdout = pool.submit(() -> {
+            pump(execution.getStdout(), stdoutListener);
+            return null;
+        });
+        Future<String> stderr = pool.submit(() -> {
+            StringBuilder text = new StringBuilder();
+            pump(execution.getStderr(), text::append);
+            return text.toString();
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((long) timeoutMs + STREAM_GRACE_MS);
+        int exitCode = -1;
+        String failure = "";
+        String stderrText = "";
+        try {
+            await(stdout, deadline);
+            stderrText = await(stderr, deadline);
+            int code = await(execution.getExitCode(), deadline);
+            if (code == IShellService.EXIT_CODE_TIMED_OUT) {
+                failure = "Command timeout after " + timeoutMs + " ms";
+            } else if (code == IShellService.EXIT_CODE_UNKNOWN) {
+                failure = "Exit code unavailable";
+            } else {
+                exitCode = code;
+            }
+        } catch (TimeoutException e) {
+            failure = "Failed to collect command output: timed out after " + timeoutMs + " ms";
+            Logger.logWarn(LOG_TAG, "Stream read timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "Interrupted";
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                // pump() swallows read errors, so this came from the listener.
+                throw (IOException) e.getCause();
+            }
+            failure = "Failed to collect command output: " + e.getCause();
+            Logger.logWarn(LOG_TAG, failure);
+        } finally {
+            stdoutListener.close();
+            stdout.cancel(true);
+            stderr.cancel(true);
+        }
+
+        String stdoutText;
+        synchronized (stdoutListener) {
+            stdoutText = collected == null ? "" : collected.toString();
+        }
+        return new Result(exitCode == 0, stdoutText, failure + stderrText, exitCode);
+    }
+
+    private static <T> T await(Future<T> future, long deadlineNanos)
+        throws ExecutionException, InterruptedException, TimeoutException {
+        return future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Read a pipe to the end as UTF-8. Read errors end the stream; listener errors propagate.
+     */
+    private static void pump(InputStream in, StdoutListener listener) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        char[] buffer = new char[READ_BUFFER_CHARS];
+        while (true) {
+            int read;
+            try {
+                read = reader.read(buffer);
+            } catch (IOException e) {
+                Logger.logWarn(LOG_TAG, "Failed reading stream: " + e.getMessage());
+                return;
+            }
+            if (read < 0) {
+                return;
+            }
+            listener.onStdout(new String(buffer, 0, read));
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Stops forwarding once {@link #collect} has returned, so a reader that outlived the
+     * deadline cannot write after the caller has moved on.
+     */
+    private static final class GatedListener implements StdoutListener {
+        private final StdoutListener mDelegate;
+        private boolean mClosed;
+
+        GatedListener(StdoutListener delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public synchronized void onStdout(String chunk) throws IOException {
+            if (!mClosed) {
+                mDelegate.onStdout(chunk);
+            }
+        }
+
+        synchronized void close() {
+            mClosed = true;
         }
     }
 
@@ -232,23 +502,6 @@ public final class ShizukuShellExecutor {
         }
     }
 
-    private Result parseResult(String json) {
-        if (json == null || json.isEmpty()) {
-            return new Result(false, "", "Empty response", -1);
-        }
-
-        try {
-            JSONObject payload = new JSONObject(json);
-            int exitCode = payload.optInt("exitCode", -1);
-            String stdout = payload.optString("stdout", "");
-            String stderr = payload.optString("stderr", "");
-            boolean success = exitCode == 0;
-            return new Result(success, stdout, stderr, exitCode);
-        } catch (Exception e) {
-            return new Result(false, "", "Invalid response: " + e.getMessage(), -1);
-        }
-    }
-
     private void notifyConnected() {
         mHandler.post(() -> {
             for (ConnectionListener listener : mListeners) {
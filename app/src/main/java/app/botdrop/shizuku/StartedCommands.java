@@ -0,0 +1,80 @@
+package app.botdrop.shizuku;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exit codes of the commands started by {@link IShellService#startCommand}, by command id. An
+ * exit code is kept until the client collects it, or for a grace period after the command has
+ * finished, so clients that never call {@link IShellService#waitForExit} or die first do not
+ * leak an entry per command.
+ */
+final class StartedCommands {
+
+    private static final class Entry {
+        final Future<Integer> exit;
+        /** When {@link #evictFinished} first saw the command finished, or -1. */
+        long finishedAtMs = -1;
+
+        Entry(Future<Integer> exit) {
+            this.exit = exit;
+        }
+    }
+
+    private final long mRetentionMs;
+    private final AtomicInteger mNextId = new AtomicInteger(1);
+    private final Map<Integer, Entry> mCommands = new ConcurrentHashMap<>();
+
+    /** @param retentionMs how long to keep the exit code of a finished command nobody collected */
+    StartedCommands(long retentionMs) {
+        mRetentionMs = retentionMs;
+    }
+
+    /** @return the id of the command */
+    int add(Future<Integer> exit) {
+        int id = mNextId.getAndIncrement();
+        mCommands.put(id, new Entry(exit));
+        return id;
+    }
+
+    /** @return the exit code of the command, or null if it is unknown or was evicted */
+    Future<Integer> get(int id) {
+        Entry entry = mCommands.get(id);
+        return entry == null ? null : entry.exit;
+    }
+
+    void remove(int id) {
+        mCommands.remove(id);
+    }
+
+    int size() {
+        return mCommands.size();
+    }
+
+    /**
+     * Drop the commands that finished at least the retention period ago, called periodically.
+     * Running commands are kept; they end at their timeout.
+     *
+     * @return the number of commands dropped
+     */
+    synchronized int evictFinished(long nowMs) {
+        int evicted = 0;
+        for (Iterator<Entry> it = mCommands.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (!entry.exit.isDone()) {
+                continue;
+            }
+            if (entry.finishedAtMs < 0) {
+                entry.finishedAtMs = nowMs;
+            }
+            if (nowMs - entry.finishedAtMs >= mRetentionMs) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,662 @@
+package com.termux.app;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts the bootstrap zip into a directory straight from a {@link ByteBuffer}, normally a
+ * direct view of the archive embedded in libtermux-bootstrap.so, so the archive is never
+ * copied onto the Java heap.
+ * <p>
+ * Entries are located through the zip central directory and inflated in parallel, largest
+ * first, each worker holding only two small buffers. Directories are created once up front,
+ * each worker sets executable bits in one pass after writing its files, and the symlinks
+ * listed in SYMLINKS.txt are created in parallel at the end. Archives whose central directory
+ * cannot be used, such as zip64 ones, are extracted sequentially with a {@link ZipInputStream}
+ * over the same buffer.
+ */
+final class BootstrapExtractor {
+
+    private static final String LOG_TAG = "BootstrapExtractor";
+
+    static final String SYMLINKS_ENTRY = "SYMLINKS.txt";
+    static final int MAX_THREADS = 4;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final long ZIP64_MARKER = 0xffffffffL;
+
+    interface ProgressListener {
+        /** Called from extraction threads each time another whole percent is done. */
+        void onProgress(int percent);
+    }
+
+    /** File system calls that java.io cannot make before API 26. */
+    interface FileOps {
+        void chmod(String path, int mode) throws IOException;
+
+        void symlink(String target, String path) throws IOException;
+
+        /** The target of the symlink at {@code path}, or null if it is not a symlink or missing. */
+        String readlink(String path) throws IOException;
+    }
+
+    static final FileOps OS_FILE_OPS = new FileOps() {
+        @Override
+        public void chmod(String path, int mode) throws IOException {
+            try {
+                Os.chmod(path, mode);
+            } catch (ErrnoException e) {
+                throw e.rethrowAsIOException();
+            }
+        }
+
+        @Override
+        public void symlink(String target, String path) throws IOException {
+            try {
+                Os.symlink(target, path);
+            } catch (ErrnoException e) {
+                throw e.rethrowAsIOException();
+            }
+        }
+
+        @Override
+        public String readlink(String path) throws IOException {
+            try {
+                return Os.readlink(path);
+            } catch (ErrnoException e) {
+                if (e.errno == OsConstants.EINVAL || e.errno == OsConstants.ENOENT) {
+                    return null;
+                }
+                throw e.rethrowAsIOException();
+            }
+        }
+    };
+
+    private static final class Entry {
+        final String name;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    private final ByteBuffer mArchive;
+    private final File mTargetDir;
+    private final int mThreads;
+    private final FileOps mFileOps;
+    private final ProgressListener mListener;
+
+    private final AtomicLong mBytesDone = new AtomicLong();
+    private final AtomicInteger mLastPercent = new AtomicInteger();
+    private long mBytesTotal;
+
+    BootstrapExtractor(ByteBuffer archive, File targetDir, int threads, FileOps fileOps,
+                       ProgressListener listener) {
+        mArchive = archive.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        mTargetDir = targetDir;
+        mThreads = Math.max(1, threads);
+        mFileOps = fileOps;
+        mListener = listener;
+    }
+
+    /** Thread count for the device: one per core, up to {@link #MAX_THREADS}. */
+    static int defaultThreads() {
+        return Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Extract every entry and create the symlinks listed in SYMLINKS.txt.
+     *
+     * @return the number of files written
+     */
+    int extract() throws IOException {
+        List<Entry> entries;
+        try {
+            entries = readCentralDirectory();
+        } catch (ZipException e) {
+            Logger.logWarn(LOG_TAG, "Falling back to sequential extraction: " + e.getMessage());
+            return extractSequentially();
+        }
+
+        List<Entry> files = new ArrayList<>(entries.size());
+        TreeSet<String> directories = new TreeSet<>();
+        List<String[]> symlinks = null;
+        for (Entry entry : entries) {
+            checkName(entry.name);
+            if (entry.name.equals(SYMLINKS_ENTRY)) {
+                symlinks = readSymlinks(inflateToStream(entry));
+            } else if (entry.isDirectory()) {
+                directories.add(entry.name);
+            } else {
+                files.add(entry);
+                addParent(directories, entry.name);
+                mBytesTotal += entry.size;
+            }
+        }
+        if (symlinks == null) {
+            throw new ZipException("No " + SYMLINKS_ENTRY + " encountered");
+        }
+        for (String[] symlink : symlinks) {
+            addParent(directories, symlink[1]);
+        }
+        createDirectories(directories);
+        extractInParallel(files, symlinks);
+        return files.size();
+    }
+
+    /**
+     * Extract only the named files, for an update that stages changed entries. Symlinks and
+     * entries not named are left alone.
+     *
+     * @return the number of files written
+     */
+    int extract(Collection<String> names) throws IOException {
+        Set<String> wanted = new HashSet<>(names);
+        List<Entry> files = new ArrayList<>(wanted.size());
+        TreeSet<String> directories = new TreeSet<>();
+        for (Entry entry : readCentralDirectory()) {
+            if (!entry.isDirectory() && wanted.remove(entry.name)) {
+                checkName(entry.name);
+                files.add(entry);
+                addParent(directories, entry.name);
+                mBytesTotal += entry.size;
+            }
+        }
+        if (!wanted.isEmpty()) {
+            throw new ZipException("No entry " + wanted.iterator().next());
+        }
+        createDirectories(directories);
+        extractInParallel(files, Collections.emptyList());
+        return files.size();
+    }
+
+    /**
+     * What the archive installs, from its central directory and SYMLINKS.txt.
+     */
+    BootstrapManifest readManifest() throws IOException {
+        BootstrapManifest manifest = new BootstrapManifest();
+        List<String[]> symlinks = null;
+        for (Entry entry : readCentralDirectory()) {
+            checkName(entry.name);
+            if (entry.name.equals(SYMLINKS_ENTRY)) {
+                symlinks = readSymlinks(inflateToStream(entry));
+            } else if (!entry.isDirectory()) {
+                //noinspection OctalInteger
+                manifest.addFile(entry.name, isExecutable(entry.name) ? 0700 : 0600, entry.size, entry.crc);
+            }
+        }
+        if (symlinks == null) {
+            throw new ZipException("No " + SYMLINKS_ENTRY + " encountered");
+        }
+        for (String[] symlink : symlinks) {
+            manifest.addSymlink(symlink[1], symlink[0]);
+        }
+        return manifest;
+    }
+
+    private void extractInParallel(List<Entry> files, List<String[]> symlinks) throws IOException {
+        // Largest first, so one big file does not start last and leave the other threads idle.
+        Collections.sort(files, (a, b) -> Long.compare(b.size, a.size));
+
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads, runnable -> {
+            Thread thread = new Thread(runnable, "BootstrapExtractor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            AtomicInteger nextFile = new AtomicInteger();
+            List<Callable<Void>> workers = new ArrayList<>(mThreads);
+            for (int i = 0; i < mThreads; i++) {
+                workers.add(() -> {
+                    extractFiles(files, nextFile);
+                    return null;
+                });
+            }
+            runAll(executor, workers);
+
+            List<Callable<Void>> linkers = new ArrayList<>(mThreads);
+            int batch = (symlinks.size() + mThreads - 1) / mThreads;
+            for (int start = 0; start < symlinks.size(); start += batch) {
+                List<String[]> slice = symlinks.subList(start, Math.min(symlinks.size(), start + batch));
+                linkers.add(() -> {
+                    createSymlinks(slice);
+                    return null;
+                });
+            }
+            runAll(executor, linkers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void extractFiles(List<Entry> files, AtomicInteger nextFile) throws IOException {
+        ByteBuffer archive = view();
+        Inflater inflater = new Inflater(true);
+        byte[] input = new byte[CHUNK_SIZE];
+        byte[] output = new byte[CHUNK_SIZE];
+        CRC32 crc = new CRC32();
+        List<String> executables = new ArrayList<>();
+        try {
+            int index;
+            while ((index = nextFile.getAndIncrement()) < files.size()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("Extraction cancelled");
+                }
+                Entry entry = files.get(index);
+                File target = new File(mTargetDir, entry.name);
+                try (FileOutputStream out = new FileOutputStream(target)) {
+                    inflate(archive, entry, inflater, input, output, crc, out);
+                }
+                if (isExecutable(entry.name)) {
+                    executables.add(target.getAbsolutePath());
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        for (String path : executables) {
+            //noinspection OctalInteger
+            mFileOps.chmod(path, 0700);
+        }
+    }
+
+    private void createSymlinks(List<String[]> symlinks) throws IOException {
+        for (String[] symlink : symlinks) {
+            mFileOps.symlink(symlink[0], new File(mTargetDir, symlink[1]).getAbsolutePath());
+        }
+    }
+
+    /**
+     * Decompress one entry into {@code out}, checking its size and CRC.
+     */
+    private void inflate(ByteBuffer archive, Entry entry, Inflater inflater, byte[] input, byte[] output,
+                         CRC32 crc, OutputStream out) throws IOException {
+        long position = dataOffset(archive, entry);
+        long remaining = entry.compressedSize;
+        long written = 0;
+        crc.reset();
+
+        if (entry.method == ZipEntry.STORED) {
+            while (remaining > 0) {
+                int count = (int) Math.min(input.length, remaining);
+                read(archive, position, input, count);
+                position += count;
+                remaining -= count;
+                crc.update(input, 0, count);
+                out.write(input, 0, count);
+                written += count;
+                addProgress(count);
+            }
+        } else if (entry.method == ZipEntry.DEFLATED) {
+            inflater.reset();
+            boolean paddingSupplied = false;
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        if (remaining > 0) {
+                            int count = (int) Math.min(input.length, remaining);
+                            read(archive, position, input, count);
+                            position += count;
+                            remaining -= count;
+                            inflater.setInput(input, 0, count);
+                        } else if (!paddingSupplied) {
+                            // With nowrap zlib may want one byte past the end of the data.
+                            input[0] = 0;
+                            inflater.setInput(input, 0, 1);
+                            paddingSupplied = true;
+                        } else {
+                            throw new ZipException("Truncated entry " + entry.name);
+                        }
+                    }
+                    int count = inflater.inflate(output);
+                    if (count > 0) {
+                        crc.update(output, 0, count);
+                        out.write(output, 0, count);
+                        written += count;
+                        addProgress(count);
+                    } else if (inflater.needsDictionary()) {
+                        throw new ZipException("Unexpected preset dictionary in " + entry.name);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("Corrupt entry " + entry.name + ": " + e.getMessage());
+            }
+        } else {
+            throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name);
+        }
+
+        if (written != entry.size || crc.getValue() != entry.crc) {
+            throw new ZipException("Size or CRC mismatch for " + entry.name);
+        }
+    }
+
+    private ByteArrayOutputStream inflateToStream(Entry entry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(entry.size, CHUNK_SIZE));
+        Inflater inflater = new Inflater(true);
+        try {
+            inflate(view(), entry, inflater, new byte[CHUNK_SIZE], new byte[CHUNK_SIZE],
+                new CRC32(), out);
+        } finally {
+            inflater.end();
+        }
+        return out;
+    }
+
+    private List<Entry> readCentralDirectory() throws ZipException {
+        int end = findEndOfCentralDirectory();
+        int count = u16(end + 10);
+        long directoryOffset = u32(end + 16);
+        if (count == 0xffff || directoryOffset == ZIP64_MARKER) {
+            throw new ZipException("zip64 central directory");
+        }
+
+        List<Entry> entries = new ArrayList<>(count);
+        long position = directoryOffset;
+        for (int i = 0; i < count; i++) {
+            if (position + 46 > mArchive.limit() || mArchive.getInt((int) position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Bad central directory entry " + i);
+            }
+            int p = (int) position;
+            int method = u16(p + 10);
+            long crc = u32(p + 16);
+            long compressedSize = u32(p + 20);
+            long size = u32(p + 24);
+            int nameLength = u16(p + 28);
+            int extraLength = u16(p + 30);
+            int commentLength = u16(p + 32);
+            long localHeaderOffset = u32(p + 42);
+            if (compressedSize == ZIP64_MARKER || size == ZIP64_MARKER || localHeaderOffset == ZIP64_MARKER) {
+                throw new ZipException("zip64 entry " + i);
+            }
+
+            byte[] name = new byte[nameLength];
+            read(view(), p + 46, name, nameLength);
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), method, crc,
+                compressedSize, size, localHeaderOffset));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private int findEndOfCentralDirectory() throws ZipException {
+        int last = mArchive.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        // The record is followed by a comment of at most 64 KB.
+        int first = Math.max(0, last - 0xffff);
+        for (int i = last; i >= first; i--) {
+            if (mArchive.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return i;
+            }
+        }
+        throw new ZipException("No end of central directory record");
+    }
+
+    private long dataOffset(ByteBuffer archive, Entry entry) throws ZipException {
+        int offset = (int) entry.localHeaderOffset;
+        if (archive.getInt(offset) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Bad local header for " + entry.name);
+        }
+        return offset + 30L + u16(archive, offset + 26) + u16(archive, offset + 28);
+    }
+
+    /**
+     * The old single-threaded path, still reading from the buffer rather than a heap copy.
+     */
+    private int extractSequentially() throws IOException {
+        mBytesTotal = mArchive.remaining();
+        ByteBuffer archive = view();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        List<String[]> symlinks = null;
+        List<String> executables = new ArrayList<>();
+        int files = 0;
+        String lastDirectory = null;
+
+        try (ZipInputStream zipInput = new ZipInputStream(new ByteBufferInputStream(archive))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInput.getNextEntry()) != null) {
+                String name = checkName(zipEntry.getName());
+                if (name.equals(SYMLINKS_ENTRY)) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    copy(zipInput, out, buffer);
+                    symlinks = readSymlinks(out);
+                    for (String[] symlink : symlinks) {
+                        mkdirs(new File(mTargetDir, symlink[1]).getParentFile());
+                    }
+                    continue;
+                }
+                File target = new File(mTargetDir, name);
+                if (zipEntry.isDirectory()) {
+                    mkdirs(target);
+                    continue;
+                }
+                String directory = target.getParent();
+                if (!directory.equals(lastDirectory)) {
+                    mkdirs(target.getParentFile());
+                    lastDirectory = directory;
+                }
+                try (FileOutputStream out = new FileOutputStream(target)) {
+                    copy(zipInput, out, buffer);
+                }
+                if (isExecutable(name)) {
+                    executables.add(target.getAbsolutePath());
+                }
+                files++;
+                setProgress(archive.position());
+            }
+        }
+        if (symlinks == null) {
+            throw new ZipException("No " + SYMLINKS_ENTRY + " encountered");
+        }
+        for (String path : executables) {
+            //noinspection OctalInteger
+            mFileOps.chmod(path, 0700);
+        }
+        createSymlinks(symlinks);
+        return files;
+    }
+
+    private void createDirectories(TreeSet<String> directories) throws IOException {
+        // Sorted, so a parent always comes before its children.
+        for (String directory : directories) {
+            mkdirs(new File(mTargetDir, directory));
+        }
+    }
+
+    private void addProgress(long bytes) {
+        setProgress(mBytesDone.addAndGet(bytes));
+    }
+
+    private void setProgress(long done) {
+        if (mListener == null || mBytesTotal <= 0) {
+            return;
+        }
+        int percent = (int) Math.min(100, done * 100 / mBytesTotal);
+        int last;
+        while (percent > (last = mLastPercent.get())) {
+            if (mLastPercent.compareAndSet(last, percent)) {
+                mListener.onProgress(percent);
+                return;
+            }
+        }
+    }
+
+    private static List<String[]> readSymlinks(ByteArrayOutputStream content) throws IOException {
+        List<String[]> symlinks = new ArrayList<>(50);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new ByteArrayInputStream(content.toByteArray()), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split("←");
+            if (parts.length != 2) {
+                throw new ZipException("Malformed symlink line: " + line);
+            }
+            checkName(parts[1]);
+            symlinks.add(parts);
+        }
+        return symlinks;
+    }
+
+    static boolean isExecutable(String name) {
+        return name.startsWith("bin/") || name.startsWith("libexec") ||
+            name.startsWith("lib/apt/apt-helper") || name.startsWith("lib/apt/methods");
+    }
+
+    /** Reject entries that would land outside the target directory. */
+    private static String checkName(String name) throws ZipException {
+        if (name.startsWith("/") || name.equals("..") || name.startsWith("../")
+            || name.contains("/../") || name.endsWith("/..")) {
+            throw new ZipException("Unsafe entry name: " + name);
+        }
+        return name;
+    }
+
+    private static void addParent(TreeSet<String> directories, String name) {
+        int slash = name.lastIndexOf('/');
+        if (slash > 0) {
+            directories.add(name.substring(0, slash + 1));
+        }
+    }
+
+    private static void mkdirs(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Failed to create directory " + directory.getAbsolutePath());
+        }
+    }
+
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+        List<Future<Void>> futures = new ArrayList<>(tasks.size());
+        for (Callable<Void> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting bootstrap");
+        }
+    }
+
+    private static void read(ByteBuffer archive, long position, byte[] into, int length) {
+        archive.position((int) position);
+        archive.get(into, 0, length);
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /** An independent position over the archive; duplicate() does not keep the byte order. */
+    private ByteBuffer view() {
+        return mArchive.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int u16(int offset) {
+        return u16(mArchive, offset);
+    }
+
+    private static int u16(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xffff;
+    }
+
+    private long u32(int offset) {
+        return mArchive.getInt(offset) & 0xffffffffL;
+    }
+
+    /**
+     * Reads a buffer from its current position, advancing it.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.termux.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Content-addressed listing of what a bootstrap installs into $PREFIX: every file with its mode,
+ * size and CRC-32, and every symlink with its target.
+ * <p>
+ * The CRC-32 is the one the zip central directory already carries, so a manifest for the bundled
+ * bootstrap costs no decompression. The id is a SHA-256 over all entries and changes whenever
+ * the bootstrap does.
+ * <p>
+ * The manifest recorded in a prefix can differ from the bootstrap it was last updated to, where
+ * files were kept as they were installed, so it also records that bootstrap's id.
+ * <p>
+ * Stored as text, one entry per line:
+ * <pre>
+ * b &lt;bootstrap id&gt;
+ * f &lt;mode&gt; &lt;size&gt; &lt;crc&gt; &lt;path&gt;
+ * l &lt;target&gt; &lt;path&gt;
+ * </pre>
+ * with fields separated by tabs, mode in octal and CRC in hex. The bootstrap id line is optional.
+ */
+final class BootstrapManifest {
+
+    private static final String HEADER = "# botdrop bootstrap manifest v1";
+
+    static final class FileEntry {
+        final int mode;
+        final long size;
+        final long crc;
+
+        FileEntry(int mode, long size, long crc) {
+            this.mode = mode;
+            this.size = size;
+            this.crc = crc;
+        }
+
+        boolean sameContent(FileEntry other) {
+            return other != null && size == other.size && crc == other.crc;
+        }
+
+        /** Whether the file at {@code file} has this content. */
+        boolean matches(File file, byte[] buffer) throws IOException {
+            return file.isFile() && file.length() == size && crc32(file, buffer) == crc;
+        }
+    }
+
+    private final TreeMap<String, FileEntry> mFiles = new TreeMap<>();
+    private final TreeMap<String, String> mSymlinks = new TreeMap<>();
+    private String mId;
+    private String mBootstrapId;
+
+    void addFile(String path, int mode, long size, long crc) {
+        mFiles.put(path, new FileEntry(mode, size, crc));
+        mId = null;
+    }
+
+    void addSymlink(String path, String target) {
+        mSymlinks.put(path, target);
+        mId = null;
+    }
+
+    Map<String, FileEntry> getFiles() {
+        return mFiles;
+    }
+
+    /** Symlink paths mapped to their targets. */
+    Map<String, String> getSymlinks() {
+        return mSymlinks;
+    }
+
+    /** The id of the bootstrap this manifest was recorded for, which is its own id unless set. */
+    String getBootstrapId() {
+        return mBootstrapId != null ? mBootstrapId : getId();
+    }
+
+    void setBootstrapId(String bootstrapId) {
+        mBootstrapId = bootstrapId;
+    }
+
+    String getId() {
+        if (mId == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            StringBuilder line = new StringBuilder();
+            for (Map.Entry<String, FileEntry> file : mFiles.entrySet()) {
+                line.setLength(0);
+                appendFile(line, file.getKey(), file.getValue());
+                digest.update(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            for (Map.Entry<String, String> symlink : mSymlinks.entrySet()) {
+                line.setLength(0);
+                appendSymlink(line, symlink.getKey(), symlink.getValue());
+                digest.update(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(String.format(Locale.ROOT, "%02x", b & 0xff));
+            }
+            mId = hex.toString();
+        }
+        return mId;
+    }
+
+    /**
+     * Write to {@code file} through a temporary file and a rename, so a crash leaves either the
+     * old manifest or the new one.
+     */
+    void write(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Failed to create directory " + parent.getAbsolutePath());
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            StringBuilder line = new StringBuilder();
+            writer.write(HEADER);
+            writer.write('\n');
+            if (mBootstrapId != null) {
+                writer.write("b\t" + mBootstrapId + "\n");
+            }
+            for (Map.Entry<String, FileEntry> entry : mFiles.entrySet()) {
+                line.setLength(0);
+                appendFile(line, entry.getKey(), entry.getValue());
+                writer.append(line);
+            }
+            for (Map.Entry<String, String> entry : mSymlinks.entrySet()) {
+                line.setLength(0);
+                appendSymlink(line, entry.getKey(), entry.getValue());
+                writer.append(line);
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to rename " + temp.getAbsolutePath() + " to " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return the manifest stored in {@code file}, or null if there is none or it cannot be read
+     */
+    static BootstrapManifest read(File file) throws IOException {
+        BootstrapManifest manifest = new BootstrapManifest();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length == 5 && parts[0].equals("f")) {
+                    manifest.addFile(parts[4], Integer.parseInt(parts[1], 8), Long.parseLong(parts[2]),
+                        Long.parseLong(parts[3], 16));
+                } else if (parts.length == 3 && parts[0].equals("l")) {
+                    manifest.addSymlink(parts[2], parts[1]);
+                } else if (parts.length == 2 && parts[0].equals("b")) {
+                    manifest.setBootstrapId(parts[1]);
+                } else {
+                    return null;
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return manifest;
+    }
+
+    static long crc32(File file, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void appendFile(StringBuilder line, String path, FileEntry entry) {
+        line.append("f\t").append(Integer.toOctalString(entry.mode)).append('\t').append(entry.size)
+            .append('\t').append(Long.toHexString(entry.crc)).append('\t').append(path).append('\n');
+    }
+
+    private static void appendSymlink(StringBuilder line, String path, String target) {
+        line.append("l\t").append(target).append('\t').append(path).append('\n');
+    }
+}
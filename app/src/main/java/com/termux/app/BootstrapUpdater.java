@@ -0,0 +1,431 @@
+package com.termux.app;
+
+import com.termux.shared.logger.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brings an installed $PREFIX up to date with the bundled bootstrap without wiping it, so an
+ * APK update keeps everything installed on top of the bootstrap, such as npm packages.
+ * <p>
+ * The prefix records the {@link BootstrapManifest} it was installed from. Entries the bundled
+ * bootstrap has not changed are not looked at. For changed ones the installed file is hashed,
+ * in parallel, and compared with both manifests, the way dpkg treats conffiles: a file still as
+ * the old bootstrap left it is replaced, one that already matches is skipped, and one changed
+ * locally, for example by apt, is kept.
+ * <p>
+ * dpkg's state and the package files it lists are updated as one unit: once dpkg's status is
+ * not the one recorded, because packages were installed or upgraded, nothing under
+ * {@code var/lib/dpkg} and no file of an installed package is touched, so dpkg's view of the
+ * prefix stays true.
+ * <p>
+ * A prefix without a recorded manifest, installed before manifests were, is taken as it is:
+ * missing files are added, nothing present is overwritten or removed, and what is on disk is
+ * recorded as the baseline for later updates.
+ * <p>
+ * Replacements are extracted into the staging directory, verified against the archive CRCs,
+ * and renamed into place, so each file swaps atomically and running programs keep their open
+ * copies. Writing the new manifest commits the update. If the process dies before that, the
+ * next run sees the old manifest again, skips what already matches and finishes the rest.
+ */
+final class BootstrapUpdater {
+
+    private static final String LOG_TAG = "BootstrapUpdater";
+
+    /** Where the manifest of the installed bootstrap lives, relative to $PREFIX. */
+    static final String MANIFEST_PATH = "var/lib/botdrop/bootstrap.manifest";
+
+    static final String DPKG_DIR = "var/lib/dpkg/";
+    static final String DPKG_STATUS = DPKG_DIR + "status";
+    private static final String DPKG_INFO_DIR = DPKG_DIR + "info";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private enum Decision { SKIP, REPLACE, KEEP }
+
+    static final class Result {
+        final boolean upToDate;
+        final int filesReplaced;
+        final int symlinksReplaced;
+        final int removed;
+        final int kept;
+
+        Result(boolean upToDate, int filesReplaced, int symlinksReplaced, int removed, int kept) {
+            this.upToDate = upToDate;
+            this.filesReplaced = filesReplaced;
+            this.symlinksReplaced = symlinksReplaced;
+            this.removed = removed;
+            this.kept = kept;
+        }
+
+        @Override
+        public String toString() {
+            if (upToDate) {
+                return "up to date";
+            }
+            return String.format(Locale.ROOT, "%d files and %d symlinks replaced, %d removed, %d kept",
+                filesReplaced, symlinksReplaced, removed, kept);
+        }
+    }
+
+    private final ByteBuffer mArchive;
+    private final File mPrefixDir;
+    private final File mStagingDir;
+    private final int mThreads;
+    private final BootstrapExtractor.FileOps mFileOps;
+    private final BootstrapExtractor.ProgressListener mListener;
+
+    BootstrapUpdater(ByteBuffer archive, File prefixDir, File stagingDir, int threads,
+                     BootstrapExtractor.FileOps fileOps, BootstrapExtractor.ProgressListener listener) {
+        mArchive = archive;
+        mPrefixDir = prefixDir;
+        mStagingDir = stagingDir;
+        mThreads = Math.max(1, threads);
+        mFileOps = fileOps;
+        mListener = listener;
+    }
+
+    /**
+     * Record that {@code prefixDir} holds exactly what {@code archive} installs, after a full
+     * extraction into it.
+     */
+    static void writeManifest(ByteBuffer archive, File prefixDir) throws IOException {
+        new BootstrapExtractor(archive, prefixDir, 1, null, null).readManifest()
+            .write(new File(prefixDir, MANIFEST_PATH));
+    }
+
+    Result update() throws IOException {
+        BootstrapManifest next = new BootstrapExtractor(mArchive, mStagingDir, mThreads, mFileOps, null).readManifest();
+        File manifestFile = new File(mPrefixDir, MANIFEST_PATH);
+        BootstrapManifest current = BootstrapManifest.read(manifestFile);
+        if (current != null && current.getBootstrapId().equals(next.getId())) {
+            return new Result(true, 0, 0, 0, 0);
+        }
+        if (current == null) {
+            Logger.logInfo(LOG_TAG, "No bootstrap manifest in prefix, only adding missing files.");
+        }
+        Set<String> frozen = findFrozenPaths(current, next);
+
+        List<String> paths = new ArrayList<>(next.getFiles().keySet());
+        Decision[] decisions = decideAll(paths, current, next, frozen);
+        List<String> changed = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            if (decisions[i] == Decision.REPLACE) {
+                changed.add(paths.get(i));
+            } else if (decisions[i] == Decision.KEEP) {
+                Logger.logInfo(LOG_TAG, "Keeping locally modified " + paths.get(i));
+                kept++;
+            }
+        }
+
+        deleteRecursively(mStagingDir);
+        if (!changed.isEmpty()) {
+            new BootstrapExtractor(mArchive, mStagingDir, mThreads, mFileOps, mListener).extract(changed);
+            for (String path : changed) {
+                moveIntoPlace(new File(mStagingDir, path), new File(mPrefixDir, path));
+            }
+        }
+
+        Set<String> keptSymlinks = new HashSet<>();
+        int symlinksReplaced = 0;
+        for (Map.Entry<String, String> symlink : next.getSymlinks().entrySet()) {
+            Decision decision = decideSymlink(symlink.getKey(), symlink.getValue(), current, frozen);
+            if (decision == Decision.REPLACE) {
+                replaceSymlink(symlink.getValue(), new File(mPrefixDir, symlink.getKey()));
+                symlinksReplaced++;
+            } else if (decision == Decision.KEEP) {
+                Logger.logInfo(LOG_TAG, "Keeping locally modified " + symlink.getKey());
+                keptSymlinks.add(symlink.getKey());
+                kept++;
+            }
+        }
+
+        int removed = current == null ? 0 : removeDropped(current, next, frozen);
+
+        BootstrapManifest installed = next;
+        if (current == null) {
+            installed = recordBaseline(next, paths, decisions, keptSymlinks);
+        }
+        installed.write(manifestFile);
+        deleteRecursively(mStagingDir);
+        return new Result(false, changed.size(), symlinksReplaced, removed, kept);
+    }
+
+    /**
+     * The paths of the dpkg unit if dpkg's status is neither the one recorded nor the new
+     * bootstrap's, so it must not be touched: everything under {@link #DPKG_DIR} and the files
+     * of the installed packages.
+     *
+     * @return null if the unit can be updated
+     */
+    private Set<String> findFrozenPaths(BootstrapManifest current, BootstrapManifest next) throws IOException {
+        BootstrapManifest.FileEntry nextStatus = next.getFiles().get(DPKG_STATUS);
+        if (nextStatus == null) {
+            return null;
+        }
+        File status = new File(mPrefixDir, DPKG_STATUS);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        BootstrapManifest.FileEntry recordedStatus = current == null ? null : current.getFiles().get(DPKG_STATUS);
+        if ((recordedStatus != null && recordedStatus.matches(status, buffer)) || nextStatus.matches(status, buffer)) {
+            return null;
+        }
+        Logger.logInfo(LOG_TAG, "dpkg status changed since the bootstrap, leaving installed packages alone.");
+        return readInstalledPackageFiles();
+    }
+
+    /** Paths relative to the prefix of everything dpkg's file lists name. */
+    private Set<String> readInstalledPackageFiles() throws IOException {
+        Set<String> paths = new HashSet<>();
+        File[] lists = new File(mPrefixDir, DPKG_INFO_DIR).listFiles((dir, name) -> name.endsWith(".list"));
+        if (lists == null) {
+            return paths;
+        }
+        String prefix = mPrefixDir.getAbsolutePath() + "/";
+        for (File list : lists) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(list), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(prefix)) {
+                        paths.add(line.substring(prefix.length()));
+                    }
+                }
+            }
+        }
+        return paths;
+    }
+
+    private static boolean isFrozen(Set<String> frozen, String path) {
+        return frozen != null && (path.startsWith(DPKG_DIR) || frozen.contains(path));
+    }
+
+    /**
+     * What a prefix without a manifest holds after the update: the bootstrap's entries for what
+     * matches or was added, and what is on disk for what was kept. dpkg's status is only
+     * recorded if it is the bootstrap's, as a status apt has changed cannot be told apart from
+     * one an older bootstrap installed, and the dpkg unit must stay frozen for it.
+     */
+    private BootstrapManifest recordBaseline(BootstrapManifest next, List<String> paths, Decision[] decisions,
+                                             Set<String> keptSymlinks) throws IOException {
+        BootstrapManifest baseline = new BootstrapManifest();
+        baseline.setBootstrapId(next.getId());
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            BootstrapManifest.FileEntry entry = next.getFiles().get(path);
+            if (decisions[i] != Decision.KEEP) {
+                baseline.addFile(path, entry.mode, entry.size, entry.crc);
+            } else if (!path.equals(DPKG_STATUS)) {
+                recordInstalled(baseline, path, entry.mode, buffer);
+            }
+        }
+        for (Map.Entry<String, String> symlink : next.getSymlinks().entrySet()) {
+            if (keptSymlinks.contains(symlink.getKey())) {
+                // The mode of a file kept where the bootstrap has a symlink is never used.
+                recordInstalled(baseline, symlink.getKey(), 0, buffer);
+            } else {
+                baseline.addSymlink(symlink.getKey(), symlink.getValue());
+            }
+        }
+        return baseline;
+    }
+
+    private void recordInstalled(BootstrapManifest manifest, String path, int mode, byte[] buffer) throws IOException {
+        File file = new File(mPrefixDir, path);
+        String target = mFileOps.readlink(file.getPath());
+        if (target != null) {
+            manifest.addSymlink(path, target);
+        } else if (file.isFile()) {
+            manifest.addFile(path, mode, file.length(), BootstrapManifest.crc32(file, buffer));
+        }
+    }
+
+    /** Hash what is needed to decide each file, on {@link #mThreads} threads. */
+    private Decision[] decideAll(List<String> paths, BootstrapManifest current, BootstrapManifest next,
+                                 Set<String> frozen) throws IOException {
+        Decision[] decisions = new Decision[paths.size()];
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Callable<Void>> workers = new ArrayList<>(mThreads);
+        for (int i = 0; i < mThreads; i++) {
+            workers.add(() -> {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < decisions.length) {
+                    String path = paths.get(index);
+                    decisions[index] = decide(path, next.getFiles().get(path),
+                        current == null ? null : current.getFiles().get(path), current == null,
+                        isFrozen(frozen, path), buffer);
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads, runnable -> {
+            Thread thread = new Thread(runnable, "BootstrapUpdater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> futures = executor.invokeAll(workers);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while checking installed bootstrap files");
+        } finally {
+            executor.shutdownNow();
+        }
+        return decisions;
+    }
+
+    /**
+     * @param noManifest the prefix has no manifest, so only missing files are added
+     * @param frozen the file is part of a dpkg unit that must not be touched
+     */
+    private Decision decide(String path, BootstrapManifest.FileEntry next, BootstrapManifest.FileEntry current,
+                            boolean noManifest, boolean frozen, byte[] buffer) throws IOException {
+        if (next.sameContent(current)) {
+            // Not changed by the bootstrap, so whatever is installed stays.
+            return Decision.SKIP;
+        }
+        File file = new File(mPrefixDir, path);
+        if (mFileOps.readlink(file.getPath()) != null) {
+            return current == null && !noManifest && !frozen ? Decision.REPLACE : Decision.KEEP;
+        }
+        if (!file.exists()) {
+            return frozen ? Decision.SKIP : Decision.REPLACE;
+        }
+        if (!file.isFile()) {
+            return Decision.KEEP;
+        }
+        if (next.matches(file, buffer)) {
+            return Decision.SKIP;
+        }
+        if (!noManifest && !frozen && current != null && current.matches(file, buffer)) {
+            return Decision.REPLACE;
+        }
+        return Decision.KEEP;
+    }
+
+    private Decision decideSymlink(String path, String target, BootstrapManifest current, Set<String> frozen)
+        throws IOException {
+        File link = new File(mPrefixDir, path);
+        String installed = mFileOps.readlink(link.getPath());
+        if (target.equals(installed)) {
+            return Decision.SKIP;
+        }
+        if (installed == null && !link.exists()) {
+            return isFrozen(frozen, path) ? Decision.SKIP : Decision.REPLACE;
+        }
+        if (current == null || isFrozen(frozen, path)) {
+            return Decision.KEEP;
+        }
+        String currentTarget = current.getSymlinks().get(path);
+        if (target.equals(currentTarget)) {
+            return Decision.SKIP;
+        }
+        if (installed != null) {
+            return installed.equals(currentTarget) ? Decision.REPLACE : Decision.KEEP;
+        }
+        // A file the old bootstrap installed where the new one has a symlink.
+        BootstrapManifest.FileEntry currentFile = current.getFiles().get(path);
+        return currentFile != null && currentFile.matches(link, new byte[BUFFER_SIZE])
+            ? Decision.REPLACE : Decision.KEEP;
+    }
+
+    /** Delete what the old bootstrap installed and the new one does not, unless changed locally. */
+    private int removeDropped(BootstrapManifest current, BootstrapManifest next, Set<String> frozen)
+        throws IOException {
+        int removed = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (Map.Entry<String, BootstrapManifest.FileEntry> file : current.getFiles().entrySet()) {
+            String path = file.getKey();
+            if (next.getFiles().containsKey(path) || next.getSymlinks().containsKey(path) || isFrozen(frozen, path)) {
+                continue;
+            }
+            File installed = new File(mPrefixDir, path);
+            if (mFileOps.readlink(installed.getPath()) == null && file.getValue().matches(installed, buffer)
+                && installed.delete()) {
+                removed++;
+            }
+        }
+        for (Map.Entry<String, String> symlink : current.getSymlinks().entrySet()) {
+            String path = symlink.getKey();
+            if (next.getFiles().containsKey(path) || next.getSymlinks().containsKey(path) || isFrozen(frozen, path)) {
+                continue;
+            }
+            File installed = new File(mPrefixDir, path);
+            if (symlink.getValue().equals(mFileOps.readlink(installed.getPath())) && installed.delete()) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static void moveIntoPlace(File staged, File target) throws IOException {
+        mkdirs(target.getParentFile());
+        if (!staged.renameTo(target)) {
+            throw new IOException("Failed to move " + staged.getAbsolutePath() + " to " + target.getAbsolutePath());
+        }
+    }
+
+    /** Create the new link beside the old one and rename it over, so the path never goes missing. */
+    private void replaceSymlink(String target, File link) throws IOException {
+        mkdirs(link.getParentFile());
+        File temp = new File(link.getParentFile(), "." + link.getName() + ".botdrop-new");
+        if (mFileOps.readlink(temp.getPath()) != null || temp.exists()) {
+            temp.delete();
+        }
+        mFileOps.symlink(target, temp.getAbsolutePath());
+        if (!temp.renameTo(link)) {
+            temp.delete();
+            throw new IOException("Failed to replace symlink " + link.getAbsolutePath());
+        }
+    }
+
+    private void deleteRecursively(File file) throws IOException {
+        if (mFileOps.readlink(file.getPath()) == null) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    deleteRecursively(child);
+                }
+            }
+        }
+        if (!file.delete() && (file.exists() || mFileOps.readlink(file.getPath()) != null)) {
+            throw new IOException("Failed to delete " + file.getAbsolutePath());
+        }
+    }
+
+    private static void mkdirs(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Failed to create directory " + directory.getAbsolutePath());
+        }
+    }
+}
@@ -9,7 +9,6 @@ import android.os.Build;
 import android.os.Environment;
 import android.os.PowerManager;
 import android.system.Os;
-import android.util.Pair;
 import android.view.WindowManager;
 
 import com.termux.R;
@@ -27,15 +26,9 @@ import com.termux.shared.termux.shell.command.environment.TermuxShellEnvironment
 import app.botdrop.BundledOpenclawUtils;
 import app.botdrop.OpenclawVersionUtils;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.nio.ByteBuffer;
 
 import static com.termux.shared.termux.TermuxConstants.TERMUX_PREFIX_DIR;
 import static com.termux.shared.termux.TermuxConstants.TERMUX_PREFIX_DIR_PATH;
@@ -45,21 +38,22 @@ import static com.termux.shared.termux.TermuxConstants.TERMUX_STAGING_PREFIX_DIR
 /**
  * Install the Termux bootstrap packages if necessary by following the below steps:
  * <p/>
- * (1) If $PREFIX already exist, assume that it is correct and be done. Note that this relies on that we do not create a
+ * (1) If $PREFIX already exist, assume that it is correct apart from changes in the bundled bootstrap, which
+ * {@link BootstrapUpdater} applies in place, and be done. Note that this relies on that we do not create a
  * broken $PREFIX directory below.
  * <p/>
  * (2) A progress dialog is shown with "Installing..." message and a spinner.
  * <p/>
  * (3) A staging directory, $STAGING_PREFIX, is cleared if left over from broken installation below.
  * <p/>
- * (4) The zip file is loaded from a shared library.
+ * (4) The zip file is mapped from a shared library as a direct buffer, without copying it onto the heap.
  * <p/>
- * (5) The zip, containing entries relative to the $PREFIX, is is downloaded and extracted by a zip input stream
- * continuously encountering zip file entries:
+ * (5) The zip, containing entries relative to the $PREFIX, is extracted by {@link BootstrapExtractor}:
  * <p/>
- * (5.1) If the zip entry encountered is SYMLINKS.txt, go through it and remember all symlinks to setup.
+ * (5.1) SYMLINKS.txt is read for all symlinks to setup.
  * <p/>
- * (5.2) For every other zip entry, extract it into $STAGING_PREFIX and set execute permissions if necessary.
+ * (5.2) Every other entry is extracted into $STAGING_PREFIX in parallel, setting execute permissions if
+ * necessary, and the symlinks are created after that. The progress dialog shows the percentage done.
  */
 public final class TermuxInstaller {
 
@@ -121,9 +115,8 @@ public final class TermuxInstaller {
             if (TermuxFileUtils.isTermuxPrefixDirectoryEmpty()) {
                 Logger.logInfo(LOG_TAG, "The termux prefix directory \"" + TERMUX_PREFIX_DIR_PATH + "\" exists but is empty or only contains specific unimportant files.");
             } else {
-                // Upgrade path: refresh BotDrop scripts and force BotDrop APT sources.
-                createBotDropScripts(activity, openclawVersion);
-                whenDone.run();
+                // Upgrade path: apply bootstrap changes, refresh BotDrop scripts and force BotDrop APT sources.
+                updateBootstrapIfNeeded(activity, openclawVersion, whenDone);
                 return;
             }
         } else if (FileUtils.fileExists(TERMUX_PREFIX_DIR_PATH, false)) {
@@ -173,62 +166,18 @@ public final class TermuxInstaller {
 
                     Logger.logInfo(LOG_TAG, "Extracting bootstrap zip to prefix staging directory \"" + TERMUX_STAGING_PREFIX_DIR_PATH + "\".");
 
-                    final byte[] buffer = new byte[8096];
-                    final List<Pair<String, String>> symlinks = new ArrayList<>(50);
-
-                    final byte[] zipBytes = loadZipBytes();
-                    try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
-                        ZipEntry zipEntry;
-                        while ((zipEntry = zipInput.getNextEntry()) != null) {
-                            if (zipEntry.getName().equals("SYMLINKS.txt")) {
-                                BufferedReader symlinksReader = new BufferedReader(new InputStreamReader(zipInput));
-                                String line;
-                                while ((line = symlinksReader.readLine()) != null) {
-                                    String[] parts = line.split("←");
-                                    if (parts.length != 2)
-                                        throw new RuntimeException("Malformed symlink line: " + line);
-                                    String oldPath = parts[0];
-                                    String newPath = TERMUX_STAGING_PREFIX_DIR_PATH + "/" + parts[1];
-                                    symlinks.add(Pair.create(oldPath, newPath));
-
-                                    error = ensureDirectoryExists(new File(newPath).getParentFile());
-                                    if (error != null) {
-                                        showBootstrapErrorDialog(activity, whenDone, Error.getErrorMarkdownString(error));
-                                        return;
-                                    }
-                                }
-                            } else {
-                                String zipEntryName = zipEntry.getName();
-                                File targetFile = new File(TERMUX_STAGING_PREFIX_DIR_PATH, zipEntryName);
-                                boolean isDirectory = zipEntry.isDirectory();
-
-                                error = ensureDirectoryExists(isDirectory ? targetFile : targetFile.getParentFile());
-                                if (error != null) {
-                                    showBootstrapErrorDialog(activity, whenDone, Error.getErrorMarkdownString(error));
-                                    return;
-                                }
-
-                                if (!isDirectory) {
-                                    try (FileOutputStream outStream = new FileOutputStream(targetFile)) {
-                                        int readBytes;
-                                        while ((readBytes = zipInput.read(buffer)) != -1)
-                                            outStream.write(buffer, 0, readBytes);
-                                    }
-                                    if (zipEntryName.startsWith("bin/") || zipEntryName.startsWith("libexec") ||
-                                        zipEntryName.startsWith("lib/apt/apt-helper") || zipEntryName.startsWith("lib/apt/methods")) {
-                                        //noinspection OctalInteger
-                                        Os.chmod(targetFile.getAbsolutePath(), 0700);
-                                    }
-                                }
-                            }
-                        }
-                    }
+                    long extractStart = System.currentTimeMillis();
+                    ByteBuffer zipBuffer = loadZipBuffer();
+                    int fileCount = new BootstrapExtractor(zipBuffer, TERMUX_STAGING_PREFIX_DIR,
+                        BootstrapExtractor.defaultThreads(), BootstrapExtractor.OS_FILE_OPS,
+                        percent -> activity.runOnUiThread(() -> progress.setMessage(
+                            activity.getString(R.string.bootstrap_installer_progress, percent)))
+                    ).extract();
+                    Logger.logInfo(LOG_TAG, "Extracted " + fileCount + " bootstrap files in " +
+                        (System.currentTimeMillis() - extractStart) + " ms.");
 
-                    if (symlinks.isEmpty())
-                        throw new RuntimeException("No SYMLINKS.txt encountered");
-                    for (Pair<String, String> symlink : symlinks) {
-                        Os.symlink(symlink.first, symlink.second);
-                    }
+                    // Lets later APK updates apply only what changed in the bootstrap
+                    BootstrapUpdater.writeManifest(zipBuffer, TERMUX_STAGING_PREFIX_DIR);
 
                     Logger.logInfo(LOG_TAG, "Moving termux prefix staging to prefix directory.");
 
@@ -263,6 +212,46 @@ public final class TermuxInstaller {
         }.start();
     }
 
+    /**
+     * Apply changes in the bundled bootstrap to an existing prefix with {@link BootstrapUpdater},
+     * showing progress only if files have to be extracted. A failed update leaves a working
+     * prefix behind and is retried on the next start.
+     */
+    private static void updateBootstrapIfNeeded(final Activity activity, final String openclawVersion,
+                                                final Runnable whenDone) {
+        final ProgressDialog[] progress = new ProgressDialog[1];
+        new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                BootstrapUpdater.Result result = new BootstrapUpdater(loadZipBuffer(), TERMUX_PREFIX_DIR,
+                    TERMUX_STAGING_PREFIX_DIR, BootstrapExtractor.defaultThreads(), BootstrapExtractor.OS_FILE_OPS,
+                    percent -> activity.runOnUiThread(() -> {
+                        if (progress[0] == null) {
+                            progress[0] = ProgressDialog.show(activity, null, null, true, false);
+                        }
+                        progress[0].setMessage(activity.getString(R.string.bootstrap_updater_progress, percent));
+                    })).update();
+                if (!result.upToDate) {
+                    Logger.logInfo(LOG_TAG, "Updated bootstrap packages in " +
+                        (System.currentTimeMillis() - start) + " ms: " + result + ".");
+                }
+            } catch (Exception e) {
+                Logger.logStackTraceWithMessage(LOG_TAG, "Failed to update bootstrap packages", e);
+            }
+            activity.runOnUiThread(() -> {
+                if (progress[0] != null) {
+                    try {
+                        progress[0].dismiss();
+                    } catch (RuntimeException e) {
+                        // Activity already dismissed - ignore.
+                    }
+                }
+                createBotDropScripts(activity, openclawVersion);
+                whenDone.run();
+            });
+        }, "BootstrapUpdater").start();
+    }
+
     public static void showBootstrapErrorDialog(Activity activity, Runnable whenDone, String message) {
         Logger.logErrorExtended(LOG_TAG, "Bootstrap Error:\n" + message);
 
@@ -395,17 +384,17 @@ public final class TermuxInstaller {
         }.start();
     }
 
-    private static Error ensureDirectoryExists(File directory) {
-        return FileUtils.createDirectoryFile(directory.getAbsolutePath());
-    }
-
-    public static byte[] loadZipBytes() {
+    /**
+     * @return the bootstrap zip as a read-only direct buffer over the shared library's data, so
+     * it is not copied onto the Java heap
+     */
+    public static ByteBuffer loadZipBuffer() {
         // Only load the shared library when necessary to save memory usage.
         System.loadLibrary("termux-bootstrap");
-        return getZip();
+        return getZipBuffer().asReadOnlyBuffer();
     }
 
-    public static native byte[] getZip();
+    public static native ByteBuffer getZipBuffer();
 
     /**
      * Creates the BotDrop installation script and environment setup.
@@ -10,6 +10,7 @@ import android.content.pm.PackageManager;
 import android.graphics.Typeface;
 import android.media.AudioAttributes;
 import android.media.SoundPool;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.widget.ListView;
 
@@ -223,6 +224,12 @@ public class TermuxTerminalSessionActivityClient extends TermuxTerminalSessionCl
 
     @Override
     public void onTerminalCursorStateChange(boolean enabled) {
+        // Called by the emulator while it processes output, which may be on the session's emulator worker.
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mActivity.runOnUiThread(() -> onTerminalCursorStateChange(enabled));
+            return;
+        }
+
         // Do not start cursor blinking thread if activity is not visible
         if (enabled && !mActivity.isVisible()) {
             Logger.logVerbose(LOG_TAG, "Ignoring call to start cursor blinking since activity is not visible");
@@ -506,7 +513,9 @@ public class TermuxTerminalSessionActivityClient extends TermuxTerminalSessionCl
             TerminalColors.COLOR_SCHEME.updateWith(props);
             TerminalSession session = mActivity.getCurrentSession();
             if (session != null && session.getEmulator() != null) {
-                session.getEmulator().mColors.reset();
+                synchronized (session.getEmulator()) {
+                    session.getEmulator().mColors.reset();
+                }
             }
             updateBackgroundColor();
 
@@ -0,0 +1,146 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Locale;
+
+/**
+ * Latency of the BotDropConfig getters a dashboard render calls (getApiKey, getBaseUrl,
+ * getConfiguredCustomProviders) when every call re-reads and re-parses the file under a
+ * global lock, as before, against the {@link CachedJsonFile} snapshot. Also times
+ * readConfig(), which now returns a deep copy of the snapshot.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*BotDropConfigBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BotDropConfigBenchmark {
+
+    private static final int ITERATIONS = 20000;
+    private static final Object LEGACY_LOCK = new Object();
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void getterLatency() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        File config = mTemp.newFile("openclaw.json");
+        File authProfiles = mTemp.newFile("auth-profiles.json");
+        assertTrue(new CachedJsonFile(config).write(syntheticConfig()));
+        assertTrue(new CachedJsonFile(authProfiles).write(syntheticAuthProfiles()));
+        System.out.println(String.format(Locale.ROOT, "openclaw.json %.1f KB, auth-profiles.json %.1f KB",
+            config.length() / 1024.0, authProfiles.length() / 1024.0));
+
+        CachedJsonFile cachedConfig = new CachedJsonFile(config);
+        CachedJsonFile cachedAuthProfiles = new CachedJsonFile(authProfiles);
+
+        for (int round = 0; round < 2; round++) {
+            report("getters, re-read", time(() -> render(legacyRead(config), legacyRead(authProfiles))));
+            report("getters, cached", time(() -> render(cachedConfig.snapshot(), cachedAuthProfiles.snapshot())));
+            report("readConfig, re-read", time(() -> legacyRead(config).length()));
+            report("readConfig, copy", time(() -> cachedConfig.copy().length()));
+        }
+    }
+
+    /** What one dashboard refresh asks for. */
+    private static int render(JSONObject config, JSONObject authProfiles) {
+        return BotDropConfig.findProfileValue(authProfiles, "openrouter", "key").length()
+            + BotDropConfig.findProfileValue(authProfiles, "custom", "base_url").length()
+            + BotDropConfig.findCustomProviders(config).size();
+    }
+
+    private interface Work {
+        int run();
+    }
+
+    private static long time(Work work) {
+        int sink = 0;
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            sink += work.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += work.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return elapsed;
+    }
+
+    private static void report(String label, long nanos) {
+        System.out.println(String.format(Locale.ROOT, "%-20s %8.2f us per call", label, nanos / 1e3 / ITERATIONS));
+    }
+
+    /** The read path every getter took before the cache. */
+    private static JSONObject legacyRead(File file) {
+        synchronized (LEGACY_LOCK) {
+            try (FileReader reader = new FileReader(file)) {
+                StringBuilder sb = new StringBuilder();
+                char[] buffer = new char[1024];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    sb.append(buffer, 0, read);
+                }
+                return new JSONObject(sb.toString());
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /** Roughly a configured install: a few channels, custom providers with long model lists. */
+    private static JSONObject syntheticConfig() throws Exception {
+        JSONObject config = new JSONObject();
+        config.put("agents", new JSONObject().put("defaults", new JSONObject()
+            .put("model", new JSONObject().put("primary", "custom/model-7"))
+            .put("workspace", "~/botdrop")));
+        config.put("gateway", new JSONObject().put("mode", "local")
+            .put("auth", new JSONObject().put("token", "0f8e3c1a-7b7c-4c8e-9d0a-2b2f9e4a5c6d")));
+        JSONObject channels = new JSONObject();
+        for (String channel : new String[]{"telegram", "discord", "feishu", "qqbot"}) {
+            channels.put(channel, new JSONObject().put("enabled", true)
+                .put("botToken", "token-for-" + channel).put("dmPolicy", "pairing"));
+        }
+        config.put("channels", channels);
+        JSONObject providers = new JSONObject();
+        for (int p = 0; p < 4; p++) {
+            JSONArray models = new JSONArray();
+            for (int m = 0; m < 60; m++) {
+                models.put(new JSONObject().put("id", "vendor-" + p + "/model-" + m).put("name", "vendor-" + p + "/model-" + m));
+            }
+            providers.put("custom" + (p == 0 ? "" : String.valueOf(p)), new JSONObject()
+                .put("baseUrl", "https://llm" + p + ".example.com/v1").put("api", "openai-completions")
+                .put("apiKey", "sk-" + p).put("models", models));
+        }
+        config.put("models", new JSONObject().put("mode", "merge").put("providers", providers));
+        return config;
+    }
+
+    private static JSONObject syntheticAuthProfiles() throws Exception {
+        JSONObject profiles = new JSONObject();
+        for (String provider : new String[]{"anthropic", "openai", "google", "openrouter", "custom"}) {
+            for (String model : new String[]{"default", "model-a", "model-b"}) {
+                profiles.put(provider + ":" + model, new JSONObject().put("type", "api_key")
+                    .put("provider", provider).put("model", model).put("key", "sk-" + provider + "-" + model)
+                    .put("base_url", provider.equals("custom") ? "https://llm.example.com/v1" : ""));
+            }
+        }
+        return new JSONObject().put("version", 1).put("profiles", profiles);
+    }
+}
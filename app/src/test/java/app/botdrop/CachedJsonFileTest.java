@@ -0,0 +1,126 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CachedJsonFileTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void missingFileReadsAsEmpty() {
+        CachedJsonFile file = new CachedJsonFile(new File(mTemp.getRoot(), "openclaw.json"));
+
+        assertEquals(0, file.snapshot().length());
+        assertSame(file.snapshot(), file.snapshot());
+    }
+
+    @Test
+    public void unchangedFileIsParsedOnce() throws Exception {
+        File json = mTemp.newFile("openclaw.json");
+        writeText(json, "{\"gateway\":{\"mode\":\"local\"}}");
+        CachedJsonFile file = new CachedJsonFile(json);
+
+        JSONObject first = file.snapshot();
+
+        assertEquals("local", first.getJSONObject("gateway").getString("mode"));
+        assertSame(first, file.snapshot());
+    }
+
+    @Test
+    public void outsideEditIsPickedUp() throws Exception {
+        File json = mTemp.newFile("openclaw.json");
+        writeText(json, "{\"a\":1}");
+        CachedJsonFile file = new CachedJsonFile(json);
+        assertEquals(1, file.snapshot().getInt("a"));
+
+        writeText(json, "{\"a\":2}");
+        // Same size, so only the modification time tells the edit apart.
+        assertTrue(json.setLastModified(json.lastModified() + 2000));
+
+        assertEquals(2, file.snapshot().getInt("a"));
+    }
+
+    @Test
+    public void copiesDoNotChangeTheSnapshot() throws Exception {
+        File json = mTemp.newFile("openclaw.json");
+        writeText(json, "{\"models\":{\"providers\":{\"custom\":{\"models\":[{\"id\":\"m\"}]}}}}");
+        CachedJsonFile file = new CachedJsonFile(json);
+
+        JSONObject copy = file.copy();
+        copy.getJSONObject("models").getJSONObject("providers").remove("custom");
+
+        JSONArray models = file.snapshot().getJSONObject("models").getJSONObject("providers")
+            .getJSONObject("custom").getJSONArray("models");
+        assertEquals("m", models.getJSONObject(0).getString("id"));
+    }
+
+    @Test
+    public void writeReplacesFileAndSnapshot() throws Exception {
+        File json = new File(mTemp.getRoot(), "dir/openclaw.json");
+        CachedJsonFile file = new CachedJsonFile(json);
+        JSONObject config = new JSONObject().put("a", 1);
+
+        assertTrue(file.write(config));
+        config.put("a", 2);
+
+        assertEquals(1, file.snapshot().getInt("a"));
+        assertEquals(1, new CachedJsonFile(json).snapshot().getInt("a"));
+        assertFalse(new File(json.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void updateWritesOnlyWhenApplied() throws Exception {
+        File json = mTemp.newFile("openclaw.json");
+        writeText(json, "{\"a\":1}");
+        long lastModified = json.lastModified() - 5000;
+        assertTrue(json.setLastModified(lastModified));
+        CachedJsonFile file = new CachedJsonFile(json);
+
+        assertFalse(file.update(config -> {
+            config.put("a", 3);
+            return false;
+        }));
+        assertEquals(lastModified, json.lastModified());
+        assertEquals(1, file.snapshot().getInt("a"));
+
+        assertTrue(file.update(config -> {
+            config.put("b", config.getInt("a") + 1);
+            return true;
+        }));
+        assertEquals(2, new CachedJsonFile(json).snapshot().getInt("b"));
+    }
+
+    @Test
+    public void corruptFileReadsAsEmpty() throws Exception {
+        File json = mTemp.newFile("openclaw.json");
+        writeText(json, "{\"a\":");
+
+        assertEquals(0, new CachedJsonFile(json).snapshot().length());
+    }
+
+    private static void writeText(File file, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class CommandLaneTest {
+
+    /** Keeps the slow-wait warning (and its android.util.Log call) out of plain JVM tests. */
+    private static final long NEVER_SLOW = Long.MAX_VALUE;
+
+    @Test
+    public void singleThreadLaneRunsTasksInSubmissionOrder() throws InterruptedException {
+        CommandLane lane = new CommandLane("mutation", 1, NEVER_SLOW);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            final int index = i;
+            lane.execute(() -> {
+                order.add(index);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        lane.shutdown();
+    }
+
+    @Test
+    public void longBulkTaskDoesNotDelayFastLane() throws InterruptedException {
+        CommandLane bulk = new CommandLane("bulk", 1, NEVER_SLOW);
+        CommandLane fast = new CommandLane("fast", 1, NEVER_SLOW);
+        CountDownLatch release = new CountDownLatch(1);
+        bulk.execute(() -> awaitQuietly(release));
+
+        CountDownLatch probed = new CountDownLatch(1);
+        fast.execute(probed::countDown);
+
+        assertTrue(probed.await(2, TimeUnit.SECONDS));
+        release.countDown();
+        bulk.shutdown();
+        fast.shutdown();
+    }
+
+    @Test
+    public void statsReportQueueDepthAndWaitTime() throws InterruptedException {
+        CommandLane lane = new CommandLane("bulk", 1, NEVER_SLOW);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        lane.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            lane.execute(done::countDown);
+        }
+
+        CommandLane.Stats busy = lane.getStats();
+        assertEquals(3, busy.queueDepth);
+        assertEquals(1, busy.running);
+        assertTrue(busy.peakQueueDepth >= 3);
+
+        Thread.sleep(100);
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        lane.shutdown();
+
+        CommandLane.Stats idle = waitForCompleted(lane, 4);
+        assertEquals(0, idle.queueDepth);
+        assertEquals(0, idle.running);
+        // The three queued tasks waited behind the blocker.
+        assertTrue(String.valueOf(idle.maxWaitMs), idle.maxWaitMs >= 90);
+        assertTrue(idle.p50WaitMs <= idle.p95WaitMs);
+        assertTrue(idle.describe().startsWith("bulk: queued 0"));
+    }
+
+    @Test
+    public void rejectedTaskIsNotCountedAsQueued() {
+        CommandLane lane = new CommandLane("fast", 1, NEVER_SLOW);
+        lane.shutdown();
+        try {
+            lane.execute(() -> { });
+        } catch (RejectedExecutionException expected) {
+            assertEquals(0, lane.getStats().queueDepth);
+            return;
+        }
+        throw new AssertionError("Expected RejectedExecutionException");
+    }
+
+    private static CommandLane.Stats waitForCompleted(CommandLane lane, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        CommandLane.Stats stats = lane.getStats();
+        while (stats.completed < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            stats = lane.getStats();
+        }
+        assertEquals(count, stats.completed);
+        return stats;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Peak and retained heap while collecting 50 MB of command output, buffered as
+ * CommandResult.stdout always was versus streamed with a bounded tail or spilled to a file.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*CommandOutputBenchmark'
+ */
+public class CommandOutputBenchmark {
+
+    private static final long OUTPUT_BYTES = 50L * 1024 * 1024;
+    private static final String LINE =
+        "npm timing reify:loadTrees Completed in 1234ms node_modules/openclaw/dist/some/module.js";
+
+    private interface Factory {
+        CommandOutput create();
+    }
+
+    @Test
+    public void peakHeapFor50MbOutput() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        File spillDir = Files.createTempDirectory("cmd-out-bench").toFile();
+        long buffered = run("buffered", () -> CommandOutput.buffered(null));
+        long streaming = run("streaming", () -> CommandOutput.streaming(null, CommandOutput.DEFAULT_TAIL_LINES));
+        long spilling = run("spilling", () -> CommandOutput.spilling(null, CommandOutput.DEFAULT_TAIL_LINES,
+            CommandOutput.DEFAULT_SPILL_THRESHOLD_CHARS, spillDir));
+        spillDir.delete();
+
+        // Buffering retains at least one byte per char (compact strings), more with UTF-16.
+        assertTrue(buffered > OUTPUT_BYTES / 2);
+        assertTrue(streaming < buffered / 4);
+        assertTrue(spilling < buffered / 4);
+    }
+
+    /**
+     * @return retained heap growth in bytes once all output has been collected
+     */
+    private static long run(String label, Factory factory) throws Exception {
+        long baseline = settledHeapUsed();
+        resetPeaks();
+
+        long start = System.nanoTime();
+        CommandOutput output = factory.create();
+        long written = 0;
+        int lines = 0;
+        while (written < OUTPUT_BYTES) {
+            // A fresh String per line, as BufferedReader.readLine() would produce.
+            String line = new String(LINE.toCharArray()) + lines;
+            output.accept(line);
+            written += line.length() + 1;
+            lines++;
+        }
+        output.finish();
+        String stdout = output.getResultText();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        long peak = peakHeapUsed() - baseline;
+        long retained = settledHeapUsed() - baseline;
+        System.out.println(String.format(Locale.ROOT,
+            "%-9s %d lines, %d MB in %d ms: peak heap +%.1f MB, retained +%.1f MB, stdout %d chars, spilled=%b",
+            label, lines, written >> 20, elapsedMs, peak / 1048576.0, retained / 1048576.0,
+            stdout.length(), output.isSpilled()));
+        output.close();
+        return retained;
+    }
+
+    private static long settledHeapUsed() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
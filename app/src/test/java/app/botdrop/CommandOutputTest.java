@@ -0,0 +1,104 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandOutputTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void bufferedKeepsEverythingInMemory() throws IOException {
+        List<String> seen = new ArrayList<>();
+        CommandOutput output = CommandOutput.buffered(seen::add);
+        output.accept("one");
+        output.accept("two");
+        output.finish();
+
+        assertEquals("one\ntwo\n", output.getResultText());
+        assertEquals("one\ntwo\n", output.readFully());
+        assertEquals(2, seen.size());
+        assertEquals(8, output.getCharCount());
+        assertFalse(output.isSpilled());
+    }
+
+    @Test
+    public void streamingKeepsOnlyTheTail() {
+        List<String> seen = new ArrayList<>();
+        CommandOutput output = CommandOutput.streaming(seen::add, 3);
+        for (int i = 0; i < 1000; i++) {
+            output.accept("line" + i);
+        }
+        output.finish();
+
+        assertEquals(1000, seen.size());
+        assertEquals(1000, output.getLineCount());
+        assertEquals("line997\nline998\nline999\n", output.getResultText());
+        assertFalse(output.hasFullOutput());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void streamingCannotMaterializeFullOutput() throws IOException {
+        CommandOutput output = CommandOutput.streaming(null, 3);
+        output.accept("x");
+        output.finish();
+        output.readFully();
+    }
+
+    @Test
+    public void spillingMovesOutputToFilePastThreshold() throws IOException {
+        File dir = mTemp.newFolder("spill");
+        CommandOutput output = CommandOutput.spilling(null, 2, 64, dir);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            String line = "line " + i + " ✓";
+            output.accept(line);
+            expected.append(line).append('\n');
+        }
+        output.finish();
+
+        assertTrue(output.isSpilled());
+        assertTrue(output.hasFullOutput());
+        assertEquals(1, dir.listFiles().length);
+        assertEquals("line 98 ✓\nline 99 ✓\n", output.getResultText());
+        assertEquals(expected.toString(), output.readFully());
+
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(output.openReader())) {
+            while (reader.readLine() != null) {
+                lines++;
+            }
+        }
+        assertEquals(100, lines);
+
+        output.close();
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void spillingBelowThresholdStaysInMemory() throws IOException {
+        File dir = mTemp.newFolder("spill");
+        CommandOutput output = CommandOutput.spilling(null, 2, 1024, dir);
+        output.accept("a");
+        output.accept("b");
+        output.accept("c");
+        output.finish();
+
+        assertFalse(output.isSpilled());
+        assertEquals(0, dir.listFiles().length);
+        assertEquals("a\nb\nc\n", output.getResultText());
+        assertEquals("b\nc\n", output.getTail());
+    }
+}
@@ -0,0 +1,292 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CustomModelsProbeTest {
+
+    private interface Responder {
+        void respond(HttpExchange exchange) throws IOException;
+    }
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private final Map<String, Responder> mResponders = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> mRequests = new ConcurrentHashMap<>();
+    // Released in tearDown so handlers that never answer do not outlive the test.
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            mRequests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            Responder responder = mResponders.get(path);
+            try {
+                if (responder == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    responder.respond(exchange);
+                }
+            } catch (IOException ignored) {
+                // The probe disconnected.
+            } finally {
+                exchange.close();
+            }
+        });
+        mServer.start();
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mServer.stop(0);
+    }
+
+    @Test
+    public void givenUrlWinsOverAFasterGuess() {
+        mResponders.put("/models", exchange -> {
+            await(300);
+            send(exchange, "{\"data\":[{\"id\":\"llama3\"}]}");
+        });
+        mResponders.put("/v1/models", exchange -> send(exchange, "{\"data\":[{\"id\":\"gpt-4o\"}]}"));
+
+        CustomModelsProbe.Result result = newProbe(0).probe(mBaseUrl, "sk-test");
+
+        assertEquals(mBaseUrl + "/models", result.endpoint);
+        assertEquals(Collections.singletonList("llama3"), result.modelIds);
+        assertFalse(result.guessed);
+    }
+
+    @Test
+    public void guessIsRequestedAlongsideTheGivenUrl() {
+        mResponders.put("/models", exchange -> {
+            await(500);
+            exchange.sendResponseHeaders(404, -1);
+        });
+        mResponders.put("/v1/models", exchange -> {
+            await(500);
+            send(exchange, "{\"data\":[{\"id\":\"gpt-4o\"}]}");
+        });
+
+        CustomModelsProbe probe = newProbe(CustomModelsProbe.CACHE_TTL_MS);
+        long start = System.nanoTime();
+        CustomModelsProbe.Result result = probe.probe(mBaseUrl, "sk-test");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertNotNull(result);
+        assertEquals(mBaseUrl + "/v1/models", result.endpoint);
+        assertEquals(Collections.singletonList("gpt-4o"), result.modelIds);
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 900);
+
+        // The base URL to save is the one that answered, also when it comes from the cache.
+        assertTrue(result.guessed);
+        assertEquals(mBaseUrl + "/v1", result.baseUrl());
+        CustomModelsProbe.Result cached = probe.probe(mBaseUrl, "sk-test");
+        assertTrue(cached.fromCache);
+        assertTrue(cached.guessed);
+    }
+
+    @Test
+    public void htmlFromAGuessIsNotAModelList() {
+        mResponders.put("/v1/models", exchange -> sendHtml(exchange, "text/html; charset=utf-8"));
+        mResponders.put("/models", exchange -> {
+            await(200);
+            exchange.sendResponseHeaders(404, -1);
+        });
+        assertNull(newProbe(0).probe(mBaseUrl, "sk-test"));
+
+        // Nor when the page is served without saying it is HTML.
+        mResponders.put("/v1/models", exchange -> sendHtml(exchange, "text/plain"));
+        assertNull(newProbe(0).probe(mBaseUrl, "sk-test"));
+
+        // A plain text list still works at the URL the user gave.
+        mResponders.put("/models", exchange -> send(exchange, "gpt-4o\no1\n"));
+        assertEquals(Arrays.asList("gpt-4o", "o1"), newProbe(0).probe(mBaseUrl, "sk-test").modelIds);
+    }
+
+    @Test
+    public void failedAndEmptyResponsesLoseToAValidOne() {
+        mResponders.put("/v1/models", exchange -> send(exchange, "{\"data\":[]}"));
+        mResponders.put("/models", exchange -> {
+            await(200);
+            send(exchange, "[\"llama3\"]");
+        });
+
+        CustomModelsProbe.Result result = newProbe(0).probe(mBaseUrl + "/v1/", "sk-test");
+
+        assertEquals(mBaseUrl + "/models", result.endpoint);
+        assertEquals(Collections.singletonList("llama3"), result.modelIds);
+        assertTrue(result.guessed);
+        assertEquals(mBaseUrl, result.baseUrl());
+    }
+
+    @Test
+    public void noValidResponseReturnsNull() {
+        mResponders.put("/v1/models", exchange -> exchange.sendResponseHeaders(401, -1));
+
+        assertNull(newProbe(CustomModelsProbe.CACHE_TTL_MS).probe(mBaseUrl, "sk-test"));
+        assertNull(newProbe(CustomModelsProbe.CACHE_TTL_MS).probe("ftp://example.com", "sk-test"));
+        assertNull(newProbe(CustomModelsProbe.CACHE_TTL_MS).probe(mBaseUrl, ""));
+    }
+
+    @Test
+    public void unresponsiveEndpointsTimeOut() {
+        mResponders.put("/models", exchange -> await(10_000));
+        mResponders.put("/v1/models", exchange -> await(10_000));
+
+        long start = System.nanoTime();
+        CustomModelsProbe.Result result = new CustomModelsProbe(300, 300, 0).probe(mBaseUrl, "sk-test");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertNull(result);
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 3000);
+    }
+
+    @Test
+    public void largeResponseIsStreamed() {
+        int count = 50_000;
+        mResponders.put("/v1/models", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                out.write("{\"object\":\"list\",\"data\":[");
+                for (int i = 0; i < count; i++) {
+                    out.write(i == 0 ? "" : ",");
+                    out.write("{\"id\":\"model-" + i + "\",\"object\":\"model\",\"owned_by\":\"org\","
+                        + "\"permission\":[{\"allow_sampling\":true,\"group\":null}],\"context_length\":131072}");
+                }
+                out.write("]}");
+            }
+        });
+
+        CustomModelsProbe.Result result = newProbe(0).probe(mBaseUrl + "/v1", "sk-test");
+
+        assertEquals(count, result.modelIds.size());
+        assertEquals("model-0", result.modelIds.get(0));
+        assertEquals("model-" + (count - 1), result.modelIds.get(count - 1));
+    }
+
+    @Test
+    public void resultsAreCachedPerBaseUrlAndKey() {
+        mResponders.put("/v1/models", exchange -> send(exchange, "{\"data\":[{\"id\":\"gpt-4o\"}]}"));
+        CustomModelsProbe probe = newProbe(CustomModelsProbe.CACHE_TTL_MS);
+
+        assertFalse(probe.probe(mBaseUrl, "sk-test").fromCache);
+        assertTrue(probe.probe(mBaseUrl + "/", "sk-test").fromCache);
+        assertEquals(1, requests("/v1/models"));
+
+        assertFalse(probe.probe(mBaseUrl, "sk-other").fromCache);
+        assertEquals(2, requests("/v1/models"));
+
+        CustomModelsProbe uncached = newProbe(0);
+        uncached.probe(mBaseUrl, "sk-test");
+        assertFalse(uncached.probe(mBaseUrl, "sk-test").fromCache);
+        assertEquals(4, requests("/v1/models"));
+    }
+
+    @Test
+    public void candidateEndpointsCoverBothPathStyles() {
+        assertEquals(Arrays.asList("https://api.example.com/models", "https://api.example.com/v1/models"),
+            CustomModelsProbe.candidateEndpoints(" https://api.example.com/ "));
+        assertEquals(Arrays.asList("https://api.example.com/v1/models", "https://api.example.com/models"),
+            CustomModelsProbe.candidateEndpoints("https://api.example.com/v1"));
+        assertEquals(Collections.singletonList("http://host:8080/api/models"),
+            CustomModelsProbe.candidateEndpoints("http://host:8080/api/models/"));
+        assertTrue(CustomModelsProbe.candidateEndpoints("api.example.com").isEmpty());
+        assertTrue(CustomModelsProbe.candidateEndpoints(null).isEmpty());
+    }
+
+    @Test
+    public void parsesEveryResponseShape() throws IOException {
+        assertEquals(Arrays.asList("a", "b", "c", "d", "42"), parse(
+            "{\"object\":\"list\",\"data\":[{\"id\":\" a \",\"meta\":{\"tags\":[1,{}]}},\"b\","
+                + "{\"model\":\"c\"},{\"name\":\"d\",\"id\":\"\"},{\"id\":42},{\"id\":null},7]}"));
+        assertEquals(Arrays.asList("x", "y"), parse("\n  {\"models\":[\"x\"],\"data\":\"y\"}"));
+        assertEquals(Collections.singletonList("z"), parse("[{\"id\":\"z\"}]"));
+        assertEquals(Arrays.asList("gpt-4o", "o1"), parse(
+            "# Available\nModel   Context\ngpt-4o  128k\n\n\"o1\"\n"));
+        assertTrue(parse("").isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedJsonFails() throws IOException {
+        parse("{\"data\":[{\"id\":\"a\"},");
+    }
+
+    private static CustomModelsProbe newProbe(long ttlMs) {
+        return new CustomModelsProbe(2000, 5000, ttlMs);
+    }
+
+    private static List<String> parse(String body) throws IOException {
+        return CustomModelsProbe.parseModelIds(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private int requests(String path) {
+        AtomicInteger count = mRequests.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    private void await(long ms) {
+        try {
+            mRelease.await(ms, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sendHtml(HttpExchange exchange, String contentType) throws IOException {
+        byte[] bytes = "<!doctype html>\n<html>\n<body>\n<div id=\"app\"></div>\n</body>\n</html>\n"
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void send(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how many MB/s of gateway log the streaming error classifier processes, using a mix of
+ * the healthy and failing corpora from {@link GatewayErrorClassifierTest}.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*GatewayErrorClassifierBenchmark'
+ */
+public class GatewayErrorClassifierBenchmark {
+
+    private static final int TARGET_BYTES = 32 * 1024 * 1024;
+    private static final int BATCH_LINES = 256;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void classifierThroughput() {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        long bytes = 0;
+        int i = 0;
+        while (bytes < TARGET_BYTES) {
+            // Mostly healthy traffic with an occasional failure burst.
+            String line = (i % 50 == 0)
+                ? GatewayErrorClassifierTest.SSL_FAILURE_LOG[i % GatewayErrorClassifierTest.SSL_FAILURE_LOG.length]
+                : GatewayErrorClassifierTest.HEALTHY_LOG[i % GatewayErrorClassifierTest.HEALTHY_LOG.length];
+            batch.add(line);
+            bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (batch.size() == BATCH_LINES) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+            i++;
+        }
+        batches.add(batch);
+
+        // Warm up.
+        runOnce(batches);
+
+        double bestMbPerSecond = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int errors = runOnce(batches);
+            long elapsed = System.nanoTime() - start;
+            assertTrue(errors > 0);
+            double mbPerSecond = (bytes / (1024.0 * 1024.0)) / (elapsed / 1e9);
+            bestMbPerSecond = Math.max(bestMbPerSecond, mbPerSecond);
+            System.out.println(String.format(Locale.ROOT,
+                "GatewayErrorClassifier round %d: %.1f MB in %.1f ms = %.1f MB/s",
+                round, bytes / (1024.0 * 1024.0), elapsed / 1e6, mbPerSecond));
+        }
+        System.out.println(String.format(Locale.ROOT, "GatewayErrorClassifier best: %.1f MB/s", bestMbPerSecond));
+    }
+
+    private static int runOnce(List<List<String>> batches) {
+        GatewayErrorClassifier classifier = new GatewayErrorClassifier();
+        long now = 0;
+        for (List<String> lines : batches) {
+            classifier.consume(lines, ++now);
+        }
+        return classifier.getState().getTotalErrorCount();
+    }
+}
@@ -0,0 +1,132 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class GatewayErrorClassifierTest {
+
+    /** gateway.log from a device whose bootstrap lost its CA certificate configuration. */
+    static final String[] SSL_FAILURE_LOG = {
+        "2026-02-09T08:14:02.117Z [gateway] listening on ws://127.0.0.1:18789 (PID 12034)",
+        "2026-02-09T08:14:02.480Z [telegram] [default] starting provider (@botdrop_test_bot)",
+        "2026-02-09T08:14:07.902Z [openclaw] Non-fatal unhandled rejection (continuing): TypeError: fetch failed",
+        "    at node:internal/deps/undici/undici:16416:13",
+        "    at process.processTicksAndRejections (node:internal/process/task_queues:105:5)",
+        "2026-02-09T08:14:08.311Z [telegram] sendChatAction failed: Network request for 'sendChatAction' failed!",
+        "2026-02-09T08:14:08.644Z [telegram] sendMessage failed: Network request for 'sendMessage' failed!",
+        "",
+    };
+
+    /** A healthy run: startup banner, channel chatter and a tool call. */
+    static final String[] HEALTHY_LOG = {
+        "2026-02-12T19:01:44.051Z [gateway] agent model: anthropic/claude-sonnet-4-5",
+        "2026-02-12T19:01:44.063Z [gateway] listening on ws://127.0.0.1:18789 (PID 3311)",
+        "2026-02-12T19:01:44.410Z [telegram] [default] starting provider (@botdrop_test_bot)",
+        "2026-02-12T19:02:10.998Z [telegram] inbound message from 51234 (len=42)",
+        "2026-02-12T19:02:13.220Z [agent] tool call: exec {\"command\":\"ls ~/storage\"}",
+        "2026-02-12T19:02:15.871Z [telegram] sent reply to 51234 (3 chunks)",
+        "2026-02-12T19:02:16.004Z [ws] client connected (control-ui)",
+    };
+
+    /** Startup failures written by openclaw before the gateway binds. */
+    static final String[] STARTUP_FAILURE_LOG = {
+        "Error: Cannot find module '/data/data/app.botdrop/files/usr/lib/node_modules/openclaw/dist/cli.js'",
+        "    at Module._resolveFilename (node:internal/modules/cjs/loader:1225:15)",
+        "Gateway failed to start: Error: listen EADDRINUSE: address already in use 127.0.0.1:18789",
+        "Uncaught Exception: RangeError: Maximum call stack size exceeded",
+    };
+
+    @Test
+    public void classify_sslFailureCorpus() {
+        assertNull(GatewayErrorClassifier.classify(SSL_FAILURE_LOG[0]));
+        assertNull(GatewayErrorClassifier.classify(SSL_FAILURE_LOG[1]));
+        assertSame(GatewayErrorClassifier.ErrorClass.NETWORK, GatewayErrorClassifier.classify(SSL_FAILURE_LOG[2]));
+        assertNull(GatewayErrorClassifier.classify(SSL_FAILURE_LOG[3]));
+        assertSame(GatewayErrorClassifier.ErrorClass.SEND_CHAT_ACTION,
+            GatewayErrorClassifier.classify(SSL_FAILURE_LOG[5]));
+        assertSame(GatewayErrorClassifier.ErrorClass.SEND_MESSAGE,
+            GatewayErrorClassifier.classify(SSL_FAILURE_LOG[6]));
+    }
+
+    @Test
+    public void classify_healthyCorpusHasNoErrors() {
+        for (String line : HEALTHY_LOG) {
+            assertNull(line, GatewayErrorClassifier.classify(line));
+        }
+    }
+
+    @Test
+    public void classify_startupFailureCorpus() {
+        assertSame(GatewayErrorClassifier.ErrorClass.ERROR, GatewayErrorClassifier.classify(STARTUP_FAILURE_LOG[0]));
+        assertNull(GatewayErrorClassifier.classify(STARTUP_FAILURE_LOG[1]));
+        assertSame(GatewayErrorClassifier.ErrorClass.ERROR, GatewayErrorClassifier.classify(STARTUP_FAILURE_LOG[2]));
+        assertSame(GatewayErrorClassifier.ErrorClass.EXCEPTION, GatewayErrorClassifier.classify(STARTUP_FAILURE_LOG[3]));
+    }
+
+    @Test
+    public void consume_tracksLastErrorCountsAndTimestamps() {
+        GatewayErrorClassifier classifier = new GatewayErrorClassifier();
+
+        classifier.consume(Arrays.asList(SSL_FAILURE_LOG), 1000L);
+        classifier.consume(Collections.singletonList(SSL_FAILURE_LOG[6]), 5000L);
+
+        GatewayErrorClassifier.State state = classifier.getState();
+        assertEquals(SSL_FAILURE_LOG[6], state.getRecentError());
+        assertSame(GatewayErrorClassifier.ErrorClass.SEND_MESSAGE, state.lastErrorClass);
+        assertEquals(5000L, state.lastErrorAtMs);
+        assertEquals(2, state.getCount(GatewayErrorClassifier.ErrorClass.SEND_MESSAGE));
+        assertEquals(1000L, state.getFirstSeenMs(GatewayErrorClassifier.ErrorClass.SEND_MESSAGE));
+        assertEquals(5000L, state.getLastSeenMs(GatewayErrorClassifier.ErrorClass.SEND_MESSAGE));
+        assertEquals(1, state.getCount(GatewayErrorClassifier.ErrorClass.NETWORK));
+        assertEquals(0L, state.getFirstSeenMs(GatewayErrorClassifier.ErrorClass.EXCEPTION));
+        assertEquals(4, state.getTotalErrorCount());
+    }
+
+    @Test
+    public void consume_errorExpiresAfterRecentWindow() {
+        GatewayErrorClassifier classifier = new GatewayErrorClassifier();
+        classifier.consume(Collections.singletonList(STARTUP_FAILURE_LOG[3]), 1L);
+
+        List<String> healthy = new ArrayList<>();
+        for (int i = 0; i < GatewayErrorClassifier.RECENT_WINDOW_LINES - 1; i++) {
+            healthy.add(HEALTHY_LOG[i % HEALTHY_LOG.length]);
+            // Blank lines do not count towards the window.
+            healthy.add("");
+        }
+        classifier.consume(healthy, 2L);
+        assertEquals(STARTUP_FAILURE_LOG[3], classifier.getState().getRecentError());
+
+        classifier.consume(Collections.singletonList(HEALTHY_LOG[0]), 3L);
+        assertNull(classifier.getState().getRecentError());
+        // Counts are kept for the notification even after the banner clears.
+        assertEquals(1, classifier.getState().getTotalErrorCount());
+    }
+
+    @Test
+    public void consume_longLinesAreShortenedAndResetClearsState() {
+        GatewayErrorClassifier classifier = new GatewayErrorClassifier();
+        StringBuilder longLine = new StringBuilder("  Error: ");
+        while (longLine.length() < 400) {
+            longLine.append("x");
+        }
+        classifier.consume(Collections.singletonList(longLine.toString()), 1L);
+
+        String recent = classifier.getState().getRecentError();
+        assertEquals(GatewayErrorClassifier.MAX_ERROR_LINE_CHARS + 3, recent.length());
+        assertTrue(recent.startsWith("Error: "));
+        assertTrue(recent.endsWith("..."));
+
+        classifier.reset();
+        assertNull(classifier.getState().getRecentError());
+        assertEquals(0, classifier.getState().getTotalErrorCount());
+    }
+}
@@ -0,0 +1,116 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class GatewayExitWatcherTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private File mProc;
+    private File mPidFile;
+    private final List<Integer> mExited = new ArrayList<>();
+    private GatewayExitWatcher mWatcher;
+
+    @Before
+    public void setUp() throws IOException {
+        mProc = mTemp.newFolder("proc");
+        mPidFile = new File(mTemp.getRoot(), "gateway.pid");
+        write(new File(mProc, "self/stat"), "1 (java) S 0");
+        mWatcher = new GatewayExitWatcher(new GatewayProbe(mProc, mPidFile, 100L),
+            new Handler(Looper.getMainLooper()), mExited::add);
+    }
+
+    @Test
+    public void reportsExitOfWatchedProcessOnce() throws IOException {
+        write(mPidFile, "500\n");
+        setProcess(500, "S");
+        mWatcher.checkOnce();
+        idle();
+        assertTrue(mExited.isEmpty());
+
+        new File(mProc, "500/stat").delete();
+        mWatcher.checkOnce();
+        mWatcher.checkOnce();
+        idle();
+
+        assertEquals(1, mExited.size());
+        assertEquals(500, (int) mExited.get(0));
+    }
+
+    @Test
+    public void zombieCountsAsExited() throws IOException {
+        write(mPidFile, "500\n");
+        setProcess(500, "S");
+        mWatcher.checkOnce();
+
+        setProcess(500, "Z");
+        mWatcher.checkOnce();
+        idle();
+
+        assertEquals(1, mExited.size());
+    }
+
+    @Test
+    public void followsPidFileAcrossRestarts() throws IOException {
+        write(mPidFile, "500\n");
+        setProcess(500, "S");
+        mWatcher.checkOnce();
+
+        // Restarted: old process gone, PID file points at the new one.
+        new File(mProc, "500/stat").delete();
+        write(mPidFile, "600\n");
+        setProcess(600, "S");
+        mWatcher.checkOnce();
+        new File(mProc, "600/stat").delete();
+        mWatcher.checkOnce();
+        idle();
+
+        assertEquals(2, mExited.size());
+        assertEquals(600, (int) mExited.get(1));
+    }
+
+    @Test
+    public void noPidFileMeansNothingToReport() {
+        mWatcher.checkOnce();
+        mWatcher.checkOnce();
+        idle();
+        assertTrue(mExited.isEmpty());
+    }
+
+    private void setProcess(int pid, String state) throws IOException {
+        write(new File(mProc, pid + "/stat"), pid + " (node) " + state + " 1 0 0\n");
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class GatewayHttpProbeTest {
+
+    private ServerSocket mServer;
+    private Thread mAcceptThread;
+    /** Respond to this many requests per connection before closing it. */
+    private volatile int mRequestsPerConnection = Integer.MAX_VALUE;
+    private volatile boolean mWedged = false;
+    private long mNowMs = 1000L;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"));
+        mAcceptThread = new Thread(() -> {
+            while (!mServer.isClosed()) {
+                try {
+                    Socket socket = mServer.accept();
+                    Thread handler = new Thread(() -> serve(socket));
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        mAcceptThread.setDaemon(true);
+        mAcceptThread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void keepAliveReusesOneConnection() {
+        GatewayHttpProbe probe = newProbe(mServer.getLocalPort());
+
+        for (int i = 0; i < 20; i++) {
+            GatewayHttpProbe.Result result = probe.probe();
+            assertTrue(result.error, result.ok);
+            assertEquals(200, result.statusCode);
+        }
+
+        assertEquals(1, probe.getConnectCount());
+        GatewayHttpProbe.Stats stats = probe.getStats();
+        assertEquals(20, stats.samples);
+        assertTrue(stats.p50Ms <= stats.p95Ms);
+        assertTrue(stats.p95Ms <= stats.maxMs);
+        assertEquals(0, stats.consecutiveFailures);
+        probe.close();
+    }
+
+    @Test
+    public void idleConnectionClosedByServerIsNotAFailure() {
+        mRequestsPerConnection = 1;
+        GatewayHttpProbe probe = newProbe(mServer.getLocalPort());
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(probe.probe().ok);
+        }
+
+        assertEquals(0, probe.getStats().consecutiveFailures);
+        assertEquals(3, probe.getConnectCount());
+        probe.close();
+    }
+
+    @Test
+    public void wedgedServerTimesOutAndStartsFailureStreak() {
+        GatewayHttpProbe probe = newProbe(mServer.getLocalPort());
+        assertTrue(probe.probe().ok);
+
+        mWedged = true;
+        mNowMs = 5000L;
+        GatewayHttpProbe.Result result = probe.probe();
+        assertFalse(result.ok);
+        mNowMs = 9000L;
+        assertFalse(probe.probe().ok);
+
+        GatewayHttpProbe.Stats stats = probe.getStats();
+        assertEquals(2, stats.consecutiveFailures);
+        assertEquals(5000L, stats.failingSinceMs);
+        assertEquals(4000L, stats.failingForMs(mNowMs));
+        // Successful samples stay in the window.
+        assertEquals(1, stats.samples);
+
+        mWedged = false;
+        assertTrue(probe.probe().ok);
+        assertEquals(0, probe.getStats().consecutiveFailures);
+        assertEquals(-1L, probe.getStats().failingSinceMs);
+        probe.close();
+    }
+
+    @Test
+    public void connectionRefusedIsAFailure() throws IOException {
+        int port;
+        try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            port = unused.getLocalPort();
+        }
+
+        GatewayHttpProbe.Result result = newProbe(port).probe();
+
+        assertFalse(result.ok);
+        assertEquals(-1, result.statusCode);
+    }
+
+    @Test(expected = IOException.class)
+    public void parseStatusCode_rejectsNonHttp() throws IOException {
+        GatewayHttpProbe.parseStatusCode("SSH-2.0-OpenSSH_9.6");
+    }
+
+    private GatewayHttpProbe newProbe(int port) {
+        return new GatewayHttpProbe("127.0.0.1", port, () -> mNowMs);
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+            int served = 0;
+            while (readRequest(in)) {
+                if (mWedged) {
+                    // Accept but never answer, like a blocked event loop.
+                    Thread.sleep(10_000);
+                    return;
+                }
+                out.write(("HTTP/1.1 200 OK\r\n" +
+                    "Content-Type: text/html\r\n" +
+                    "Content-Length: 1234\r\n" +
+                    "Connection: keep-alive\r\n" +
+                    "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                if (++served >= mRequestsPerConnection) {
+                    return;
+                }
+            }
+        } catch (IOException | InterruptedException ignored) {
+        }
+    }
+
+    private static boolean readRequest(InputStream in) throws IOException {
+        int matched = 0;
+        byte[] terminator = {'\r', '\n', '\r', '\n'};
+        while (matched < terminator.length) {
+            int b = in.read();
+            if (b < 0) {
+                return false;
+            }
+            matched = b == terminator[matched] ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,146 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class GatewayLogTailerTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void poll_returnsOnlyAppendedLines() throws IOException {
+        File log = mTemp.newFile("gateway.log");
+        append(log, "one\ntwo\n");
+        GatewayLogTailer tailer = new GatewayLogTailer(log, 100);
+
+        GatewayLogTailer.Delta first = tailer.poll();
+        assertTrue(first.reset);
+        assertEquals(Arrays.asList("one", "two"), first.lines);
+
+        assertTrue(tailer.poll().isEmpty());
+
+        append(log, "three\r\n");
+        GatewayLogTailer.Delta next = tailer.poll();
+        assertFalse(next.reset);
+        assertEquals(Collections.singletonList("three"), next.lines);
+        assertEquals(log.length(), tailer.getOffset());
+    }
+
+    @Test
+    public void poll_holdsPartialLineUntilNewline() throws IOException {
+        File log = mTemp.newFile("gateway.log");
+        GatewayLogTailer tailer = new GatewayLogTailer(log, 100);
+        tailer.poll();
+
+        append(log, "[gateway] listen");
+        assertTrue(tailer.poll().lines.isEmpty());
+
+        append(log, "ing on 18789\nnext");
+        assertEquals(Collections.singletonList("[gateway] listening on 18789"), tailer.poll().lines);
+    }
+
+    @Test
+    public void poll_truncationIsReportedAsReset() throws IOException {
+        File log = mTemp.newFile("gateway.log");
+        append(log, "old run line 1\nold run line 2\n");
+        GatewayLogTailer tailer = new GatewayLogTailer(log, 100);
+        tailer.poll();
+
+        // start script does `echo '' > gateway.log`
+        overwrite(log, "\nnew run\n");
+        GatewayLogTailer.Delta delta = tailer.poll();
+
+        assertTrue(delta.reset);
+        assertEquals(Arrays.asList("", "new run"), delta.lines);
+    }
+
+    @Test
+    public void poll_rewriteLongerThanOldOffsetIsReportedAsReset() throws IOException {
+        File log = mTemp.newFile("gateway.log");
+        append(log, "short\n");
+        GatewayLogTailer tailer = new GatewayLogTailer(log, 100);
+        tailer.poll();
+
+        overwrite(log, "a different and longer file\n");
+        GatewayLogTailer.Delta delta = tailer.poll();
+
+        assertTrue(delta.reset);
+        assertEquals(Collections.singletonList("a different and longer file"), delta.lines);
+    }
+
+    @Test
+    public void poll_initialReadIsLimitedToTailLines() throws IOException {
+        File log = mTemp.newFile("gateway.log");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        append(log, content.toString());
+
+        GatewayLogTailer.Delta delta = new GatewayLogTailer(log, 3).poll();
+
+        assertEquals(Arrays.asList("line 47", "line 48", "line 49"), delta.lines);
+    }
+
+    @Test
+    public void poll_missingFileThenCreated() throws IOException {
+        File log = new File(mTemp.getRoot(), "gateway.log");
+        GatewayLogTailer tailer = new GatewayLogTailer(log, 100);
+
+        GatewayLogTailer.Delta missing = tailer.poll();
+        assertTrue(missing.reset);
+        assertFalse(missing.exists);
+        assertTrue(tailer.poll().isEmpty());
+
+        append(log, "started\n");
+        GatewayLogTailer.Delta created = tailer.poll();
+        assertTrue(created.reset);
+        assertTrue(created.exists);
+        assertEquals(Collections.singletonList("started"), created.lines);
+    }
+
+    @Test
+    public void ringBuffer_evictsOldestAndReportsEvictions() {
+        LogLineRingBuffer buffer = new LogLineRingBuffer(3);
+
+        assertEquals(0, buffer.addAll(Arrays.asList("a", "b")));
+        assertEquals(1, buffer.addAll(Arrays.asList("c", "d")));
+        assertEquals("b\nc\nd\n", buffer.join());
+
+        // More new lines than capacity: only the retained ones count as evicted.
+        assertEquals(3, buffer.addAll(Arrays.asList("e", "f", "g", "h", "i")));
+        assertEquals(3, buffer.size());
+        assertEquals("g", buffer.get(0));
+        assertEquals("i", buffer.get(2));
+    }
+
+    private static void append(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void overwrite(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, false)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
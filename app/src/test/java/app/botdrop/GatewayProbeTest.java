@@ -0,0 +1,113 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class GatewayProbeTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private File mProc;
+    private File mPidFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mProc = mTemp.newFolder("proc");
+        mPidFile = new File(mTemp.getRoot(), "gateway.pid");
+        write(new File(mProc, "self/stat"), "1 (java) S 0");
+        // 1000.5 seconds since boot
+        write(new File(mProc, "uptime"), "1000.50 3000.00\n");
+    }
+
+    @Test
+    public void probe_pidFileProcessAlive_reportsRunningWithUptime() throws IOException {
+        write(mPidFile, "4242\n");
+        // starttime (field 22) = 40000 ticks = 400 s after boot at 100 Hz
+        addProcess(4242, "bash", "S", 40000L, "bash\0/usr/bin/openclaw\0gateway\0run\0");
+
+        GatewayProbe.Status status = new GatewayProbe(mProc, mPidFile, 100L).probe();
+
+        assertNotNull(status);
+        assertTrue(status.running);
+        assertEquals(4242, status.pid);
+        assertEquals(600L, status.uptimeSeconds);
+    }
+
+    @Test
+    public void probe_stalePidFile_fallsBackToCmdlineScan() throws IOException {
+        write(mPidFile, "4242\n");
+        addProcess(77, "node", "S", 100L, "node\0/prefix/lib/node_modules/openclaw/dist/cli.js\0gateway\0run\0");
+
+        GatewayProbe.Status status = new GatewayProbe(mProc, mPidFile, 100L).probe();
+
+        assertNotNull(status);
+        assertTrue(status.running);
+        assertEquals(-1, status.pid);
+    }
+
+    @Test
+    public void probe_zombiesAndUnrelatedProcesses_reportStopped() throws IOException {
+        write(mPidFile, "4242\n");
+        addProcess(4242, "openclaw gateway", "Z", 100L, "");
+        addProcess(88, "sshd", "S", 100L, "sshd\0");
+
+        GatewayProbe.Status status = new GatewayProbe(mProc, mPidFile, 100L).probe();
+
+        assertNotNull(status);
+        assertFalse(status.running);
+    }
+
+    @Test
+    public void probe_unreadableProc_returnsNull() {
+        GatewayProbe probe = new GatewayProbe(new File(mTemp.getRoot(), "missing"), mPidFile, 100L);
+
+        assertFalse(probe.isProcReadable());
+        assertNull(probe.probe());
+    }
+
+    @Test
+    public void formatElapsed_matchesPsEtime() {
+        assertEquals("00:05", GatewayProbe.formatElapsed(5));
+        assertEquals("01:01", GatewayProbe.formatElapsed(61));
+        assertEquals("02:00:00", GatewayProbe.formatElapsed(7200));
+        assertEquals("3-04:05:06", GatewayProbe.formatElapsed(3 * 86400 + 4 * 3600 + 5 * 60 + 6));
+        assertEquals("—", GatewayProbe.formatElapsed(-1));
+    }
+
+    private void addProcess(int pid, String comm, String state, long startTicks, String cmdline) throws IOException {
+        StringBuilder stat = new StringBuilder();
+        stat.append(pid).append(" (").append(comm).append(") ").append(state);
+        // Fields 4..21 are not used by the probe.
+        for (int field = 4; field <= 21; field++) {
+            stat.append(" 0");
+        }
+        stat.append(' ').append(startTicks).append(" 0 0\n");
+        write(new File(mProc, pid + "/stat"), stat.toString());
+        write(new File(mProc, pid + "/cmdline"), cmdline);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class GatewayRunStateTest {
+
+    @Test
+    public void updateAfterStopResumesSupervision() {
+        GatewayRunState state = new GatewayRunState();
+        GatewaySupervisor supervisor = new GatewaySupervisor(new Random(1), 0L);
+
+        // Stop from the dashboard: a down gateway is left alone.
+        state.onStopRequested();
+        assertTrue(state.isStopRequested());
+
+        // The update stops the gateway itself and starts it again at the end.
+        state.onStartRequested();
+        assertFalse(state.isStopRequested());
+        supervisor.onHealthy(1000L);
+
+        // So a crash after the update is restarted.
+        assertTrue(supervisor.onDown(5000L));
+        assertFalse(state.isStopRequested());
+        assertFalse(state.isRestartInProgress());
+    }
+
+    @Test
+    public void latestRequestWins() {
+        GatewayRunState state = new GatewayRunState();
+
+        // Start and stop in quick succession, both still queued on the mutation lane.
+        state.onStartRequested();
+        state.onStopRequested();
+        assertTrue(state.isStopRequested());
+
+        state.onStartRequested();
+        assertFalse(state.isStopRequested());
+    }
+
+    @Test
+    public void restartIsNotAStop() {
+        GatewayRunState state = new GatewayRunState();
+
+        state.onRestartBegun();
+        assertTrue(state.isRestartInProgress());
+        assertFalse(state.isStopRequested());
+
+        state.onStartRequested();
+        state.onRestartEnded();
+        assertFalse(state.isRestartInProgress());
+    }
+}
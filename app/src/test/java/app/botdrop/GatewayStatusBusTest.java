@@ -0,0 +1,120 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class GatewayStatusBusTest {
+
+    private final ArrayDeque<Runnable> mPendingProbes = new ArrayDeque<>();
+    private int mProbeCalls;
+    private boolean mRunning;
+    private GatewayStatusBus mBus;
+
+    @Before
+    public void setUp() {
+        mBus = new GatewayStatusBus(new Handler(Looper.getMainLooper()), mPendingProbes::add, includeUptime -> {
+            mProbeCalls++;
+            return new GatewayStatusBus.Snapshot(mRunning, includeUptime ? "00:01" : "—",
+                SystemClock.elapsedRealtime());
+        });
+    }
+
+    @Test
+    public void refreshRequestsDuringProbeAreCoalesced() {
+        List<GatewayStatusBus.Snapshot> received = new ArrayList<>();
+        mBus.addListener(received::add, true);
+        mBus.requestRefresh();
+        mBus.requestRefresh();
+        mBus.requestRefresh();
+
+        assertEquals(1, mPendingProbes.size());
+        runNextProbe();
+
+        // One follow-up probe for all requests that arrived while the first was running.
+        assertEquals(1, mPendingProbes.size());
+        runNextProbe();
+        assertTrue(mPendingProbes.isEmpty());
+
+        assertEquals(2, mProbeCalls);
+        assertEquals(2, received.size());
+        assertEquals("00:01", received.get(1).uptime);
+    }
+
+    @Test
+    public void subscribersShareTheSameProbe() {
+        List<GatewayStatusBus.Snapshot> dashboard = new ArrayList<>();
+        List<GatewayStatusBus.Snapshot> monitor = new ArrayList<>();
+        mBus.addListener(dashboard::add, true);
+        mBus.addListener(monitor::add, false);
+        runPendingProbes();
+
+        assertEquals(1, mProbeCalls);
+        assertEquals(1, dashboard.size());
+        assertEquals(1, monitor.size());
+    }
+
+    @Test
+    public void intervalDependsOnVisibilityAndRecentChanges() {
+        GatewayStatusBus.Listener background = snapshot -> { };
+        mBus.addListener(background, false);
+        runPendingProbes();
+        assertEquals(GatewayStatusBus.BACKGROUND_INTERVAL_MS, mBus.currentIntervalMs());
+
+        GatewayStatusBus.Listener visible = snapshot -> { };
+        mBus.addListener(visible, true);
+        assertEquals(GatewayStatusBus.VISIBLE_INTERVAL_MS, mBus.currentIntervalMs());
+
+        mRunning = true;
+        mBus.requestRefresh();
+        runPendingProbes();
+        assertEquals(GatewayStatusBus.STATE_CHANGE_INTERVAL_MS, mBus.currentIntervalMs());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(GatewayStatusBus.STATE_CHANGE_WINDOW_MS));
+        runPendingProbes();
+        mBus.removeListener(visible);
+        assertEquals(GatewayStatusBus.BACKGROUND_INTERVAL_MS, mBus.currentIntervalMs());
+    }
+
+    @Test
+    public void pollingStopsWithoutListeners() {
+        GatewayStatusBus.Listener listener = snapshot -> { };
+        mBus.addListener(listener, true);
+        runPendingProbes();
+        mBus.removeListener(listener);
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMinutes(5));
+        assertTrue(mPendingProbes.isEmpty());
+        assertEquals(1, mProbeCalls);
+        assertFalse(mBus.getLastSnapshot().running);
+    }
+
+    private void runNextProbe() {
+        mPendingProbes.poll().run();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private void runPendingProbes() {
+        while (!mPendingProbes.isEmpty()) {
+            runNextProbe();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class GatewaySupervisorTest {
+
+    /** nextDouble() always 0.5, i.e. no jitter. */
+    private static final Random NO_JITTER = new Random() {
+        @Override
+        public double nextDouble() {
+            return 0.5;
+        }
+    };
+
+    @Test
+    public void backoffDoublesPerConsecutiveFailureAndIsCapped() {
+        GatewaySupervisor supervisor = new GatewaySupervisor(NO_JITTER, 0L);
+
+        assertTrue(supervisor.onDown(1000L));
+        assertEquals(GatewaySupervisor.BASE_BACKOFF_MS, supervisor.nextRestartDelayMs());
+
+        supervisor.onRestartRequested(2000L);
+        supervisor.onRestartFailed(3000L);
+        assertEquals(2 * GatewaySupervisor.BASE_BACKOFF_MS, supervisor.nextRestartDelayMs());
+
+        for (int i = 0; i < 30; i++) {
+            supervisor.onRestartFailed(4000L + i);
+        }
+        assertEquals(GatewaySupervisor.MAX_BACKOFF_MS, supervisor.nextRestartDelayMs());
+    }
+
+    @Test
+    public void jitterStaysWithinBounds() {
+        GatewaySupervisor supervisor = new GatewaySupervisor(new Random(42), 0L);
+        supervisor.onDown(0L);
+        supervisor.onRestartFailed(1L);
+        supervisor.onRestartFailed(2L);
+        long nominal = 4 * GatewaySupervisor.BASE_BACKOFF_MS;
+        for (int i = 0; i < 1000; i++) {
+            long delay = supervisor.nextRestartDelayMs();
+            assertTrue(String.valueOf(delay), delay >= Math.round(nominal * (1 - GatewaySupervisor.JITTER_FRACTION)));
+            assertTrue(String.valueOf(delay), delay <= Math.round(nominal * (1 + GatewaySupervisor.JITTER_FRACTION)));
+        }
+    }
+
+    @Test
+    public void repeatedDownObservationsCountOnce() {
+        GatewaySupervisor supervisor = new GatewaySupervisor(NO_JITTER, 0L);
+
+        assertTrue(supervisor.onDown(1000L));
+        assertFalse(supervisor.onDown(2000L));
+        assertEquals(1, supervisor.getConsecutiveFailures());
+
+        // The start script succeeding is not a healthy probe: dying before one is the same outage.
+        supervisor.onRestartRequested(3000L);
+        assertFalse(supervisor.onDown(15000L));
+        assertEquals(1, supervisor.getConsecutiveFailures());
+
+        // Once a probe saw it running, the next exit is a new crash.
+        supervisor.onHealthy(20000L);
+        assertTrue(supervisor.onDown(25000L));
+        assertEquals(2, supervisor.getConsecutiveFailures());
+    }
+
+    @Test
+    public void backoffResetsOnlyAfterStayingHealthy() {
+        GatewaySupervisor supervisor = new GatewaySupervisor(NO_JITTER, 0L);
+        supervisor.onDown(0L);
+        supervisor.onRestartFailed(1000L);
+        supervisor.onRestartFailed(2000L);
+
+        supervisor.onHealthy(10000L);
+        assertEquals(3, supervisor.getConsecutiveFailures());
+
+        supervisor.onHealthy(10000L + GatewaySupervisor.STABLE_AFTER_MS);
+        assertEquals(0, supervisor.getConsecutiveFailures());
+        assertEquals(GatewaySupervisor.BASE_BACKOFF_MS, supervisor.nextRestartDelayMs());
+    }
+
+    @Test
+    public void healthReportsRestartsMtbfAndTimeToHealthy() {
+        long start = 0L;
+        GatewaySupervisor supervisor = new GatewaySupervisor(NO_JITTER, start);
+
+        GatewaySupervisor.Health initial = supervisor.getHealth(60000L);
+        assertEquals(100, initial.score);
+        assertEquals(-1L, initial.mtbfMs);
+
+        supervisor.onDown(10 * 60000L);
+        supervisor.onRestartRequested(10 * 60000L + 1000L);
+        supervisor.onHealthy(10 * 60000L + 5000L);
+
+        supervisor.onDown(20 * 60000L);
+        supervisor.onRestartRequested(20 * 60000L + 2000L);
+        supervisor.onHealthy(20 * 60000L + 9000L);
+
+        GatewaySupervisor.Health health = supervisor.getHealth(30 * 60000L);
+        assertEquals(2, health.failuresInWindow);
+        assertEquals(2, health.totalRestarts);
+        assertEquals(15 * 60000L, health.mtbfMs);
+        assertEquals(7000L, health.timeToHealthyMs);
+        assertEquals(100 - 10 * 2 - 10 * 2, health.score);
+        assertEquals("Restarts (1h): 2 · MTBF: 15m · Ready in: 7s", health.describe());
+
+        // Failures age out of the window.
+        GatewaySupervisor.Health later = supervisor.getHealth(20 * 60000L + GatewaySupervisor.HEALTH_WINDOW_MS + 1);
+        assertEquals(0, later.failuresInWindow);
+        assertEquals(-1L, later.mtbfMs);
+    }
+
+    @Test
+    public void formatDuration() {
+        assertEquals("0s", GatewaySupervisor.formatDuration(-5));
+        assertEquals("45s", GatewaySupervisor.formatDuration(45000));
+        assertEquals("12m", GatewaySupervisor.formatDuration(12 * 60000 + 59000));
+        assertEquals("3h 5m", GatewaySupervisor.formatDuration((3 * 60 + 5) * 60000L));
+    }
+}
@@ -0,0 +1,119 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Compares the one-shot temp script path of BotDropService.executeCommandViaLocal with pooled
+ * shell workers, using a status-probe sized command.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*LocalShellPoolBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class LocalShellPoolBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 300;
+    private static final String PROBE =
+        "if [ -f /nonexistent/gateway.pid ] && kill -0 $(cat /nonexistent/gateway.pid) 2>/dev/null; then\n" +
+        "  echo running\n" +
+        "  exit 0\n" +
+        "fi\n" +
+        "echo stopped\n";
+
+    @Test
+    public void compareOneShotAndPooledExecution() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+        assumeTrue(new File(LocalShellPoolTest.HOST_BASH).canExecute());
+
+        File tmpDir = Files.createTempDirectory("shell-bench").toFile();
+        for (int i = 0; i < WARMUP; i++) {
+            runOneShot(tmpDir);
+        }
+        long[] oneShot = new long[ITERATIONS];
+        long oneShotStart = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t = System.nanoTime();
+            runOneShot(tmpDir);
+            oneShot[i] = System.nanoTime() - t;
+        }
+        long oneShotTotal = System.nanoTime() - oneShotStart;
+
+        LocalShellPool pool = new LocalShellPool(
+            LocalShellPoolTest.HOST_BASH, Collections.singletonMap("BOTDROP_BENCH", "1"), 2);
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                pool.execute(PROBE, 10, null);
+            }
+            long spawnsBefore = pool.getSpawnCount();
+            long[] pooled = new long[ITERATIONS];
+            long pooledStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                long t = System.nanoTime();
+                BotDropService.CommandResult result = pool.execute(PROBE, 10, null);
+                pooled[i] = System.nanoTime() - t;
+                assertTrue(result != null && result.stdout.startsWith("stopped"));
+            }
+            long pooledTotal = System.nanoTime() - pooledStart;
+            long pooledSpawns = pool.getSpawnCount() - spawnsBefore;
+
+            report("one-shot", oneShot, oneShotTotal, ITERATIONS);
+            report("pooled", pooled, pooledTotal, pooledSpawns);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Mirrors the temp script + ProcessBuilder path in BotDropService.executeCommandViaLocal. */
+    private static void runOneShot(File tmpDir) throws Exception {
+        File script = new File(tmpDir, "cmd_" + System.nanoTime() + ".sh");
+        try (FileWriter fw = new FileWriter(script)) {
+            fw.write("#!" + LocalShellPoolTest.HOST_BASH + "\n");
+            fw.write(PROBE);
+            fw.write("\n");
+        }
+        script.setExecutable(true);
+        ProcessBuilder pb = new ProcessBuilder(LocalShellPoolTest.HOST_BASH, script.getAbsolutePath());
+        pb.environment().put("BOTDROP_BENCH", "1");
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        StringBuilder out = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                out.append(line).append("\n");
+            }
+        }
+        process.waitFor();
+        script.delete();
+        assertTrue(out.toString().startsWith("stopped"));
+    }
+
+    private static void report(String label, long[] samples, long totalNs, long processSpawns) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        double minutes = totalNs / 60e9;
+        System.out.println(String.format(Locale.ROOT,
+            "[bench] %-8s p50=%.2fms p99=%.2fms cmds/min=%.0f process spawns/min=%.0f",
+            label,
+            sorted[sorted.length / 2] / 1e6,
+            sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)] / 1e6,
+            samples.length / minutes,
+            processSpawns / minutes));
+    }
+}
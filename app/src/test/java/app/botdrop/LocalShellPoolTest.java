@@ -0,0 +1,130 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exercises LocalShellPool against the host bash. Skipped when bash is not available.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class LocalShellPoolTest {
+
+    static final String HOST_BASH = "/bin/bash";
+
+    private LocalShellPool mPool;
+
+    @Before
+    public void setUp() {
+        assumeTrue(new File(HOST_BASH).canExecute());
+        mPool = new LocalShellPool(HOST_BASH, Collections.singletonMap("BOTDROP_TEST", "1"), 2);
+    }
+
+    @After
+    public void tearDown() {
+        if (mPool != null) {
+            mPool.shutdown();
+        }
+    }
+
+    @Test
+    public void executeReturnsOutputAndExitCode() {
+        BotDropService.CommandResult ok = mPool.execute("echo hello\necho $BOTDROP_TEST", 10, null);
+        assertNotNull(ok);
+        assertTrue(ok.success);
+        assertEquals(0, ok.exitCode);
+        assertEquals("hello\n1\n", ok.stdout);
+
+        BotDropService.CommandResult failed = mPool.execute("echo oops >&2\nexit 3", 10, null);
+        assertNotNull(failed);
+        assertFalse(failed.success);
+        assertEquals(3, failed.exitCode);
+        assertEquals("oops\n", failed.stdout);
+    }
+
+    @Test
+    public void scriptStateDoesNotLeakIntoWorker() {
+        mPool.execute("cd /\nFOO=bar\nexit 0", 10, null);
+
+        BotDropService.CommandResult result = mPool.execute("echo \"[$FOO]\"", 10, null);
+        assertNotNull(result);
+        assertEquals("[]\n", result.stdout);
+        assertEquals(1, mPool.getSpawnCount());
+    }
+
+    @Test
+    public void outputWithoutTrailingNewlineKeepsLastLine() {
+        BotDropService.CommandResult result = mPool.execute("printf 'a\\nb'", 10, null);
+        assertNotNull(result);
+        assertEquals("a\nb\n", result.stdout);
+    }
+
+    @Test
+    public void multiByteScriptsAreFramedByByteLength() {
+        BotDropService.CommandResult result = mPool.execute("echo '中文 héllo'\necho next", 10, null);
+        assertNotNull(result);
+        assertEquals("中文 héllo\nnext\n", result.stdout);
+    }
+
+    @Test
+    public void linesAreStreamedToConsumer() {
+        List<String> lines = new ArrayList<>();
+        mPool.execute("for i in 1 2 3; do echo line$i; done", 10, lines::add);
+        assertEquals(3, lines.size());
+        assertEquals("line3", lines.get(2));
+    }
+
+    @Test
+    public void streamedOutputKeepsOnlyTail() {
+        List<String> lines = new ArrayList<>();
+        CommandOutput output = CommandOutput.streaming(lines::add, 2);
+        // More lines than the reader queue holds, so the reader has to wait for the consumer.
+        BotDropService.CommandResult result =
+            mPool.executeInto("for i in $(seq 1 5000); do echo line$i; done", 10, output);
+        assertNotNull(result);
+        assertTrue(result.success);
+        assertEquals(5000, lines.size());
+        assertEquals("line4999\nline5000\n", result.stdout);
+        assertEquals(5000, result.output.getLineCount());
+
+        BotDropService.CommandResult next = mPool.execute("echo ok", 10, null);
+        assertNotNull(next);
+        assertEquals("ok\n", next.stdout);
+    }
+
+    @Test
+    public void timeoutDiscardsWorkerAndPoolRecovers() {
+        BotDropService.CommandResult timedOut = mPool.execute("echo started\nsleep 30", 1, null);
+        assertNotNull(timedOut);
+        assertFalse(timedOut.success);
+        assertEquals(-1, timedOut.exitCode);
+        assertEquals("started\n", timedOut.stdout);
+        assertTrue(timedOut.stderr.contains("timeout"));
+
+        BotDropService.CommandResult next = mPool.execute("echo ok", 10, null);
+        assertNotNull(next);
+        assertEquals("ok\n", next.stdout);
+    }
+
+    @Test
+    public void shutdownPoolRejectsCommands() {
+        mPool.shutdown();
+        assertNull(mPool.execute("echo hi", 10, null));
+    }
+}
@@ -0,0 +1,123 @@
+package app.botdrop;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-keystroke filtering of the model catalog the way the dialog did it, lowercasing every
+ * name and scanning the whole list, against {@link ModelCatalogIndex#search}; and loading the
+ * catalog from the SharedPreferences JSON string against the binary index file. Runs on the
+ * bundled catalog and on one eight times its size.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*ModelCatalogIndexBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ModelCatalogIndexBenchmark {
+
+    private static final String[] QUERIES = {"g", "gp", "gpt", "gpt-4", "claude", "nova-lite", "qwen3"};
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void filterAndLoad() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        List<String> bundled = ModelCatalogIndexTest.bundledCatalog();
+        List<String> large = new ArrayList<>();
+        for (int copy = 0; copy < 8; copy++) {
+            for (String name : bundled) {
+                large.add(name.replaceFirst("/", copy == 0 ? "/" : "-" + copy + "/"));
+            }
+        }
+
+        for (int round = 0; round < 2; round++) {
+            run("bundled", bundled);
+            run("8x", large);
+        }
+    }
+
+    private void run(String label, List<String> names) throws Exception {
+        List<ModelInfo> models = new ArrayList<>();
+        for (String name : names) {
+            models.add(new ModelInfo(name));
+        }
+        ModelCatalogIndex index = ModelCatalogIndex.build("1.0", names);
+        int iterations = 2000;
+
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += linear(models, QUERIES[i % QUERIES.length]).size();
+        }
+        long linear = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += index.search(null, QUERIES[i % QUERIES.length], null).size();
+        }
+        long indexed = System.nanoTime() - start;
+        report(label + " filter, linear", linear / iterations);
+        report(label + " filter, indexed", indexed / iterations);
+
+        JSONArray list = new JSONArray();
+        for (String name : names) {
+            list.put(name);
+        }
+        String json = new JSONObject().put("version", "1.0").put("models", list).toString();
+        File file = new File(mTemp.getRoot(), label + ".idx");
+        index.writeTo(file);
+        int loads = 50;
+        start = System.nanoTime();
+        for (int i = 0; i < loads; i++) {
+            sink += ModelCatalogIndex.build("1.0", parseJson(json)).size();
+        }
+        long fromJson = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < loads; i++) {
+            sink += ModelCatalogIndex.readFrom(file, "1.0").size();
+        }
+        long fromFile = System.nanoTime() - start;
+        report(label + " load, JSON + build", fromJson / loads);
+        report(label + " load, index file", fromFile / loads);
+        System.out.println(String.format(Locale.ROOT, "%s: JSON %.1f KB, index file %.1f KB%s", label,
+            json.length() / 1024.0, file.length() / 1024.0, sink == 42 ? " " : ""));
+    }
+
+    private static List<ModelInfo> linear(List<ModelInfo> models, String query) {
+        String lower = query.toLowerCase();
+        List<ModelInfo> filtered = new ArrayList<>();
+        for (ModelInfo m : models) {
+            if (m.fullName.toLowerCase().contains(lower) || m.model.toLowerCase().contains(lower)) {
+                filtered.add(m);
+            }
+        }
+        return filtered;
+    }
+
+    private static List<String> parseJson(String json) throws Exception {
+        JSONArray list = new JSONObject(json).getJSONArray("models");
+        List<String> names = new ArrayList<>(list.length());
+        for (int i = 0; i < list.length(); i++) {
+            names.add(list.optString(i, ""));
+        }
+        return names;
+    }
+
+    private static void report(String label, long nanos) {
+        System.out.println(String.format(Locale.ROOT, "%-28s %10.1f us", label, nanos / 1e3));
+    }
+}
@@ -0,0 +1,166 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public class ModelCatalogIndexTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void modelsAreBucketedByProviderInDisplayOrder() {
+        ModelCatalogIndex index = ModelCatalogIndex.build("1.0", Arrays.asList(
+            "openai/gpt-4o", "Anthropic/claude-3", "openai/GPT-5", "google/gemini-2",
+            "openai/gpt-4o", "no-provider", "/no-provider", "empty/"));
+
+        assertEquals(Arrays.asList("Anthropic", "google", "openai"), index.getProviders());
+        assertEquals(Arrays.asList("openai/GPT-5", "openai/gpt-4o"), names(index.getModels("openai")));
+        assertEquals("gpt-4o", index.getModels("openai").get(1).model);
+        assertEquals("openai", index.getModels("openai").get(1).provider);
+        assertTrue(index.getModels("mistral").isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void searchMatchesLinearFilter() throws IOException {
+        List<String> catalog = bundledCatalog();
+        ModelCatalogIndex index = ModelCatalogIndex.build("1.0", catalog);
+        List<String> queries = Arrays.asList("", "a", "GP", "gpt", "GPT-4", "claude-3-5", "/", "a/c",
+            "nova-lite-v1:0", "zzz", "openai/", "-v1:", "amazon-bedrock/amazon.nova");
+
+        for (String query : queries) {
+            assertEquals(query, linear(catalog, null, query), names(index.search(null, query, null)));
+            for (String provider : index.getProviders()) {
+                assertEquals(provider + ": " + query, linear(catalog, provider, query),
+                    names(index.search(provider, query, null)));
+            }
+        }
+    }
+
+    @Test
+    public void cancelledSearchReturnsNull() throws IOException {
+        ModelCatalogIndex index = ModelCatalogIndex.build("1.0", bundledCatalog());
+
+        assertNull(index.search(null, "a", () -> true));
+        assertNull(index.search(null, "gpt", () -> true));
+    }
+
+    @Test
+    public void binaryFileRoundTrips() throws IOException {
+        List<String> catalog = bundledCatalog();
+        ModelCatalogIndex index = ModelCatalogIndex.build("2026.1.5", catalog);
+        File file = new File(mTemp.getRoot(), "model-catalog/2026.1.5.idx");
+
+        index.writeTo(file);
+        ModelCatalogIndex read = ModelCatalogIndex.readFrom(file, "2026.1.5");
+
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals("2026.1.5", read.getKey());
+        assertEquals(index.getProviders(), read.getProviders());
+        assertEquals(index.getFullNames(), read.getFullNames());
+        for (String query : Arrays.asList("g", "gpt", "claude", "v1:0")) {
+            assertEquals(names(index.search(null, query, null)), names(read.search(null, query, null)));
+        }
+        // Much smaller than the JSON list it replaces, despite carrying the index.
+        assertTrue(file.length() < catalog.toString().length() * 3);
+    }
+
+    @Test
+    public void fileForOtherVersionOrFormatIsIgnored() throws IOException {
+        File file = mTemp.newFile("catalog.idx");
+        ModelCatalogIndex.build("1.0", Collections.singletonList("openai/gpt-4o")).writeTo(file);
+
+        assertNull(ModelCatalogIndex.readFrom(file, "2.0"));
+        assertNull(ModelCatalogIndex.readFrom(new File(mTemp.getRoot(), "missing.idx"), "1.0"));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(99);
+        }
+        assertNull(ModelCatalogIndex.readFrom(file, "1.0"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileFails() throws IOException {
+        File file = mTemp.newFile("catalog.idx");
+        ModelCatalogIndex.build("1.0", Arrays.asList("openai/gpt-4o", "google/gemini-2")).writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 3);
+        }
+
+        ModelCatalogIndex.readFrom(file, "1.0");
+    }
+
+    /** What the dialog did before: sort everything descending, then filter by contains. */
+    private static List<String> linear(List<String> catalog, String provider, String query) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        List<String> sorted = new ArrayList<>(catalog);
+        Collections.sort(sorted, (a, b) -> b.compareToIgnoreCase(a));
+        List<String> byProvider = new ArrayList<>();
+        for (String name : sorted) {
+            if (provider == null || name.startsWith(provider + "/")) {
+                byProvider.add(name);
+            }
+        }
+        if (provider == null) {
+            // The whole catalog comes bucket by bucket.
+            Collections.sort(byProvider, (a, b) -> {
+                String pa = a.substring(0, a.indexOf('/'));
+                String pb = b.substring(0, b.indexOf('/'));
+                int result = pa.compareToIgnoreCase(pb);
+                return result != 0 ? result : pa.compareTo(pb);
+            });
+        }
+        List<String> matches = new ArrayList<>();
+        for (String name : byProvider) {
+            if (name.toLowerCase(Locale.ROOT).contains(lower)) {
+                matches.add(name);
+            }
+        }
+        return matches;
+    }
+
+    private static List<String> names(List<ModelInfo> models) {
+        List<String> names = new ArrayList<>();
+        for (ModelInfo model : models) {
+            names.add(model.fullName);
+        }
+        return names;
+    }
+
+    static List<String> bundledCatalog() throws IOException {
+        File current = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        while (current != null && !new File(current, "app/src/main/assets").isDirectory()) {
+            current = current.getParentFile();
+        }
+        if (current == null) {
+            throw new IOException("Cannot find app/src/main/assets from " + System.getProperty("user.dir"));
+        }
+        List<String> catalog = new ArrayList<>();
+        for (String line : Files.readAllLines(new File(current, "app/src/main/assets/openclaw-models-all.keys").toPath(),
+            StandardCharsets.UTF_8)) {
+            if (line.trim().contains("/")) {
+                catalog.add(line.trim());
+            }
+        }
+        return catalog;
+    }
+}
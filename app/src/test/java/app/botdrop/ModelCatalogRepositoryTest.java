@@ -0,0 +1,220 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ModelCatalogRepositoryTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private final ArrayDeque<Runnable> mPendingTasks = new ArrayDeque<>();
+    private final List<ModelCatalogRepository.FetchCallback> mPendingFetches = new ArrayList<>();
+    private File mDir;
+    private SharedPreferences mLegacyPrefs;
+
+    private static final class Received {
+        final List<ModelCatalogIndex> catalogs = new ArrayList<>();
+        final List<Boolean> fromCache = new ArrayList<>();
+
+        void add(ModelCatalogIndex catalog, boolean cached) {
+            catalogs.add(catalog);
+            fromCache.add(cached);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mDir = new File(mTemp.getRoot(), "model-catalog");
+        mLegacyPrefs = RuntimeEnvironment.getApplication()
+            .getSharedPreferences(ModelCatalogRepository.LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        mLegacyPrefs.edit().clear().commit();
+    }
+
+    @Test
+    public void concurrentColdRequestsShareOneFetch() {
+        ModelCatalogRepository repository = repository(HOUR_MS);
+        Received first = new Received();
+        Received second = new Received();
+
+        repository.get("1.0.0", false, first::add);
+        repository.get("1.0.0", false, second::add);
+        settle();
+
+        Received refresh = new Received();
+        repository.get("1.0.0", true, refresh::add);
+        assertEquals(1, mPendingFetches.size());
+        completeFetch("openai/gpt-4o", "anthropic/claude-3");
+
+        assertEquals(1, first.catalogs.size());
+        assertSame(first.catalogs.get(0), second.catalogs.get(0));
+        assertSame(first.catalogs.get(0), refresh.catalogs.get(0));
+        assertFalse(first.fromCache.get(0));
+        assertEquals(Arrays.asList("anthropic", "openai"), first.catalogs.get(0).getProviders());
+        ModelCatalogRepository.Metrics metrics = repository.getMetrics();
+        assertEquals(1, metrics.misses);
+        assertEquals(1, metrics.fetches);
+        assertEquals(1, metrics.sharedFetches);
+    }
+
+    @Test
+    public void staleCatalogIsServedThenRevalidated() {
+        ModelCatalogRepository repository = repository(0);
+        repository.get("1.0.0", false, (catalog, fromCache) -> { });
+        settle();
+        completeFetch("openai/gpt-4o");
+
+        Received received = new Received();
+        repository.get("1.0.0", false, received::add);
+
+        // Answered from memory before anything runs, with a refresh started behind it.
+        assertEquals(1, received.catalogs.size());
+        assertTrue(received.fromCache.get(0));
+        assertEquals(1, mPendingFetches.size());
+        completeFetch("openai/gpt-4o", "openai/gpt-5");
+
+        Received after = new Received();
+        repository.get("1.0.0", false, after::add);
+        assertEquals(2, after.catalogs.get(0).size());
+        assertEquals(2, repository.getMetrics().memoryHits);
+        assertEquals(2, repository.getMetrics().fetches);
+    }
+
+    @Test
+    public void freshCatalogIsLoadedFromDiskWithoutFetching() {
+        ModelCatalogRepository repository = repository(HOUR_MS);
+        repository.get("1.0.0", false, (catalog, fromCache) -> { });
+        settle();
+        completeFetch("openai/gpt-4o");
+
+        ModelCatalogRepository restarted = repository(HOUR_MS);
+        Received received = new Received();
+        restarted.get("1.0.0", false, received::add);
+        settle();
+
+        assertTrue(mPendingFetches.isEmpty());
+        assertEquals(1, received.catalogs.size());
+        assertTrue(received.fromCache.get(0));
+        assertEquals("openai/gpt-4o", received.catalogs.get(0).getFullNames().get(0));
+        assertEquals(1, restarted.getMetrics().diskHits);
+    }
+
+    @Test
+    public void failedRefreshKeepsTheCachedCatalog() {
+        ModelCatalogRepository repository = repository(HOUR_MS);
+        repository.get("1.0.0", false, (catalog, fromCache) -> { });
+        settle();
+        completeFetch("openai/gpt-4o");
+
+        Received received = new Received();
+        repository.get("1.0.0", true, received::add);
+        mPendingFetches.remove(0).onFetched(null);
+        settle();
+
+        assertEquals(1, received.catalogs.get(0).size());
+        assertTrue(received.fromCache.get(0));
+        assertEquals(1, repository.getMetrics().failedFetches);
+    }
+
+    @Test
+    public void failedColdFetchReturnsNothing() {
+        ModelCatalogRepository repository = repository(HOUR_MS);
+        Received received = new Received();
+
+        repository.get("1.0.0", false, received::add);
+        settle();
+        mPendingFetches.remove(0).onFetched(new ArrayList<>());
+        settle();
+
+        assertNull(received.catalogs.get(0));
+    }
+
+    @Test
+    public void legacyJsonListIsMigrated() {
+        mLegacyPrefs.edit().putString("models_by_version_1.0.0",
+            "{\"version\":\"1.0.0\",\"updated_at\":" + System.currentTimeMillis()
+                + ",\"models\":[\"openai/gpt-4o\",\"google/gemini-2\"]}").commit();
+        ModelCatalogRepository repository = repository(HOUR_MS);
+        Received received = new Received();
+
+        repository.get("1.0.0", false, received::add);
+        settle();
+
+        assertTrue(mPendingFetches.isEmpty());
+        assertEquals(2, received.catalogs.get(0).size());
+        assertFalse(mLegacyPrefs.contains("models_by_version_1.0.0"));
+        assertTrue(new File(mDir, "1.0.0.idx").isFile());
+    }
+
+    @Test
+    public void revalidateFetchesAVersionWithNothingCached() {
+        ModelCatalogRepository repository = repository(HOUR_MS);
+        repository.get("1.0.0", false, (catalog, fromCache) -> { });
+        settle();
+        completeFetch("openai/gpt-4o");
+
+        repository.revalidate("1.0.0");
+        settle();
+        assertTrue(mPendingFetches.isEmpty());
+
+        repository.revalidate("2.0.0");
+        settle();
+        assertEquals(1, mPendingFetches.size());
+        completeFetch("openai/gpt-5");
+
+        assertTrue(new File(mDir, "2.0.0.idx").isFile());
+        assertFalse(new File(mDir, "1.0.0.idx").exists());
+        Received received = new Received();
+        repository.get("2.0.0", false, received::add);
+        assertNotNull(received.catalogs.get(0));
+    }
+
+    private ModelCatalogRepository repository(long maxAgeMs) {
+        return new ModelCatalogRepository(new Handler(Looper.getMainLooper()), mPendingTasks::add,
+            mPendingFetches::add, mDir, mLegacyPrefs, maxAgeMs);
+    }
+
+    private void completeFetch(String... fullNames) {
+        mPendingFetches.remove(0).onFetched(Arrays.asList(fullNames));
+        settle();
+    }
+
+    /** Run executor tasks and main thread messages until neither has anything left. */
+    private void settle() {
+        do {
+            while (!mPendingTasks.isEmpty()) {
+                mPendingTasks.poll().run();
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+        } while (!mPendingTasks.isEmpty());
+    }
+}
@@ -3,8 +3,9 @@ package app.botdrop;
 import android.app.Activity;
 import android.view.LayoutInflater;
 import android.view.View;
-import android.widget.ScrollView;
-import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.termux.R;
 
@@ -15,8 +16,8 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowLooper;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -26,99 +27,86 @@ import static org.junit.Assert.assertTrue;
 public class OpenclawLogScrollBehaviorTest {
 
     @Test
-    public void bind_whenScrolledToBottom_keepsViewNearBottomAfterRefresh() throws Exception {
-        Activity activity = Robolectric.buildActivity(Activity.class)
-            .setup()
-            .get();
-
-        View pageView = LayoutInflater.from(activity).inflate(R.layout.item_openclaw_log_page, null, false);
-        activity.setContentView(pageView);
-        ScrollView scrollView = (ScrollView) pageView;
-        TextView textView = pageView.findViewById(R.id.openclaw_log_page_text);
-        Object holder = createCurrentProductionHolder(pageView);
+    public void applyDelta_whenScrolledToBottom_keepsViewAtBottomAfterAppend() {
+        RecyclerView list = inflatePage();
+        DashboardActivity.OpenclawLogPage page = newPage();
+        new DashboardActivity.OpenclawLogPageViewHolder(list).bind(page);
 
-        bindWithCurrentProductionPath(holder, buildLogText(80));
-        layoutPage(pageView, 1080, 320);
-        ShadowLooper.idleMainLooper();
+        page.applyDelta(delta(true, 0, 80), "missing", "empty");
+        layoutPage(list);
+        assertTrue("Expected initial load to be anchored at the bottom", !list.canScrollVertically(1));
 
-        int initialBottom = getBottomOffset(scrollView, textView);
-        scrollView.scrollTo(0, initialBottom);
-        ShadowLooper.idleMainLooper();
+        page.applyDelta(delta(false, 80, 40), "missing", "empty");
+        layoutPage(list);
 
-        bindWithCurrentProductionPath(holder, buildLogText(120));
-        layoutPage(pageView, 1080, 320);
-        ShadowLooper.idleMainLooper();
-        ShadowLooper.idleMainLooper();
-
-        int refreshedBottom = getBottomOffset(scrollView, textView);
-        assertTrue(
-            "Expected to remain anchored near the bottom after refresh, bottom=" + refreshedBottom + ", actual=" + scrollView.getScrollY(),
-            refreshedBottom - scrollView.getScrollY() <= 10
-        );
+        LinearLayoutManager layoutManager = (LinearLayoutManager) list.getLayoutManager();
+        assertEquals(119, layoutManager.findLastVisibleItemPosition());
+        assertTrue("Expected to remain anchored at the bottom after append", !list.canScrollVertically(1));
     }
 
     @Test
-    public void bind_whenReadingMidLog_preservesScrollOffsetAfterRefresh() throws Exception {
-        Activity activity = Robolectric.buildActivity(Activity.class)
-            .setup()
-            .get();
+    public void applyDelta_whenReadingMidLog_preservesPositionAfterAppend() {
+        RecyclerView list = inflatePage();
+        DashboardActivity.OpenclawLogPage page = newPage();
+        new DashboardActivity.OpenclawLogPageViewHolder(list).bind(page);
 
-        View pageView = LayoutInflater.from(activity).inflate(R.layout.item_openclaw_log_page, null, false);
-        activity.setContentView(pageView);
-        ScrollView scrollView = (ScrollView) pageView;
-        TextView textView = pageView.findViewById(R.id.openclaw_log_page_text);
-        Object holder = createCurrentProductionHolder(pageView);
+        page.applyDelta(delta(true, 0, 120), "missing", "empty");
+        layoutPage(list);
 
-        bindWithCurrentProductionPath(holder, buildLogText(120));
-        layoutPage(pageView, 1080, 320);
-        ShadowLooper.idleMainLooper();
+        LinearLayoutManager layoutManager = (LinearLayoutManager) list.getLayoutManager();
+        layoutManager.scrollToPositionWithOffset(40, 0);
+        layoutPage(list);
+        assertEquals(40, layoutManager.findFirstVisibleItemPosition());
 
-        int expectedScrollY = Math.max(20, getBottomOffset(scrollView, textView) / 2);
-        scrollView.scrollTo(0, expectedScrollY);
-        ShadowLooper.idleMainLooper();
+        page.applyDelta(delta(false, 120, 40), "missing", "empty");
+        layoutPage(list);
 
-        bindWithCurrentProductionPath(holder, buildLogText(160));
-        layoutPage(pageView, 1080, 320);
-        ShadowLooper.idleMainLooper();
-        ShadowLooper.idleMainLooper();
-
-        assertEquals("Expected refresh to preserve the reader's current position", expectedScrollY, scrollView.getScrollY());
+        assertEquals("Expected append to preserve the reader's current position",
+            40, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(160, page.adapter.getItemCount());
     }
 
-    private Object createCurrentProductionHolder(View pageView) throws Exception {
-        Class<?> holderClass = Class.forName("app.botdrop.DashboardActivity$OpenclawLogPageViewHolder");
-        Constructor<?> constructor = holderClass.getDeclaredConstructor(View.class);
-        constructor.setAccessible(true);
-        return constructor.newInstance(pageView);
-    }
+    @Test
+    public void applyDelta_reset_replacesRetainedLines() {
+        DashboardActivity.OpenclawLogPage page = newPage();
 
-    private void bindWithCurrentProductionPath(Object holder, String text) throws Exception {
-        Class<?> holderClass = holder.getClass();
-        Method bindMethod = holderClass.getDeclaredMethod("bind", String.class);
-        bindMethod.setAccessible(true);
-        bindMethod.invoke(holder, text);
-    }
+        page.applyDelta(delta(true, 0, 10), "missing", "empty");
+        page.applyDelta(delta(true, 500, 2), "missing", "empty");
 
-    private void layoutPage(View pageView, int width, int height) {
-        int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
-        int heightSpec = View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY);
-        pageView.measure(widthSpec, heightSpec);
-        pageView.layout(0, 0, width, height);
+        assertEquals(2, page.adapter.getItemCount());
+        assertEquals("Gateway Log\nline 500\nline 501\n", page.getCopyText());
+
+        page.applyDelta(new GatewayLogTailer.Delta(true, false, new ArrayList<>()), "missing", "empty");
+        assertEquals("Gateway Log\nmissing\n", page.getCopyText());
+    }
 
-        View child = ((ScrollView) pageView).getChildAt(0);
-        child.measure(widthSpec, View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
-        child.layout(0, 0, width, child.getMeasuredHeight());
+    private DashboardActivity.OpenclawLogPage newPage() {
+        return new DashboardActivity.OpenclawLogPage("Gateway Log",
+            new GatewayLogTailer(new java.io.File("/nonexistent/gateway.log"), 10), "Loading...");
     }
 
-    private int getBottomOffset(ScrollView scrollView, TextView textView) {
-        return Math.max(0, textView.getBottom() - scrollView.getHeight());
+    private RecyclerView inflatePage() {
+        Activity activity = Robolectric.buildActivity(Activity.class)
+            .setup()
+            .get();
+        View pageView = LayoutInflater.from(activity).inflate(R.layout.item_openclaw_log_page, null, false);
+        activity.setContentView(pageView);
+        return (RecyclerView) pageView;
     }
 
-    private String buildLogText(int lines) {
-        StringBuilder builder = new StringBuilder("Gateway Log\n");
-        for (int i = 0; i < lines; i++) {
-            builder.append("line ").append(i).append(" abcdefghijklmnopqrstuvwxyz\n");
+    private static GatewayLogTailer.Delta delta(boolean reset, int firstLine, int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = firstLine; i < firstLine + count; i++) {
+            lines.add("line " + i);
         }
-        return builder.toString();
+        return new GatewayLogTailer.Delta(reset, true, lines);
+    }
+
+    private void layoutPage(View pageView) {
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.EXACTLY);
+        pageView.measure(widthSpec, heightSpec);
+        pageView.layout(0, 0, 1080, 320);
+        ShadowLooper.idleMainLooper();
     }
 }
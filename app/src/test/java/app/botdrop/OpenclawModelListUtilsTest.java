@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class OpenclawModelListUtilsTest {
@@ -55,4 +56,18 @@ public class OpenclawModelListUtilsTest {
                 + "  ? new ModelRegistry(fakeAuth, process.env.BOTDROP_MODELS_JSON)\n"
                 + "  : new ModelRegistry(fakeAuth);"));
     }
+
+    @Test
+    public void parseModelLine_extractsProviderModelTokens() {
+        assertEquals("openai/gpt-4o", OpenclawModelListUtils.parseModelLine("openai/gpt-4o"));
+        assertEquals("anthropic/claude-sonnet-4-5",
+            OpenclawModelListUtils.parseModelLine("  anthropic/claude-sonnet-4-5\ttext+image  200k  "));
+        assertEquals("openrouter/meta/llama-3:free",
+            OpenclawModelListUtils.parseModelLine("openrouter/meta/llama-3:free"));
+        assertNull(OpenclawModelListUtils.parseModelLine("Model                Input"));
+        assertNull(OpenclawModelListUtils.parseModelLine("# comment"));
+        assertNull(OpenclawModelListUtils.parseModelLine("   "));
+        assertNull(OpenclawModelListUtils.parseModelLine(null));
+        assertNull(OpenclawModelListUtils.parseModelLine("error: something failed"));
+    }
 }
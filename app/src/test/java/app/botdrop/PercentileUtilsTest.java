@@ -0,0 +1,25 @@
+package app.botdrop;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PercentileUtilsTest {
+
+    @Test
+    public void percentileUsesNearestRank() {
+        long[] sorted = new long[100];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i + 1;
+        }
+        assertEquals(50, PercentileUtils.percentile(sorted, 50));
+        assertEquals(95, PercentileUtils.percentile(sorted, 95));
+        assertEquals(100, PercentileUtils.percentile(sorted, 100));
+        assertEquals(7, PercentileUtils.percentile(new long[]{7}, 95));
+    }
+
+    @Test
+    public void percentileOfNothingIsMinusOne() {
+        assertEquals(-1, PercentileUtils.percentile(new long[0], 50));
+    }
+}
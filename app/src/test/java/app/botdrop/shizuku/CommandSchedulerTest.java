@@ -0,0 +1,166 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CommandSchedulerTest {
+
+    @Test
+    public void limitsCommandsInFlight() throws Exception {
+        CommandScheduler scheduler = new CommandScheduler(2, 4, 8);
+        CommandScheduler.Permit first = scheduler.acquire("a", 1000);
+        CommandScheduler.Permit second = scheduler.acquire("b", 1000);
+        assertEquals(2, scheduler.getStats().inFlight);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread third = new Thread(() -> acquireAndClose(scheduler, "c", acquired, null));
+        third.start();
+        waitForQueued(scheduler, 1);
+        assertEquals(1, acquired.getCount());
+
+        first.close();
+        assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        second.close();
+        third.join(2000);
+
+        CommandScheduler.Stats stats = scheduler.getStats();
+        assertEquals(0, stats.inFlight);
+        assertEquals(0, stats.queued);
+        assertEquals(3, stats.completed);
+    }
+
+    @Test
+    public void fullCallerQueueIsRejectedWithoutWaiting() throws Exception {
+        CommandScheduler scheduler = new CommandScheduler(1, 1, 8);
+        CommandScheduler.Permit running = scheduler.acquire("greedy", 1000);
+        Thread queued = new Thread(() -> acquireAndClose(scheduler, "greedy", null, null));
+        queued.start();
+        waitForQueued(scheduler, 1);
+
+        long start = System.nanoTime();
+        assertNull(scheduler.acquire("greedy", 10000));
+        assertTrue((System.nanoTime() - start) / 1_000_000L < 1000);
+        assertEquals(1, scheduler.getStats().rejected);
+
+        // Another caller still gets a place in line.
+        Thread other = new Thread(() -> acquireAndClose(scheduler, "other", null, null));
+        other.start();
+        waitForQueued(scheduler, 2);
+
+        running.close();
+        queued.join(2000);
+        other.join(2000);
+        assertEquals(3, scheduler.getStats().completed);
+    }
+
+    @Test
+    public void totalQueueLimitAppliesAcrossCallers() throws Exception {
+        CommandScheduler scheduler = new CommandScheduler(1, 4, 1);
+        CommandScheduler.Permit running = scheduler.acquire("a", 1000);
+        Thread queued = new Thread(() -> acquireAndClose(scheduler, "b", null, null));
+        queued.start();
+        waitForQueued(scheduler, 1);
+
+        assertNull(scheduler.acquire("c", 10000));
+
+        running.close();
+        queued.join(2000);
+    }
+
+    @Test
+    public void waitingCallersAreServedRoundRobin() throws Exception {
+        CommandScheduler scheduler = new CommandScheduler(1, 8, 16);
+        CommandScheduler.Permit running = scheduler.acquire("setup", 1000);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        String[] callers = {"greedy", "greedy", "greedy", "other", "third"};
+        for (int i = 0; i < callers.length; i++) {
+            String caller = callers[i];
+            Thread thread = new Thread(() -> acquireAndClose(scheduler, caller, null, order));
+            thread.start();
+            threads.add(thread);
+            waitForQueued(scheduler, i + 1);
+        }
+
+        running.close();
+        for (Thread thread : threads) {
+            thread.join(2000);
+        }
+        assertEquals(Arrays.asList("greedy", "other", "third", "greedy", "greedy"), order);
+    }
+
+    @Test
+    public void queuedCommandGivesUpAfterMaxWait() throws Exception {
+        CommandScheduler scheduler = new CommandScheduler(1, 4, 8);
+        CommandScheduler.Permit running = scheduler.acquire("a", 1000);
+
+        assertNull(scheduler.acquire("b", 50));
+        CommandScheduler.Stats stats = scheduler.getStats();
+        assertEquals(0, stats.queued);
+        assertEquals(1, stats.rejected);
+
+        running.close();
+        CommandScheduler.Permit next = scheduler.acquire("b", 50);
+        assertNotNull(next);
+        next.close();
+    }
+
+    @Test
+    public void statsReportWaitAndRunPercentiles() throws Exception {
+        CommandScheduler scheduler = new CommandScheduler(1, 4, 8);
+        assertEquals(-1, scheduler.getStats().p50RunMs);
+
+        CommandScheduler.Permit running = scheduler.acquire("a", 1000);
+        Thread queued = new Thread(() -> acquireAndClose(scheduler, "b", null, null));
+        queued.start();
+        waitForQueued(scheduler, 1);
+        Thread.sleep(100);
+        running.close();
+        running.close();
+        queued.join(2000);
+
+        CommandScheduler.Stats stats = scheduler.getStats();
+        assertEquals(2, stats.completed);
+        assertTrue(String.valueOf(stats.p95WaitMs), stats.p95WaitMs >= 90);
+        assertTrue(String.valueOf(stats.p99RunMs), stats.p99RunMs >= 90);
+        assertTrue(stats.describe().startsWith("in flight 0/1, queued 0, done 2"));
+    }
+
+    private static void acquireAndClose(CommandScheduler scheduler, String caller,
+                                        CountDownLatch acquired, List<String> order) {
+        try {
+            CommandScheduler.Permit permit = scheduler.acquire(caller, 5000);
+            if (permit == null) {
+                return;
+            }
+            if (order != null) {
+                order.add(caller);
+            }
+            if (acquired != null) {
+                acquired.countDown();
+            }
+            permit.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitForQueued(CommandScheduler scheduler, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (scheduler.getStats().queued < queued && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(queued, scheduler.getStats().queued);
+    }
+}
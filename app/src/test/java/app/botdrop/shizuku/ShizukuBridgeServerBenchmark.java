@@ -0,0 +1,156 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import app.botdrop.PercentileUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test for the Shizuku bridge with a no-op command runner, so only the transport is
+ * measured. "close" opens a connection per request, which is how every client had to talk to
+ * the bridge before keep-alive; "keep-alive" reuses one connection per client; "pipelined"
+ * additionally keeps {@link #PIPELINE_DEPTH} requests in flight per connection.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*ShizukuBridgeServerBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShizukuBridgeServerBenchmark {
+
+    private static final int CLIENTS = 4;
+    private static final int REQUESTS_PER_CLIENT = 2000;
+    private static final int WARMUP_PER_CLIENT = 200;
+    private static final int PIPELINE_DEPTH = 8;
+
+    private interface Client {
+        /** @return per-request latencies in microseconds */
+        long[] run(ShizukuBridgeServer server, int requests) throws Exception;
+    }
+
+    @Test
+    public void compareConnectionModes() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        ShizukuBridgeServer server = new ShizukuBridgeServer(0, ShizukuBridgeServerTest.TOKEN,
+            new ShizukuBridgeServerTest.EchoRunner(), null);
+        assertTrue(server.start());
+        try {
+            double close = measure("close", server, ShizukuBridgeServerBenchmark::runClosePerRequest);
+            double keepAlive = measure("keep-alive", server, ShizukuBridgeServerBenchmark::runKeepAlive);
+            double pipelined = measure("pipelined", server, ShizukuBridgeServerBenchmark::runPipelined);
+            assertTrue(keepAlive > close);
+            assertTrue(pipelined > close);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * @return requests per second
+     */
+    private static double measure(String label, ShizukuBridgeServer server, Client client) throws Exception {
+        runClients(server, client, WARMUP_PER_CLIENT);
+        long start = System.nanoTime();
+        long[] latencies = runClients(server, client, REQUESTS_PER_CLIENT);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        double rps = latencies.length / seconds;
+        System.out.println(String.format(Locale.ROOT,
+            "%-10s %d clients x %d requests: %.0f req/s, p50 %d us, p99 %d us, max %d us",
+            label, CLIENTS, REQUESTS_PER_CLIENT, rps, PercentileUtils.percentile(latencies, 50),
+            PercentileUtils.percentile(latencies, 99), latencies[latencies.length - 1]));
+        return rps;
+    }
+
+    private static long[] runClients(ShizukuBridgeServer server, Client client, int requests) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(pool.submit(() -> client.run(server, requests)));
+            }
+            long[] all = new long[CLIENTS * requests];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] latencies = future.get();
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            return all;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long[] runClosePerRequest(ShizukuBridgeServer server, int requests) throws Exception {
+        byte[] request = ShizukuBridgeServerTest.execRequest("true", false, false);
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            try (Socket socket = ShizukuBridgeServerTest.connect(server)) {
+                socket.getOutputStream().write(request);
+                ShizukuBridgeServerTest.readResponse(new BufferedInputStream(socket.getInputStream()));
+            }
+            latencies[i] = (System.nanoTime() - start) / 1000L;
+        }
+        return latencies;
+    }
+
+    private static long[] runKeepAlive(ShizukuBridgeServer server, int requests) throws Exception {
+        byte[] request = ShizukuBridgeServerTest.execRequest("true", false, true);
+        long[] latencies = new long[requests];
+        try (Socket socket = ShizukuBridgeServerTest.connect(server)) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                socket.getOutputStream().write(request);
+                assertEquals(200, ShizukuBridgeServerTest.readResponse(in).status);
+                latencies[i] = (System.nanoTime() - start) / 1000L;
+            }
+        }
+        return latencies;
+    }
+
+    private static long[] runPipelined(ShizukuBridgeServer server, int requests) throws Exception {
+        byte[] request = ShizukuBridgeServerTest.execRequest("true", false, true);
+        ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream();
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            batchBuffer.write(request);
+        }
+        byte[] batch = batchBuffer.toByteArray();
+
+        long[] latencies = new long[requests];
+        try (Socket socket = ShizukuBridgeServerTest.connect(server)) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int done = 0; done < requests; done += PIPELINE_DEPTH) {
+                long start = System.nanoTime();
+                socket.getOutputStream().write(batch);
+                for (int i = 0; i < PIPELINE_DEPTH; i++) {
+                    assertEquals(200, ShizukuBridgeServerTest.readResponse(in).status);
+                    if (done + i < requests) {
+                        latencies[done + i] = (System.nanoTime() - start) / 1000L;
+                    }
+                }
+            }
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,270 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShizukuBridgeServerTest {
+
+    static final String TOKEN = "test-token";
+
+    private ShizukuBridgeServer mServer;
+
+    @Before
+    public void setUp() {
+        mServer = new ShizukuBridgeServer(0, TOKEN, new EchoRunner(), new ShizukuBridgeServer.StatusProvider() {
+            @Override
+            public String getStatus() {
+                return "READY";
+            }
+
+            @Override
+            public boolean isShellServiceBound() {
+                return true;
+            }
+        });
+        assertTrue(mServer.start());
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void keepAliveServesManyRequestsOnOneConnection() throws Exception {
+        try (Socket socket = connect(mServer)) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < 5; i++) {
+                socket.getOutputStream().write(execRequest("cmd" + i, false, true));
+                Response response = readResponse(in);
+                assertEquals(200, response.status);
+                assertEquals("keep-alive", response.headers.get("connection"));
+                assertEquals("echo:cmd" + i, new JSONObject(response.body).getString("stdout"));
+            }
+
+            socket.getOutputStream().write(statusRequest(true));
+            JSONObject status = new JSONObject(readResponse(in).body);
+            assertEquals(1, status.getLong("connectionsAccepted"));
+            assertEquals(6, status.getLong("requestsServed"));
+            JSONObject executor = status.getJSONObject("executor");
+            assertEquals(5, executor.getLong("completed"));
+            assertEquals(0, executor.getInt("inFlight"));
+            assertEquals(0, executor.getLong("rejected"));
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+        try (Socket socket = connect(mServer)) {
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            for (int i = 0; i < 10; i++) {
+                batch.write(execRequest("p" + i, false, true));
+            }
+            socket.getOutputStream().write(batch.toByteArray());
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < 10; i++) {
+                assertEquals("echo:p" + i, new JSONObject(readResponse(in).body).getString("stdout"));
+            }
+        }
+    }
+
+    @Test
+    public void connectionCloseIsHonoured() throws Exception {
+        try (Socket socket = connect(mServer)) {
+            socket.getOutputStream().write(execRequest("once", false, false));
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Response response = readResponse(in);
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void streamedExecSendsStdoutChunksThenDoneEvent() throws Exception {
+        try (Socket socket = connect(mServer)) {
+            socket.getOutputStream().write(execRequest("stream:3", true, true));
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Response response = readResponse(in);
+
+            assertEquals("chunked", response.headers.get("transfer-encoding"));
+            String[] events = response.body.split("\n");
+            assertEquals(4, events.length);
+            for (int i = 0; i < 3; i++) {
+                assertEquals("part" + i + "\n", new JSONObject(events[i]).getString("stdout"));
+            }
+            JSONObject done = new JSONObject(events[3]);
+            assertTrue(done.getBoolean("done"));
+            assertEquals(0, done.getInt("exitCode"));
+
+            // The connection is still usable after a chunked response.
+            socket.getOutputStream().write(execRequest("after", false, true));
+            assertEquals("echo:after", new JSONObject(readResponse(in).body).getString("stdout"));
+        }
+    }
+
+    @Test
+    public void unauthorizedRequestKeepsConnectionInSync() throws Exception {
+        try (Socket socket = connect(mServer)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(request("POST", "/shizuku/exec", "wrong", "{\"command\":\"x\"}", true));
+            out.write(execRequest("ok", false, true));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertEquals(401, readResponse(in).status);
+            Response next = readResponse(in);
+            assertEquals(200, next.status);
+            assertEquals("echo:ok", new JSONObject(next.body).getString("stdout"));
+        }
+    }
+
+    /**
+     * Echoes the command; "stream:N" emits N chunks through the sink instead.
+     */
+    static final class EchoRunner implements ShizukuBridgeServer.CommandRunner {
+        private final CommandScheduler mScheduler = new CommandScheduler(2, 4, 16);
+
+        @Override
+        public boolean isBound() {
+            return true;
+        }
+
+        @Override
+        public ShizukuShellExecutor.Result execute(String caller, String command, int timeoutMs,
+                                                   ShizukuBridgeServer.OutputSink sink) throws IOException {
+            try (CommandScheduler.Permit ignored = mScheduler.acquire(caller, timeoutMs)) {
+                if (command.startsWith("stream:")) {
+                    int parts = Integer.parseInt(command.substring("stream:".length()));
+                    for (int i = 0; i < parts; i++) {
+                        sink.onStdout("part" + i + "\n");
+                    }
+                    return new ShizukuShellExecutor.Result(true, "", "", 0);
+                }
+                return new ShizukuShellExecutor.Result(true, "echo:" + command, "", 0);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public CommandScheduler.Stats getStats() {
+            return mScheduler.getStats();
+        }
+    }
+
+    static final class Response {
+        int status;
+        final Map<String, String> headers = new HashMap<>();
+        String body;
+    }
+
+    static Socket connect(ShizukuBridgeServer server) throws IOException {
+        Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), server.getLocalPort());
+        socket.setSoTimeout(5000);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    static byte[] execRequest(String command, boolean stream, boolean keepAlive) throws Exception {
+        JSONObject body = new JSONObject().put("command", command).put("timeoutMs", 1000);
+        if (stream) {
+            body.put("stream", true);
+        }
+        return request("POST", "/shizuku/exec", TOKEN, body.toString(), keepAlive);
+    }
+
+    static byte[] statusRequest(boolean keepAlive) {
+        return request("GET", "/shizuku/status", TOKEN, "", keepAlive);
+    }
+
+    static byte[] request(String method, String path, String token, String body, boolean keepAlive) {
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+        String head = method + " " + path + " HTTP/1.1\r\n"
+            + "Host: 127.0.0.1\r\n"
+            + "Authorization: Bearer " + token + "\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Content-Length: " + payload.length + "\r\n"
+            + (keepAlive ? "" : "Connection: close\r\n")
+            + "\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.UTF_8);
+        byte[] request = new byte[headBytes.length + payload.length];
+        System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+        System.arraycopy(payload, 0, request, headBytes.length, payload.length);
+        return request;
+    }
+
+    static Response readResponse(InputStream in) throws IOException {
+        Response response = new Response();
+        String statusLine = readLine(in);
+        response.status = Integer.parseInt(statusLine.split(" ")[1]);
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int sep = line.indexOf(':');
+            response.headers.put(line.substring(0, sep).trim().toLowerCase(Locale.ROOT),
+                line.substring(sep + 1).trim());
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if ("chunked".equals(response.headers.get("transfer-encoding"))) {
+            int size;
+            while ((size = Integer.parseInt(readLine(in).trim(), 16)) > 0) {
+                body.write(readFully(in, size));
+                readLine(in);
+            }
+            readLine(in);
+        } else {
+            body.write(readFully(in, Integer.parseInt(response.headers.get("content-length"))));
+        }
+        response.body = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        return response;
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(data, read, length - read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of response");
+            }
+            read += n;
+        }
+        return data;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Unexpected end of response");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short commands per second on a pooled session against a new {@code sh -c} per command, with
+ * host processes standing in for Shizuku ones. On a device each new process also costs a
+ * binder call into the Shizuku server and its stream transfer threads, so the gap is wider.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*ShizukuSessionPoolBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShizukuSessionPoolBenchmark {
+
+    private static final int COMMANDS = 500;
+    private static final String COMMAND = "echo ok";
+
+    @Test
+    public void commandsPerSecond() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        report("process per command", timePerCommand());
+        ShizukuSessionPool pool = new ShizukuSessionPool(ShizukuSessionPoolTest.LocalShell::new, 1);
+        try {
+            report("pooled session", timePooled(pool));
+            assertEquals(1, pool.getSpawnCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long timePerCommand() throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < COMMANDS; i++) {
+            Process process = new ProcessBuilder("/bin/sh", "-c", COMMAND).start();
+            process.getOutputStream().close();
+            String stdout = readAll(process.getInputStream());
+            readAll(process.getErrorStream());
+            process.waitFor(5, TimeUnit.SECONDS);
+            assertEquals("ok\n", stdout);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timePooled(ShizukuSessionPool pool) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < COMMANDS; i++) {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            int exitCode = pool.submit(COMMAND, 5000, stdout, new ByteArrayOutputStream())
+                .get(5, TimeUnit.SECONDS);
+            assertEquals(0, exitCode);
+            assertEquals("ok\n", stdout.toString("UTF-8"));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static void report(String label, long nanos) {
+        System.out.println(String.format(Locale.ROOT, "%-20s %5d commands: %7.0f commands/s, %.2f ms each",
+            label, COMMANDS, COMMANDS / (nanos / 1e9), nanos / 1e6 / COMMANDS));
+    }
+}
@@ -0,0 +1,193 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShizukuSessionPoolTest {
+
+    private ShizukuSessionPool mPool;
+
+    @After
+    public void tearDown() {
+        if (mPool != null) {
+            mPool.shutdown();
+        }
+    }
+
+    @Test
+    public void sequentialCommandsReuseOneSession() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 2);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("run " + i + "\n", run("echo run " + i, 5000).stdout);
+        }
+        assertEquals(1, mPool.getSpawnCount());
+        assertEquals(5, mPool.getCommandCount());
+        assertEquals(1, mPool.getSessionCount());
+    }
+
+    @Test
+    public void separatesStdoutStderrAndExitCode() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 1);
+        Output output = run("echo out; echo err >&2; exit 7", 5000);
+
+        assertEquals(7, output.exitCode);
+        assertEquals("out\n", output.stdout);
+        assertEquals("err\n", output.stderr);
+    }
+
+    @Test
+    public void outputWithoutTrailingNewlineIsKept() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 1);
+        assertEquals("no newline", run("printf 'no newline'", 5000).stdout);
+        assertEquals("it's quoted", run("printf '%s' \"it's quoted\"", 5000).stdout);
+    }
+
+    @Test
+    public void largeBinaryOutputIsRelayedByteForByte() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 1);
+        // 300 KB of every byte value, spanning several 64 KB reads.
+        Output output = run("i=0; while [ $i -lt 1200 ]; do printf '"
+            + allBytesAsPrintfEscapes() + "'; i=$((i + 1)); done", 30000);
+
+        assertEquals(0, output.exitCode);
+        assertEquals(1200 * 256, output.stdoutBytes.length);
+        for (int i = 0; i < output.stdoutBytes.length; i++) {
+            if ((output.stdoutBytes[i] & 0xff) != i % 256) {
+                throw new AssertionError("Byte " + i + " was " + (output.stdoutBytes[i] & 0xff));
+            }
+        }
+        assertArrayEquals("next\n".getBytes(StandardCharsets.UTF_8), run("echo next", 5000).stdoutBytes);
+    }
+
+    @Test
+    public void commandStateDoesNotLeakBetweenCommands() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 1);
+        String home = run("pwd", 5000).stdout;
+        run("cd /; FOO=leaked; export BAR=leaked; exit 3", 5000);
+
+        assertEquals(home, run("pwd", 5000).stdout);
+        assertEquals("[][]\n", run("echo \"[$FOO][$BAR]\"", 5000).stdout);
+        assertEquals(1, mPool.getSpawnCount());
+    }
+
+    @Test
+    public void timeoutRecyclesSession() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 1);
+        Output timedOut = run("echo started; sleep 30", 300);
+
+        assertEquals(IShellService.EXIT_CODE_TIMED_OUT, timedOut.exitCode);
+        assertEquals("started\n", timedOut.stdout);
+        assertEquals(1, mPool.getRecycleCount());
+
+        assertEquals("fresh\n", run("echo fresh", 5000).stdout);
+        assertEquals(2, mPool.getSpawnCount());
+    }
+
+    @Test
+    public void fullPoolDeclinesCommand() throws Exception {
+        mPool = new ShizukuSessionPool(LocalShell::new, 1);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        Future<Integer> running = mPool.submit("sleep 0.3", 5000, stdout, new ByteArrayOutputStream());
+        assertNotNull(running);
+
+        assertNull(mPool.submit("echo hi", 5000, new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+
+        assertEquals(0, (int) running.get(5, TimeUnit.SECONDS));
+        assertEquals("hi\n", run("echo hi", 5000).stdout);
+    }
+
+    private Output run(String script, long timeoutMs) throws Exception {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        Future<Integer> exitCode = mPool.submit(script, timeoutMs, stdout, stderr);
+        assertNotNull(exitCode);
+        int code = exitCode.get(timeoutMs + 5000, TimeUnit.MILLISECONDS);
+        return new Output(code, stdout.toByteArray(), stderr.toString("UTF-8"));
+    }
+
+    private static String allBytesAsPrintfEscapes() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            sb.append('\\').append(Integer.toOctalString(i));
+        }
+        return sb.toString();
+    }
+
+    private static final class Output {
+        final int exitCode;
+        final byte[] stdoutBytes;
+        final String stdout;
+        final String stderr;
+
+        Output(int exitCode, byte[] stdoutBytes, String stderr) {
+            this.exitCode = exitCode;
+            this.stdoutBytes = stdoutBytes;
+            this.stdout = new String(stdoutBytes, StandardCharsets.UTF_8);
+            this.stderr = stderr;
+        }
+    }
+
+    /**
+     * A host {@code sh} standing in for the Shizuku remote process.
+     */
+    static final class LocalShell implements ShizukuSessionPool.Session {
+        private final Process mProcess;
+
+        LocalShell() throws IOException {
+            mProcess = new ProcessBuilder("/bin/sh").start();
+        }
+
+        @Override
+        public OutputStream getStdin() {
+            return mProcess.getOutputStream();
+        }
+
+        @Override
+        public InputStream getStdout() {
+            return mProcess.getInputStream();
+        }
+
+        @Override
+        public InputStream getStderr() {
+            return mProcess.getErrorStream();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return mProcess.isAlive();
+        }
+
+        @Override
+        public void destroy(int shellPid) {
+            if (shellPid > 0) {
+                try {
+                    new ProcessBuilder("/bin/sh", "-c", ShizukuSessionPool.killDescendantsScript(shellPid)).start()
+                        .waitFor(2, TimeUnit.SECONDS);
+                } catch (IOException e) {
+                    // Children keep the pipes open until they exit on their own.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            mProcess.destroyForcibly();
+        }
+    }
+}
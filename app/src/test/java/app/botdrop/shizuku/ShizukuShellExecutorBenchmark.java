@@ -0,0 +1,177 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Throughput and peak heap for 1, 10 and 100 MB of command output.
+ *
+ * "json" is the executeCommand path: the service reads the whole output into a String, escapes
+ * it into a JSON reply and the executor parses it back. Above roughly 1 MB that reply also
+ * exceeds the binder transaction buffer, which this benchmark does not model. "collect" drains
+ * the pipe into {@link ShizukuShellExecutor.Result#stdout}, and "stream" passes it to a
+ * listener as the bridge's streaming exec does.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*ShizukuShellExecutorBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShizukuShellExecutorBenchmark {
+
+    private static final int[] SIZES_MB = {1, 10, 100};
+    private static final byte[] LINE = ("package:/data/app/~~Xy12Ab==/com.example.app-1/base.apk"
+        + "=com.example.app \"quoted\"\n").getBytes(StandardCharsets.UTF_8);
+
+    private interface Path {
+        /** @return chars of stdout that reached the consumer */
+        long run(InputStream stdout) throws Exception;
+    }
+
+    @Test
+    public void throughputAndHeapByOutputSize() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            for (int sizeMb : SIZES_MB) {
+                long bytes = sizeMb * 1024L * 1024L;
+                run("json", bytes, ShizukuShellExecutorBenchmark::viaJson);
+                run("collect", bytes, stdout -> ShizukuShellExecutor.collect(
+                    execution(stdout), 60000, null, pool).stdout.length());
+                run("stream", bytes, stdout -> {
+                    long[] chars = {0};
+                    ShizukuShellExecutor.collect(execution(stdout), 60000, chunk -> chars[0] += chunk.length(), pool);
+                    return chars[0];
+                });
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void run(String label, long bytes, Path path) throws Exception {
+        long baseline = settledHeapUsed();
+        resetPeaks();
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            long chars = path.run(new RepeatingInputStream(LINE, bytes));
+            assertEquals(bytes, chars);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            outcome = String.format(Locale.ROOT, "%7.1f MB/s", bytes / 1048576.0 / seconds);
+        } catch (OutOfMemoryError e) {
+            outcome = "  out of memory";
+        }
+        long peak = peakHeapUsed() - baseline;
+        System.out.println(String.format(Locale.ROOT, "%-7s %3d MB: %s, peak heap +%.1f MB",
+            label, bytes >> 20, outcome, peak / 1048576.0));
+    }
+
+    /**
+     * The executeCommand round trip, as ShellService and parseResult did it.
+     */
+    private static long viaJson(InputStream stdout) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stdout, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+            }
+        }
+        JSONObject result = new JSONObject();
+        result.put("exitCode", 0);
+        result.put("stdout", sb.toString());
+        result.put("stderr", "");
+        result.put("success", true);
+        String json = result.toString();
+        sb = null;
+        result = null;
+        return new JSONObject(json).optString("stdout", "").length();
+    }
+
+    private static ShizukuShellExecutor.Execution execution(InputStream stdout) {
+        return new ShizukuShellExecutor.Execution(stdout, new ByteArrayInputStream(new byte[0]),
+            CompletableFuture.completedFuture(0));
+    }
+
+    /**
+     * Produces a fixed number of bytes by repeating a line, without holding them in memory.
+     */
+    private static final class RepeatingInputStream extends InputStream {
+        private final byte[] mPattern;
+        private long mRemaining;
+        private int mOffset;
+
+        RepeatingInputStream(byte[] pattern, long length) {
+            mPattern = pattern;
+            mRemaining = length;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(length, mRemaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = mPattern[mOffset];
+                mOffset = (mOffset + 1) % mPattern.length;
+            }
+            mRemaining -= count;
+            return count;
+        }
+    }
+
+    private static long settledHeapUsed() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,123 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShizukuShellExecutorTest {
+
+    private final ExecutorService mPool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        mPool.shutdownNow();
+    }
+
+    @Test
+    public void collectsStdoutStderrAndExitCode() throws IOException {
+        ShizukuShellExecutor.Result result = ShizukuShellExecutor.collect(
+            execution("hello\nworld\n", "warning\n", 0), 1000, null, mPool);
+
+        assertTrue(result.success);
+        assertEquals(0, result.exitCode);
+        assertEquals("hello\nworld\n", result.stdout);
+        assertEquals("warning\n", result.stderr);
+    }
+
+    @Test
+    public void listenerReceivesStdoutInsteadOfResult() throws IOException {
+        StringBuilder streamed = new StringBuilder();
+        ShizukuShellExecutor.Result result = ShizukuShellExecutor.collect(
+            execution("abc", "", 3), 1000, streamed::append, mPool);
+
+        assertFalse(result.success);
+        assertEquals(3, result.exitCode);
+        assertEquals("abc", streamed.toString());
+        assertEquals("", result.stdout);
+    }
+
+    @Test
+    public void multiByteCharactersSurviveReadBoundaries() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            expected.append("模型").append(i % 10);
+        }
+        List<String> chunks = new ArrayList<>();
+        ShizukuShellExecutor.collect(execution(expected.toString(), "", 0), 1000, chunks::add, mPool);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(expected.toString(), String.join("", chunks));
+    }
+
+    @Test
+    public void timedOutCommandReportsTimeout() throws IOException {
+        ShizukuShellExecutor.Result result = ShizukuShellExecutor.collect(
+            execution("partial", "tail", IShellService.EXIT_CODE_TIMED_OUT), 100, null, mPool);
+
+        assertFalse(result.success);
+        assertEquals(-1, result.exitCode);
+        assertEquals("partial", result.stdout);
+        assertEquals("Command timeout after 100 ms" + "tail", result.stderr);
+    }
+
+    @Test
+    public void listenerFailureIsRethrown() {
+        try {
+            ShizukuShellExecutor.collect(execution("abc", "", 0), 1000, chunk -> {
+                throw new IOException("client went away");
+            }, mPool);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("client went away", e.getMessage());
+        }
+    }
+
+    @Test
+    public void pipeHeldOpenByChildGivesUpAfterDeadline() throws IOException {
+        // A background child can keep stdout open after the shell has exited.
+        PipedOutputStream writer = new PipedOutputStream();
+        PipedInputStream stdout = new PipedInputStream(writer);
+        writer.write("early".getBytes(StandardCharsets.UTF_8));
+        ShizukuShellExecutor.Execution execution = new ShizukuShellExecutor.Execution(
+            stdout, stream(""), CompletableFuture.completedFuture(0));
+
+        long start = System.nanoTime();
+        ShizukuShellExecutor.Result result = ShizukuShellExecutor.collect(execution, 100, null, mPool);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        execution.close();
+
+        assertFalse(result.success);
+        assertTrue(result.stderr.startsWith("Failed to collect command output"));
+        assertTrue(String.valueOf(elapsedMs), elapsedMs < 5000);
+    }
+
+    private static ShizukuShellExecutor.Execution execution(String stdout, String stderr, int exitCode) {
+        return new ShizukuShellExecutor.Execution(stream(stdout), stream(stderr),
+            CompletableFuture.completedFuture(exitCode));
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,58 @@
+package app.botdrop.shizuku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+public class StartedCommandsTest {
+
+    @Test
+    public void finishedCommandIsEvictedAfterRetention() {
+        StartedCommands commands = new StartedCommands(60_000);
+        CompletableFuture<Integer> exit = new CompletableFuture<>();
+        int id = commands.add(exit);
+        assertSame(exit, commands.get(id));
+
+        exit.complete(0);
+        assertEquals(0, commands.evictFinished(1_000));
+        assertEquals(0, commands.evictFinished(60_999));
+        assertSame(exit, commands.get(id));
+
+        assertEquals(1, commands.evictFinished(61_000));
+        assertNull(commands.get(id));
+        assertEquals(0, commands.size());
+    }
+
+    @Test
+    public void runningCommandIsKept() {
+        StartedCommands commands = new StartedCommands(1_000);
+        CompletableFuture<Integer> running = new CompletableFuture<>();
+        int id = commands.add(running);
+
+        assertEquals(0, commands.evictFinished(0));
+        assertEquals(0, commands.evictFinished(10_000_000));
+        assertSame(running, commands.get(id));
+
+        // The retention counts from when the command is first seen finished.
+        running.complete(1);
+        assertEquals(0, commands.evictFinished(10_000_500));
+        assertEquals(1, commands.evictFinished(10_001_500));
+    }
+
+    @Test
+    public void collectedCommandIsRemoved() {
+        StartedCommands commands = new StartedCommands(60_000);
+        int first = commands.add(CompletableFuture.completedFuture(0));
+        int second = commands.add(CompletableFuture.completedFuture(2));
+        assertTrue(first != second);
+
+        commands.remove(first);
+        assertNull(commands.get(first));
+        assertEquals(1, commands.size());
+    }
+}
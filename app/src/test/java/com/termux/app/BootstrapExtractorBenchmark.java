@@ -0,0 +1,214 @@
+package com.termux.app;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Time until the staging prefix is usable, and peak heap, for a synthetic bootstrap of about
+ * 3000 entries and 90 MB uncompressed.
+ *
+ * "legacy" is the old path: the whole zip copied into a heap array, as the JNI getZip() did,
+ * then a single ZipInputStream with an 8 KB buffer. The extractor runs over a mapped file,
+ * which stands in for the direct buffer over the shared library.
+ *
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*BootstrapExtractorBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BootstrapExtractorBenchmark {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private interface Extraction {
+        void run(File archive, File target) throws Exception;
+    }
+
+    @Test
+    public void timeToPrefixAndPeakHeap() throws Exception {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        File archive = mTemp.newFile("bootstrap.zip");
+        writeSyntheticBootstrap(archive);
+        System.out.println(String.format(Locale.ROOT, "archive %.1f MB, %d threads available",
+            archive.length() / 1048576.0, Runtime.getRuntime().availableProcessors()));
+
+        for (int round = 0; round < 2; round++) {
+            run("legacy", archive, BootstrapExtractorBenchmark::extractLegacy);
+            run("extractor x1", archive, (zip, target) -> extract(zip, target, 1));
+            run("extractor x" + BootstrapExtractor.MAX_THREADS, archive,
+                (zip, target) -> extract(zip, target, BootstrapExtractor.MAX_THREADS));
+        }
+    }
+
+    private void run(String label, File archive, Extraction extraction) throws Exception {
+        File target = mTemp.newFolder();
+        File prefix = new File(target.getParentFile(), target.getName() + "-prefix");
+        long baseline = settledHeapUsed();
+        resetPeaks();
+        long start = System.nanoTime();
+        extraction.run(archive, target);
+        if (!target.renameTo(prefix)) {
+            throw new IOException("rename failed");
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        long peak = peakHeapUsed() - baseline;
+        System.out.println(String.format(Locale.ROOT, "%-13s %6d ms to prefix, peak heap +%.1f MB",
+            label, elapsedMs, peak / 1048576.0));
+    }
+
+    private static void extract(File archive, File target, int threads) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+            ByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            new BootstrapExtractor(mapped, target, threads, new BootstrapExtractorTest.HostFileOps(), null).extract();
+        }
+    }
+
+    /**
+     * The extraction loop TermuxInstaller had before BootstrapExtractor.
+     */
+    private static void extractLegacy(File archive, File target) throws IOException {
+        BootstrapExtractor.FileOps fileOps = new BootstrapExtractorTest.HostFileOps();
+        byte[] zipBytes = Files.readAllBytes(archive.toPath());
+        byte[] buffer = new byte[8096];
+        List<String[]> symlinks = new ArrayList<>(50);
+        try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInput.getNextEntry()) != null) {
+                if (zipEntry.getName().equals(BootstrapExtractor.SYMLINKS_ENTRY)) {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(zipInput, StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split("←");
+                        symlinks.add(new String[]{parts[0], new File(target, parts[1]).getAbsolutePath()});
+                        new File(target, parts[1]).getParentFile().mkdirs();
+                    }
+                } else {
+                    File targetFile = new File(target, zipEntry.getName());
+                    boolean isDirectory = zipEntry.isDirectory();
+                    (isDirectory ? targetFile : targetFile.getParentFile()).mkdirs();
+                    if (!isDirectory) {
+                        try (FileOutputStream out = new FileOutputStream(targetFile)) {
+                            int read;
+                            while ((read = zipInput.read(buffer)) != -1) {
+                                out.write(buffer, 0, read);
+                            }
+                        }
+                        if (BootstrapExtractor.isExecutable(zipEntry.getName())) {
+                            //noinspection OctalInteger
+                            fileOps.chmod(targetFile.getAbsolutePath(), 0700);
+                        }
+                    }
+                }
+            }
+        }
+        for (String[] symlink : symlinks) {
+            fileOps.symlink(symlink[0], symlink[1]);
+        }
+    }
+
+    /**
+     * Roughly the shape of a real bootstrap: many small text files, some mid-sized binaries and
+     * a few large ones.
+     */
+    private static void writeSyntheticBootstrap(File archive) throws IOException {
+        Random random = new Random(7);
+        StringBuilder symlinks = new StringBuilder();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (int i = 0; i < 2600; i++) {
+                putEntry(zip, "share/doc/pkg" + (i % 150) + "/file" + i + ".txt", text(random, 2000 + random.nextInt(18000)));
+                if (i % 10 == 0) {
+                    symlinks.append("file").append(i).append(".txt←share/doc/pkg").append(i % 150)
+                        .append("/link").append(i).append('\n');
+                }
+            }
+            for (int i = 0; i < 300; i++) {
+                String dir = i % 3 == 0 ? "bin/" : "lib/";
+                putEntry(zip, dir + "binary" + i, binary(random, 50000 + random.nextInt(150000)));
+            }
+            for (int i = 0; i < 3; i++) {
+                putEntry(zip, "lib/large" + i + ".so", binary(random, 8 * 1024 * 1024));
+            }
+            putEntry(zip, BootstrapExtractor.SYMLINKS_ENTRY, symlinks.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static byte[] text(Random random, int length) {
+        String[] words = {"package ", "install ", "library ", "the ", "of ", "termux ", "config\n", "usr/lib "};
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(words[random.nextInt(words.length)]);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Compresses to roughly half, like machine code. */
+    private static byte[] binary(Random random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (random.nextBoolean() ? random.nextInt(256) : random.nextInt(8));
+        }
+        return bytes;
+    }
+
+    private static long settledHeapUsed() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
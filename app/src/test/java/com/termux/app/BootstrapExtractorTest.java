@@ -0,0 +1,265 @@
+package com.termux.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BootstrapExtractorTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void extractsFilesDirectoriesExecutablesAndSymlinks() throws Exception {
+        byte[] large = randomBytes(300 * 1024);
+        ZipBuilder zip = new ZipBuilder()
+            .directory("etc/")
+            .file("etc/motd", "Welcome\n")
+            .file("bin/sh", "#!/system/bin/sh\n")
+            .stored("lib/libfoo.so", large)
+            .file("share/doc/deep/README", "nested")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "sh←bin/bash\n../../lib/libfoo.so←share/doc/libfoo.so\n");
+        File target = mTemp.newFolder("prefix");
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+
+        int files = new BootstrapExtractor(zip.buffer(), target, 3, new HostFileOps(), progress::add).extract();
+
+        assertEquals(4, files);
+        assertEquals("Welcome\n", read(target, "etc/motd"));
+        assertArrayEquals(large, Files.readAllBytes(new File(target, "lib/libfoo.so").toPath()));
+        assertEquals("nested", read(target, "share/doc/deep/README"));
+        assertTrue(new File(target, "bin/sh").canExecute());
+        assertFalse(new File(target, "etc/motd").canExecute());
+        assertEquals(Paths.get("sh"), Files.readSymbolicLink(new File(target, "bin/bash").toPath()));
+        assertEquals("#!/system/bin/sh\n", read(target, "bin/bash"));
+        assertArrayEquals(large, Files.readAllBytes(new File(target, "share/doc/libfoo.so").toPath()));
+        assertFalse(new File(target, BootstrapExtractor.SYMLINKS_ENTRY).exists());
+
+        assertEquals(Integer.valueOf(100), progress.get(progress.size() - 1));
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+    }
+
+    @Test
+    public void singleThreadGivesSameResult() throws Exception {
+        ZipBuilder zip = new ZipBuilder();
+        for (int i = 0; i < 200; i++) {
+            zip.file("lib/file" + i, "content " + i);
+        }
+        zip.file(BootstrapExtractor.SYMLINKS_ENTRY, "");
+        File target = mTemp.newFolder("prefix");
+
+        assertEquals(200, new BootstrapExtractor(zip.buffer(), target, 1, new HostFileOps(), null).extract());
+        assertEquals("content 137", read(target, "lib/file137"));
+    }
+
+    @Test
+    public void missingSymlinksEntryFails() throws Exception {
+        ZipBuilder zip = new ZipBuilder().file("bin/sh", "x");
+        try {
+            new BootstrapExtractor(zip.buffer(), mTemp.newFolder("prefix"), 2, new HostFileOps(), null).extract();
+            fail("Expected ZipException");
+        } catch (ZipException e) {
+            assertTrue(e.getMessage().contains(BootstrapExtractor.SYMLINKS_ENTRY));
+        }
+    }
+
+    @Test
+    public void entryEscapingTargetIsRejected() throws Exception {
+        ZipBuilder zip = new ZipBuilder()
+            .file("../outside", "x")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "");
+        File target = mTemp.newFolder("prefix");
+        try {
+            new BootstrapExtractor(zip.buffer(), target, 2, new HostFileOps(), null).extract();
+            fail("Expected ZipException");
+        } catch (ZipException e) {
+            assertTrue(e.getMessage().startsWith("Unsafe entry name"));
+        }
+        assertFalse(new File(target.getParentFile(), "outside").exists());
+    }
+
+    @Test
+    public void corruptEntryIsDetected() throws Exception {
+        byte[] archive = new ZipBuilder()
+            .stored("bin/sh", "intact content".getBytes(StandardCharsets.UTF_8))
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "")
+            .bytes();
+        int at = indexOf(archive, "intact".getBytes(StandardCharsets.UTF_8));
+        archive[at] = 'I';
+        try {
+            new BootstrapExtractor(ByteBuffer.wrap(archive), mTemp.newFolder("prefix"), 1,
+                new HostFileOps(), null).extract();
+            fail("Expected ZipException");
+        } catch (ZipException e) {
+            assertTrue(e.getMessage().contains("CRC"));
+        }
+    }
+
+    @Test
+    public void archiveWithoutCentralDirectoryIsExtractedSequentially() throws Exception {
+        byte[] archive = new ZipBuilder()
+            .file("bin/sh", "shell")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "sh←bin/bash\n")
+            .bytes();
+        // Cut the end of central directory record, as a zip64 archive would look to the fast path.
+        int end = lastIndexOf(archive, new byte[]{0x50, 0x4b, 0x05, 0x06});
+        archive[end] = 0;
+        File target = mTemp.newFolder("prefix");
+
+        assertEquals(1, new BootstrapExtractor(ByteBuffer.wrap(archive), target, 2, new HostFileOps(), null).extract());
+        assertEquals("shell", read(target, "bin/bash"));
+        assertTrue(new File(target, "bin/sh").canExecute());
+    }
+
+    private static String read(File dir, String name) throws IOException {
+        return new String(Files.readAllBytes(new File(dir, name).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("Not found");
+    }
+
+    private static int lastIndexOf(byte[] haystack, byte[] needle) {
+        for (int i = haystack.length - needle.length; i >= 0; i--) {
+            boolean match = true;
+            for (int j = 0; j < needle.length && match; j++) {
+                match = haystack[i + j] == needle[j];
+            }
+            if (match) {
+                return i;
+            }
+        }
+        throw new AssertionError("Not found");
+    }
+
+    /**
+     * Builds a zip in memory, deflated unless stored is asked for.
+     */
+    static final class ZipBuilder {
+        private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+        private final ZipOutputStream mZip = new ZipOutputStream(mBytes);
+
+        ZipBuilder directory(String name) throws IOException {
+            mZip.putNextEntry(new ZipEntry(name));
+            mZip.closeEntry();
+            return this;
+        }
+
+        ZipBuilder file(String name, String content) throws IOException {
+            return file(name, content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ZipBuilder file(String name, byte[] content) throws IOException {
+            mZip.putNextEntry(new ZipEntry(name));
+            mZip.write(content);
+            mZip.closeEntry();
+            return this;
+        }
+
+        ZipBuilder stored(String name, byte[] content) throws IOException {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setCrc(crc.getValue());
+            mZip.putNextEntry(entry);
+            mZip.write(content);
+            mZip.closeEntry();
+            return this;
+        }
+
+        byte[] bytes() throws IOException {
+            mZip.close();
+            return mBytes.toByteArray();
+        }
+
+        ByteBuffer buffer() throws IOException {
+            byte[] bytes = bytes();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * {@link BootstrapExtractor.FileOps} through java.nio.file on the host.
+     */
+    static final class HostFileOps implements BootstrapExtractor.FileOps {
+        @Override
+        public void chmod(String path, int mode) throws IOException {
+            Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+            PosixFilePermission[] bits = {
+                PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ,
+                PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+                PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ};
+            for (int i = 0; i < bits.length; i++) {
+                if ((mode & (1 << i)) != 0) {
+                    permissions.add(bits[i]);
+                }
+            }
+            Files.setPosixFilePermissions(Paths.get(path), permissions);
+        }
+
+        @Override
+        public void symlink(String target, String path) throws IOException {
+            Path link = Paths.get(path);
+            Files.createSymbolicLink(link, Paths.get(target));
+        }
+
+        @Override
+        public String readlink(String path) throws IOException {
+            Path link = Paths.get(path);
+            return Files.isSymbolicLink(link) ? Files.readSymbolicLink(link).toString() : null;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.termux.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BootstrapUpdaterTest {
+
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private final BootstrapExtractorTest.HostFileOps mFileOps = new BootstrapExtractorTest.HostFileOps();
+    private File mPrefix;
+    private File mStaging;
+
+    @Before
+    public void setUp() throws IOException {
+        mPrefix = new File(mTemp.getRoot(), "usr");
+        mStaging = new File(mTemp.getRoot(), "usr-staging");
+    }
+
+    @Test
+    public void unchangedBootstrapIsUpToDate() throws Exception {
+        install(version1());
+        write("etc/motd", "edited");
+
+        BootstrapUpdater.Result result = update(version1());
+
+        assertTrue(result.upToDate);
+        assertEquals("edited", read("etc/motd"));
+    }
+
+    @Test
+    public void onlyChangesAreAppliedAndOtherFilesSurvive() throws Exception {
+        install(version1());
+        write("lib/node_modules/openclaw/index.js", "npm installed");
+        write("etc/motd", "edited");
+        long untouched = new File(mPrefix, "lib/libz.so").lastModified();
+
+        BootstrapUpdater.Result result = update(version2());
+
+        assertFalse(result.upToDate);
+        assertEquals(2, result.filesReplaced);
+        assertEquals(1, result.symlinksReplaced);
+        assertEquals(2, result.removed);
+        assertEquals(0, result.kept);
+        assertEquals("#!/bin/sh v2\n", read("bin/tool"));
+        assertTrue(new File(mPrefix, "bin/tool").canExecute());
+        assertEquals("new", read("share/added"));
+        assertFalse(new File(mPrefix, "share/dropped").exists());
+        assertFalse(new File(mPrefix, "bin/other").exists());
+        assertEquals("tool", Files.readSymbolicLink(Paths.get(mPrefix.getPath(), "bin/alias")).toString());
+        assertEquals("edited", read("etc/motd"));
+        assertEquals("npm installed", read("lib/node_modules/openclaw/index.js"));
+        assertEquals(untouched, new File(mPrefix, "lib/libz.so").lastModified());
+        assertFalse(mStaging.exists());
+
+        assertTrue(update(version2()).upToDate);
+    }
+
+    @Test
+    public void locallyModifiedFilesAreKept() throws Exception {
+        install(version1());
+        write("bin/tool", "upgraded by apt");
+        write("share/dropped", "upgraded by apt");
+
+        BootstrapUpdater.Result result = update(version2());
+
+        assertEquals(1, result.kept);
+        assertEquals(1, result.removed);
+        assertEquals("upgraded by apt", read("bin/tool"));
+        assertEquals("upgraded by apt", read("share/dropped"));
+    }
+
+    @Test
+    public void prefixWithoutManifestOnlyGetsMissingFiles() throws Exception {
+        install(version1());
+        assertTrue(new File(mPrefix, BootstrapUpdater.MANIFEST_PATH).delete());
+
+        BootstrapUpdater.Result result = update(version2());
+
+        assertEquals(1, result.filesReplaced);
+        assertEquals(0, result.symlinksReplaced);
+        assertEquals(0, result.removed);
+        assertEquals(2, result.kept);
+        assertEquals("new", read("share/added"));
+        assertEquals("#!/bin/sh v1\n", read("bin/tool"));
+        assertEquals("other", Files.readSymbolicLink(Paths.get(mPrefix.getPath(), "bin/alias")).toString());
+        assertEquals("old", read("share/dropped"));
+        assertTrue(update(version2()).upToDate);
+    }
+
+    @Test
+    public void baselineOfPrefixWithoutManifestIsUpdatedLater() throws Exception {
+        install(version1());
+        assertTrue(new File(mPrefix, BootstrapUpdater.MANIFEST_PATH).delete());
+        update(version2());
+
+        BootstrapUpdater.Result result = update(new BootstrapExtractorTest.ZipBuilder()
+            .file("bin/tool", "#!/bin/sh v3\n")
+            .file("etc/motd", "Welcome\n")
+            .file("lib/libz.so", "zlib")
+            .file("share/added", "new")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "tool←bin/alias\n")
+            .buffer());
+
+        // Still as they were when the baseline was recorded, so no longer kept.
+        assertEquals(1, result.filesReplaced);
+        assertEquals(1, result.symlinksReplaced);
+        assertEquals("#!/bin/sh v3\n", read("bin/tool"));
+    }
+
+    @Test
+    public void packagesAreUpdatedWithUnchangedDpkgState() throws Exception {
+        install(dpkgVersion(1));
+
+        BootstrapUpdater.Result result = update(dpkgVersion(2));
+
+        assertEquals(4, result.filesReplaced);
+        assertEquals(0, result.kept);
+        assertEquals("tool 2\n", read("bin/tool"));
+        assertEquals("Package: tool\nVersion: 2\n", read(BootstrapUpdater.DPKG_STATUS));
+    }
+
+    @Test
+    public void packagesAreLeftAloneOnceDpkgStateChanged() throws Exception {
+        install(dpkgVersion(1));
+        // As apt leaves it after installing python, without touching the tool package.
+        String status = "Package: tool\nVersion: 1\n\nPackage: python\nVersion: 3.12\n";
+        write(BootstrapUpdater.DPKG_STATUS, status);
+        write("var/lib/dpkg/info/python.list", new File(mPrefix, "bin/python").getAbsolutePath() + "\n");
+        write("bin/python", "python");
+
+        BootstrapUpdater.Result result = update(dpkgVersion(2));
+
+        assertEquals(1, result.filesReplaced);
+        assertEquals("botdrop 2\n", read("etc/botdrop.conf"));
+        assertEquals("tool 1\n", read("bin/tool"));
+        assertEquals("tool 1\n", read("var/lib/dpkg/info/tool.md5sums"));
+        assertEquals(status, read(BootstrapUpdater.DPKG_STATUS));
+        assertEquals("python", read("bin/python"));
+        assertTrue(update(dpkgVersion(2)).upToDate);
+    }
+
+    @Test
+    public void prefixWithoutManifestKeepsChangedDpkgState() throws Exception {
+        install(dpkgVersion(1));
+        assertTrue(new File(mPrefix, BootstrapUpdater.MANIFEST_PATH).delete());
+        write(BootstrapUpdater.DPKG_STATUS, "Package: tool\nVersion: 1.1\n");
+        write("bin/tool", "tool 1.1\n");
+
+        update(dpkgVersion(2));
+        // Even though the status is not touched again, the next bootstrap must not take it as its own.
+        BootstrapUpdater.Result result = update(dpkgVersion(3));
+
+        assertEquals(1, result.filesReplaced);
+        assertEquals("botdrop 3\n", read("etc/botdrop.conf"));
+        assertEquals("tool 1.1\n", read("bin/tool"));
+        assertEquals("Package: tool\nVersion: 1.1\n", read(BootstrapUpdater.DPKG_STATUS));
+    }
+
+    @Test
+    public void interruptedUpdateIsFinishedOnNextRun() throws Exception {
+        install(version1());
+        File manifest = new File(mPrefix, BootstrapUpdater.MANIFEST_PATH);
+        byte[] oldManifest = Files.readAllBytes(manifest.toPath());
+        update(version2());
+        // As if the process died after moving files in but before committing the manifest.
+        Files.write(manifest.toPath(), oldManifest);
+        write("share/dropped", "old");
+
+        BootstrapUpdater.Result result = update(version2());
+
+        assertEquals(0, result.filesReplaced);
+        assertEquals(0, result.symlinksReplaced);
+        assertEquals(1, result.removed);
+        assertTrue(update(version2()).upToDate);
+    }
+
+    @Test
+    public void manifestRoundTrips() throws Exception {
+        BootstrapManifest manifest = new BootstrapExtractor(version2(), mStaging, 1, mFileOps, null).readManifest();
+        File file = mTemp.newFile("manifest");
+        manifest.write(file);
+
+        BootstrapManifest read = BootstrapManifest.read(file);
+
+        assertEquals(manifest.getId(), read.getId());
+        assertEquals(4, read.getFiles().size());
+        assertEquals("tool", read.getSymlinks().get("bin/alias"));
+        //noinspection OctalInteger
+        assertEquals(0700, read.getFiles().get("bin/tool").mode);
+    }
+
+    private static ByteBuffer version1() throws IOException {
+        return new BootstrapExtractorTest.ZipBuilder()
+            .file("bin/tool", "#!/bin/sh v1\n")
+            .file("bin/other", "#!/bin/sh\n")
+            .file("etc/motd", "Welcome\n")
+            .file("lib/libz.so", "zlib")
+            .file("share/dropped", "old")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "other←bin/alias\n")
+            .buffer();
+    }
+
+    /** Changes bin/tool, adds share/added, drops bin/other and share/dropped and retargets bin/alias. */
+    private static ByteBuffer version2() throws IOException {
+        return new BootstrapExtractorTest.ZipBuilder()
+            .file("bin/tool", "#!/bin/sh v2\n")
+            .file("etc/motd", "Welcome\n")
+            .file("lib/libz.so", "zlib")
+            .file("share/added", "new")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "tool←bin/alias\n")
+            .buffer();
+    }
+
+    /**
+     * A bootstrap with dpkg state: the tool package at the version, which owns bin/tool, and
+     * etc/botdrop.conf, which no package owns.
+     */
+    private ByteBuffer dpkgVersion(int version) throws IOException {
+        return new BootstrapExtractorTest.ZipBuilder()
+            .file("bin/tool", "tool " + version + "\n")
+            .file("etc/botdrop.conf", "botdrop " + version + "\n")
+            .file(BootstrapUpdater.DPKG_STATUS, "Package: tool\nVersion: " + version + "\n")
+            .file("var/lib/dpkg/info/tool.list", new File(mPrefix, "bin/tool").getAbsolutePath() + "\n")
+            .file("var/lib/dpkg/info/tool.md5sums", "tool " + version + "\n")
+            .file(BootstrapExtractor.SYMLINKS_ENTRY, "")
+            .buffer();
+    }
+
+    private void install(ByteBuffer archive) throws IOException {
+        new BootstrapExtractor(archive, mPrefix, 2, mFileOps, null).extract();
+        BootstrapUpdater.writeManifest(archive, mPrefix);
+    }
+
+    private BootstrapUpdater.Result update(ByteBuffer archive) throws IOException {
+        return new BootstrapUpdater(archive, mPrefix, mStaging, 2, mFileOps, null).update();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(mPrefix, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(mPrefix, path).toPath()), StandardCharsets.UTF_8);
+    }
+}
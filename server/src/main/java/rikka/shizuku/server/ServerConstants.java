@@ -9,4 +9,10 @@ public class ServerConstants {
     public static final String REQUEST_PERMISSION_ACTION = MANAGER_APPLICATION_ID + ".intent.action.REQUEST_PERMISSION";
 
     public static final int BINDER_TRANSACTION_getApplications = 10001;
+    /** Replies with a Bundle of {@code RELAY_STATS_*} counters for remote process pipes. */
+    public static final int BINDER_TRANSACTION_getRelayStats = 10002;
+
+    public static final String RELAY_STATS_LIVE = "live";
+    public static final String RELAY_STATS_STARTED = "started";
+    public static final String RELAY_STATS_BYTES = "bytes";
 }
@@ -55,6 +55,7 @@ import rikka.rish.RishConfig;
 import rikka.shizuku.ShizukuApiConstants;
 import rikka.shizuku.server.api.IContentProviderUtils;
 import rikka.shizuku.server.util.HandlerUtil;
+import rikka.shizuku.server.util.PipeRelay;
 import rikka.shizuku.server.util.UserHandleCompat;
 
 public class ShizukuService extends Service<ShizukuUserServiceManager, ShizukuClientManager, ShizukuConfigManager> {
@@ -466,6 +467,16 @@ public class ShizukuService extends Service<ShizukuUserServiceManager, ShizukuCl
             reply.writeNoException();
             result.writeToParcel(reply, android.os.Parcelable.PARCELABLE_WRITE_RETURN_VALUE);
             return true;
+        } else if (code == ServerConstants.BINDER_TRANSACTION_getRelayStats) {
+            data.enforceInterface(ShizukuApiConstants.BINDER_DESCRIPTOR);
+            PipeRelay relay = PipeRelay.getInstance();
+            Bundle stats = new Bundle();
+            stats.putInt(ServerConstants.RELAY_STATS_LIVE, relay.getLiveCount());
+            stats.putLong(ServerConstants.RELAY_STATS_STARTED, relay.getStartedCount());
+            stats.putLong(ServerConstants.RELAY_STATS_BYTES, relay.getBytesTransferred());
+            reply.writeNoException();
+            reply.writeBundle(stats);
+            return true;
         }
         return super.onTransact(code, data, reply, flags);
     }
@@ -7,6 +7,7 @@ final class ByteQueue {
     private int mHead;
     private int mStoredBytes;
     private boolean mOpen = true;
+    private boolean mWritable = true;
 
     public ByteQueue(int size) {
         mBuffer = new byte[size];
@@ -17,8 +18,14 @@ final class ByteQueue {
         notify();
     }
 
+    /** Stop accepting writes, while reads still return what is stored and then -1. */
+    public synchronized void closeForWriting() {
+        mWritable = false;
+        notify();
+    }
+
     public synchronized int read(byte[] buffer, boolean block) {
-        while (mStoredBytes == 0 && mOpen) {
+        while (mStoredBytes == 0 && mOpen && mWritable) {
             if (block) {
                 try {
                     wait();
@@ -29,7 +36,7 @@ final class ByteQueue {
                 return 0;
             }
         }
-        if (!mOpen) return -1;
+        if (!mOpen || mStoredBytes == 0) return -1;
 
         int totalRead = 0;
         int bufferLength = mBuffer.length;
@@ -54,7 +61,7 @@ final class ByteQueue {
     /**
      * Attempt to write the specified portion of the provided buffer to the queue.
      * <p/>
-     * Returns whether the output was totally written, false if it was closed before.
+     * Returns whether the output was totally written, false if it was closed before or closed for writing.
      */
     public boolean write(byte[] buffer, int offset, int lengthToWrite) {
         if (lengthToWrite + offset > buffer.length) {
@@ -67,14 +74,14 @@ final class ByteQueue {
 
         synchronized (this) {
             while (lengthToWrite > 0) {
-                while (bufferLength == mStoredBytes && mOpen) {
+                while (bufferLength == mStoredBytes && mOpen && mWritable) {
                     try {
                         wait();
                     } catch (InterruptedException e) {
                         // Ignore.
                     }
                 }
-                if (!mOpen) return false;
+                if (!mOpen || !mWritable) return false;
                 final boolean wasEmpty = mStoredBytes == 0;
                 int bytesToWriteBeforeWaiting = Math.min(lengthToWrite, bufferLength - mStoredBytes);
                 lengthToWrite -= bytesToWriteBeforeWaiting;
@@ -498,8 +498,53 @@ public final class TerminalEmulator {
      * @param length the number of bytes in the array to process
      */
     public void append(byte[] buffer, int length) {
-        for (int i = 0; i < length; i++)
-            processByte(buffer[i]);
+        int i = 0;
+        while (i < length) {
+            if (canAppendPrintableRun()) {
+                // Printable ASCII is the bulk of log output, so write whole runs of it at once
+                // instead of taking every byte through the decoder and escape state machine.
+                int runEnd = i;
+                while (runEnd < length && buffer[runEnd] >= 0x20 && buffer[runEnd] < 0x7F)
+                    runEnd++;
+                if (runEnd > i) {
+                    appendPrintableRun(buffer, i, runEnd);
+                    i = runEnd;
+                    continue;
+                }
+            }
+            processByte(buffer[i++]);
+        }
+    }
+
+    /** If printable ASCII would go straight to {@link #emitCodePoint(int)} unchanged, one column each. */
+    private boolean canAppendPrintableRun() {
+        return mUtf8ToFollow == 0 && mEscapeState == ESC_NONE && !mInsertMode
+            && !(mUseLineDrawingUsesG0 ? mUseLineDrawingG0 : mUseLineDrawingG1);
+    }
+
+    /**
+     * Write the printable ASCII in {@code buffer[start, end)} as {@link #emitCodePoint(int)} would
+     * one byte at a time. Everything up to the last column of a line is written as one span; the
+     * last column, where auto-wrap happens, still goes through {@link #emitCodePoint(int)}.
+     */
+    private void appendPrintableRun(byte[] buffer, int start, int end) {
+        mContinueSequence = false;
+        final long style = getStyle();
+        final boolean autoWrap = isDecsetInternalBitSet(DECSET_BIT_AUTOWRAP);
+        while (start < end) {
+            int columnsBeforeLast = mRightMargin - 1 - mCursorCol;
+            if (columnsBeforeLast <= 0 || mCursorCol < 0) {
+                // In the last column, or outside the margins.
+                emitCodePoint(buffer[start++]);
+                continue;
+            }
+            int count = Math.min(columnsBeforeLast, end - start);
+            mScreen.setAsciiChars(mCursorCol, mCursorRow, buffer, start, count, style);
+            start += count;
+            mCursorCol += count;
+            if (autoWrap) mAboutToAutoWrap = false;
+            mLastEmittedCodePoint = buffer[start - 1];
+        }
     }
 
     private void processByte(byte byteToProcess) {
@@ -49,6 +49,8 @@ public final class TerminalRow {
     final long[] mStyle;
     /** If this row might contain chars with width != 1, used for deactivating fast path */
     boolean mHasNonOneWidthOrSurrogateChars;
+    /** Incremented whenever the text or style of a cell changes. See {@link #getGeneration()}. */
+    int mGeneration;
 
     /** Construct a blank row (containing only whitespace, ' ') with a specified style. */
     public TerminalRow(int columns, long style) {
@@ -88,6 +90,14 @@ public final class TerminalRow {
         return mSpaceUsed;
     }
 
+    /**
+     * A counter that changes whenever the content of this row changes, so that a renderer can
+     * tell if a cached render of the row object is still valid, also after it has been scrolled.
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
     /** Note that the column may end of second half of wide character. */
     public int findStartOfColumn(int column) {
         if (column == mColumns) return getSpaceUsed();
@@ -142,6 +152,7 @@ public final class TerminalRow {
     }
 
     public void clear(long style) {
+        mGeneration++;
         Arrays.fill(mText, ' ');
         Arrays.fill(mStyle, style);
         mSpaceUsed = (short) mColumns;
@@ -153,6 +164,7 @@ public final class TerminalRow {
         if (columnToSet  < 0 || columnToSet >= mStyle.length)
             throw new IllegalArgumentException("TerminalRow.setChar(): columnToSet=" + columnToSet + ", codePoint=" + codePoint + ", style=" + style);
 
+        mGeneration++;
         mStyle[columnToSet] = style;
 
         final int newCodePointDisplayWidth = WcWidth.width(codePoint);
@@ -270,6 +282,24 @@ public final class TerminalRow {
         }
     }
 
+    /**
+     * Same as calling {@link #setChar(int, int, long)} for each of {@code count} printable ASCII
+     * bytes in {@code src}, but as a plain copy while the row only holds single width chars.
+     */
+    void setAsciiChars(int column, byte[] src, int offset, int count, long style) {
+        if (mHasNonOneWidthOrSurrogateChars) {
+            for (int i = 0; i < count; i++)
+                setChar(column + i, src[offset + i], style);
+            return;
+        }
+
+        mGeneration++;
+        final char[] text = mText;
+        for (int i = 0; i < count; i++)
+            text[column + i] = (char) src[offset + i];
+        Arrays.fill(mStyle, column, column + count, style);
+    }
+
     boolean isBlank() {
         for (int charIndex = 0, charLen = getSpaceUsed(); charIndex < charLen; charIndex++)
             if (mText[charIndex] != ' ') return false;
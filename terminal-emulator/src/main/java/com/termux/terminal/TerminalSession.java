@@ -3,6 +3,7 @@ package com.termux.terminal;
 import android.annotation.SuppressLint;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.system.ErrnoException;
 import android.system.Os;
 import android.system.OsConstants;
@@ -16,13 +17,18 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A terminal session, consisting of a process coupled to a terminal interface.
  * <p>
  * The subprocess will be executed by the constructor, and when the size is made known by a call to
  * {@link #updateSize(int, int, int, int)} terminal emulation will begin and threads will be spawned to handle the subprocess I/O.
- * All terminal emulation and callback methods will be performed on the main thread.
+ * All terminal emulation and callback methods will be performed on the main thread, unless
+ * {@link #setEmulatorWorkerEnabled(boolean)} moves the emulation to a worker thread.
+ * <p>
+ * The {@link TerminalEmulator} is its own lock: code outside the emulator thread that reads or changes its
+ * {@link TerminalBuffer}, like {@link TerminalEmulator#getScreen()} users and renderers, must hold it.
  * <p>
  * The child process may be exited forcefully by using the {@link #finishIfRunning()} method.
  * <p>
@@ -31,6 +37,7 @@ import java.util.UUID;
 public final class TerminalSession extends TerminalOutput {
 
     private static final int MSG_NEW_INPUT = 1;
+    private static final int MSG_SCREEN_UPDATED = 2;
     private static final int MSG_PROCESS_EXITED = 4;
 
     public final String mHandle = UUID.randomUUID().toString();
@@ -76,6 +83,19 @@ public final class TerminalSession extends TerminalOutput {
     private final String[] mEnv;
     private final Integer mTranscriptRows;
 
+    /** Minimum time between screen update notifications from the emulator worker, one 60 Hz frame. */
+    static final long SCREEN_UPDATE_INTERVAL_MS = 16;
+    /** How long the exit message waits for the output of a process that exited while something keeps its pty open. */
+    static final long OUTPUT_DRAIN_TIMEOUT_MS = 1000;
+
+    /** If the process output should be processed on {@link #mEmulatorWorker} instead of the main thread. */
+    private boolean mEmulatorWorkerEnabled;
+    /** The thread appending process output to {@link #mEmulator} if {@link #mEmulatorWorkerEnabled}. */
+    private Thread mEmulatorWorker;
+    /** If a {@link #MSG_SCREEN_UPDATED} is pending, so that the worker posts at most one per frame. */
+    private final AtomicBoolean mScreenUpdatePending = new AtomicBoolean();
+    /** The {@link SystemClock#uptimeMillis()} of the last {@link #MSG_SCREEN_UPDATED}. */
+    private volatile long mLastScreenUpdateTime;
 
     private static final String LOG_TAG = "TerminalSession";
 
@@ -99,13 +119,30 @@ public final class TerminalSession extends TerminalOutput {
             mEmulator.updateTerminalSessionClient(client);
     }
 
+    /**
+     * Process the output of the shell on a worker thread instead of the main thread, so that heavy output
+     * does not block the UI. Screen updates are then coalesced to at most one per {@link #SCREEN_UPDATE_INTERVAL_MS}.
+     * Must be called before the emulator is initialized.
+     */
+    public void setEmulatorWorkerEnabled(boolean enabled) {
+        if (mEmulator != null)
+            throw new IllegalStateException("Emulator already initialized");
+        mEmulatorWorkerEnabled = enabled;
+    }
+
+    public boolean isEmulatorWorkerEnabled() {
+        return mEmulatorWorkerEnabled;
+    }
+
     /** Inform the attached pty of the new size and reflow or initialize the emulator. */
     public void updateSize(int columns, int rows, int cellWidthPixels, int cellHeightPixels) {
         if (mEmulator == null) {
             initializeEmulator(columns, rows, cellWidthPixels, cellHeightPixels);
         } else {
             JNI.setPtyWindowSize(mTerminalFileDescriptor, rows, columns, cellWidthPixels, cellHeightPixels);
-            mEmulator.resize(columns, rows, cellWidthPixels, cellHeightPixels);
+            synchronized (mEmulator) {
+                mEmulator.resize(columns, rows, cellWidthPixels, cellHeightPixels);
+            }
         }
     }
 
@@ -130,7 +167,7 @@ public final class TerminalSession extends TerminalOutput {
 
         final FileDescriptor terminalFileDescriptorWrapped = wrapFileDescriptor(mTerminalFileDescriptor, mClient);
 
-        new Thread("TermSessionInputReader[pid=" + mShellPid + "]") {
+        final Thread inputReader = new Thread("TermSessionInputReader[pid=" + mShellPid + "]") {
             @Override
             public void run() {
                 try (InputStream termIn = new FileInputStream(terminalFileDescriptorWrapped)) {
@@ -139,13 +176,16 @@ public final class TerminalSession extends TerminalOutput {
                         int read = termIn.read(buffer);
                         if (read == -1) return;
                         if (!mProcessToTerminalIOQueue.write(buffer, 0, read)) return;
-                        mMainThreadHandler.sendEmptyMessage(MSG_NEW_INPUT);
+                        if (!mEmulatorWorkerEnabled) mMainThreadHandler.sendEmptyMessage(MSG_NEW_INPUT);
                     }
                 } catch (Exception e) {
                     // Ignore, just shutting down.
                 }
             }
-        }.start();
+        };
+        inputReader.start();
+
+        if (mEmulatorWorkerEnabled) startEmulatorWorker();
 
         new Thread("TermSessionOutputWriter[pid=" + mShellPid + "]") {
             @Override
@@ -167,6 +207,13 @@ public final class TerminalSession extends TerminalOutput {
             @Override
             public void run() {
                 int processExitCode = JNI.waitFor(mShellPid);
+                if (mEmulatorWorkerEnabled) {
+                    try {
+                        drainOutput(inputReader);
+                    } catch (InterruptedException e) {
+                        // Ignore.
+                    }
+                }
                 mMainThreadHandler.sendMessage(mMainThreadHandler.obtainMessage(MSG_PROCESS_EXITED, processExitCode));
             }
         }.start();
@@ -225,9 +272,61 @@ public final class TerminalSession extends TerminalOutput {
         mClient.onTextChanged(this);
     }
 
+    /**
+     * Start {@link #mEmulatorWorker}, which appends process output to the emulator until
+     * {@link #mProcessToTerminalIOQueue} is closed or drained after {@link ByteQueue#closeForWriting()},
+     * and requests a screen update after each read.
+     */
+    void startEmulatorWorker() {
+        mEmulatorWorker = new Thread("TermSessionEmulator[pid=" + mShellPid + "]") {
+            @Override
+            public void run() {
+                final byte[] buffer = new byte[4096];
+                while (true) {
+                    int bytesRead = mProcessToTerminalIOQueue.read(buffer, true);
+                    if (bytesRead == -1) return;
+                    synchronized (mEmulator) {
+                        mEmulator.append(buffer, bytesRead);
+                    }
+                    requestScreenUpdate();
+                }
+            }
+        };
+        mEmulatorWorker.start();
+    }
+
+    /**
+     * Wait until {@link #mEmulatorWorker} has appended the output the process wrote before exiting, so that
+     * {@link #MSG_PROCESS_EXITED} neither drops it nor gets its message in before it. The input reader ends once
+     * the pty is closed, or is cut off after {@link #OUTPUT_DRAIN_TIMEOUT_MS} if a background process keeps it open.
+     */
+    void drainOutput(Thread inputReader) throws InterruptedException {
+        inputReader.join(OUTPUT_DRAIN_TIMEOUT_MS);
+        mProcessToTerminalIOQueue.closeForWriting();
+        mEmulatorWorker.join();
+    }
+
+    /** Post a {@link #MSG_SCREEN_UPDATED} unless one is pending, no sooner than one frame after the last one. */
+    private void requestScreenUpdate() {
+        if (!mScreenUpdatePending.compareAndSet(false, true)) return;
+        long delay = mLastScreenUpdateTime + SCREEN_UPDATE_INTERVAL_MS - SystemClock.uptimeMillis();
+        mMainThreadHandler.sendEmptyMessageDelayed(MSG_SCREEN_UPDATED, Math.max(0, delay));
+    }
+
+    /** Run the client callback on the main thread if called from {@link #mEmulatorWorker}. */
+    private void runOnMainThread(Runnable callback) {
+        if (Thread.currentThread() == mEmulatorWorker) {
+            mMainThreadHandler.post(callback);
+        } else {
+            callback.run();
+        }
+    }
+
     /** Reset state for terminal emulator state. */
     public void reset() {
-        mEmulator.reset();
+        synchronized (mEmulator) {
+            mEmulator.reset();
+        }
         notifyScreenUpdate();
     }
 
@@ -257,7 +356,7 @@ public final class TerminalSession extends TerminalOutput {
 
     @Override
     public void titleChanged(String oldTitle, String newTitle) {
-        mClient.onTitleChanged(this);
+        runOnMainThread(() -> mClient.onTitleChanged(this));
     }
 
     public synchronized boolean isRunning() {
@@ -271,22 +370,22 @@ public final class TerminalSession extends TerminalOutput {
 
     @Override
     public void onCopyTextToClipboard(String text) {
-        mClient.onCopyTextToClipboard(this, text);
+        runOnMainThread(() -> mClient.onCopyTextToClipboard(this, text));
     }
 
     @Override
     public void onPasteTextFromClipboard() {
-        mClient.onPasteTextFromClipboard(this);
+        runOnMainThread(() -> mClient.onPasteTextFromClipboard(this));
     }
 
     @Override
     public void onBell() {
-        mClient.onBell(this);
+        runOnMainThread(() -> mClient.onBell(this));
     }
 
     @Override
     public void onColorsChanged() {
-        mClient.onColorsChanged(this);
+        runOnMainThread(() -> mClient.onColorsChanged(this));
     }
 
     public int getPid() {
@@ -340,9 +439,20 @@ public final class TerminalSession extends TerminalOutput {
 
         @Override
         public void handleMessage(Message msg) {
-            int bytesRead = mProcessToTerminalIOQueue.read(mReceiveBuffer, false);
+            if (msg.what == MSG_SCREEN_UPDATED) {
+                // Cleared first so that output appended while the client redraws requests another update.
+                mScreenUpdatePending.set(false);
+                mLastScreenUpdateTime = SystemClock.uptimeMillis();
+                notifyScreenUpdate();
+                return;
+            }
+
+            // With the worker, the queue has a single reader on that thread.
+            int bytesRead = mEmulatorWorkerEnabled ? 0 : mProcessToTerminalIOQueue.read(mReceiveBuffer, false);
             if (bytesRead > 0) {
-                mEmulator.append(mReceiveBuffer, bytesRead);
+                synchronized (mEmulator) {
+                    mEmulator.append(mReceiveBuffer, bytesRead);
+                }
                 notifyScreenUpdate();
             }
 
@@ -361,7 +471,9 @@ public final class TerminalSession extends TerminalOutput {
                 exitDescription += " - press Enter]";
 
                 byte[] bytesToWrite = exitDescription.getBytes(StandardCharsets.UTF_8);
-                mEmulator.append(bytesToWrite, bytesToWrite.length);
+                synchronized (mEmulator) {
+                    mEmulator.append(bytesToWrite, bytesToWrite.length);
+                }
                 notifyScreenUpdate();
 
                 mClient.onSessionFinished(TerminalSession.this);
@@ -1,5 +1,7 @@
 package com.termux.terminal;
 
+import java.util.Arrays;
+
 /**
  * Implementation of wcwidth(3) for Unicode 15.
  *
@@ -490,6 +492,81 @@ public final class WcWidth {
     };
 
 
+    /** The number of low bits of a code point indexing into its block of {@link #BLOCK_WIDTHS}. */
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    /** Code points from here on are only in the interval tables, not special cased in {@link #widthFromTables(int)}. */
+    private static final int FIRST_TABLE_ONLY_CODE_POINT = 0x2100;
+
+    /** For each block of {@link #BLOCK_SIZE} code points, the index of its widths in {@link #BLOCK_WIDTHS}. */
+    private static final char[] BLOCK_INDEX;
+    /** The widths of the blocks, which most code points share, like all width 1 or all CJK. */
+    private static final byte[] BLOCK_WIDTHS;
+
+    static {
+        // Two stage lookup table built from the interval tables above, so that width() is two array loads.
+        final int blockCount = (Character.MAX_CODE_POINT + 1) >> BLOCK_SHIFT;
+        final char[] blockIndex = new char[blockCount];
+        byte[] blockWidths = new byte[128 * BLOCK_SIZE];
+        // The first two blocks are shared by the blocks in no interval and by the ones in the CJK planes.
+        Arrays.fill(blockWidths, 0, BLOCK_SIZE, (byte) 1);
+        Arrays.fill(blockWidths, BLOCK_SIZE, 2 * BLOCK_SIZE, (byte) 2);
+        int blocksUsed = 2;
+        byte[] previousWidths = null;
+        int zero = 0;
+        int wide = 0;
+        for (int block = 0; block < blockCount; block++) {
+            final int first = block << BLOCK_SHIFT;
+            final int last = first + BLOCK_MASK;
+            final byte[] widths = new byte[BLOCK_SIZE];
+            if (first < FIRST_TABLE_ONLY_CODE_POINT) {
+                for (int i = 0; i < BLOCK_SIZE; i++) widths[i] = (byte) widthFromTables(first + i);
+            } else {
+                while (zero < ZERO_WIDTH.length && ZERO_WIDTH[zero][1] < first) zero++;
+                while (wide < WIDE_EASTASIAN.length && WIDE_EASTASIAN[wide][1] < first) wide++;
+                final int nextZero = zero < ZERO_WIDTH.length ? ZERO_WIDTH[zero][0] : Character.MAX_CODE_POINT + 1;
+                final int nextWide = wide < WIDE_EASTASIAN.length ? WIDE_EASTASIAN[wide][0] : Character.MAX_CODE_POINT + 1;
+                if (nextZero > last && nextWide > last) {
+                    // Up to the next interval the blocks are all width 1, which blockIndex already points at.
+                    block = (Math.min(nextZero, nextWide) >> BLOCK_SHIFT) - 1;
+                    previousWidths = null;
+                    continue;
+                } else if (nextZero > last && nextWide <= first && WIDE_EASTASIAN[wide][1] >= last) {
+                    blockIndex[block] = 1;
+                    previousWidths = null;
+                    continue;
+                }
+                // Zero width last, as it is checked first in widthFromTables().
+                Arrays.fill(widths, (byte) 1);
+                for (int i = wide; i < WIDE_EASTASIAN.length && WIDE_EASTASIAN[i][0] <= last; i++)
+                    fill(widths, first, WIDE_EASTASIAN[i], 2);
+                for (int i = zero; i < ZERO_WIDTH.length && ZERO_WIDTH[i][0] <= last; i++)
+                    fill(widths, first, ZERO_WIDTH[i], 0);
+            }
+
+            // Only runs of equal blocks are shared, as hashing every block makes class initialization much slower.
+            if (Arrays.equals(widths, previousWidths)) {
+                blockIndex[block] = blockIndex[block - 1];
+            } else {
+                if ((blocksUsed + 1) * BLOCK_SIZE > blockWidths.length)
+                    blockWidths = Arrays.copyOf(blockWidths, blockWidths.length * 2);
+                System.arraycopy(widths, 0, blockWidths, blocksUsed * BLOCK_SIZE, BLOCK_SIZE);
+                blockIndex[block] = (char) blocksUsed++;
+            }
+            previousWidths = widths;
+        }
+        BLOCK_INDEX = blockIndex;
+        BLOCK_WIDTHS = Arrays.copyOf(blockWidths, blocksUsed * BLOCK_SIZE);
+    }
+
+    /** Set the widths of the code points of the block starting at {@code first} that are in the interval. */
+    private static void fill(byte[] widths, int first, int[] interval, int width) {
+        int from = Math.max(interval[0], first) - first;
+        int to = Math.min(interval[1], first + BLOCK_MASK) - first + 1;
+        Arrays.fill(widths, from, to, (byte) width);
+    }
+
     private static boolean intable(int[][] table, int c) {
         // First quick check f|| Latin1 etc. characters.
         if (c < table[0][0]) return false;
@@ -512,6 +589,12 @@ public final class WcWidth {
 
     /** Return the terminal display width of a code point: 0, 1 || 2. */
     public static int width(int ucs) {
+        if (ucs < 0 || ucs > Character.MAX_CODE_POINT) return ucs < 0 ? 0 : 1;
+        return BLOCK_WIDTHS[(BLOCK_INDEX[ucs >> BLOCK_SHIFT] << BLOCK_SHIFT) | (ucs & BLOCK_MASK)];
+    }
+
+    /** The width from searching the interval tables, which the lookup table of {@link #width(int)} is built from. */
+    static int widthFromTables(int ucs) {
         if (ucs == 0 ||
             ucs == 0x034F ||
             (0x200B <= ucs && ucs <= 0x200F) ||
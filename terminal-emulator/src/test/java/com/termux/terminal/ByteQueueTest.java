@@ -46,6 +46,20 @@ public class ByteQueueTest extends TestCase {
 		assertFalse(q.write(new byte[]{1, 2, 3}, 0, 3));
 	}
 
+	public void testReadDrainsAfterClosedForWriting() throws Exception {
+		ByteQueue q = new ByteQueue(10);
+		assertTrue(q.write(new byte[]{1, 2, 3}, 0, 3));
+		q.closeForWriting();
+		assertFalse(q.write(new byte[]{4}, 0, 1));
+
+		byte[] arr = new byte[2];
+		assertEquals(2, q.read(arr, true));
+		assertEquals(1, q.read(arr, true));
+		assertEquals(3, arr[0]);
+		assertEquals(-1, q.read(arr, true));
+		assertEquals(-1, q.read(arr, false));
+	}
+
 	public void testReadNonBlocking() throws Exception {
 		ByteQueue q = new ByteQueue(10);
 		assertEquals(0, q.read(new byte[128], false));
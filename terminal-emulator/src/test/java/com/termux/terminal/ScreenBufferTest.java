@@ -24,6 +24,34 @@ public class ScreenBufferTest extends TerminalTestCase {
 		assertEquals("XX\nXYY\n YY", screen.getTranscriptText());
 	}
 
+	public void testRowGenerations() {
+		withTerminalSized(5, 3).enterString("ab\r\ncd\r\nef");
+		TerminalBuffer screen = mTerminal.getScreen();
+		TerminalRow[] rows = new TerminalRow[3];
+		int[] generations = new int[3];
+		for (int row = 0; row < 3; row++) {
+			rows[row] = screen.allocateFullLineIfNecessary(screen.externalToInternalRow(row));
+			generations[row] = rows[row].getGeneration();
+		}
+
+		enterString("\033[2;4Hx");
+		assertEquals(generations[0], rows[0].getGeneration());
+		assertTrue(generations[1] != rows[1].getGeneration());
+		assertEquals(generations[2], rows[2].getGeneration());
+		generations[1] = rows[1].getGeneration();
+
+		// Scrolling moves the row objects up without changing them.
+		enterString("\033[3;1H\n");
+		assertSame(rows[1], screen.allocateFullLineIfNecessary(screen.externalToInternalRow(0)));
+		assertSame(rows[2], screen.allocateFullLineIfNecessary(screen.externalToInternalRow(1)));
+		assertEquals(generations[1], rows[1].getGeneration());
+		assertEquals(generations[2], rows[2].getGeneration());
+
+		// DECCARA changes only styles.
+		enterString("\033[1;1;1;5;4$r");
+		assertTrue(generations[1] != rows[1].getGeneration());
+	}
+
 	public void testGetSelectedText() {
 		withTerminalSized(5, 3).enterString("ABCDEFGHIJ").assertLinesAre("ABCDE", "FGHIJ", "     ");
 		assertEquals("AB", mTerminal.getSelectedText(0, 0, 1, 0));
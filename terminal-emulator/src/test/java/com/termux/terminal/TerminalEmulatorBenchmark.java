@@ -0,0 +1,82 @@
+package com.termux.terminal;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Throughput of {@link TerminalEmulator#append(byte[], int)} replaying {@code cat largefile}
+ * output in the 4 KiB reads {@link TerminalSession} does: plain ASCII logs, logs with SGR colors
+ * (npm, the gateway), and mostly non-ASCII text.
+ *
+ * Run with: ./gradlew :terminal-emulator:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*TerminalEmulatorBenchmark'
+ */
+public class TerminalEmulatorBenchmark {
+
+    private static final int INPUT_BYTES = 16 * 1024 * 1024;
+    private static final int READ_SIZE = 4096;
+
+    @Test
+    public void catReplayThroughput() {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        byte[] ascii = build(false, false);
+        byte[] colored = build(true, false);
+        byte[] unicode = build(false, true);
+        for (int round = 0; round < 2; round++) {
+            run("ascii log", ascii);
+            run("colored log", colored);
+            run("utf-8 text", unicode);
+        }
+    }
+
+    private static void run(String label, byte[] input) {
+        long best = Long.MAX_VALUE;
+        for (int iteration = 0; iteration < 5; iteration++) {
+            TerminalEmulator emulator = new TerminalEmulator(new TerminalTestCase.MockTerminalOutput(), 80, 24,
+                TerminalTestCase.INITIAL_CELL_WIDTH_PIXELS, TerminalTestCase.INITIAL_CELL_HEIGHT_PIXELS,
+                TerminalEmulator.DEFAULT_TERMINAL_TRANSCRIPT_ROWS, null);
+            byte[] read = new byte[READ_SIZE];
+            long start = System.nanoTime();
+            for (int offset = 0; offset < input.length; offset += READ_SIZE) {
+                int length = Math.min(READ_SIZE, input.length - offset);
+                System.arraycopy(input, offset, read, 0, length);
+                emulator.append(read, length);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(String.format(Locale.ROOT, "%-12s %8.1f MB/s", label,
+            input.length / (1024.0 * 1024.0) / (best / 1e9)));
+    }
+
+    private static byte[] build(boolean colored, boolean unicode) {
+        String[] levels = {"info", "warn", "debug", "error"};
+        String[] colors = {"32", "33", "90", "31"};
+        String[] words = unicode
+            ? new String[]{"网关", "请求", "已处理", "模型", "Größe", "naïve", "ответ", "処理済み", "→", "✓"}
+            : new String[]{"gateway", "request", "handled", "model", "path=/v1/chat", "status=200", "npm", "http", "GET"};
+        Random random = new Random(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INPUT_BYTES + 256);
+        StringBuilder line = new StringBuilder(160);
+        for (int n = 0; out.size() < INPUT_BYTES; n++) {
+            line.setLength(0);
+            int level = random.nextInt(levels.length);
+            line.append(String.format(Locale.ROOT, "2026-01-05T12:%02d:%02d.%03dZ ", n / 60000 % 60, n / 1000 % 60, n % 1000));
+            if (colored) line.append("\033[").append(colors[level]).append('m');
+            line.append(levels[level]);
+            if (colored) line.append("\033[39m");
+            // Long enough that some lines wrap.
+            for (int w = 3 + random.nextInt(16); w > 0; w--)
+                line.append(' ').append(words[random.nextInt(words.length)]);
+            line.append("\r\n");
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package com.termux.terminal;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * UI frame time while 100 MB of colored log output is cat'ed to a {@link TerminalSession}, with the output appended
+ * on the main thread as {@code MSG_NEW_INPUT} does and on the emulator worker. The test thread plays the main
+ * thread: it draws a frame every 16 ms by reading every visible cell under the emulator lock, the way
+ * {@code TerminalRenderer.render} does, and in inline mode appends 4 KiB reads in between.
+ * A frame's time is from its vsync deadline until it is drawn.
+ *
+ * Run with: ./gradlew :terminal-emulator:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*TerminalSessionBenchmark'
+ */
+public class TerminalSessionBenchmark {
+
+    private static final int INPUT_BYTES = 100 * 1024 * 1024;
+    private static final int READ_SIZE = 4096;
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    @Test
+    public void frameTimeWhileCatting() throws InterruptedException {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        byte[] input = build();
+        for (int round = 0; round < 2; round++) {
+            run("main thread", input, false);
+            run("worker", input, true);
+        }
+    }
+
+    private static void run(String label, byte[] input, boolean worker) throws InterruptedException {
+        TerminalSessionClient client = (TerminalSessionClient) Proxy.newProxyInstance(TerminalSessionClient.class.getClassLoader(),
+            new Class<?>[]{TerminalSessionClient.class}, (proxy, method, args) -> null);
+        TerminalSession session = new TerminalSession("/bin/sh", "/", new String[0], new String[0], null, client);
+        session.setEmulatorWorkerEnabled(worker);
+        session.mEmulator = new TerminalEmulator(session, 120, 40,
+            TerminalTestCase.INITIAL_CELL_WIDTH_PIXELS, TerminalTestCase.INITIAL_CELL_HEIGHT_PIXELS,
+            TerminalEmulator.DEFAULT_TERMINAL_TRANSCRIPT_ROWS, client);
+        if (worker) session.startEmulatorWorker();
+
+        // Plays TermSessionInputReader.
+        Thread reader = new Thread(() -> {
+            for (int offset = 0; offset < input.length; offset += READ_SIZE)
+                if (!session.mProcessToTerminalIOQueue.write(input, offset, Math.min(READ_SIZE, input.length - offset))) return;
+        });
+
+        long[] frames = new long[60 * 120];
+        int frameCount = 0;
+        long busyNanos = 0;
+        long checksum = 0;
+        byte[] receiveBuffer = new byte[READ_SIZE];
+        long start = System.nanoTime();
+        long nextFrame = start + FRAME_NANOS;
+        reader.start();
+        while (reader.isAlive() && frameCount < frames.length) {
+            long now = System.nanoTime();
+            if (now < nextFrame) {
+                int bytesRead = worker ? 0 : session.mProcessToTerminalIOQueue.read(receiveBuffer, false);
+                if (bytesRead > 0) {
+                    synchronized (session.mEmulator) {
+                        session.mEmulator.append(receiveBuffer, bytesRead);
+                    }
+                    busyNanos += System.nanoTime() - now;
+                } else {
+                    Thread.sleep(0, 100_000);
+                }
+                continue;
+            }
+            synchronized (session.mEmulator) {
+                checksum += draw(session.mEmulator);
+            }
+            long drawn = System.nanoTime();
+            busyNanos += drawn - now;
+            frames[frameCount++] = drawn - nextFrame;
+            nextFrame = Math.max(nextFrame + FRAME_NANOS, drawn);
+        }
+        long elapsed = System.nanoTime() - start;
+        reader.join();
+        session.mProcessToTerminalIOQueue.close();
+
+        Arrays.sort(frames, 0, frameCount);
+        System.out.println(String.format(Locale.ROOT,
+            "%-12s %6.0f MB/s %5d frames, frame ms p50 %6.2f p99 %6.2f max %6.2f, main thread busy %3.0f%% (%d)",
+            label, input.length / (1024.0 * 1024.0) / (elapsed / 1e9), frameCount,
+            frames[frameCount / 2] / 1e6, frames[frameCount * 99 / 100] / 1e6, frames[frameCount - 1] / 1e6,
+            100.0 * busyNanos / elapsed, checksum & 0xF));
+    }
+
+    /** Read every visible cell, as TerminalRenderer.render does. */
+    private static long draw(TerminalEmulator emulator) {
+        TerminalBuffer screen = emulator.getScreen();
+        long sum = emulator.getCursorCol() + emulator.getCursorRow();
+        for (int row = 0; row < emulator.mRows; row++) {
+            TerminalRow line = screen.allocateFullLineIfNecessary(screen.externalToInternalRow(row));
+            char[] text = line.mText;
+            int charsUsed = line.getSpaceUsed();
+            for (int column = 0, index = 0; column < emulator.mColumns; column++) {
+                sum += line.getStyle(column);
+                if (index < charsUsed) sum += text[index++];
+            }
+        }
+        return sum;
+    }
+
+    private static byte[] build() {
+        String[] levels = {"info", "warn", "debug", "error"};
+        String[] colors = {"32", "33", "90", "31"};
+        String[] words = {"gateway", "request", "handled", "model", "path=/v1/chat", "status=200", "npm", "http", "GET"};
+        Random random = new Random(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INPUT_BYTES + 256);
+        StringBuilder line = new StringBuilder(160);
+        for (int n = 0; out.size() < INPUT_BYTES; n++) {
+            line.setLength(0);
+            int level = random.nextInt(levels.length);
+            line.append(String.format(Locale.ROOT, "2026-01-05T12:%02d:%02d.%03dZ ", n / 60000 % 60, n / 1000 % 60, n % 1000));
+            line.append("\033[").append(colors[level]).append('m').append(levels[level]).append("\033[39m");
+            for (int w = 3 + random.nextInt(16); w > 0; w--)
+                line.append(' ').append(words[random.nextInt(words.length)]);
+            line.append("\r\n");
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+}
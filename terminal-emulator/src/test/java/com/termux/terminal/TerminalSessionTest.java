@@ -0,0 +1,67 @@
+package com.termux.terminal;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+public class TerminalSessionTest extends TestCase {
+
+	private static TerminalSession newWorkerSession() {
+		TerminalSessionClient client = (TerminalSessionClient) Proxy.newProxyInstance(TerminalSessionClient.class.getClassLoader(),
+			new Class<?>[]{TerminalSessionClient.class}, (proxy, method, args) -> null);
+		TerminalSession session = new TerminalSession("/bin/sh", "/", new String[0], new String[0], 2000, client);
+		session.setEmulatorWorkerEnabled(true);
+		session.mEmulator = new TerminalEmulator(session, 80, 24,
+			TerminalTestCase.INITIAL_CELL_WIDTH_PIXELS, TerminalTestCase.INITIAL_CELL_HEIGHT_PIXELS, 2000, client);
+		return session;
+	}
+
+	/** Plays TermSessionInputReader, which ends once the pty is closed. */
+	private static Thread startReader(TerminalSession session, int lines, CountDownLatch ptyClosed) {
+		Thread reader = new Thread(() -> {
+			for (int n = 1; n <= lines; n++) {
+				byte[] line = ("line " + n + "\r\n").getBytes(StandardCharsets.UTF_8);
+				if (!session.mProcessToTerminalIOQueue.write(line, 0, line.length)) return;
+			}
+			try {
+				ptyClosed.await();
+			} catch (InterruptedException e) {
+				// Ignore.
+			}
+		});
+		reader.start();
+		return reader;
+	}
+
+	public void testOutputTailIsKeptAtExit() throws Exception {
+		TerminalSession session = newWorkerSession();
+		// The process exits with its output still queued.
+		Thread reader = startReader(session, 300, new CountDownLatch(0));
+		reader.join();
+		session.startEmulatorWorker();
+		session.drainOutput(reader);
+
+		String transcript = session.getEmulator().getScreen().getTranscriptText();
+		assertTrue(transcript, transcript.startsWith("line 1\n"));
+		assertTrue(transcript, transcript.endsWith("line 299\nline 300"));
+	}
+
+	public void testDrainIsCutOffIfThePtyStaysOpen() throws Exception {
+		TerminalSession session = newWorkerSession();
+		session.startEmulatorWorker();
+		// A background process keeps the pty open, so the reader does not end.
+		CountDownLatch ptyClosed = new CountDownLatch(1);
+		Thread reader = startReader(session, 10, ptyClosed);
+
+		long start = System.nanoTime();
+		session.drainOutput(reader);
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+		ptyClosed.countDown();
+
+		assertTrue("took " + elapsedMs + " ms", elapsedMs >= TerminalSession.OUTPUT_DRAIN_TIMEOUT_MS && elapsedMs < 3000);
+		assertTrue(session.getEmulator().getScreen().getTranscriptText().endsWith("line 10"));
+	}
+
+}
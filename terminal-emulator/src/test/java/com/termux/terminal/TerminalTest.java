@@ -1,6 +1,7 @@
 package com.termux.terminal;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 
 public class TerminalTest extends TerminalTestCase {
 
@@ -347,4 +348,52 @@ public class TerminalTest extends TerminalTestCase {
 		withTerminalSized(11, 2).enterString("01234567890\033[44m\r\tXX").assertLinesAre("01234567XX0", "           ");
 	}
 
+	public void testPrintableRuns() {
+		withTerminalSized(5, 3).enterString("abcdefghijk").assertLinesAre("abcde", "fghij", "k    ").assertCursorAt(2, 1);
+		assertTrue(mTerminal.getScreen().getLineWrap(0));
+		withTerminalSized(5, 2).enterString("\033[?7labcdefg").assertLinesAre("abcdg", "     ").assertCursorAt(0, 4);
+		withTerminalSized(5, 2).enterString("\u4e2d\u6587x\rab").assertLinesAre("ab\u6587x", "     ");
+		withTerminalSized(5, 2).enterString("ab\033[3b").assertLinesAre("abbbb", "     ");
+		withTerminalSized(6, 2).enterString("\033[?69h\033[2;4sabcdef").assertLinesAre("abcd  ", " ef   ").assertCursorAt(1, 3);
+	}
+
+	/** Appending whole buffers must leave the same state as processing one code point at a time. */
+	public void testPrintableRunsMatchCodePointAtATime() {
+		String[] pieces = {"hello world ", "x", "0123456789abcdef", "\r\n", "\t", "\033[31m", "\033[1;44m",
+			"\033[0m", "\033[?7l", "\033[?7h", "\033[4h", "\033[4l", "\033(0", "\033(B", "\033[2b", "\033[5;3H",
+			"\033[A", "\033[?69h\033[3;9s", "\033[?69l", "\033[2;5r", "\033[r", "\u4e2d\u6587", "e\u0301", "\u00e9t\u00e9",
+			"\033]0;title\007", "\033M"};
+		java.util.Random random = new java.util.Random(42);
+		for (int round = 0; round < 50; round++) {
+			int columns = 4 + random.nextInt(20);
+			int rows = 2 + random.nextInt(6);
+			StringBuilder input = new StringBuilder();
+			for (int i = 0; i < 200; i++)
+				input.append(pieces[random.nextInt(pieces.length)]);
+			String text = input.toString();
+
+			TerminalEmulator bulk = new TerminalEmulator(mOutput, columns, rows, INITIAL_CELL_WIDTH_PIXELS, INITIAL_CELL_HEIGHT_PIXELS, rows * 2, null);
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			bulk.append(bytes, bytes.length);
+			TerminalEmulator single = new TerminalEmulator(mOutput, columns, rows, INITIAL_CELL_WIDTH_PIXELS, INITIAL_CELL_HEIGHT_PIXELS, rows * 2, null);
+			text.codePoints().forEach(single::processCodePoint);
+
+			String context = "round " + round + ": " + text;
+			assertEquals(context, single.getCursorRow(), bulk.getCursorRow());
+			assertEquals(context, single.getCursorCol(), bulk.getCursorCol());
+			TerminalBuffer expected = single.getScreen();
+			TerminalBuffer actual = bulk.getScreen();
+			assertEquals(context, expected.getActiveTranscriptRows(), actual.getActiveTranscriptRows());
+			for (int row = -expected.getActiveTranscriptRows(); row < rows; row++) {
+				TerminalRow expectedRow = expected.allocateFullLineIfNecessary(expected.externalToInternalRow(row));
+				TerminalRow actualRow = actual.allocateFullLineIfNecessary(actual.externalToInternalRow(row));
+				assertEquals(context, new String(expectedRow.mText, 0, expectedRow.getSpaceUsed()),
+					new String(actualRow.mText, 0, actualRow.getSpaceUsed()));
+				assertEquals(context, expectedRow.mLineWrap, actualRow.mLineWrap);
+				for (int column = 0; column < columns; column++)
+					assertEquals(context, expectedRow.getStyle(column), actualRow.getStyle(column));
+			}
+		}
+	}
+
 }
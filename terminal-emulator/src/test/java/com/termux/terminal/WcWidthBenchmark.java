@@ -0,0 +1,83 @@
+package com.termux.terminal;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Time per call of {@link WcWidth#width(int)} with the lookup table against the binary search over the interval
+ * tables it replaced, for the code points of chat logs with CJK text, box drawing, emoji and combining marks: one
+ * call per code point as {@link TerminalEmulator} emits them, and one per char of a row as
+ * {@code TerminalRenderer.render} walks it.
+ *
+ * Run with: ./gradlew :terminal-emulator:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*WcWidthBenchmark'
+ */
+public class WcWidthBenchmark {
+
+    private static final int REPEAT = 2000;
+
+    @Test
+    public void widthCallTime() {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        String text = text();
+        int[] codePoints = text.codePoints().toArray();
+        char[] row = text.toCharArray();
+        for (int round = 0; round < 2; round++) {
+            report("emulator", codePoints.length, timeCodePoints(codePoints, false), timeCodePoints(codePoints, true));
+            report("renderer", row.length, timeRow(row, false), timeRow(row, true));
+        }
+    }
+
+    private static long timeCodePoints(int[] codePoints, boolean table) {
+        long best = Long.MAX_VALUE;
+        long sum = 0;
+        for (int iteration = 0; iteration < 5; iteration++) {
+            long start = System.nanoTime();
+            for (int n = 0; n < REPEAT; n++) {
+                for (int codePoint : codePoints)
+                    sum += table ? WcWidth.width(codePoint) : WcWidth.widthFromTables(codePoint);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sum == 42) System.out.println();
+        return best;
+    }
+
+    private static long timeRow(char[] row, boolean table) {
+        long best = Long.MAX_VALUE;
+        long sum = 0;
+        for (int iteration = 0; iteration < 5; iteration++) {
+            long start = System.nanoTime();
+            for (int n = 0; n < REPEAT; n++) {
+                for (int i = 0; i < row.length; i++) {
+                    char c = row[i];
+                    int codePoint = Character.isHighSurrogate(c) ? Character.toCodePoint(c, row[++i]) : c;
+                    sum += table ? WcWidth.width(codePoint) : WcWidth.widthFromTables(codePoint);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sum == 42) System.out.println();
+        return best;
+    }
+
+    private static void report(String label, int calls, long searchNanos, long tableNanos) {
+        double search = (double) searchNanos / calls / REPEAT;
+        double table = (double) tableNanos / calls / REPEAT;
+        System.out.println(String.format(Locale.ROOT, "%-10s interval search %6.2f ns/call, table %6.2f ns/call, %5.1fx",
+            label, search, table, search / table));
+    }
+
+    private static String text() {
+        String[] messages = {"飞书用户请求已处理，模型返回结果", "QQ 群消息：请帮我总结今天的会议纪要 😀",
+            "gateway request handled path=/v1/chat status=200", "翻译：天気がいいので散歩しましょう",
+            "café naïve é 👍🏽 ✓ 안녕하세요"};
+        StringBuilder text = new StringBuilder();
+        for (int n = 0; n < 40; n++)
+            text.append("│ ").append(messages[n % messages.length]).append(" │ ─── ").append(n).append('\n');
+        return text.toString();
+    }
+}
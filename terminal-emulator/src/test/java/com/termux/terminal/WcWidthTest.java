@@ -9,6 +9,15 @@ public class WcWidthTest extends TestCase {
 		assertEquals(expectedWidth, wcWidth);
 	}
 
+	public void testLookupTableMatchesIntervalTables() {
+		for (int codePoint = -1; codePoint <= Character.MAX_CODE_POINT + 1; codePoint++) {
+			if (WcWidth.width(codePoint) != WcWidth.widthFromTables(codePoint))
+				fail("Width of 0x" + Integer.toHexString(codePoint) + ": " + WcWidth.width(codePoint) + " != " + WcWidth.widthFromTables(codePoint));
+		}
+		assertEquals(0, WcWidth.width(Integer.MIN_VALUE));
+		assertEquals(1, WcWidth.width(Integer.MAX_VALUE));
+	}
+
 	public void testPrintableAscii() {
 		for (int i = 0x20; i <= 0x7E; i++) {
 			assertWidthIs(1, i);
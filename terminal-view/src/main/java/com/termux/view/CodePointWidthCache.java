@@ -0,0 +1,68 @@
+package com.termux.view;
+
+import java.util.Arrays;
+
+/**
+ * A bounded map from code point to measured text width, for the code points {@link TerminalRenderer} has no
+ * precomputed width for. Open addressed with linear probing over primitive arrays so that lookups while rendering
+ * neither box nor allocate. When it is full it is cleared, as the code points in use are refilled within a frame.
+ */
+final class CodePointWidthCache {
+
+    private static final int EMPTY = -1;
+
+    private final int[] mKeys;
+    private final float[] mWidths;
+    private final int mMask;
+    private final int mMaxSize;
+    private int mSize;
+
+    /** @param capacity The number of slots, a power of two. At most three quarters of them are used. */
+    CodePointWidthCache(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        mKeys = new int[capacity];
+        mWidths = new float[capacity];
+        mMask = capacity - 1;
+        mMaxSize = capacity / 4 * 3;
+        clear();
+    }
+
+    /** The cached width of the code point, or {@link Float#NaN} if none. */
+    float get(int codePoint) {
+        for (int slot = slot(codePoint); ; slot = (slot + 1) & mMask) {
+            int key = mKeys[slot];
+            if (key == codePoint) return mWidths[slot];
+            if (key == EMPTY) return Float.NaN;
+        }
+    }
+
+    void put(int codePoint, float width) {
+        if (codePoint < 0) throw new IllegalArgumentException("Invalid code point: " + codePoint);
+        if (mSize >= mMaxSize) clear();
+        int slot = slot(codePoint);
+        while (mKeys[slot] != EMPTY && mKeys[slot] != codePoint)
+            slot = (slot + 1) & mMask;
+        if (mKeys[slot] == EMPTY) {
+            mKeys[slot] = codePoint;
+            mSize++;
+        }
+        mWidths[slot] = width;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        Arrays.fill(mKeys, EMPTY);
+        mSize = 0;
+    }
+
+    private int slot(int codePoint) {
+        // Spread neighbouring code points, like a CJK block, over the table.
+        int hash = codePoint * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mMask;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.termux.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CodePointWidthCacheTest {
+
+    @Test
+    public void putAndGet() {
+        CodePointWidthCache cache = new CodePointWidthCache(16);
+        assertTrue(Float.isNaN(cache.get(0x4E2D)));
+
+        cache.put(0x4E2D, 24.5f);
+        cache.put(0x1F600, 30f);
+        cache.put(0x2500, 12f);
+        assertEquals(24.5f, cache.get(0x4E2D), 0f);
+        assertEquals(30f, cache.get(0x1F600), 0f);
+        assertEquals(12f, cache.get(0x2500), 0f);
+        assertTrue(Float.isNaN(cache.get(0x4E2E)));
+
+        cache.put(0x4E2D, 25f);
+        assertEquals(25f, cache.get(0x4E2D), 0f);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void everyKeyIsFoundUntilFull() {
+        CodePointWidthCache cache = new CodePointWidthCache(4096);
+        // A CJK block in order, the worst case for a plain modulo hash.
+        for (int i = 0; i < 3072; i++) cache.put(0x4E00 + i, i);
+        assertEquals(3072, cache.size());
+        for (int i = 0; i < 3072; i++) assertEquals(i, cache.get(0x4E00 + i), 0f);
+    }
+
+    @Test
+    public void clearedWhenFull() {
+        CodePointWidthCache cache = new CodePointWidthCache(8);
+        for (int i = 0; i < 6; i++) cache.put(0x3000 + i, i);
+        assertEquals(6, cache.size());
+
+        cache.put(0x3100, 1f);
+        assertEquals(1, cache.size());
+        assertEquals(1f, cache.get(0x3100), 0f);
+        assertTrue(Float.isNaN(cache.get(0x3000)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBeAPowerOfTwo() {
+        new CodePointWidthCache(100);
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.termux.view;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+
+import com.termux.terminal.TerminalEmulator;
+import com.termux.terminal.TerminalOutput;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Time per frame of {@link TerminalRenderer#render} on a 120x40 screen drawn into a native Robolectric canvas, for
+ * colored log lines with some CJK text and for a CJK-heavy screen of chat logs in a box-drawing frame: a full screen
+ * with a new renderer, a full redraw with measured widths cached, a frame where only the cursor row changed, a frame
+ * after one line was scrolled in, and a frame where nothing changed.
+ *
+ * Run with: ./gradlew :terminal-view:testDebugUnitTest -Pbotdrop.benchmark=true --tests '*TerminalRendererBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class TerminalRendererBenchmark {
+
+    private static final int COLUMNS = 120;
+    private static final int ROWS = 40;
+    private static final int FRAMES = 200;
+
+    private static final int FULL_SCREEN = 0;
+    private static final int REDRAW = 1;
+    private static final int TYPING = 2;
+    private static final int SCROLLING = 3;
+    private static final int UNCHANGED = 4;
+    private static final String[] WORKLOADS = {"full screen", "redraw", "typing", "scrolling", "unchanged"};
+
+    private static final class NullOutput extends TerminalOutput {
+        @Override public void write(byte[] data, int offset, int count) {}
+        @Override public void titleChanged(String oldTitle, String newTitle) {}
+        @Override public void onCopyTextToClipboard(String text) {}
+        @Override public void onPasteTextFromClipboard() {}
+        @Override public void onBell() {}
+        @Override public void onColorsChanged() {}
+    }
+
+    @Test
+    public void renderFrameTime() {
+        assumeTrue(Boolean.getBoolean("botdrop.benchmark"));
+
+        for (int round = 0; round < 2; round++) {
+            run("log", false);
+            run("cjk", true);
+        }
+    }
+
+    private static void run(String label, boolean cjk) {
+        TerminalRenderer renderer = new TerminalRenderer(28, Typeface.MONOSPACE);
+        TerminalEmulator emulator = new TerminalEmulator(new NullOutput(), COLUMNS, ROWS, (int) renderer.getFontWidth(),
+            renderer.getFontLineSpacing(), TerminalEmulator.DEFAULT_TERMINAL_TRANSCRIPT_ROWS, null);
+        Bitmap bitmap = Bitmap.createBitmap((int) Math.ceil(COLUMNS * renderer.getFontWidth()),
+            ROWS * renderer.getFontLineSpacing() + renderer.getFontLineSpacing(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (int n = 0; n < ROWS * 2; n++) append(emulator, line(n, cjk));
+
+        for (int workload = 0; workload < WORKLOADS.length; workload++)
+            report(label + " " + WORKLOADS[workload], timeFrames(emulator, canvas, renderer, workload, cjk));
+    }
+
+    /** Nanoseconds per frame, each frame after the change of the workload. */
+    private static long timeFrames(TerminalEmulator emulator, Canvas canvas, TerminalRenderer renderer, int workload, boolean cjk) {
+        long total = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            TerminalRenderer frameRenderer = renderer;
+            if (workload == FULL_SCREEN) {
+                // Nothing cached, the cost of every frame before rows and widths were cached.
+                frameRenderer = new TerminalRenderer(renderer.mTextSize, renderer.mTypeface);
+            } else if (workload == REDRAW) {
+                // Toggling reverse video changes every row, as a full screen TUI repaint does.
+                append(emulator, frame % 2 == 0 ? "\033[?5h" : "\033[?5l");
+            } else if (workload == TYPING) {
+                append(emulator, cjk ? "字" : "x");
+            } else if (workload == SCROLLING) {
+                append(emulator, line(frame, cjk));
+            }
+            long start = System.nanoTime();
+            frameRenderer.render(emulator, canvas, 0, -1, -1, -1, -1);
+            total += System.nanoTime() - start;
+        }
+        return total / FRAMES;
+    }
+
+    private static void report(String label, long nanosPerFrame) {
+        System.out.println(String.format(Locale.ROOT, "%-16s %7.3f ms/frame", label, nanosPerFrame / 1e6));
+    }
+
+    private static String line(int n, boolean cjk) {
+        if (cjk) {
+            String[] messages = {"飞书用户请求已处理，模型返回结果", "QQ 群消息：请帮我总结今天的会议纪要", "网关重启完成 ✓ 耗时 1.2 秒",
+                "错误：上游超时，正在重试第 2 次", "翻译：天気がいいので散歩しましょう"};
+            return String.format(Locale.ROOT, "│ %02d:%02d │ \033[36m%s\033[39m │ %s │\r\n", n / 60 % 60, n % 60,
+                n % 2 == 0 ? "飞书" : "ＱＱ", messages[n % messages.length]);
+        }
+        String[] colors = {"32", "33", "90", "31"};
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "2026-01-05T12:%02d:%02d.%03dZ ", n / 60 % 60, n % 60, n % 1000));
+        line.append("\033[").append(colors[n % colors.length]).append("minfo\033[39m gateway request handled");
+        line.append(n % 3 == 0 ? " 网关请求已处理 模型 ✓" : " path=/v1/chat status=200 model=gpt-4o");
+        return line.append("\r\n").toString();
+    }
+
+    private static void append(TerminalEmulator emulator, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        emulator.append(bytes, bytes.length);
+    }
+}
@@ -156,6 +156,8 @@ public class TermuxSession {
         TerminalSession terminalSession = new TerminalSession(executionCommand.executable,
             executionCommand.workingDirectory, executionCommand.arguments, environmentArray,
             executionCommand.terminalTranscriptRows, terminalSessionClient);
+        // Keep heavy output like `cat` of a large log from blocking the UI thread.
+        terminalSession.setEmulatorWorkerEnabled(true);
 
         if (executionCommand.shellName != null) {
             terminalSession.mSessionName = executionCommand.shellName;